@@ -12,7 +12,7 @@ import org.mardi2020.dependencyinjection.service.UserService;
 public class DependencyinjectionApplication {
 
 	@MyAutowired
-	private UserService userService;
+	UserService userService;
 
 	public static void main(String[] args) {
 		MyApplicationContextV1 context = new MyApplicationContextV1("org.mardi2020.dependencyinjection");
@@ -0,0 +1,15 @@
+package org.mardi2020.dependencyinjection.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 시작할 때 만들지 않고 처음 getBean 할 때 만드는 컴포넌트
+ * - 시작할 때 만드는 bean 이 이 bean 에 의존하면 함께 미리 만들어짐
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MyLazy {
+}
@@ -0,0 +1,14 @@
+package org.mardi2020.dependencyinjection.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 같은 타입(인터페이스 / 상위 클래스)의 bean 이 여러 개일 때 이름 없이 찾으면 이 bean 을 고름
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MyPrimary {
+}
@@ -0,0 +1,17 @@
+package org.mardi2020.dependencyinjection.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 클래스에 붙이면 bean 이름, 필드 / 생성자 인자에 붙이면 그 이름의 bean 을 주입
+ * - 붙이지 않은 bean 의 이름은 클래스 이름의 첫 글자를 소문자로 바꾼 것 (UserService → userService)
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.FIELD, ElementType.PARAMETER})
+public @interface MyQualifier {
+
+    String value();
+}
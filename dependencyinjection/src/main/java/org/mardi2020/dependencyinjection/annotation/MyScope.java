@@ -0,0 +1,46 @@
+package org.mardi2020.dependencyinjection.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 컴포넌트의 인스턴스를 언제 새로 만들지 정함 (없으면 SINGLETON)
+ * - SINGLETON 이 아닌 bean 을 주입받으면 생성된 프록시(`<클래스명>_MyScopedProxy`)가 들어가고,
+ *   프록시는 메서드를 부를 때마다 그 시점의 인스턴스를 찾아 위임함
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface MyScope {
+
+    Type value();
+
+    /**
+     * @return POOLED 일 때 풀에 남겨 둘 최대 인스턴스 수 (동시에 더 필요하면 새로 만들고, 돌려받을 때 넘치면 버림)
+     */
+    int poolSize() default 16;
+
+    enum Type {
+        /**
+         * 컨텍스트에 하나
+         */
+        SINGLETON,
+        /**
+         * getBean (프록시는 메서드 호출) 마다 새로 만듦
+         */
+        PROTOTYPE,
+        /**
+         * 스레드마다 하나
+         */
+        THREAD,
+        /**
+         * RequestScope.begin() ~ close() 사이에 하나, 열린 요청이 없으면 IllegalStateException
+         */
+        REQUEST,
+        /**
+         * 메서드 호출마다 풀에서 빌리고 돌려줌 (Resettable 이면 돌려받을 때 reset), 파서 / 버퍼처럼 비싸고 상태가 있는 객체용
+         */
+        POOLED
+    }
+}
@@ -0,0 +1,15 @@
+package org.mardi2020.dependencyinjection.config;
+
+/**
+ * bean 을 만들 수 없을 때 (생성자 선택 실패, 생성자에서 예외, 순환 의존 등)
+ */
+public class BeanCreationException extends RuntimeException {
+
+    public BeanCreationException(String message) {
+        super(message);
+    }
+
+    public BeanCreationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
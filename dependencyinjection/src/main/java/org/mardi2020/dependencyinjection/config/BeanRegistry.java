@@ -0,0 +1,194 @@
+package org.mardi2020.dependencyinjection.config;
+
+import org.mardi2020.dependencyinjection.annotation.MyScope;
+import org.mardi2020.dependencyinjection.scope.ScopedTarget;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 등록된 bean 과 타입 계층 인덱스
+ * - 등록할 때 bean 클래스의 모든 상위 클래스 / 인터페이스를 미리 구해서, 타입마다 "후보 목록 + 고른 bean" 을 만들어 둠
+ *   → getBean 은 어떤 타입으로 찾든 해시 조회 한 번
+ * - 인덱스 항목은 불변 객체로 통째로 바꾸고(ConcurrentHashMap.compute), 읽는 쪽은 락을 잡지 않음
+ *   → 실행 중에 등록해도 읽는 스레드는 이전 또는 새 항목 중 하나를 온전하게 봄
+ * - 고르는 순서: 찾는 타입과 클래스가 같은 bean → @MyPrimary 가 하나 → 후보가 하나, 그 외에는 NoUniqueBeanException
+ */
+final class BeanRegistry {
+
+    /**
+     * 등록된 bean 하나, 인스턴스는 만들어진 뒤에 한 번만 채워짐 (lazy bean 은 처음 getBean 할 때)
+     * - SINGLETON 이 아니면 instance 는 주입용 프록시, target 은 scope 에 맞게 인스턴스를 꺼내는 곳
+     */
+    static final class Bean {
+
+        final Class<?> type;
+
+        final String name;
+
+        final boolean primary;
+
+        final MyScope.Type scope;
+
+        final ComponentFactory<?> factory;
+
+        /**
+         * instance 보다 먼저 쓰고 instance 의 volatile 쓰기로 공개됨
+         */
+        ScopedTarget<Object> target;
+
+        volatile Object instance;
+
+        private Bean(ComponentFactory<?> factory) {
+            this.type = factory.type();
+            this.name = factory.name();
+            this.primary = factory.isPrimary();
+            this.scope = factory.scope();
+            this.factory = factory;
+        }
+
+        boolean isSingleton() {
+            return scope == MyScope.Type.SINGLETON;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * @param resolved 이름 없이 찾을 때 고른 bean, 고를 수 없으면 null
+     */
+    private record Candidates(List<Bean> beans, Bean resolved) {
+
+        private static final Candidates EMPTY = new Candidates(List.of(), null);
+
+        private Candidates with(Class<?> type, Bean bean) {
+            List<Bean> added = new ArrayList<>(beans.size() + 1);
+            added.addAll(beans);
+            added.add(bean);
+            return new Candidates(List.copyOf(added), resolve(type, added));
+        }
+
+        private static Bean resolve(Class<?> type, List<Bean> beans) {
+            if (beans.size() == 1) {
+                return beans.get(0);
+            }
+            for (Bean bean : beans) {
+                if (bean.type == type) {
+                    return bean;
+                }
+            }
+            Bean primary = null;
+            for (Bean bean : beans) {
+                if (bean.primary) {
+                    if (primary != null) {
+                        return null;
+                    }
+                    primary = bean;
+                }
+            }
+            return primary;
+        }
+    }
+
+    private final ConcurrentHashMap<Class<?>, Candidates> byType = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Bean> byName = new ConcurrentHashMap<>();
+
+    /**
+     * 등록된 클래스 (싱글톤 보장용)
+     */
+    private final ConcurrentHashMap<Class<?>, Bean> byClass = new ConcurrentHashMap<>();
+
+    /**
+     * @implSpec 1️⃣ 같은 클래스가 이미 있으면 등록하지 않음 2️⃣ 이름 등록 3️⃣ 모든 상위 타입의 인덱스 항목에 추가
+     * @return 등록한 bean, 같은 클래스가 이미 있으면 null
+     * @throws BeanCreationException 다른 bean 이 같은 이름을 쓰고 있으면
+     */
+    Bean register(ComponentFactory<?> factory) {
+        Bean bean = new Bean(factory);
+        if (byClass.putIfAbsent(bean.type, bean) != null) {
+            return null;
+        }
+        Bean existing = byName.putIfAbsent(bean.name, bean);
+        if (existing != null) {
+            byClass.remove(bean.type, bean);
+            throw new BeanCreationException("Bean name '" + bean.name + "' of " + bean.type.getSimpleName()
+                    + " is already used by " + existing.type.getSimpleName());
+        }
+        for (Class<?> type : typeHierarchy(bean.type)) {
+            byType.compute(type, (key, candidates) -> (candidates == null ? Candidates.EMPTY : candidates).with(key, bean));
+        }
+        return bean;
+    }
+
+    /**
+     * @return 타입으로 고른 bean, 없으면 null
+     * @throws NoUniqueBeanException 후보가 여러 개이고 고를 수 없으면
+     */
+    Bean find(Class<?> type) {
+        Candidates candidates = byType.get(type);
+        if (candidates == null) {
+            return null;
+        }
+        if (candidates.resolved == null) {
+            throw new NoUniqueBeanException(type, candidates.beans.stream().map(bean -> bean.name).toList());
+        }
+        return candidates.resolved;
+    }
+
+    /**
+     * @return 이름으로 찾은 bean, 없거나 타입이 맞지 않으면 null
+     */
+    Bean find(String name, Class<?> type) {
+        Bean bean = byName.get(name);
+        return bean != null && type.isAssignableFrom(bean.type) ? bean : null;
+    }
+
+    Bean find(Dependency dependency) {
+        return dependency.qualifier() == null ? find(dependency.type()) : find(dependency.qualifier(), dependency.type());
+    }
+
+    boolean isRegistered(Class<?> type) {
+        return byClass.containsKey(type);
+    }
+
+    Set<Class<?>> types() {
+        return byClass.keySet();
+    }
+
+    /**
+     * @return 클래스 이름의 첫 글자를 소문자로 (UserService → userService, 중첩 클래스는 가장 안쪽 이름)
+     */
+    static String defaultName(Class<?> type) {
+        String simpleName = type.getSimpleName();
+        return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+    }
+
+    /**
+     * @return 자기 자신과 모든 상위 클래스 / 인터페이스 (Object 제외)
+     */
+    private static Set<Class<?>> typeHierarchy(Class<?> type) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        Deque<Class<?>> queue = new ArrayDeque<>();
+        queue.add(type);
+        while (!queue.isEmpty()) {
+            Class<?> current = queue.poll();
+            if (current == Object.class || !types.add(current)) {
+                continue;
+            }
+            if (current.getSuperclass() != null) {
+                queue.add(current.getSuperclass());
+            }
+            queue.addAll(List.of(current.getInterfaces()));
+        }
+        return types;
+    }
+}
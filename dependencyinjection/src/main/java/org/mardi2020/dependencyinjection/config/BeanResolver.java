@@ -0,0 +1,27 @@
+package org.mardi2020.dependencyinjection.config;
+
+/**
+ * 타입으로 bean 을 찾는 쪽 (생성된 팩토리가 의존성을 넣을 때 씀)
+ */
+public interface BeanResolver {
+
+    /**
+     * @return 등록된 bean (인터페이스 / 상위 클래스로도 찾음), 없으면 null
+     * @throws NoUniqueBeanException 후보가 여러 개이고 고를 수 없으면
+     */
+    <T> T getBean(Class<T> clazz);
+
+    /**
+     * @return 이름이 name 인 bean, 없거나 타입이 맞지 않으면 null
+     */
+    <T> T getBean(String name, Class<T> clazz);
+
+    /**
+     * @return qualifier 가 있으면 이름으로, 없으면 타입으로 찾은 bean
+     */
+    default Object getBean(Dependency dependency) {
+        return dependency.qualifier() == null
+                ? getBean(dependency.type())
+                : getBean(dependency.qualifier(), dependency.type());
+    }
+}
@@ -0,0 +1,80 @@
+package org.mardi2020.dependencyinjection.config;
+
+import org.mardi2020.dependencyinjection.annotation.MyScope;
+import org.mardi2020.dependencyinjection.scope.ScopedTarget;
+
+import java.util.List;
+
+/**
+ * @MyComponent 하나를 만들고 의존성을 넣는 팩토리 (컴파일 시점에 `<클래스명>_MyFactory` 로 생성됨)
+ * - 생성된 코드는 `new` 와 필드 대입만 하므로 리플렉션이 필요 없음
+ * - 생성된 레지스트리가 없으면 ReflectiveComponentFactory 가 같은 일을 리플렉션으로 함
+ * @param <T> 컴포넌트 타입
+ */
+public interface ComponentFactory<T> {
+
+    /**
+     * @return 만드는 컴포넌트의 타입 (bean 을 등록하는 키)
+     */
+    Class<T> type();
+
+    /**
+     * @return 생성자 인자와 @MyAutowired 필드가 필요로 하는 bean (의존성 그래프의 간선), 이 bean 보다 먼저 만들어짐
+     */
+    List<Dependency> dependencies();
+
+    /**
+     * @return bean 이름, @MyQualifier 가 없으면 클래스 이름의 첫 글자를 소문자로
+     */
+    default String name() {
+        return BeanRegistry.defaultName(type());
+    }
+
+    /**
+     * @return @MyPrimary 가 붙었으면 true
+     */
+    default boolean isPrimary() {
+        return false;
+    }
+
+    /**
+     * @return @MyLazy 가 붙었으면 true (처음 getBean 할 때 만듦)
+     */
+    default boolean isLazy() {
+        return false;
+    }
+
+    /**
+     * @return @MyScope 의 값, 없으면 SINGLETON
+     */
+    default MyScope.Type scope() {
+        return MyScope.Type.SINGLETON;
+    }
+
+    /**
+     * @return POOLED 일 때 풀에 남겨 둘 최대 인스턴스 수
+     */
+    default int poolSize() {
+        return 0;
+    }
+
+    /**
+     * @implSpec SINGLETON 이 아닌 bean 을 주입할 때 넣을 프록시, 메서드마다 target 에서 인스턴스를 꺼내 위임
+     * - 생성된 팩토리는 `<클래스명>_MyScopedProxy` (bean 클래스를 상속) 를 만듦
+     * @return 프록시, 생성된 프록시가 없으면 null (컨텍스트가 인터페이스로 JDK 프록시를 만듦)
+     */
+    default T proxy(ScopedTarget<T> target) {
+        return null;
+    }
+
+    /**
+     * @implSpec 생성자 인자는 resolver 에서 찾아 넘김
+     * @return 새 인스턴스 (필드 의존성은 아직 비어 있음)
+     */
+    T create(BeanResolver resolver);
+
+    /**
+     * @implSpec @MyAutowired 필드에 resolver 에서 찾은 bean 을 넣음
+     */
+    void inject(T bean, BeanResolver resolver);
+}
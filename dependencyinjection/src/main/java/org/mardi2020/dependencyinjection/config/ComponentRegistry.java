@@ -0,0 +1,12 @@
+package org.mardi2020.dependencyinjection.config;
+
+import java.util.List;
+
+/**
+ * 모듈 안의 모든 ComponentFactory 목록 (컴파일 시점에 GeneratedComponentRegistry 로 생성됨)
+ * - `META-INF/services` 에 등록되어 ServiceLoader 로 찾음 → 클래스패스 스캔이 필요 없음
+ */
+public interface ComponentRegistry {
+
+    List<ComponentFactory<?>> factories();
+}
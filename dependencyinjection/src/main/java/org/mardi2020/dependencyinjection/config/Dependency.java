@@ -0,0 +1,22 @@
+package org.mardi2020.dependencyinjection.config;
+
+/**
+ * 생성자 인자 / @MyAutowired 필드 하나가 필요로 하는 bean
+ * @param type 필요한 타입 (인터페이스, 상위 클래스도 가능)
+ * @param qualifier @MyQualifier 로 지정한 bean 이름, 없으면 null
+ */
+public record Dependency(Class<?> type, String qualifier) {
+
+    public static Dependency of(Class<?> type) {
+        return new Dependency(type, null);
+    }
+
+    public static Dependency of(Class<?> type, String qualifier) {
+        return new Dependency(type, qualifier);
+    }
+
+    @Override
+    public String toString() {
+        return qualifier == null ? type.getSimpleName() : type.getSimpleName() + "('" + qualifier + "')";
+    }
+}
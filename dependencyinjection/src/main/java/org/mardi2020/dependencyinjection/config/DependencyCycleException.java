@@ -0,0 +1,24 @@
+package org.mardi2020.dependencyinjection.config;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 의존성 그래프에 순환이 있을 때, 순환 경로 전체를 담음 (ex. A -> B -> C -> A)
+ */
+public class DependencyCycleException extends BeanCreationException {
+
+    private final List<Class<?>> path;
+
+    public DependencyCycleException(List<Class<?>> path) {
+        super("Circular dependency: " + path.stream().map(Class::getSimpleName).collect(Collectors.joining(" -> ")));
+        this.path = List.copyOf(path);
+    }
+
+    /**
+     * @return 순환 경로, 처음과 마지막이 같은 타입
+     */
+    public List<Class<?>> getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,117 @@
+package org.mardi2020.dependencyinjection.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 컴포넌트 사이의 의존성 DAG (간선: bean → 생성자 인자 / @MyAutowired 필드가 가리키는 bean)
+ * - 의존성은 레지스트리에서 찾으므로 인터페이스 / 상위 클래스 / @MyQualifier 로도 간선이 이어짐
+ * - 등록되지 않은 타입에 대한 의존은 간선이 아님 (주입 시 null, 이전과 같음)
+ * - 위상 정렬하면서 순환을 찾으면 경로 전체를 담아 DependencyCycleException
+ */
+@Slf4j
+final class DependencyGraph {
+
+    private final Map<Class<?>, BeanRegistry.Bean> beans = new LinkedHashMap<>();
+
+    private final Map<Class<?>, List<Class<?>>> edges = new HashMap<>();
+
+    /**
+     * @implSpec 컴포넌트를 모두 레지스트리에 등록한 뒤 의존성을 찾아 간선을 만듦
+     * @throws NoUniqueBeanException 의존성 하나에 후보가 여러 개이고 고를 수 없으면
+     */
+    DependencyGraph(Collection<ComponentFactory<?>> components, BeanRegistry registry) {
+        for (ComponentFactory<?> factory : components) {
+            BeanRegistry.Bean bean = registry.register(factory);
+            if (bean == null) {
+                log.warn("⚠️ Warning: {} is already registered as singleton! Skipping registration.",
+                        factory.type().getSimpleName());
+                continue;
+            }
+            beans.put(bean.type, bean);
+        }
+        for (BeanRegistry.Bean bean : beans.values()) {
+            List<Class<?>> dependencies = new ArrayList<>();
+            for (Dependency dependency : bean.factory.dependencies()) {
+                BeanRegistry.Bean target = registry.find(dependency);
+                if (target == null) {
+                    log.warn("⚠️ No bean {} for {}, injecting null", dependency, bean.type.getSimpleName());
+                } else if (!dependencies.contains(target.type)) {
+                    dependencies.add(target.type);
+                }
+            }
+            edges.put(bean.type, dependencies);
+        }
+    }
+
+    BeanRegistry.Bean bean(Class<?> type) {
+        return beans.get(type);
+    }
+
+    List<Class<?>> dependenciesOf(Class<?> type) {
+        return edges.get(type);
+    }
+
+    /**
+     * @implSpec DFS 후위 순회 → 의존하는 bean 이 항상 먼저 나옴
+     * - 방문 중(스택 위)인 노드를 다시 만나면 순환, 스택에서 그 노드부터 잘라 경로로 보고
+     * @return 위상 정렬 순서 (의존성이 먼저)
+     * @throws DependencyCycleException 순환이 있으면
+     */
+    List<Class<?>> topologicalOrder() {
+        List<Class<?>> order = new ArrayList<>(beans.size());
+        Map<Class<?>, Boolean> visited = new HashMap<>(); // false: 방문 중, true: 완료
+        List<Class<?>> stack = new ArrayList<>();
+        for (Class<?> type : beans.keySet()) {
+            visit(type, visited, stack, order);
+        }
+        return order;
+    }
+
+    /**
+     * @implSpec 위상 순서를 거꾸로 (의존하는 쪽부터) 훑으며 시작할 때 만들 bean 이 의존하는 bean 도 표시
+     * @param lazyMode 전역 lazy 모드면 모든 bean 이 lazy
+     * @return 시작할 때 만들 bean (lazy 가 아닌 bean 과 그 bean 이 의존하는 모든 bean) 의 위상 순서
+     * @throws DependencyCycleException lazy bean 을 포함해 그래프 전체에 순환이 있으면
+     */
+    List<Class<?>> eagerOrder(boolean lazyMode) {
+        List<Class<?>> order = topologicalOrder();
+        Set<Class<?>> eager = new HashSet<>();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Class<?> type = order.get(i);
+            if (eager.contains(type) || (!lazyMode && !beans.get(type).factory.isLazy())) {
+                eager.add(type);
+                eager.addAll(edges.get(type));
+            }
+        }
+        return order.stream().filter(eager::contains).toList();
+    }
+
+    private void visit(Class<?> type, Map<Class<?>, Boolean> visited, List<Class<?>> stack, List<Class<?>> order) {
+        Boolean state = visited.get(type);
+        if (Boolean.TRUE.equals(state)) {
+            return;
+        }
+        if (Boolean.FALSE.equals(state)) {
+            List<Class<?>> cycle = new ArrayList<>(stack.subList(stack.indexOf(type), stack.size()));
+            cycle.add(type);
+            throw new DependencyCycleException(cycle);
+        }
+        visited.put(type, false);
+        stack.add(type);
+        for (Class<?> dependency : edges.get(type)) {
+            visit(dependency, visited, stack, order);
+        }
+        stack.remove(stack.size() - 1);
+        visited.put(type, true);
+        order.add(type);
+    }
+}
@@ -1,149 +1,412 @@
 package org.mardi2020.dependencyinjection.config;
 
 import lombok.extern.slf4j.Slf4j;
-import org.mardi2020.dependencyinjection.annotation.MyAutowired;
 import org.mardi2020.dependencyinjection.annotation.MyComponent;
+import org.mardi2020.dependencyinjection.annotation.MyScope;
+import org.mardi2020.dependencyinjection.scan.ComponentScanner;
+import org.mardi2020.dependencyinjection.scope.ObjectPool;
+import org.mardi2020.dependencyinjection.scope.ScopedTarget;
 
-import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.net.URL;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  * 패키지 내 @MyComponent 가 붙은 클래스를 찾아 자동으로 bean 등록
- * 필드에 @MyAutowired 가 붙어있다면 자동으로 의존성 주입
+ * 필드나 생성자에 @MyAutowired 가 붙어있다면 자동으로 의존성 주입
+ * - 컴파일 시점에 생성된 레지스트리(GeneratedComponentRegistry)의 팩토리로 등록, 생성된 팩토리가 없는 컴포넌트만 리플렉션으로 등록
+ * - 의존성 그래프를 위상 순서로 만들되, 서로 의존하지 않는 bean 은 fork-join pool 에서 병렬로 만듦
+ * - 인터페이스 / 상위 클래스로도 찾을 수 있고, 후보가 여럿이면 @MyPrimary / @MyQualifier 로 고름
+ * - @MyLazy (또는 전역 lazy 모드) bean 은 처음 getBean 할 때 의존하는 bean 과 함께 만듦
+ * - bean 마다 생성 시간을 StartupReport 에 남김
+ * - @MyScope bean (PROTOTYPE / THREAD / REQUEST / POOLED) 은 주입할 때 프록시를 넣고, 프록시가 메서드마다 scope 의 인스턴스에 위임
  */
 @Slf4j
-public class MyApplicationContextV1 {
+public class MyApplicationContextV1 implements BeanResolver {
 
-    private final Map<Class<?>, Object> beans = new HashMap<>();
+    /**
+     * `-Dmy.context.lazy=true` : 모든 bean 을 처음 getBean 할 때 만듦
+     */
+    public static final String LAZY_PROPERTY = "my.context.lazy";
+
+    private static final int REPORT_LIMIT = 10;
 
     /**
-     * 1️⃣ 지정된 패키지에서 `@MyComponent`가 붙은 클래스를 찾아 등록
-     * 2️⃣ `@MyAutowired`가 붙은 필드에 의존성 주입 수행
-     * @param basePackage 스캔할 패키지 명 ex) "org.mardi2020.~~"
+     * 프록시를 만들 수 없는 scope bean 의 자리 (주입하거나 POOLED 를 getBean 하면 실패)
      */
-    public MyApplicationContextV1(final String basePackage) {
-        try {
-            Set<Class<?>> componentClasses = findClasses(basePackage);
-            log.info("Found {} component classes in {}", componentClasses, basePackage);
+    private static final Object NO_PROXY = new Object();
 
-            // ✅ @MyComponent 가 붙은 클래스를 자동 등록
-            for (Class<?> clazz : componentClasses) {
-                registerBean(clazz);
-            }
+    /**
+     * 여러 pool 스레드가 동시에 등록하고, 실행 중에도 등록할 수 있는 타입 계층 인덱스
+     */
+    private final BeanRegistry registry = new BeanRegistry();
 
-            // ✅ 필드 의존성 자동 주입
-            injectDependencies();
-            log.info("Application context loaded. Registered beans: {}", beans.keySet());
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
+    private final StartupReport startupReport = new StartupReport();
+
+    /**
+     * 팩토리가 의존성을 찾을 때 쓰는 resolver, scope 가 있는 bean 은 인스턴스 대신 프록시를 줌
+     * → 싱글톤이 주입받은 뒤에도 호출할 때마다 지금 스레드 / 요청 / 풀의 인스턴스를 씀
+     */
+    private final BeanResolver injector = new BeanResolver() {
+        @Override
+        public <T> T getBean(Class<T> clazz) {
+            return injectable(registry.find(clazz), clazz);
+        }
+
+        @Override
+        public <T> T getBean(String name, Class<T> clazz) {
+            return injectable(registry.find(name, clazz), clazz);
         }
+    };
+
+    public MyApplicationContextV1(final String basePackage) {
+        this(basePackage, ForkJoinPool.commonPool());
+    }
+
+    public MyApplicationContextV1(final String basePackage, final ForkJoinPool pool) {
+        this(basePackage, pool, Boolean.getBoolean(LAZY_PROPERTY));
+    }
+
+    /**
+     * 1️⃣ 지정된 패키지의 `@MyComponent` 팩토리를 모음 (생성된 레지스트리 + 스캔해서 찾은 나머지)
+     * 2️⃣ 생성자 인자와 `@MyAutowired` 필드로 의존성 그래프를 만들고 순환을 검사
+     * 3️⃣ lazy 가 아닌 bean 을, 의존하는 bean 이 모두 준비되면 pool 에서 생성 + 주입 (독립된 가지는 병렬로)
+     * @param basePackage 스캔할 패키지 명 ex) "org.mardi2020.~~"
+     * @param pool bean 을 만들 pool
+     * @param lazy 전역 lazy 모드, true 면 시작할 때 아무 bean 도 만들지 않음
+     * @throws DependencyCycleException 순환 의존이 있으면 (경로 포함)
+     * @throws BeanCreationException bean 을 만들 수 없으면
+     */
+    public MyApplicationContextV1(final String basePackage, final ForkJoinPool pool, final boolean lazy) {
+        this(findComponents(basePackage), pool, lazy);
+    }
+
+    MyApplicationContextV1(final Collection<ComponentFactory<?>> components, final ForkJoinPool pool,
+                           final boolean lazy) {
+        long start = System.nanoTime();
+        DependencyGraph graph = new DependencyGraph(components, registry);
+        instantiate(graph, graph.eagerOrder(lazy), pool);
+        startupReport.contextLoaded(System.nanoTime() - start);
+        log.info("Application context loaded. Registered beans: {}", registry.types());
+        log.info("Startup report\n{}", startupReport.format(REPORT_LIMIT));
     }
 
     /**
      * @implSpec bean 가져오기
+     * - 인터페이스 / 상위 클래스로도 찾음, 어떤 타입이든 미리 만들어 둔 인덱스를 해시 조회 한 번
      * @param clazz 찾을 클래스의 타입 (제네릭)
      * @return 등록된 Bean(객체)을 반환, 존재하지 않으면 `null` 반환
      * @param <T> 제네릭 타입 (클래스 타입에 맞춰서)
+     * @throws NoUniqueBeanException 후보가 여러 개이고 @MyPrimary 로도 고를 수 없으면
+     * @throws IllegalStateException REQUEST bean 인데 지금 스레드에 열린 요청이 없으면
      */
+    @Override
     public <T> T getBean(Class<T> clazz) {
-        return clazz.cast(beans.get(clazz));
+        return current(registry.find(clazz), clazz);
     }
 
     /**
-     * @implSpec 하위 패키지까지 포함하여 모든 `@MyComponent` 클래스를 찾음
-     * @param basePackage 기본 패키지 경로 ("org.mardi2020.dependencyinjection")
-     * @return @MyComponent 가 붙은 클래스 목록
-     * @throws IOException 리소스 접근 예외
+     * @implSpec 이름(@MyQualifier, 없으면 클래스 이름의 첫 글자를 소문자로)으로 bean 가져오기
+     * @return 등록된 Bean, 없거나 타입이 맞지 않으면 `null`
      */
-    private Set<Class<?>> findClasses(String basePackage) throws IOException {
+    @Override
+    public <T> T getBean(String name, Class<T> clazz) {
+        return current(registry.find(name, clazz), clazz);
+    }
+
+    /**
+     * @return bean 마다 생성에 걸린 시간 (lazy bean 은 만들어질 때 추가됨)
+     */
+    public StartupReport getStartupReport() {
+        return startupReport;
+    }
+
+    /**
+     * @return 싱글톤은 그 인스턴스, PROTOTYPE / THREAD / REQUEST 는 scope 의 지금 인스턴스
+     * - POOLED 는 돌려받을 곳이 없으므로 프록시 (메서드마다 빌리고 돌려줌)
+     */
+    private <T> T current(BeanRegistry.Bean bean, Class<T> clazz) {
+        if (bean == null) {
+            return null;
+        }
+        if (bean.scope == MyScope.Type.POOLED) {
+            return injectable(bean, clazz);
+        }
+        Object instance = instanceOf(bean);
+        return clazz.cast(bean.isSingleton() ? instance : bean.target.acquire()); // ✅ instance 를 읽은 뒤라 target 이 보임
+    }
+
+    /**
+     * @return 주입할 객체 (scope 가 있으면 프록시)
+     * @throws BeanCreationException 프록시를 주입받을 타입으로 쓸 수 없으면
+     */
+    private <T> T injectable(BeanRegistry.Bean bean, Class<T> clazz) {
+        if (bean == null) {
+            return null;
+        }
+        Object instance = instanceOf(bean);
+        if (!bean.isSingleton() && !clazz.isInstance(proxyOf(bean, instance))) {
+            throw new BeanCreationException("Cannot inject @MyScope(" + bean.scope + ") " + bean.type.getSimpleName()
+                    + " as " + clazz.getSimpleName() + ": its JDK proxy only implements interfaces"
+                    + " (inject an interface or compile with the annotation processor)");
+        }
+        return clazz.cast(instance);
+    }
+
+    private static Object proxyOf(BeanRegistry.Bean bean, Object instance) {
+        if (instance == NO_PROXY) {
+            throw new BeanCreationException("@MyScope(" + bean.scope + ") " + bean.type.getSimpleName()
+                    + " has no proxy: compile with the annotation processor or implement an interface");
+        }
+        return instance;
+    }
+
+    /**
+     * @return 만들어졌으면 그대로 (✅ 락 없이 volatile 읽기만), 아직이면 지금 만듦 (lazy bean)
+     */
+    private Object instanceOf(BeanRegistry.Bean bean) {
+        Object instance = bean.instance;
+        return instance != null ? instance : initialize(bean, true);
+    }
+
+    /**
+     * @implSpec 아직 만들지 않은 bean 을 bean 마다 락을 잡고 한 번만 만듦 (double-checked)
+     * - 의존하는 bean 을 먼저 getBean 으로 만들어 두고 이 bean 의 시간만 잼 (이미 있으면 해시 조회뿐)
+     * - 락은 의존 방향으로만 잡히고 그래프에 순환이 없으므로 교착 상태가 생기지 않음
+     * - scope 가 있는 bean 은 인스턴스 대신 target 과 프록시만 만듦 (인스턴스는 처음 꺼낼 때)
+     * @param lazy 시작 후 처음 getBean 에서 만드는 중이면 true (리포트용)
+     */
+    private Object initialize(BeanRegistry.Bean bean, boolean lazy) {
+        synchronized (bean) {
+            if (bean.instance == null) {
+                for (Dependency dependency : bean.factory.dependencies()) {
+                    injector.getBean(dependency);
+                }
+                if (bean.isSingleton()) {
+                    create(bean, lazy);
+                } else {
+                    createScope(bean);
+                }
+            }
+            return bean.instance;
+        }
+    }
+
+    /**
+     * @implSpec 생성된 팩토리를 쓰고, 스캔한 클래스 중 생성된 팩토리가 없는 클래스마다 ReflectiveComponentFactory
+     * - 프로세서 없이 컴파일된 컴포넌트(의존하는 jar, testAnnotationProcessor 가 없는 테스트 소스셋)도 빠지지 않도록 항상 스캔
+     */
+    private static List<ComponentFactory<?>> findComponents(String basePackage) {
+        List<ComponentFactory<?>> factories = findFactories(basePackage);
+        Set<String> generated = new HashSet<>();
+        for (ComponentFactory<?> factory : factories) {
+            generated.add(factory.type().getName());
+        }
+        try {
+            Set<Class<?>> componentClasses = findClasses(basePackage, generated);
+            if (generated.isEmpty()) {
+                log.info("Found {} component classes in {}", componentClasses, basePackage);
+            } else {
+                log.info("Found {} generated component factories in {}", generated.size(), basePackage);
+                if (!componentClasses.isEmpty()) {
+                    log.warn("⚠️ No generated factory for {} (compiled without the annotation processor?), registering reflectively",
+                            componentClasses);
+                }
+            }
+            for (Class<?> clazz : componentClasses) {
+                factories.add(new ReflectiveComponentFactory<>(clazz));
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+        return factories;
+    }
+
+    /**
+     * @implSpec ServiceLoader 로 생성된 레지스트리를 모두 찾아 basePackage (하위 패키지 포함) 의 팩토리만 모음
+     * @return 생성된 레지스트리가 없거나 해당 패키지의 컴포넌트가 없으면 빈 목록
+     */
+    private static List<ComponentFactory<?>> findFactories(String basePackage) {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
-        String path = basePackage.replace('.', '/');
-        Enumeration<URL> resources = classLoader.getResources(path);
-        Set<Class<?>> classes = new HashSet<>();
-
-        while (resources.hasMoreElements()) {
-            File directory = new File(resources.nextElement().getFile());
-            if (directory.exists()) {
-                classes.addAll(findClassesInDirectory(directory, basePackage));
+        String prefix = basePackage + ".";
+        List<ComponentFactory<?>> factories = new ArrayList<>();
+        for (ComponentRegistry registry : ServiceLoader.load(ComponentRegistry.class, classLoader)) {
+            for (ComponentFactory<?> factory : registry.factories()) {
+                if (factory.type().getName().startsWith(prefix)) {
+                    factories.add(factory);
+                }
             }
         }
-        return classes;
+        return factories;
     }
 
     /**
-     * @implSpec 주어진 디렉토리 내부의 `.class` 파일을 모두 찾아서 클래스 로드
-     * @param directory 탐색할 디렉토리
-     * @param packageName 현재 패키지명
+     * @implSpec 하위 패키지까지 포함하여 모든 `@MyComponent` 클래스를 찾음
+     * - 바이트코드만 읽어서 찾고 (ComponentScanner), 찾은 클래스만 초기화 없이 로드
+     * @param basePackage 기본 패키지 경로 ("org.mardi2020.dependencyinjection")
+     * @param excluded 이미 생성된 팩토리가 있어 로드하지 않을 클래스 이름
      * @return @MyComponent 가 붙은 클래스 목록
+     * @throws IOException 리소스 접근 예외
      */
-    private Set<Class<?>> findClassesInDirectory(File directory, String packageName) {
-        Set<Class<?>> classes = new HashSet<>();
-        File[] files = directory.listFiles();
-
-        if (files == null) return classes;
-
-        for (File file : files) {
-            if (file.isDirectory()) {
-                // ✅ 하위 디렉토리 재귀 탐색
-                classes.addAll(findClassesInDirectory(file, packageName + "." + file.getName()));
-            } else if (file.getName().endsWith(".class")) {
-                try {
-                    String className = packageName + "." + file.getName().replace(".class", "");
-                    Class<?> clazz = Class.forName(className);
-                    if (clazz.isAnnotationPresent(MyComponent.class)) {
-                        classes.add(clazz);
-                    }
-                } catch (ClassNotFoundException e) {
-                    log.error("Class not found: {}", file.getName(), e);
-                }
+    private static Set<Class<?>> findClasses(String basePackage, Set<String> excluded) throws IOException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        for (String className : new ComponentScanner(classLoader, MyComponent.class).scan(basePackage)) {
+            if (excluded.contains(className)) {
+                continue;
+            }
+            try {
+                classes.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) { // 인덱스가 낡았으면 없는 클래스가 있을 수 있음
+                log.error("Class not found: {}", className, e);
             }
         }
         return classes;
     }
 
     /**
-     * @implSpec 클래스 파일이면 로드하고 @MyComponent 가 있으면 Bean 으로 등록
+     * @implSpec 클래스를 Bean 으로 등록, 의존성은 이미 등록된 bean 에서 찾음
+     * - 실행 중에 다른 스레드가 getBean 하는 동안 불러도 안전
      * @param clazz class
      */
     public void registerBean(Class<?> clazz) {
-        if (beans.containsKey(clazz)) {
+        if (registry.isRegistered(clazz)) {
             log.warn("⚠️ Warning: {} is already registered as singleton! Skipping registration.", clazz.getSimpleName());
             return;
         }
         try {
-            Object instance = clazz.getDeclaredConstructor().newInstance();
-            beans.put(clazz, instance);
-            log.info("Registered bean: {}", clazz.getSimpleName());
-        } catch (Exception e) {
+            registerBean(new ReflectiveComponentFactory<>(clazz));
+        } catch (BeanCreationException e) {
             log.error("Failed to register bean: {}", clazz.getSimpleName(), e);
         }
     }
 
     /**
-     * @implSpec @MyAutowired 가 붙은 필드를 찾아 의존성 주입
-     * - `beans` map 에서 해당 타입의 객체를 찾아 주입
-     * - Reflection 을 사용하여 private 필드에도 접근 가능
+     * @implSpec 팩토리로 Bean 등록, 이미 있으면 싱글톤을 유지하고 건너뜀
+     * - 인덱스에 먼저 올리고 바로 만듦, 그 사이에 getBean 한 스레드는 같은 락에서 기다렸다가 같은 인스턴스를 받음
+     * @param factory 컴파일 시점에 생성된 (또는 리플렉션) 팩토리
      */
-    private void injectDependencies() {
-        for (Object bean : beans.values()) {
-            for (Field field : bean.getClass().getDeclaredFields()) {
-                if (!field.isAnnotationPresent(MyAutowired.class)) { // ✅ @MyAutowired 가 있는 필드만 주입
-                    continue;
-                }
-                field.setAccessible(true); // ✅ private 필드 접근 허용
-                Object dependency = beans.get(field.getType()); // ✅ 주입할 객체 가져오기
-                if (dependency == null) {
-                    continue;
-                }
-                try {
-                    field.set(bean, dependency);
-                } catch (IllegalAccessException e) { // 필드 접근 불가
-                    log.error("Failed to inject dependency for field: {}", field.getName(), e);
-                }
+    public void registerBean(ComponentFactory<?> factory) {
+        BeanRegistry.Bean bean = registry.register(factory);
+        if (bean == null) {
+            log.warn("⚠️ Warning: {} is already registered as singleton! Skipping registration.",
+                    factory.type().getSimpleName());
+            return;
+        }
+        initialize(bean, false);
+    }
+
+    /**
+     * @implSpec 위상 순서대로 bean 마다 "의존하는 bean 이 모두 끝나면 실행" 하는 작업을 pool 에 걸어 둠
+     * - 의존성이 없는 bean 들은 바로 동시에 시작, 느린 생성자가 서로를 기다리지 않음
+     * - 하나라도 실패하면 그 bean 에 의존하는 bean 은 만들지 않고 첫 실패를 던짐
+     */
+    private void instantiate(DependencyGraph graph, List<Class<?>> order, ForkJoinPool pool) {
+        Map<Class<?>, CompletableFuture<Void>> created = new HashMap<>();
+        for (Class<?> type : order) { // ✅ 의존하는 bean 의 작업이 항상 먼저 만들어져 있음
+            CompletableFuture<?>[] dependencies = graph.dependenciesOf(type).stream()
+                    .map(created::get)
+                    .toArray(CompletableFuture[]::new);
+            BeanRegistry.Bean bean = graph.bean(type);
+            created.put(type, CompletableFuture.allOf(dependencies).thenRunAsync(() -> initialize(bean, false), pool));
+        }
+        try {
+            CompletableFuture.allOf(created.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BeanCreationException cause) {
+                throw cause;
             }
+            throw new BeanCreationException("Failed to create beans", e.getCause());
+        }
+    }
+
+    /**
+     * @implSpec 생성 + 주입이 끝난 뒤에 공개 → 이 bean 에 의존하는 bean 은 항상 완성된 bean 을 받음
+     */
+    private void create(BeanRegistry.Bean bean, boolean lazy) {
+        long start = System.nanoTime();
+        try {
+            bean.instance = build(bean.factory);
+        } catch (BeanCreationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BeanCreationException("Failed to create " + bean.type.getSimpleName(), e);
+        }
+        startupReport.record(bean.type, System.nanoTime() - start, lazy);
+        log.info("Registered bean: {}", bean.type.getSimpleName());
+    }
+
+    /**
+     * @implSpec target 을 먼저 쓰고 프록시를 instance 로 공개
+     */
+    @SuppressWarnings("unchecked")
+    private void createScope(BeanRegistry.Bean bean) {
+        Supplier<Object> factory = () -> buildScoped(bean);
+        ScopedTarget<Object> target = switch (bean.scope) {
+            case PROTOTYPE -> ScopedTarget.prototype(factory);
+            case THREAD -> ScopedTarget.thread(factory);
+            case REQUEST -> ScopedTarget.request(factory);
+            case POOLED -> new ObjectPool<>(factory, bean.factory.poolSize());
+            case SINGLETON -> throw new IllegalStateException("Singleton has no scope: " + bean.name);
+        };
+        Object proxy = ((ComponentFactory<Object>) bean.factory).proxy(target);
+        if (proxy == null) {
+            proxy = jdkProxy(bean, target);
+        }
+        bean.target = target;
+        bean.instance = proxy;
+        log.info("Registered {} bean: {}", bean.scope, bean.type.getSimpleName());
+    }
+
+    /**
+     * @return bean 이 구현한 모든 인터페이스의 JDK 프록시 (리플렉션 경로용), 인터페이스가 없으면 NO_PROXY
+     */
+    private static Object jdkProxy(BeanRegistry.Bean bean, ScopedTarget<Object> target) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = bean.type; type != null; type = type.getSuperclass()) {
+            interfaces.addAll(List.of(type.getInterfaces()));
         }
+        if (interfaces.isEmpty()) {
+            return NO_PROXY;
+        }
+        return Proxy.newProxyInstance(bean.type.getClassLoader(), interfaces.toArray(Class<?>[]::new),
+                (proxy, method, arguments) -> {
+                    if (method.getDeclaringClass() == Object.class) { // equals / hashCode / toString 은 프록시 자신
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == arguments[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> "ScopedProxy[" + bean.name + "]";
+                        };
+                    }
+                    Object instance = target.acquire();
+                    try {
+                        return method.invoke(instance, arguments);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        target.release(instance);
+                    }
+                });
+    }
+
+    private Object buildScoped(BeanRegistry.Bean bean) {
+        try {
+            return build(bean.factory);
+        } catch (BeanCreationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new BeanCreationException("Failed to create " + bean.type.getSimpleName(), e);
+        }
+    }
+
+    private <T> T build(ComponentFactory<T> factory) {
+        T instance = factory.create(injector);
+        factory.inject(instance, injector);
+        return instance;
     }
 }
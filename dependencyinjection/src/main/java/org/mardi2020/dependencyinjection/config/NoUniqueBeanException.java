@@ -0,0 +1,24 @@
+package org.mardi2020.dependencyinjection.config;
+
+import java.util.List;
+
+/**
+ * 이름 없이 타입으로 찾았는데 후보가 여러 개이고 @MyPrimary 로도 하나를 고를 수 없을 때
+ */
+public class NoUniqueBeanException extends RuntimeException {
+
+    private final List<String> candidates;
+
+    public NoUniqueBeanException(Class<?> type, List<String> candidates) {
+        super("Expected a single bean of type " + type.getSimpleName() + " but found " + candidates
+                + " (use @MyPrimary or @MyQualifier)");
+        this.candidates = List.copyOf(candidates);
+    }
+
+    /**
+     * @return 후보 bean 이름
+     */
+    public List<String> getCandidates() {
+        return candidates;
+    }
+}
@@ -0,0 +1,160 @@
+package org.mardi2020.dependencyinjection.config;
+
+import org.mardi2020.dependencyinjection.annotation.MyAutowired;
+import org.mardi2020.dependencyinjection.annotation.MyLazy;
+import org.mardi2020.dependencyinjection.annotation.MyPrimary;
+import org.mardi2020.dependencyinjection.annotation.MyQualifier;
+import org.mardi2020.dependencyinjection.annotation.MyScope;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 생성된 팩토리가 없을 때 리플렉션으로 같은 일을 하는 팩토리
+ * - 생성자: @MyAutowired 가 붙은 생성자 → 생성자가 하나뿐이면 그것 → 기본 생성자 순으로 고름
+ * - Reflection 을 사용하여 private 생성자 / 필드에도 접근 가능
+ * - scope 가 있는 bean 의 프록시는 만들지 않음 → 인터페이스로 주입받을 때만 JDK 프록시로 대신함
+ */
+final class ReflectiveComponentFactory<T> implements ComponentFactory<T> {
+
+    private final Class<T> type;
+
+    private final Constructor<T> constructor;
+
+    private final List<Dependency> parameters = new ArrayList<>();
+
+    private final List<Field> fields = new ArrayList<>();
+
+    private final List<Dependency> fieldDependencies = new ArrayList<>();
+
+    private final List<Dependency> dependencies = new ArrayList<>();
+
+    ReflectiveComponentFactory(Class<T> type) {
+        this.type = type;
+        this.constructor = selectConstructor(type);
+        this.constructor.setAccessible(true);
+        for (Parameter parameter : constructor.getParameters()) {
+            MyQualifier qualifier = parameter.getAnnotation(MyQualifier.class);
+            parameters.add(Dependency.of(parameter.getType(), qualifier == null ? null : qualifier.value()));
+        }
+        for (Field field : type.getDeclaredFields()) {
+            if (!field.isAnnotationPresent(MyAutowired.class)) { // ✅ @MyAutowired 가 있는 필드만 주입
+                continue;
+            }
+            if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                throw new BeanCreationException("@MyAutowired field must not be final or static: "
+                        + type.getSimpleName() + "." + field.getName());
+            }
+            field.setAccessible(true); // ✅ private 필드 접근 허용
+            fields.add(field);
+            MyQualifier qualifier = field.getAnnotation(MyQualifier.class);
+            fieldDependencies.add(Dependency.of(field.getType(), qualifier == null ? null : qualifier.value()));
+        }
+        dependencies.addAll(parameters);
+        dependencies.addAll(fieldDependencies);
+    }
+
+    @Override
+    public Class<T> type() {
+        return type;
+    }
+
+    @Override
+    public List<Dependency> dependencies() {
+        return dependencies;
+    }
+
+    @Override
+    public String name() {
+        MyQualifier qualifier = type.getAnnotation(MyQualifier.class);
+        return qualifier == null ? BeanRegistry.defaultName(type) : qualifier.value();
+    }
+
+    @Override
+    public boolean isPrimary() {
+        return type.isAnnotationPresent(MyPrimary.class);
+    }
+
+    @Override
+    public boolean isLazy() {
+        return type.isAnnotationPresent(MyLazy.class);
+    }
+
+    @Override
+    public MyScope.Type scope() {
+        MyScope scope = type.getAnnotation(MyScope.class);
+        return scope == null ? MyScope.Type.SINGLETON : scope.value();
+    }
+
+    @Override
+    public int poolSize() {
+        MyScope scope = type.getAnnotation(MyScope.class);
+        return scope == null ? 0 : scope.poolSize();
+    }
+
+    @Override
+    public T create(BeanResolver resolver) {
+        Object[] arguments = new Object[parameters.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = resolver.getBean(parameters.get(i));
+        }
+        try {
+            return constructor.newInstance(arguments);
+        } catch (InvocationTargetException e) {
+            throw new BeanCreationException("Constructor of " + type.getSimpleName() + " failed", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new BeanCreationException("Failed to instantiate " + type.getSimpleName(), e);
+        }
+    }
+
+    @Override
+    public void inject(T bean, BeanResolver resolver) {
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            Object dependency = resolver.getBean(fieldDependencies.get(i)); // ✅ 주입할 객체 가져오기
+            if (dependency == null) {
+                continue;
+            }
+            try {
+                field.set(bean, dependency);
+            } catch (IllegalAccessException e) { // 필드 접근 불가
+                throw new BeanCreationException("Failed to inject dependency for field: " + field.getName(), e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Constructor<T> selectConstructor(Class<T> type) {
+        Constructor<?>[] constructors = type.getDeclaredConstructors();
+        Constructor<?> selected = null;
+        for (Constructor<?> constructor : constructors) {
+            if (constructor.isAnnotationPresent(MyAutowired.class)) {
+                if (selected != null) {
+                    throw new BeanCreationException("Only one constructor of " + type.getSimpleName()
+                            + " may be @MyAutowired");
+                }
+                selected = constructor;
+            }
+        }
+        if (selected == null && constructors.length == 1) {
+            selected = constructors[0];
+        }
+        if (selected == null) {
+            for (Constructor<?> constructor : constructors) {
+                if (constructor.getParameterCount() == 0) {
+                    selected = constructor;
+                }
+            }
+        }
+        if (selected == null) {
+            throw new BeanCreationException(type.getSimpleName()
+                    + " needs a no-arg constructor or a single @MyAutowired constructor");
+        }
+        return (Constructor<T>) selected;
+    }
+}
@@ -0,0 +1,69 @@
+package org.mardi2020.dependencyinjection.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * bean 마다 생성에 걸린 시간 (생성자 + 필드 주입, 의존하는 bean 을 만드는 시간은 빼고)
+ * - 시작할 때 만든 bean 과 나중에 처음 getBean 할 때 만든 lazy bean 이 모두 쌓임
+ * - 짧게 실행되는 배치에서 콜드 스타트를 늦추는 bean 을 찾는 용도
+ */
+public final class StartupReport {
+
+    /**
+     * @param lazy 시작 후 처음 getBean 할 때 만들어졌으면 true
+     * @param thread 만든 스레드 (병렬로 만들어졌는지 확인용)
+     */
+    public record Entry(Class<?> type, Duration duration, boolean lazy, String thread) {
+    }
+
+    private final Queue<Entry> entries = new ConcurrentLinkedQueue<>();
+
+    private volatile Duration contextDuration = Duration.ZERO;
+
+    void record(Class<?> type, long nanos, boolean lazy) {
+        entries.add(new Entry(type, Duration.ofNanos(nanos), lazy, Thread.currentThread().getName()));
+    }
+
+    void contextLoaded(long nanos) {
+        contextDuration = Duration.ofNanos(nanos);
+    }
+
+    /**
+     * @return 컨텍스트 생성자 전체에 걸린 시간 (병렬로 만들었으면 bean 시간의 합보다 짧음)
+     */
+    public Duration getContextDuration() {
+        return contextDuration;
+    }
+
+    /**
+     * @return 오래 걸린 순서
+     */
+    public List<Entry> getEntries() {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(Entry::duration).reversed());
+        return sorted;
+    }
+
+    /**
+     * @param limit 보여 줄 bean 수 (오래 걸린 순)
+     */
+    public String format(int limit) {
+        List<Entry> sorted = getEntries();
+        StringBuilder report = new StringBuilder(String.format("Context loaded in %.1f ms, %d beans created%n",
+                millis(contextDuration), sorted.size()));
+        for (Entry entry : sorted.subList(0, Math.min(limit, sorted.size()))) {
+            report.append(String.format("  %10.3f ms  %s%s [%s]%n", millis(entry.duration()),
+                    entry.type().getSimpleName(), entry.lazy() ? " (lazy)" : "", entry.thread()));
+        }
+        return report.toString();
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,144 @@
+package org.mardi2020.dependencyinjection.scan;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * `.class` 파일 바이트에서 읽어 낸 클래스 정보 (클래스를 로드하지 않음)
+ * - 상수 풀에서 UTF-8 / Class 항목만 기억하고 나머지는 건너뜀
+ * - 클래스에 붙은 런타임 어노테이션(RuntimeVisibleAnnotations)의 타입 이름만 읽음 (필드, 메서드, 어노테이션 값은 건너뜀)
+ * @param className 이진 이름 ("org.mardi2020.dependencyinjection.service.UserService")
+ * @param annotations 어노테이션 타입 이름 (같은 형식)
+ */
+public record ClassFileMetadata(String className, int accessFlags, Set<String> annotations) {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+    /**
+     * @return 인스턴스를 만들 수 있는 클래스면 true (인터페이스, 추상 클래스, 어노테이션 타입은 false)
+     */
+    public boolean isConcrete() {
+        return (accessFlags & (ACC_INTERFACE | ACC_ABSTRACT)) == 0;
+    }
+
+    public boolean hasAnnotation(String annotationName) {
+        return annotations.contains(annotationName);
+    }
+
+    /**
+     * @throws IOException 클래스 파일 형식이 아님
+     */
+    public static ClassFileMetadata read(byte[] classFile) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.skipBytes(4); // minor, major 버전
+        String[] utf8 = new String[in.readUnsignedShort()];
+        int[] classNames = new int[utf8.length];
+        readConstantPool(in, utf8, classNames);
+
+        int accessFlags = in.readUnsignedShort();
+        String className = binaryName(utf8[classNames[in.readUnsignedShort()]]);
+        in.skipBytes(2); // super_class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+        skipMembers(in); // fields
+        skipMembers(in); // methods
+
+        Set<String> annotations = new HashSet<>();
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if (!RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+                in.skipBytes(length);
+                continue;
+            }
+            int annotationCount = in.readUnsignedShort();
+            for (int j = 0; j < annotationCount; j++) {
+                annotations.add(descriptorToName(utf8[in.readUnsignedShort()]));
+                skipElementValuePairs(in);
+            }
+        }
+        return new ClassFileMetadata(className, accessFlags, annotations);
+    }
+
+    /**
+     * @implSpec 항목 크기는 태그로 정해짐, long / double 은 두 칸을 차지함 (JVMS 4.4)
+     */
+    private static void readConstantPool(DataInputStream in, String[] utf8, int[] classNames) throws IOException {
+        for (int i = 1; i < utf8.length; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> utf8[i] = in.readUTF(); // Utf8 (modified UTF-8, 길이 u2 포함)
+                case 7 -> classNames[i] = in.readUnsignedShort(); // Class
+                case 8, 16, 19, 20 -> in.skipBytes(2); // String, MethodType, Module, Package
+                case 15 -> in.skipBytes(3); // MethodHandle
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                case 5, 6 -> {
+                    in.skipBytes(8); // Long, Double
+                    i++;
+                }
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    private static void skipMembers(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.skipBytes(6); // access_flags, name_index, descriptor_index
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                in.skipBytes(2);
+                in.skipBytes(in.readInt());
+            }
+        }
+    }
+
+    private static void skipElementValuePairs(DataInputStream in) throws IOException {
+        int pairCount = in.readUnsignedShort();
+        for (int i = 0; i < pairCount; i++) {
+            in.skipBytes(2); // element_name_index
+            skipElementValue(in);
+        }
+    }
+
+    private static void skipElementValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case 'e' -> in.skipBytes(4); // enum: 타입, 상수 이름
+            case '@' -> {
+                in.skipBytes(2);
+                skipElementValuePairs(in);
+            }
+            case '[' -> {
+                int count = in.readUnsignedShort();
+                for (int i = 0; i < count; i++) {
+                    skipElementValue(in);
+                }
+            }
+            default -> in.skipBytes(2); // 기본형, String, Class
+        }
+    }
+
+    /**
+     * @implSpec "Lorg/example/Foo;" → "org.example.Foo"
+     */
+    private static String descriptorToName(String descriptor) {
+        return binaryName(descriptor.substring(1, descriptor.length() - 1));
+    }
+
+    private static String binaryName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+}
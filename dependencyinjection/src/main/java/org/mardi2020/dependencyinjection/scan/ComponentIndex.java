@@ -0,0 +1,117 @@
+package org.mardi2020.dependencyinjection.scan;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * 미리 저장해 둔 컴포넌트 목록 (Spring 의 `META-INF/spring.components` 와 같은 역할)
+ * - 형식: 한 줄에 `클래스 이름=어노테이션 이름` (Properties)
+ * - 클래스패스 루트(디렉토리, jar)마다 따로 씀, 인덱스가 있는 루트만 스캔을 건너뛰고 나머지 루트는 그대로 스캔
+ * - 디렉토리 루트는 인덱스보다 나중에 바뀐 클래스 파일/디렉토리가 있으면 낡은 인덱스로 보고 무시 (클래스 추가/삭제/재컴파일)
+ */
+@Slf4j
+public final class ComponentIndex {
+
+    public static final String LOCATION = "META-INF/my.components";
+
+    private ComponentIndex() {
+    }
+
+    /**
+     * @implSpec root/META-INF/my.components 에서 basePackage (하위 패키지 포함) 에 속한 클래스만 모음
+     * @param directory basePackage 에 해당하는 root 아래 디렉토리, 이 안에서 인덱스보다 새 파일을 찾음
+     * @param annotationName 찾는 어노테이션 이름 (값이 같은 항목만)
+     * @return 인덱스가 없거나 낡았으면 null (스캔해야 함), 있으면 클래스 이름 목록
+     */
+    public static Set<String> load(Path root, Path directory, String basePackage, String annotationName) throws IOException {
+        Path file = root.resolve(LOCATION);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        if (isStale(file, directory)) {
+            log.info("⚠️ {} is older than the classes under {}, scanning instead", file, directory);
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            return read(in, basePackage, annotationName);
+        }
+    }
+
+    /**
+     * @implSpec jar 는 인덱스와 함께 만들어지므로 낡았는지 확인하지 않음
+     * @return jar 에 인덱스가 없으면 null
+     */
+    public static Set<String> load(JarFile jar, String basePackage, String annotationName) throws IOException {
+        JarEntry entry = jar.getJarEntry(LOCATION);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream in = jar.getInputStream(entry)) {
+            return read(in, basePackage, annotationName);
+        }
+    }
+
+    private static Set<String> read(InputStream in, String basePackage, String annotationName) throws IOException {
+        Properties index = new Properties();
+        index.load(in);
+        String prefix = basePackage.isEmpty() ? "" : basePackage + ".";
+        Set<String> classNames = new TreeSet<>();
+        for (String className : index.stringPropertyNames()) {
+            if (className.startsWith(prefix) && annotationName.equals(index.getProperty(className))) {
+                classNames.add(className);
+            }
+        }
+        return classNames;
+    }
+
+    /**
+     * @implSpec 클래스 파일을 읽지 않고 수정 시각만 비교 (파일을 지우거나 추가하면 디렉토리의 수정 시각이 바뀜)
+     */
+    private static boolean isStale(Path file, Path directory) throws IOException {
+        FileTime written = Files.getLastModifiedTime(file);
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.anyMatch(path -> {
+                try {
+                    return Files.getLastModifiedTime(path).compareTo(written) > 0;
+                } catch (IOException e) {
+                    return true; // 확인할 수 없으면 스캔
+                }
+            });
+        }
+    }
+
+    /**
+     * @implSpec root/META-INF/my.components 를 새로 씀, 임시 파일에 쓴 뒤 옮겨서 읽는 쪽이 반쯤 쓴 파일을 보지 않게 함
+     * - 같은 클래스패스에서 다시 만들어도 내용이 같도록 이름순으로 씀
+     * @param root 클래스패스 루트 디렉토리 (ex. build/classes/java/main)
+     */
+    public static Path write(Path root, Collection<String> classNames, String annotationName) throws IOException {
+        Path file = root.resolve(LOCATION);
+        Files.createDirectories(file.getParent());
+        Path temp = Files.createTempFile(file.getParent(), "my.components", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.ISO_8859_1)) {
+            for (String className : new TreeSet<>(classNames)) {
+                writer.write(className + "=" + annotationName + "\n");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
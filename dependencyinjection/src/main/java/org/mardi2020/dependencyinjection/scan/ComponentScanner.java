@@ -0,0 +1,306 @@
+package org.mardi2020.dependencyinjection.scan;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * 클래스를 로드하지 않고 바이트코드만 읽어 어노테이션이 붙은 클래스를 찾는 스캐너
+ * - Class.forName 으로 하나씩 로드하면 컴포넌트가 아닌 클래스까지 메타스페이스에 올라가고 static 초기화가 실행됨
+ *   → 클래스 파일 헤더만 파싱하고, 찾은 클래스만 나중에 로드
+ * - 디렉토리와 jar 를 모두 지원, 하위 디렉토리와 클래스 파일 묶음을 fork-join 으로 나눠 병렬로 읽음
+ * - 클래스패스 루트에 인덱스(META-INF/my.components)가 있으면 그 루트만 스캔하지 않음 (낡은 인덱스는 무시)
+ *   - `-Dmy.components.index.ignore=true` : 인덱스를 무시하고 스캔
+ *   - `-Dmy.components.index.write=true` : 스캔한 디렉토리 루트마다 인덱스를 씀 (다음 시작부터 재사용)
+ */
+@Slf4j
+public class ComponentScanner {
+
+    public static final String IGNORE_INDEX_PROPERTY = "my.components.index.ignore";
+
+    public static final String WRITE_INDEX_PROPERTY = "my.components.index.write";
+
+    /**
+     * 한 태스크가 직접 읽는 클래스 파일 수, 이보다 많으면 반으로 나눔
+     */
+    private static final int BATCH_SIZE = 32;
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private final ClassLoader classLoader;
+
+    private final String annotationName;
+
+    private final ForkJoinPool pool;
+
+    private final boolean useIndex;
+
+    private final boolean writeIndex;
+
+    public ComponentScanner(ClassLoader classLoader, Class<? extends Annotation> annotation) {
+        this(classLoader, annotation, ForkJoinPool.commonPool(),
+                !Boolean.getBoolean(IGNORE_INDEX_PROPERTY), Boolean.getBoolean(WRITE_INDEX_PROPERTY));
+    }
+
+    public ComponentScanner(ClassLoader classLoader, Class<? extends Annotation> annotation, ForkJoinPool pool,
+                            boolean useIndex, boolean writeIndex) {
+        this.classLoader = classLoader;
+        this.annotationName = annotation.getName();
+        this.pool = pool;
+        this.useIndex = useIndex;
+        this.writeIndex = writeIndex;
+    }
+
+    /**
+     * @implSpec 1️⃣ 패키지에 해당하는 디렉토리/jar 를 모두 찾음
+     * 2️⃣ 그 루트에 쓸 수 있는 인덱스가 있으면 인덱스로, 없으면 병렬로 스캔
+     * 3️⃣ writeIndex 면 디렉토리 루트 전체를 스캔해 인덱스를 씀 (다른 basePackage 로 시작해도 맞도록)
+     * @param basePackage 스캔할 패키지 ("org.mardi2020.dependencyinjection"), 하위 패키지 포함
+     * @return 어노테이션이 붙은 구체 클래스 이름 (인터페이스, 추상 클래스 제외), 이름순
+     */
+    public Set<String> scan(String basePackage) throws IOException {
+        String path = basePackage.replace('.', '/');
+        boolean readIndex = useIndex && !writeIndex;
+        Set<String> classNames = new TreeSet<>();
+        List<ForkJoinTask<List<String>>> tasks = new ArrayList<>();
+        List<JarFile> jars = new ArrayList<>();
+        List<Path> roots = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                switch (url.getProtocol()) {
+                    case "file" -> {
+                        Path directory = toPath(url);
+                        Path root = rootOf(directory, basePackage);
+                        Set<String> indexed = readIndex ? ComponentIndex.load(root, directory, basePackage, annotationName) : null;
+                        if (indexed != null) {
+                            log.info("Loaded {} components from {} (scan skipped)", indexed.size(), root.resolve(ComponentIndex.LOCATION));
+                            classNames.addAll(indexed);
+                        } else {
+                            tasks.add(pool.submit(new DirectoryScan(directory, basePackage)));
+                            roots.add(root);
+                        }
+                    }
+                    case "jar" -> {
+                        JarFile jar = openJar(url);
+                        jars.add(jar);
+                        Set<String> indexed = readIndex ? ComponentIndex.load(jar, basePackage, annotationName) : null;
+                        if (indexed != null) {
+                            log.info("Loaded {} components from {}!/{} (scan skipped)", indexed.size(), jar.getName(), ComponentIndex.LOCATION);
+                            classNames.addAll(indexed);
+                        } else {
+                            tasks.add(pool.submit(scanJar(jar, path)));
+                        }
+                    }
+                    default -> log.warn("⚠️ Unsupported classpath location, skipping: {}", url);
+                }
+            }
+            for (ForkJoinTask<List<String>> task : tasks) {
+                classNames.addAll(task.join());
+            }
+            if (writeIndex) {
+                for (Path root : roots) {
+                    List<String> all = pool.invoke(new DirectoryScan(root, ""));
+                    log.info("Wrote {} components to {}", all.size(), ComponentIndex.write(root, all, annotationName));
+                }
+            }
+            return classNames;
+        } finally {
+            for (JarFile jar : jars) {
+                jar.close();
+            }
+        }
+    }
+
+    private ClassFileBatch<JarEntry> scanJar(JarFile jar, String path) {
+        String prefix = path.isEmpty() ? "" : path + "/";
+        List<JarEntry> entries = new ArrayList<>();
+        Enumeration<JarEntry> all = jar.entries();
+        while (all.hasMoreElements()) {
+            JarEntry entry = all.nextElement();
+            if (entry.getName().startsWith(prefix) && isClassFile(entry.getName())) {
+                entries.add(entry);
+            }
+        }
+        // ✅ ZipFile 은 여러 스레드가 서로 다른 엔트리를 동시에 읽어도 안전
+        return new ClassFileBatch<>(entries, 0, entries.size(), entry -> {
+            try (InputStream in = jar.getInputStream(entry)) {
+                return in.readAllBytes();
+            }
+        }, entry -> jar.getName() + "!/" + entry.getName());
+    }
+
+    /**
+     * @return 어노테이션이 붙은 구체 클래스면 이름, 아니면 null
+     */
+    private String inspect(byte[] classFile, String location) {
+        try {
+            ClassFileMetadata metadata = ClassFileMetadata.read(classFile);
+            return metadata.isConcrete() && metadata.hasAnnotation(annotationName) ? metadata.className() : null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Unreadable class file, skipping: {} ({})", location, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * @implSpec module-info, package-info 와 "-" 가 들어간 이름(멀티 릴리스 jar 의 META-INF/versions 등)은 제외
+     */
+    private static boolean isClassFile(String name) {
+        return name.endsWith(CLASS_SUFFIX) && !name.contains("-");
+    }
+
+    private static Path toPath(URL url) throws IOException {
+        try {
+            return Paths.get(url.toURI()); // ✅ 공백 등이 인코딩된 경로도 올바르게 변환
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid classpath location: " + url, e);
+        }
+    }
+
+    /**
+     * @implSpec 패키지 깊이만큼 올라가 클래스패스 루트를 구함 ("a.b.c" 의 디렉토리 → 세 단계 위)
+     */
+    private static Path rootOf(Path directory, String basePackage) {
+        Path root = directory;
+        if (!basePackage.isEmpty()) {
+            for (int i = 0; i < basePackage.split("\\.").length; i++) {
+                root = root.getParent();
+            }
+        }
+        return root;
+    }
+
+    /**
+     * @implSpec 캐시를 쓰지 않고 직접 열어서, 다 읽은 뒤 닫아도 다른 곳에서 쓰는 JarFile 에 영향이 없게 함
+     */
+    private static JarFile openJar(URL url) throws IOException {
+        JarURLConnection connection = (JarURLConnection) url.openConnection();
+        connection.setUseCaches(false);
+        return connection.getJarFile();
+    }
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        byte[] read(T source) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Locator<T> {
+        String locate(T source);
+    }
+
+    /**
+     * 디렉토리 하나를 맡는 태스크, 하위 디렉토리는 각각 fork 하고 클래스 파일은 묶음 태스크로 넘김
+     */
+    private final class DirectoryScan extends RecursiveTask<List<String>> {
+
+        private final Path directory;
+
+        private final String packageName;
+
+        private DirectoryScan(Path directory, String packageName) {
+            this.directory = directory;
+            this.packageName = packageName;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<DirectoryScan> subdirectories = new ArrayList<>();
+            List<Path> classFiles = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+                for (Path child : children) {
+                    String name = child.getFileName().toString();
+                    if (Files.isDirectory(child)) {
+                        subdirectories.add(new DirectoryScan(child,
+                                packageName.isEmpty() ? name : packageName + "." + name));
+                    } else if (isClassFile(name)) {
+                        classFiles.add(child);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to list {}: {}", directory, e.toString());
+                return List.of();
+            }
+            for (DirectoryScan subdirectory : subdirectories) {
+                subdirectory.fork();
+            }
+            List<String> classNames = new ClassFileBatch<>(classFiles, 0, classFiles.size(),
+                    Files::readAllBytes, Path::toString).compute();
+            for (DirectoryScan subdirectory : subdirectories) {
+                classNames.addAll(subdirectory.join());
+            }
+            return classNames;
+        }
+    }
+
+    /**
+     * 클래스 파일 목록의 [from, to) 를 읽는 태스크, 많으면 반으로 나눠 fork
+     */
+    private final class ClassFileBatch<T> extends RecursiveTask<List<String>> {
+
+        private final List<T> sources;
+
+        private final int from;
+
+        private final int to;
+
+        private final Reader<T> reader;
+
+        private final Locator<T> locator;
+
+        private ClassFileBatch(List<T> sources, int from, int to, Reader<T> reader, Locator<T> locator) {
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.reader = reader;
+            this.locator = locator;
+        }
+
+        @Override
+        protected List<String> compute() {
+            if (to - from > BATCH_SIZE) {
+                int middle = (from + to) >>> 1;
+                ClassFileBatch<T> right = new ClassFileBatch<>(sources, middle, to, reader, locator);
+                right.fork();
+                List<String> classNames = new ClassFileBatch<>(sources, from, middle, reader, locator).compute();
+                classNames.addAll(right.join());
+                return classNames;
+            }
+            List<String> classNames = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                T source = sources.get(i);
+                String location = locator.locate(source);
+                try {
+                    String className = inspect(reader.read(source), location);
+                    if (className != null) {
+                        classNames.add(className);
+                    }
+                } catch (IOException e) {
+                    log.warn("⚠️ Failed to read {}: {}", location, e.toString());
+                }
+            }
+            return classNames;
+        }
+    }
+}
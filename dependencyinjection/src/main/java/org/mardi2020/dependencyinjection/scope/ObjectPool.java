@@ -0,0 +1,103 @@
+package org.mardi2020.dependencyinjection.scope;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * POOLED bean 의 인스턴스를 재사용하는 상한 있는 풀
+ * - 빌릴 때: 쉬고 있는 인스턴스가 있으면 그것, 없으면 새로 만듦 (✅ 기다리지 않음)
+ * - 돌려줄 때: Resettable 이면 reset 후 풀에 넣음, 풀이 maxIdle 만큼 차 있으면 버림 (GC 에 맡김)
+ * - 락 없는 큐 + 개수 카운터, 동시에 빌리고 돌려줘도 안전
+ * @param <T> bean 타입
+ */
+@Slf4j
+public final class ObjectPool<T> implements ScopedTarget<T> {
+
+    private final Supplier<T> factory;
+
+    private final int maxIdle;
+
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+
+    /**
+     * idle 의 크기 (ConcurrentLinkedQueue.size 는 O(n) 이므로 따로 셈), 넣기 전에 자리를 먼저 잡음
+     */
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final LongAdder created = new LongAdder();
+
+    private final LongAdder reused = new LongAdder();
+
+    private final LongAdder discarded = new LongAdder();
+
+    /**
+     * @param maxIdle 풀에 남겨 둘 최대 인스턴스 수
+     */
+    public ObjectPool(Supplier<T> factory, int maxIdle) {
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("maxIdle must be positive: " + maxIdle);
+        }
+        this.factory = factory;
+        this.maxIdle = maxIdle;
+    }
+
+    @Override
+    public T acquire() {
+        T instance = idle.poll();
+        if (instance != null) {
+            idleCount.decrementAndGet();
+            reused.increment();
+            return instance;
+        }
+        created.increment();
+        return factory.get();
+    }
+
+    @Override
+    public void release(T instance) {
+        if (instance instanceof Resettable resettable) {
+            try {
+                resettable.reset();
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Discarding {} after reset failed: {}", instance.getClass().getSimpleName(), e.toString());
+                discarded.increment();
+                return;
+            }
+        }
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            discarded.increment();
+            return;
+        }
+        idle.offer(instance);
+    }
+
+    public int getIdle() {
+        return idleCount.get();
+    }
+
+    /**
+     * @return 풀이 비어 새로 만든 횟수
+     */
+    public long getCreated() {
+        return created.sum();
+    }
+
+    /**
+     * @return 풀에서 꺼내 재사용한 횟수
+     */
+    public long getReused() {
+        return reused.sum();
+    }
+
+    /**
+     * @return 풀이 가득 찼거나 reset 에 실패해 버린 횟수
+     */
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+}
@@ -0,0 +1,90 @@
+package org.mardi2020.dependencyinjection.scope;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * REQUEST bean 의 인스턴스를 담는 요청 하나 (스레드에 묶임)
+ * - `try (RequestScope request = RequestScope.begin()) { ... }` 안에서 꺼낸 REQUEST bean 은 같은 인스턴스
+ * - 중첩해서 열면 안쪽 요청이 닫힐 때 바깥 요청으로 돌아감
+ * - ⚠️ 다른 스레드로 넘긴 작업에서는 보이지 않음 (그 스레드에서 따로 열어야 함)
+ */
+public final class RequestScope implements AutoCloseable {
+
+    private static final ThreadLocal<RequestScope> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 한 스레드만 쓰므로 락이 필요 없음
+     */
+    private final Map<ScopedTarget<?>, Object> instances = new HashMap<>();
+
+    private final RequestScope previous;
+
+    private final Thread owner = Thread.currentThread();
+
+    private boolean closed;
+
+    private RequestScope(RequestScope previous) {
+        this.previous = previous;
+    }
+
+    /**
+     * @return 지금 스레드에 새로 연 요청
+     */
+    public static RequestScope begin() {
+        RequestScope request = new RequestScope(CURRENT.get());
+        CURRENT.set(request);
+        return request;
+    }
+
+    /**
+     * @return 지금 스레드에 열린 요청
+     * @throws IllegalStateException 열린 요청이 없으면
+     */
+    public static RequestScope current() {
+        RequestScope request = CURRENT.get();
+        if (request == null) {
+            throw new IllegalStateException("No active request scope on " + Thread.currentThread().getName());
+        }
+        return request;
+    }
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * @implSpec computeIfAbsent 를 쓰지 않음, 만드는 도중에 다른 REQUEST bean 을 꺼낼 수 있으므로
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(ScopedTarget<T> target, Supplier<T> factory) {
+        Object instance = instances.get(target);
+        if (instance == null) {
+            instance = factory.get();
+            instances.put(target, instance);
+        }
+        return (T) instance;
+    }
+
+    /**
+     * @implSpec 인스턴스를 버리고 이전 요청(없으면 비움)으로 돌아감, 여러 번 불러도 한 번만
+     * @throws IllegalStateException 연 스레드가 아닌 곳에서 닫으면
+     */
+    @Override
+    public void close() {
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Request scope must be closed on the thread that began it");
+        }
+        if (closed) {
+            return;
+        }
+        closed = true;
+        instances.clear();
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
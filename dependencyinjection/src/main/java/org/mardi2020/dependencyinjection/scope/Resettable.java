@@ -0,0 +1,10 @@
+package org.mardi2020.dependencyinjection.scope;
+
+/**
+ * POOLED bean 이 풀로 돌아가기 전에 상태를 비우는 훅
+ * - reset 이 예외를 던지면 그 인스턴스는 풀에 넣지 않고 버림
+ */
+public interface Resettable {
+
+    void reset();
+}
@@ -0,0 +1,48 @@
+package org.mardi2020.dependencyinjection.scope;
+
+import java.util.function.Supplier;
+
+/**
+ * scope 가 있는 bean 의 "지금 쓸 인스턴스" 를 꺼내는 곳, 생성된 프록시는 메서드마다 acquire → 호출 → release
+ * @param <T> bean 타입
+ */
+public interface ScopedTarget<T> {
+
+    /**
+     * @return 지금 쓸 인스턴스
+     */
+    T acquire();
+
+    /**
+     * @implSpec 다 쓴 인스턴스를 돌려줌 (POOLED 만 의미가 있고 나머지는 아무것도 안 함)
+     */
+    default void release(T instance) {
+    }
+
+    /**
+     * @return 꺼낼 때마다 새로 만드는 target
+     */
+    static <T> ScopedTarget<T> prototype(Supplier<T> factory) {
+        return factory::get;
+    }
+
+    /**
+     * @return 스레드마다 처음 꺼낼 때 만들어 두는 target (⚠️ 스레드가 살아 있는 동안 인스턴스도 남음)
+     */
+    static <T> ScopedTarget<T> thread(Supplier<T> factory) {
+        ThreadLocal<T> instances = ThreadLocal.withInitial(factory);
+        return instances::get;
+    }
+
+    /**
+     * @return 지금 스레드에 열린 요청마다 처음 꺼낼 때 만들어 두는 target
+     */
+    static <T> ScopedTarget<T> request(Supplier<T> factory) {
+        return new ScopedTarget<>() {
+            @Override
+            public T acquire() {
+                return RequestScope.current().get(this, factory);
+            }
+        };
+    }
+}
@@ -9,7 +9,7 @@ import org.mardi2020.dependencyinjection.annotation.MyComponent;
 public class UserService {
 
     @MyAutowired
-    private ItemService itemService;
+    ItemService itemService;
 
     public void getHello() {
         log.info("Executing UserService#getHello");
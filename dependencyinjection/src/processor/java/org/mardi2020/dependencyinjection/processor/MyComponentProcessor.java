@@ -0,0 +1,550 @@
+package org.mardi2020.dependencyinjection.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * @MyComponent 마다 `<클래스명>_MyFactory` 를, 모듈마다 GeneratedComponentRegistry 하나를 만드는 어노테이션 프로세서
+ * - 팩토리: `new 클래스(의존성...)` 로 만들고 @MyAutowired 필드에 직접 대입 → 런타임 리플렉션, 클래스패스 스캔 없음
+ *   의존성 목록(생성자 인자 + 필드 타입)도 함께 생성해 컨텍스트가 의존성 그래프를 만듦
+ * - 레지스트리: 모든 팩토리를 `new` 로 나열하고 `META-INF/services` 에 등록 (ServiceLoader 로 찾음)
+ * - 생성된 코드가 같은 패키지에서 필드에 접근하므로 private 클래스 / 생성자 / 필드는 컴파일 에러로 알림
+ * - @MyScope (SINGLETON 제외) 컴포넌트는 `<클래스명>_MyScopedProxy` 도 만듦: 클래스를 상속하고
+ *   public / package-private 메서드마다 "target 에서 꺼내 → 위임 → 돌려줌" 만 하는 프록시 (리플렉션 없음)
+ * - ⚠️ main 이 이 프로세서에 의존하므로 별도 source set (src/processor) 에 둠, main 의 타입은 이름으로만 참조
+ */
+@SupportedAnnotationTypes(MyComponentProcessor.COMPONENT)
+public class MyComponentProcessor extends AbstractProcessor {
+
+    static final String COMPONENT = "org.mardi2020.dependencyinjection.annotation.MyComponent";
+
+    static final String AUTOWIRED = "org.mardi2020.dependencyinjection.annotation.MyAutowired";
+
+    static final String LAZY = "org.mardi2020.dependencyinjection.annotation.MyLazy";
+
+    static final String QUALIFIER = "org.mardi2020.dependencyinjection.annotation.MyQualifier";
+
+    static final String PRIMARY = "org.mardi2020.dependencyinjection.annotation.MyPrimary";
+
+    static final String SCOPE = "org.mardi2020.dependencyinjection.annotation.MyScope";
+
+    static final String FACTORY_SUFFIX = "_MyFactory";
+
+    static final String PROXY_SUFFIX = "_MyScopedProxy";
+
+    static final String REGISTRY_NAME = "GeneratedComponentRegistry";
+
+    private static final String CONFIG = "org.mardi2020.dependencyinjection.config";
+
+    private static final String SCOPED_TARGET = "org.mardi2020.dependencyinjection.scope.ScopedTarget";
+
+    private static final String REGISTRY_SERVICE = "META-INF/services/" + CONFIG + ".ComponentRegistry";
+
+    /**
+     * 지금까지 만든 팩토리의 이름 (정규 이름), 이름순
+     */
+    private final Set<String> factories = new TreeSet<>();
+
+    private boolean registryWritten;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    /**
+     * @implSpec 1️⃣ 새로 나온 @MyComponent 마다 팩토리를 씀
+     * 2️⃣ 새 컴포넌트가 없는 첫 라운드(보통 팩토리를 컴파일하는 두 번째 라운드)에 레지스트리를 씀
+     *    → 마지막 라운드에 소스를 만들면 경고가 나므로 그 전에 씀
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            return false;
+        }
+        TypeElement component = processingEnv.getElementUtils().getTypeElement(COMPONENT);
+        int before = factories.size();
+        if (component != null) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(component)) {
+                if (element.getKind() == ElementKind.CLASS && !element.getModifiers().contains(Modifier.ABSTRACT)) {
+                    writeFactory((TypeElement) element);
+                }
+            }
+        }
+        if (factories.size() == before && !factories.isEmpty() && !registryWritten) {
+            writeRegistry();
+            registryWritten = true;
+        }
+        return false;
+    }
+
+    private void writeFactory(TypeElement type) {
+        ExecutableElement constructor = selectConstructor(type);
+        if (constructor == null) {
+            return;
+        }
+        List<VariableElement> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (hasAnnotation(field, AUTOWIRED) && isInjectable(field)) {
+                fields.add(field);
+            }
+        }
+        String packageName = packageOf(type);
+        String typeName = type.getQualifiedName().toString();
+        String factoryName = generatedSimpleName(type, FACTORY_SUFFIX);
+        Map<String, Object> scope = scope(type);
+        String proxyName = null;
+        if (scope != null) {
+            proxyName = writeProxy(type);
+            if (proxyName == null) {
+                return;
+            }
+        }
+
+        List<String> dependencies = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        for (VariableElement parameter : constructor.getParameters()) {
+            dependencies.add(dependency(parameter));
+            arguments.add(lookup(parameter));
+        }
+        for (VariableElement field : fields) {
+            dependencies.add(dependency(field));
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(factoryName)
+                .append(" implements ").append(CONFIG).append(".ComponentFactory<").append(typeName).append("> {\n\n")
+                .append("    @Override\n")
+                .append("    public Class<").append(typeName).append("> type() {\n")
+                .append("        return ").append(typeName).append(".class;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public java.util.List<").append(CONFIG).append(".Dependency> dependencies() {\n")
+                .append("        return java.util.List.of(").append(String.join(", ", dependencies)).append(");\n")
+                .append("    }\n\n");
+        String name = qualifier(type);
+        if (name != null) {
+            source.append("    @Override\n")
+                    .append("    public String name() {\n")
+                    .append("        return ").append(processingEnv.getElementUtils().getConstantExpression(name)).append(";\n")
+                    .append("    }\n\n");
+        }
+        if (hasAnnotation(type, PRIMARY)) {
+            source.append("    @Override\n")
+                    .append("    public boolean isPrimary() {\n")
+                    .append("        return true;\n")
+                    .append("    }\n\n");
+        }
+        if (hasAnnotation(type, LAZY)) {
+            source.append("    @Override\n")
+                    .append("    public boolean isLazy() {\n")
+                    .append("        return true;\n")
+                    .append("    }\n\n");
+        }
+        if (scope != null) {
+            source.append("    @Override\n")
+                    .append("    public org.mardi2020.dependencyinjection.annotation.MyScope.Type scope() {\n")
+                    .append("        return org.mardi2020.dependencyinjection.annotation.MyScope.Type.")
+                    .append(scope.get("value")).append(";\n")
+                    .append("    }\n\n")
+                    .append("    @Override\n")
+                    .append("    public int poolSize() {\n")
+                    .append("        return ").append(scope.get("poolSize")).append(";\n")
+                    .append("    }\n\n")
+                    .append("    @Override\n")
+                    .append("    public ").append(typeName).append(" proxy(")
+                    .append(SCOPED_TARGET).append("<").append(typeName).append("> target) {\n")
+                    .append("        return new ").append(proxyName).append("(target);\n")
+                    .append("    }\n\n");
+        }
+        source.append("    @Override\n")
+                .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public ").append(typeName).append(" create(")
+                .append(CONFIG).append(".BeanResolver resolver) {\n")
+                .append("        return new ").append(typeName).append("(").append(String.join(", ", arguments)).append(");\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    @SuppressWarnings(\"unchecked\")\n")
+                .append("    public void inject(").append(typeName).append(" bean, ")
+                .append(CONFIG).append(".BeanResolver resolver) {\n");
+        for (VariableElement field : fields) {
+            source.append("        bean.").append(field.getSimpleName()).append(" = ").append(lookup(field)).append(";\n");
+        }
+        source.append("    }\n}\n");
+
+        String qualifiedFactory = packageName.isEmpty() ? factoryName : packageName + "." + factoryName;
+        write(qualifiedFactory, source.toString(), type);
+        factories.add(qualifiedFactory);
+    }
+
+    /**
+     * @implSpec 클래스를 상속하고 메서드마다 target 에서 인스턴스를 꺼내 위임하는 프록시를 씀
+     * - 위임하는 메서드: public 과 같은 패키지의 package-private (static, private, protected, Object 의 메서드는 제외)
+     * - 프록시 자신은 기본 생성자로 만들어지고 필드를 쓰지 않음 (⚠️ 기본 생성자의 비용은 bean 마다 한 번 더 듦)
+     * @return 프록시의 단순 이름, 만들 수 없으면 에러를 알리고 null
+     */
+    private String writeProxy(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.FINAL)) {
+            error("@MyScope class must not be final (its proxy extends it)", type);
+            return null;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            error("@MyScope class must not be generic", type);
+            return null;
+        }
+        boolean noArgConstructor = ElementFilter.constructorsIn(type.getEnclosedElements()).stream()
+                .anyMatch(constructor -> constructor.getParameters().isEmpty()
+                        && !constructor.getModifiers().contains(Modifier.PRIVATE));
+        if (!noArgConstructor) {
+            error("@MyScope class needs a non-private no-arg constructor for its proxy", type);
+            return null;
+        }
+        String packageName = packageOf(type);
+        String typeName = type.getQualifiedName().toString();
+        String proxyName = generatedSimpleName(type, PROXY_SUFFIX);
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("final class ").append(proxyName).append(" extends ").append(typeName).append(" {\n\n")
+                .append("    private final ").append(SCOPED_TARGET).append("<").append(typeName).append("> scopedTarget;\n\n")
+                .append("    ").append(proxyName).append("(").append(SCOPED_TARGET).append("<").append(typeName)
+                .append("> scopedTarget) {\n")
+                .append("        this.scopedTarget = scopedTarget;\n")
+                .append("    }\n");
+        DeclaredType declaredType = (DeclaredType) type.asType();
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!isDelegated(type, method)) {
+                continue;
+            }
+            if (method.getModifiers().contains(Modifier.FINAL)) {
+                error("@MyScope class must not have final methods (its proxy cannot delegate them)", method);
+                return null;
+            }
+            ExecutableType signature = (ExecutableType) processingEnv.getTypeUtils().asMemberOf(declaredType, method);
+            source.append('\n').append(proxyMethod(typeName, method, signature));
+        }
+        source.append("}\n");
+
+        write(packageName.isEmpty() ? proxyName : packageName + "." + proxyName, source.toString(), type);
+        return proxyName;
+    }
+
+    private boolean isDelegated(TypeElement type, ExecutableElement method) {
+        Set<Modifier> modifiers = method.getModifiers();
+        TypeElement owner = (TypeElement) method.getEnclosingElement();
+        if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.PRIVATE)
+                || modifiers.contains(Modifier.PROTECTED) || owner.getQualifiedName().contentEquals("java.lang.Object")) {
+            return false;
+        }
+        return modifiers.contains(Modifier.PUBLIC) || packageOf(owner).equals(packageOf(type));
+    }
+
+    /**
+     * @return `[public] <T> R name(P arg0, ...) throws E { R instance = acquire; try { return instance.name(...) } finally { release } }`
+     */
+    private static String proxyMethod(String typeName, ExecutableElement method, ExecutableType signature) {
+        StringBuilder source = new StringBuilder("    @Override\n    ");
+        if (method.getModifiers().contains(Modifier.PUBLIC)) {
+            source.append("public ");
+        }
+        if (!method.getTypeParameters().isEmpty()) {
+            List<String> typeParameters = new ArrayList<>();
+            for (TypeParameterElement parameter : method.getTypeParameters()) {
+                List<String> bounds = parameter.getBounds().stream()
+                        .map(TypeMirror::toString)
+                        .filter(bound -> !bound.equals("java.lang.Object"))
+                        .toList();
+                typeParameters.add(parameter.getSimpleName() + (bounds.isEmpty() ? "" : " extends " + String.join(" & ", bounds)));
+            }
+            source.append('<').append(String.join(", ", typeParameters)).append("> ");
+        }
+        TypeMirror returnType = signature.getReturnType();
+        source.append(returnType).append(' ').append(method.getSimpleName()).append('(');
+        List<? extends TypeMirror> parameterTypes = signature.getParameterTypes();
+        List<String> parameters = new ArrayList<>();
+        List<String> arguments = new ArrayList<>();
+        for (int i = 0; i < parameterTypes.size(); i++) {
+            TypeMirror parameterType = parameterTypes.get(i);
+            boolean varargs = method.isVarArgs() && i == parameterTypes.size() - 1;
+            parameters.add((varargs ? ((ArrayType) parameterType).getComponentType() + "..." : parameterType.toString())
+                    + " arg" + i);
+            arguments.add("arg" + i);
+        }
+        source.append(String.join(", ", parameters)).append(')');
+        if (!signature.getThrownTypes().isEmpty()) {
+            source.append(" throws ").append(String.join(", ",
+                    signature.getThrownTypes().stream().map(TypeMirror::toString).toList()));
+        }
+        source.append(" {\n")
+                .append("        ").append(typeName).append(" instance = scopedTarget.acquire();\n")
+                .append("        try {\n")
+                .append("            ").append(returnType.getKind() == TypeKind.VOID ? "" : "return ")
+                .append("instance.").append(method.getSimpleName()).append('(').append(String.join(", ", arguments)).append(");\n")
+                .append("        } finally {\n")
+                .append("            scopedTarget.release(instance);\n")
+                .append("        }\n")
+                .append("    }\n");
+        return source.toString();
+    }
+
+    /**
+     * @implSpec 모든 팩토리가 들어 있는 가장 긴 공통 패키지에 레지스트리를 둠
+     */
+    private void writeRegistry() {
+        String packageName = commonPackage();
+        String registryName = packageName.isEmpty() ? REGISTRY_NAME : packageName + "." + REGISTRY_NAME;
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("public final class ").append(REGISTRY_NAME)
+                .append(" implements ").append(CONFIG).append(".ComponentRegistry {\n\n")
+                .append("    @Override\n")
+                .append("    public java.util.List<").append(CONFIG).append(".ComponentFactory<?>> factories() {\n")
+                .append("        return java.util.List.of(");
+        String separator = "\n";
+        for (String factory : factories) {
+            source.append(separator).append("                new ").append(factory).append("()");
+            separator = ",\n";
+        }
+        source.append("\n        );\n    }\n}\n");
+        write(registryName, source.toString(), null);
+
+        Filer filer = processingEnv.getFiler();
+        try (Writer writer = filer.createResource(StandardLocation.CLASS_OUTPUT, "", REGISTRY_SERVICE).openWriter()) {
+            writer.write(registryName + "\n");
+        } catch (IOException e) {
+            error("Failed to write " + REGISTRY_SERVICE + ": " + e.getMessage(), null);
+        }
+    }
+
+    /**
+     * @implSpec 같은 패키지의 팩토리가 `new` 할 수 있어야 함 (private 아님, 바깥 인스턴스 없음)
+     * - 생성자: @MyAutowired 가 붙은 생성자 → 생성자가 하나뿐이면 그것 → 기본 생성자 (ReflectiveComponentFactory 와 같은 규칙)
+     * @return 쓸 생성자, 없으면 에러를 알리고 null
+     */
+    private ExecutableElement selectConstructor(TypeElement type) {
+        for (Element current = type; current.getKind().isClass(); current = current.getEnclosingElement()) {
+            if (current.getModifiers().contains(Modifier.PRIVATE)) {
+                error("@MyComponent class must not be private", type);
+                return null;
+            }
+            if (((TypeElement) current).getNestingKind() != NestingKind.TOP_LEVEL
+                    && !current.getModifiers().contains(Modifier.STATIC)) {
+                error("@MyComponent nested class must be static", type);
+                return null;
+            }
+            if (((TypeElement) current).getNestingKind() == NestingKind.TOP_LEVEL) {
+                break;
+            }
+        }
+        List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+        ExecutableElement selected = null;
+        for (ExecutableElement constructor : constructors) {
+            if (hasAnnotation(constructor, AUTOWIRED)) {
+                if (selected != null) {
+                    error("Only one constructor may be @MyAutowired", constructor);
+                    return null;
+                }
+                selected = constructor;
+            }
+        }
+        if (selected == null && constructors.size() == 1) {
+            selected = constructors.get(0);
+        }
+        if (selected == null) {
+            selected = constructors.stream().filter(constructor -> constructor.getParameters().isEmpty())
+                    .findFirst().orElse(null);
+        }
+        if (selected == null) {
+            error("@MyComponent class needs a no-arg constructor or a single @MyAutowired constructor", type);
+            return null;
+        }
+        if (selected.getModifiers().contains(Modifier.PRIVATE)) {
+            error("@MyComponent constructor must not be private", selected);
+            return null;
+        }
+        for (VariableElement parameter : selected.getParameters()) {
+            if (!isReference(parameter)) {
+                error("Constructor parameter must be a reference type", parameter);
+                return null;
+            }
+        }
+        return selected;
+    }
+
+    private boolean isInjectable(VariableElement field) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            error("@MyAutowired field must not be private (generated factories assign it directly)", field);
+            return false;
+        }
+        if (modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.STATIC)) {
+            error("@MyAutowired field must not be final or static", field);
+            return false;
+        }
+        if (!isReference(field)) {
+            error("@MyAutowired field must be a reference type", field);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isReference(VariableElement variable) {
+        TypeKind kind = variable.asType().getKind();
+        return kind == TypeKind.DECLARED || kind == TypeKind.ARRAY;
+    }
+
+    /**
+     * @return `Dependency.of(Type.class[, "name"])` 식
+     */
+    private String dependency(VariableElement variable) {
+        String name = qualifier(variable);
+        return CONFIG + ".Dependency.of(" + erasure(variable) + ".class"
+                + (name == null ? "" : ", " + processingEnv.getElementUtils().getConstantExpression(name)) + ")";
+    }
+
+    /**
+     * @return `resolver.getBean(["name", ]Type.class)` 식
+     */
+    private String lookup(VariableElement variable) {
+        String name = qualifier(variable);
+        return "resolver.getBean("
+                + (name == null ? "" : processingEnv.getElementUtils().getConstantExpression(name) + ", ")
+                + erasure(variable) + ".class)";
+    }
+
+    /**
+     * @return @MyQualifier 의 value, 없으면 null
+     */
+    private static String qualifier(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().toString().equals(QUALIFIER)) {
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                        : mirror.getElementValues().entrySet()) {
+                    if (entry.getKey().getSimpleName().contentEquals("value")) {
+                        return (String) entry.getValue().getValue();
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private String erasure(VariableElement variable) {
+        return processingEnv.getTypeUtils().erasure(variable.asType()).toString();
+    }
+
+    private String commonPackage() {
+        String common = null;
+        for (String factory : factories) {
+            int dot = factory.lastIndexOf('.');
+            String packageName = dot < 0 ? "" : factory.substring(0, dot);
+            if (common == null) {
+                common = packageName;
+            }
+            while (!packageName.equals(common) && !packageName.startsWith(common + ".")) {
+                int end = common.lastIndexOf('.');
+                common = end < 0 ? "" : common.substring(0, end);
+                if (common.isEmpty()) {
+                    return "";
+                }
+            }
+        }
+        return common == null ? "" : common;
+    }
+
+    /**
+     * @return SINGLETON 이 아닌 @MyScope 의 value (상수 이름) 와 poolSize (기본값 포함), 없거나 SINGLETON 이면 null
+     */
+    private Map<String, Object> scope(TypeElement type) {
+        for (AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            if (!mirror.getAnnotationType().toString().equals(SCOPE)) {
+                continue;
+            }
+            Map<String, Object> values = new HashMap<>();
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                    : processingEnv.getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+                Object value = entry.getValue().getValue();
+                values.put(entry.getKey().getSimpleName().toString(),
+                        value instanceof VariableElement constant ? constant.getSimpleName().toString() : value);
+            }
+            return "SINGLETON".equals(values.get("value")) ? null : values;
+        }
+        return null;
+    }
+
+    /**
+     * @implSpec 중첩 클래스는 바깥 클래스 이름을 붙임 (Outer.Inner → Outer_Inner_MyFactory)
+     */
+    private String generatedSimpleName(TypeElement type, String suffix) {
+        String packageName = packageOf(type);
+        String qualified = type.getQualifiedName().toString();
+        String nested = packageName.isEmpty() ? qualified : qualified.substring(packageName.length() + 1);
+        return nested.replace('.', '_') + suffix;
+    }
+
+    private String packageOf(TypeElement type) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private static boolean hasAnnotation(Element element, String annotationName) {
+        return element.getAnnotationMirrors().stream()
+                .anyMatch(mirror -> mirror.getAnnotationType().toString().equals(annotationName));
+    }
+
+    private void write(String qualifiedName, String source, Element origin) {
+        Element[] origins = origin == null ? new Element[0] : new Element[]{origin};
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, origins).openWriter()) {
+            writer.write(source);
+        } catch (IOException e) {
+            error("Failed to write " + qualifiedName + ": " + e.getMessage(), origin);
+        }
+    }
+
+    private void error(String message, Element element) {
+        Messager messager = processingEnv.getMessager();
+        messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
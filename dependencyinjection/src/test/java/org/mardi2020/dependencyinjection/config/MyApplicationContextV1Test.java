@@ -0,0 +1,438 @@
+package org.mardi2020.dependencyinjection.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.dependencyinjection.annotation.MyAutowired;
+import org.mardi2020.dependencyinjection.annotation.MyComponent;
+import org.mardi2020.dependencyinjection.annotation.MyLazy;
+import org.mardi2020.dependencyinjection.annotation.MyPrimary;
+import org.mardi2020.dependencyinjection.annotation.MyQualifier;
+import org.mardi2020.dependencyinjection.annotation.MyScope;
+import org.mardi2020.dependencyinjection.scope.RequestScope;
+import org.mardi2020.dependencyinjection.scope.Resettable;
+import org.mardi2020.dependencyinjection.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyApplicationContextV1Test {
+
+    private static final long SLOW_MILLIS = 400;
+
+    static class SlowRepository {
+        SlowRepository() throws InterruptedException {
+            Thread.sleep(SLOW_MILLIS);
+        }
+    }
+
+    static class SlowClient {
+        SlowClient() throws InterruptedException {
+            Thread.sleep(SLOW_MILLIS);
+        }
+    }
+
+    /**
+     * 둘 다 이 지점에 와야 통과, 차례로 만들면 먼저 만든 쪽이 시간 초과로 실패
+     */
+    static final CyclicBarrier RENDEZVOUS = new CyclicBarrier(2);
+
+    static class MeetingRepository {
+        MeetingRepository() throws Exception {
+            RENDEZVOUS.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    static class MeetingClient {
+        MeetingClient() throws Exception {
+            RENDEZVOUS.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    static class MeetingFacade {
+        final MeetingRepository repository;
+
+        @MyAutowired
+        private MeetingClient client;
+
+        @MyAutowired
+        MeetingFacade(MeetingRepository repository) {
+            this.repository = repository;
+        }
+    }
+
+    static class Facade {
+        final SlowRepository repository;
+
+        @MyAutowired
+        private SlowClient client;
+
+        @MyAutowired
+        Facade(SlowRepository repository) {
+            this.repository = repository;
+        }
+    }
+
+    @MyLazy
+    static class LazyReport {
+        static final AtomicInteger CREATED = new AtomicInteger();
+
+        LazyReport() throws InterruptedException {
+            CREATED.incrementAndGet();
+            Thread.sleep(100);
+        }
+    }
+
+    @MyLazy
+    static class LazyDependency {
+    }
+
+    static class EagerUser {
+        @MyAutowired
+        LazyDependency dependency;
+    }
+
+    interface Greeter {
+    }
+
+    static class English implements Greeter {
+    }
+
+    @MyPrimary
+    static class Korean implements Greeter {
+    }
+
+    @MyQualifier("casual")
+    static class Casual implements Greeter {
+    }
+
+    static class Greeting {
+        @MyAutowired
+        Greeter primary;
+
+        @MyAutowired
+        @MyQualifier("casual")
+        Greeter casual;
+
+        final Greeter english;
+
+        @MyAutowired
+        Greeting(@MyQualifier("english") Greeter english) {
+            this.english = english;
+        }
+    }
+
+    static class Handler implements Greeter {
+    }
+
+    @MyPrimary
+    static class PrimaryHandler extends Handler {
+    }
+
+    static class A {
+        @MyAutowired
+        B b;
+    }
+
+    static class B {
+        @MyAutowired
+        B(C c) {
+        }
+    }
+
+    static class C {
+        @MyAutowired
+        A a;
+    }
+
+    interface Counter {
+        int next();
+    }
+
+    @MyScope(MyScope.Type.REQUEST)
+    static class RequestCounter implements Counter {
+        private int count;
+
+        @Override
+        public int next() {
+            return ++count;
+        }
+    }
+
+    static class CounterClient {
+        @MyAutowired
+        Counter counter;
+    }
+
+    @MyScope(MyScope.Type.PROTOTYPE)
+    static class Draft {
+    }
+
+    @MyScope(MyScope.Type.THREAD)
+    static class ThreadBuffer {
+    }
+
+    interface Parser {
+        String parse(String input);
+    }
+
+    @MyScope(value = MyScope.Type.POOLED, poolSize = 4)
+    static class PooledParser implements Parser, Resettable {
+        static final AtomicInteger CREATED = new AtomicInteger();
+
+        static final AtomicInteger RESETS = new AtomicInteger();
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        PooledParser() {
+            CREATED.incrementAndGet();
+        }
+
+        @Override
+        public String parse(String input) {
+            if (buffer.length() != 0) {
+                throw new IllegalStateException("Parser was not reset");
+            }
+            return buffer.append(input).reverse().toString();
+        }
+
+        @Override
+        public void reset() {
+            RESETS.incrementAndGet();
+            buffer.setLength(0);
+        }
+    }
+
+    static class ParserClient {
+        @MyAutowired
+        Parser parser;
+    }
+
+    @Test
+    @DisplayName("서로 의존하지 않는 느린 bean 은 병렬로 만들고, 의존하는 bean 은 모두 준비된 뒤에 생성자/필드로 받는다")
+    void instantiatesIndependentBranchesInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MyApplicationContextV1 context = new MyApplicationContextV1(List.of(
+                    new ReflectiveComponentFactory<>(MeetingFacade.class),
+                    new ReflectiveComponentFactory<>(MeetingRepository.class),
+                    new ReflectiveComponentFactory<>(MeetingClient.class)), pool, false);
+
+            MeetingFacade facade = context.getBean(MeetingFacade.class);
+            assertSame(context.getBean(MeetingRepository.class), facade.repository);
+            assertSame(context.getBean(MeetingClient.class), facade.client);
+            assertEquals(0, RENDEZVOUS.getNumberWaiting());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("필드와 생성자를 따라 순환이 있으면 경로 전체를 담아 실패한다")
+    void reportsCyclePath() {
+        DependencyCycleException e = assertThrows(DependencyCycleException.class, () -> new MyApplicationContextV1(List.of(
+                new ReflectiveComponentFactory<>(A.class),
+                new ReflectiveComponentFactory<>(B.class),
+                new ReflectiveComponentFactory<>(C.class)), ForkJoinPool.commonPool(), false));
+
+        assertEquals(List.of(A.class, B.class, C.class, A.class), e.getPath());
+        assertEquals("Circular dependency: A -> B -> C -> A", e.getMessage());
+    }
+
+    @Test
+    @DisplayName("@MyLazy bean 은 처음 getBean 할 때 한 번만 만들고, 시작할 때 만드는 bean 이 의존하면 미리 만든다")
+    void createsLazyBeansOnFirstAccess() throws Exception {
+        MyApplicationContextV1 context = new MyApplicationContextV1(List.of(
+                new ReflectiveComponentFactory<>(LazyReport.class),
+                new ReflectiveComponentFactory<>(LazyDependency.class),
+                new ReflectiveComponentFactory<>(EagerUser.class)), ForkJoinPool.commonPool(), false);
+        assertEquals(0, LazyReport.CREATED.get());
+        assertSame(context.getBean(LazyDependency.class), context.getBean(EagerUser.class).dependency);
+        assertEquals(2, context.getStartupReport().getEntries().size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<LazyReport>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(() -> context.getBean(LazyReport.class));
+            }
+            List<Future<LazyReport>> results = executor.invokeAll(calls);
+            for (Future<LazyReport> result : results) {
+                assertSame(results.get(0).get(), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, LazyReport.CREATED.get());
+        StartupReport.Entry slowest = context.getStartupReport().getEntries().get(0);
+        assertEquals(LazyReport.class, slowest.type());
+        assertTrue(slowest.lazy());
+    }
+
+    @Test
+    @DisplayName("전역 lazy 모드에서는 시작할 때 아무것도 만들지 않고, 리포트에는 의존하는 bean 을 뺀 bean 자신의 시간만 남긴다")
+    void globalLazyModeReportsSelfTime() {
+        MyApplicationContextV1 context = new MyApplicationContextV1(List.of(
+                new ReflectiveComponentFactory<>(Facade.class),
+                new ReflectiveComponentFactory<>(SlowRepository.class),
+                new ReflectiveComponentFactory<>(SlowClient.class)), ForkJoinPool.commonPool(), true);
+        assertTrue(context.getStartupReport().getEntries().isEmpty());
+
+        Facade facade = context.getBean(Facade.class);
+
+        assertNotNull(facade.repository);
+        List<StartupReport.Entry> entries = context.getStartupReport().getEntries();
+        assertEquals(3, entries.size());
+        assertEquals(Facade.class, entries.get(2).type());
+        assertTrue(entries.get(2).duration().toMillis() < SLOW_MILLIS);
+        assertTrue(entries.get(0).duration().toMillis() >= SLOW_MILLIS);
+    }
+
+    @Test
+    @DisplayName("인터페이스로 찾으면 @MyPrimary 를, @MyQualifier 로 찾으면 그 이름의 bean 을 주입하고, 정확한 클래스로 찾으면 그 bean 을 준다")
+    void resolvesByInterfacePrimaryAndQualifier() {
+        MyApplicationContextV1 context = new MyApplicationContextV1(List.of(
+                new ReflectiveComponentFactory<>(Greeting.class),
+                new ReflectiveComponentFactory<>(English.class),
+                new ReflectiveComponentFactory<>(Korean.class),
+                new ReflectiveComponentFactory<>(Casual.class)), ForkJoinPool.commonPool(), false);
+
+        Greeting greeting = context.getBean(Greeting.class);
+        assertSame(context.getBean(Korean.class), context.getBean(Greeter.class));
+        assertSame(context.getBean(Korean.class), greeting.primary);
+        assertSame(context.getBean(Casual.class), greeting.casual);
+        assertSame(context.getBean(English.class), greeting.english);
+        assertSame(context.getBean(Casual.class), context.getBean("casual", Greeter.class));
+        assertNull(context.getBean("english", Korean.class));
+    }
+
+    @Test
+    @DisplayName("후보가 여럿이면 NoUniqueBeanException, 실행 중에 @MyPrimary bean 을 등록하면 읽는 스레드를 막지 않고 바로 그 bean 으로 바뀐다")
+    void registersAtRuntimeWhileReading() throws Exception {
+        MyApplicationContextV1 context = new MyApplicationContextV1(List.of(
+                new ReflectiveComponentFactory<>(English.class),
+                new ReflectiveComponentFactory<>(Casual.class)), ForkJoinPool.commonPool(), false);
+        NoUniqueBeanException e = assertThrows(NoUniqueBeanException.class, () -> context.getBean(Greeter.class));
+        assertEquals(List.of("english", "casual"), e.getCandidates());
+
+        English english = context.getBean(English.class);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(readers.submit(() -> {
+                    for (int j = 0; j < 100_000; j++) {
+                        if (context.getBean(English.class) != english) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            context.registerBean(Handler.class);
+            context.registerBean(PrimaryHandler.class);
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            readers.shutdown();
+        }
+        assertSame(context.getBean(PrimaryHandler.class), context.getBean(Greeter.class));
+        assertSame(context.getBean(Handler.class), context.getBean(Handler.class));
+        assertNotSame(context.getBean(Handler.class), context.getBean(PrimaryHandler.class));
+    }
+
+    @Test
+    @DisplayName("PROTOTYPE 은 매번 새로, THREAD 는 스레드마다, REQUEST 는 요청마다 하나를 주고, 싱글톤에 주입된 프록시는 지금 요청의 인스턴스에 위임한다")
+    void resolvesScopedBeans() throws Exception {
+        MyApplicationContextV1 context = new MyApplicationContextV1(List.of(
+                new ReflectiveComponentFactory<>(RequestCounter.class),
+                new ReflectiveComponentFactory<>(CounterClient.class),
+                new ReflectiveComponentFactory<>(Draft.class),
+                new ReflectiveComponentFactory<>(ThreadBuffer.class)), ForkJoinPool.commonPool(), false);
+
+        assertNotSame(context.getBean(Draft.class), context.getBean(Draft.class));
+        ThreadBuffer buffer = context.getBean(ThreadBuffer.class);
+        assertSame(buffer, context.getBean(ThreadBuffer.class));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(buffer, executor.submit(() -> context.getBean(ThreadBuffer.class)).get());
+        } finally {
+            executor.shutdown();
+        }
+
+        Counter counter = context.getBean(CounterClient.class).counter;
+        assertThrows(IllegalStateException.class, counter::next);
+        try (RequestScope ignored = RequestScope.begin()) {
+            assertEquals(1, counter.next());
+            assertEquals(2, counter.next());
+            assertSame(context.getBean(RequestCounter.class), context.getBean(Counter.class));
+        }
+        try (RequestScope ignored = RequestScope.begin()) {
+            assertEquals(1, counter.next());
+        }
+        assertFalse(RequestScope.isActive());
+    }
+
+    @Test
+    @DisplayName("POOLED bean 은 호출마다 풀에서 빌리고 reset 한 뒤 돌려주므로, 순서대로 부르면 인스턴스 하나를 재사용하고 동시에 불러도 상태가 섞이지 않는다")
+    void recyclesPooledBeans() throws Exception {
+        MyApplicationContextV1 context = new MyApplicationContextV1(List.of(
+                new ReflectiveComponentFactory<>(PooledParser.class),
+                new ReflectiveComponentFactory<>(ParserClient.class)), ForkJoinPool.commonPool(), false);
+        Parser parser = context.getBean(ParserClient.class).parser;
+        assertSame(parser, context.getBean(Parser.class));
+        assertThrows(BeanCreationException.class, () -> context.getBean(PooledParser.class));
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("cba", parser.parse("abc"));
+        }
+        assertEquals(1, PooledParser.CREATED.get());
+        assertEquals(100, PooledParser.RESETS.get());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String input = "input-" + i;
+                String expected = new StringBuilder(input).reverse().toString();
+                calls.add(() -> {
+                    for (int j = 0; j < 1_000; j++) {
+                        if (!expected.equals(parser.parse(input))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (Future<Boolean> result : executor.invokeAll(calls)) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8_100, PooledParser.RESETS.get());
+    }
+
+    @MyComponent
+    static class UnprocessedComponent {
+    }
+
+    @Test
+    @DisplayName("생성된 팩토리가 없는 @MyComponent 도 스캔해서 리플렉션으로 등록한다 (테스트 소스셋은 프로세서를 돌리지 않음)")
+    void registersComponentsWithoutGeneratedFactory() {
+        MyApplicationContextV1 context = new MyApplicationContextV1("org.mardi2020.dependencyinjection");
+
+        assertNotNull(context.getBean(UserService.class));
+        assertNotNull(context.getBean(UnprocessedComponent.class));
+    }
+}
@@ -0,0 +1,270 @@
+package org.mardi2020.dependencyinjection.processor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.dependencyinjection.annotation.MyComponent;
+import org.mardi2020.dependencyinjection.annotation.MyScope;
+import org.mardi2020.dependencyinjection.config.BeanResolver;
+import org.mardi2020.dependencyinjection.config.ComponentFactory;
+import org.mardi2020.dependencyinjection.config.ComponentRegistry;
+import org.mardi2020.dependencyinjection.config.Dependency;
+import org.mardi2020.dependencyinjection.scope.ScopedTarget;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyComponentProcessorTest {
+
+    private final Path temp;
+
+    MyComponentProcessorTest() throws IOException {
+        temp = Files.createTempDirectory("component-processor");
+    }
+
+    @AfterEach
+    void deleteTemp() throws IOException {
+        try (Stream<Path> paths = Files.walk(temp)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("컴포넌트마다 팩토리를, 모듈에 레지스트리 하나를 생성하고 ServiceLoader 로 찾아 new 와 필드 대입으로 조립한다")
+    void generatesFactoriesAndRegistry() throws Exception {
+        source("demo/Repository.java", """
+                package demo;
+                @org.mardi2020.dependencyinjection.annotation.MyComponent
+                public class Repository {
+                }
+                """);
+        source("demo/web/Controller.java", """
+                package demo.web;
+                import org.mardi2020.dependencyinjection.annotation.MyAutowired;
+                import org.mardi2020.dependencyinjection.annotation.MyComponent;
+                @MyComponent
+                public class Controller {
+                    @MyAutowired
+                    @org.mardi2020.dependencyinjection.annotation.MyQualifier("repository")
+                    public demo.Repository repository;
+
+                    public final Nested nested;
+
+                    public Controller() {
+                        this(null);
+                    }
+
+                    @MyAutowired
+                    Controller(Nested nested) {
+                        this.nested = nested;
+                    }
+
+                    @MyComponent
+                    public static class Nested {
+                    }
+                }
+                """);
+
+        List<Diagnostic<? extends JavaFileObject>> errors = compile();
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertTrue(Files.exists(temp.resolve("gen/demo/web/Controller_MyFactory.java")));
+        assertTrue(Files.exists(temp.resolve("gen/demo/web/Controller_Nested_MyFactory.java")));
+        assertTrue(Files.exists(temp.resolve("gen/demo/GeneratedComponentRegistry.java")));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{temp.resolve("out").toUri().toURL()},
+                getClass().getClassLoader())) {
+            // 부모 로더의 레지스트리(이 모듈 자체)는 빼고 새로 컴파일한 것만
+            ComponentRegistry registry = ServiceLoader.load(ComponentRegistry.class, loader).stream()
+                    .filter(provider -> provider.type().getClassLoader() == loader)
+                    .map(ServiceLoader.Provider::get)
+                    .findFirst().orElseThrow();
+            assertEquals("demo.GeneratedComponentRegistry", registry.getClass().getName());
+
+            Map<Class<?>, Object> beans = new HashMap<>();
+            BeanResolver resolver = new BeanResolver() {
+                @Override
+                public <T> T getBean(Class<T> clazz) {
+                    return clazz.cast(beans.get(clazz));
+                }
+
+                @Override
+                public <T> T getBean(String name, Class<T> clazz) {
+                    return getBean(clazz);
+                }
+            };
+            // 의존성 목록 순서대로 (Nested, Repository → Controller) 만들어서 조립
+            List<ComponentFactory<?>> factories = new ArrayList<>(registry.factories());
+            factories.sort(Comparator.comparingInt(factory -> factory.dependencies().size()));
+            for (ComponentFactory<?> factory : factories) {
+                create(factory, beans, resolver);
+            }
+            assertEquals(3, beans.size());
+
+            Class<?> controller = loader.loadClass("demo.web.Controller");
+            Class<?> nested = loader.loadClass("demo.web.Controller$Nested");
+            Class<?> repository = loader.loadClass("demo.Repository");
+            ComponentFactory<?> controllerFactory = factories.get(2);
+            assertEquals(List.of(Dependency.of(nested), Dependency.of(repository, "repository")),
+                    controllerFactory.dependencies());
+            assertSame(beans.get(repository), controller.getField("repository").get(beans.get(controller)));
+            assertSame(beans.get(nested), controller.getField("nested").get(beans.get(controller)));
+        }
+    }
+
+    @Test
+    @DisplayName("생성된 코드가 접근할 수 없는 private 필드에 @MyAutowired 를 붙이면 컴파일 에러를 낸다")
+    void rejectsPrivateField() throws IOException {
+        source("demo/Service.java", """
+                package demo;
+                @org.mardi2020.dependencyinjection.annotation.MyComponent
+                public class Service {
+                    @org.mardi2020.dependencyinjection.annotation.MyAutowired
+                    private Service self;
+                }
+                """);
+
+        List<Diagnostic<? extends JavaFileObject>> errors = compile();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).getMessage(null).contains("must not be private"), errors.toString());
+    }
+
+    @Test
+    @DisplayName("@MyScope 컴포넌트는 클래스를 상속한 프록시를 생성하고, 프록시는 메서드마다 target 에서 빌려 위임한 뒤 돌려준다")
+    @SuppressWarnings("unchecked")
+    void generatesScopedProxy() throws Exception {
+        source("demo/Formatter.java", """
+                package demo;
+                import org.mardi2020.dependencyinjection.annotation.MyScope;
+                @org.mardi2020.dependencyinjection.annotation.MyComponent
+                @MyScope(MyScope.Type.POOLED)
+                public class Formatter {
+                    private final StringBuilder buffer = new StringBuilder();
+
+                    public String format(String pattern, Object... arguments) {
+                        buffer.setLength(0);
+                        return buffer.append(String.format(pattern, arguments)).toString();
+                    }
+
+                    public <T extends Comparable<T>> T max(java.util.List<T> values) throws java.io.IOException {
+                        return java.util.Collections.max(values);
+                    }
+
+                    void clear() {
+                        buffer.setLength(0);
+                    }
+
+                    protected void hidden() {
+                    }
+                }
+                """);
+
+        List<Diagnostic<? extends JavaFileObject>> errors = compile();
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertTrue(Files.exists(temp.resolve("gen/demo/Formatter_MyScopedProxy.java")));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{temp.resolve("out").toUri().toURL()},
+                getClass().getClassLoader())) {
+            ComponentFactory<Object> factory = (ComponentFactory<Object>) loader.loadClass("demo.Formatter_MyFactory")
+                    .getConstructor().newInstance();
+            assertEquals(MyScope.Type.POOLED, factory.scope());
+            assertEquals(16, factory.poolSize());
+
+            Object formatter = factory.create(null);
+            AtomicInteger acquired = new AtomicInteger();
+            AtomicInteger released = new AtomicInteger();
+            Object proxy = factory.proxy(new ScopedTarget<>() {
+                @Override
+                public Object acquire() {
+                    acquired.incrementAndGet();
+                    return formatter;
+                }
+
+                @Override
+                public void release(Object instance) {
+                    assertSame(formatter, instance);
+                    released.incrementAndGet();
+                }
+            });
+            assertTrue(factory.type().isInstance(proxy));
+            assertEquals("a-b", factory.type().getMethod("format", String.class, Object[].class)
+                    .invoke(proxy, "%s-%s", new Object[]{"a", "b"}));
+            assertEquals(3, factory.type().getMethod("max", List.class).invoke(proxy, List.of(1, 3, 2)));
+            assertEquals(2, acquired.get());
+            assertEquals(2, released.get());
+            assertEquals(factory.type(), proxy.getClass().getDeclaredMethod("clear").getDeclaringClass().getSuperclass());
+            assertThrows(NoSuchMethodException.class, () -> proxy.getClass().getDeclaredMethod("hidden"));
+        }
+    }
+
+    private static <T> void create(ComponentFactory<T> factory, Map<Class<?>, Object> beans, BeanResolver resolver) {
+        T bean = factory.create(resolver);
+        factory.inject(bean, resolver);
+        beans.put(factory.type(), bean);
+    }
+
+    private void source(String path, String content) throws IOException {
+        Path file = temp.resolve("src").resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    /**
+     * @return 컴파일 에러 목록
+     */
+    private List<Diagnostic<? extends JavaFileObject>> compile() throws IOException {
+        Files.createDirectories(temp.resolve("out"));
+        Files.createDirectories(temp.resolve("gen"));
+        List<File> sources;
+        try (Stream<Path> paths = Files.walk(temp.resolve("src"))) {
+            sources = paths.filter(Files::isRegularFile).map(Path::toFile).toList();
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+            List<String> options = List.of(
+                    "-classpath", location(MyComponent.class),
+                    "-processorpath", location(MyComponentProcessor.class),
+                    "-d", temp.resolve("out").toString(),
+                    "-s", temp.resolve("gen").toString());
+            compiler.getTask(null, fileManager, diagnostics, options, null,
+                    fileManager.getJavaFileObjectsFromFiles(sources)).call();
+        }
+        List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic);
+            }
+        }
+        return errors;
+    }
+
+    private static String location(Class<?> clazz) {
+        try {
+            return Path.of(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.mardi2020.dependencyinjection.scan;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.dependencyinjection.DependencyinjectionApplication;
+import org.mardi2020.dependencyinjection.annotation.MyComponent;
+import org.mardi2020.dependencyinjection.config.MyApplicationContextV1;
+import org.mardi2020.dependencyinjection.service.ItemService;
+import org.mardi2020.dependencyinjection.service.UserService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentScannerTest {
+
+    private static final String BASE_PACKAGE = "org.mardi2020.dependencyinjection";
+
+    private static final List<Class<?>> CLASSES = List.of(UserService.class, ItemService.class, MyApplicationContextV1.class);
+
+    private final Path temp;
+
+    ComponentScannerTest() throws IOException {
+        temp = Files.createTempDirectory("component-scanner");
+    }
+
+    @AfterEach
+    void deleteTemp() throws IOException {
+        try (Stream<Path> paths = Files.walk(temp)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @MyComponent
+    public static class NestedComponent {
+    }
+
+    @MyComponent
+    public abstract static class AbstractComponent {
+    }
+
+    @Test
+    @DisplayName("디렉토리를 스캔해 구체 컴포넌트 클래스만 찾고, 클래스는 하나도 로드하지 않는다")
+    void scansDirectoriesWithoutLoading() throws IOException {
+        URL[] roots = {
+                UserService.class.getProtectionDomain().getCodeSource().getLocation(),
+                getClass().getProtectionDomain().getCodeSource().getLocation()
+        };
+        try (TrackingClassLoader loader = new TrackingClassLoader(roots)) {
+            ComponentScanner scanner = new ComponentScanner(loader, MyComponent.class,
+                    ForkJoinPool.commonPool(), false, false);
+
+            Set<String> components = scanner.scan(BASE_PACKAGE);
+
+            assertTrue(components.contains(UserService.class.getName()));
+            assertTrue(components.contains(ItemService.class.getName()));
+            assertTrue(components.contains(DependencyinjectionApplication.class.getName()));
+            assertTrue(components.contains(NestedComponent.class.getName()));
+            assertFalse(components.contains(AbstractComponent.class.getName()));
+            assertFalse(components.contains(MyComponent.class.getName()));
+            assertFalse(components.contains(MyApplicationContextV1.class.getName()));
+            for (String className : components) {
+                assertFalse(loader.isLoaded(className), className + " must not be loaded by scanning");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("jar 안의 클래스 파일도 스캔한다")
+    void scansJars() throws IOException {
+        Path jar = temp.resolve("app.jar");
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            // ✅ ClassLoader.getResources 가 패키지를 찾으려면 디렉토리 엔트리가 있어야 함
+            for (String directory : List.of("org/", "org/mardi2020/", "org/mardi2020/dependencyinjection/",
+                    "org/mardi2020/dependencyinjection/service/", "org/mardi2020/dependencyinjection/config/")) {
+                out.putNextEntry(new JarEntry(directory));
+            }
+            for (Class<?> clazz : CLASSES) {
+                out.putNextEntry(new JarEntry(resourceName(clazz)));
+                out.write(classBytes(clazz));
+            }
+        }
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, null)) {
+            Set<String> components = new ComponentScanner(loader, MyComponent.class).scan(BASE_PACKAGE);
+            assertEquals(Set.of(UserService.class.getName(), ItemService.class.getName()), components);
+        }
+    }
+
+    @Test
+    @DisplayName("인덱스는 그 인덱스가 있는 루트에만 쓰고, 인덱스가 없거나 낡은 루트는 스캔한다")
+    void usesIndexPerRoot() throws IOException {
+        Path indexed = temp.resolve("indexed");
+        Path plain = temp.resolve("plain");
+        for (Class<?> clazz : CLASSES) {
+            writeClass(indexed, clazz);
+        }
+        writeClass(plain, NestedComponent.class);
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{indexed.toUri().toURL()}, null)) {
+            ComponentScanner writer = new ComponentScanner(loader, MyComponent.class, ForkJoinPool.commonPool(), true, true);
+            writer.scan(BASE_PACKAGE + ".service");
+        }
+        Path index = indexed.resolve(ComponentIndex.LOCATION);
+        FileTime written = FileTime.fromMillis(System.currentTimeMillis() + 10_000);
+        Files.setLastModifiedTime(index, written);
+
+        // 인덱스보다 오래된 클래스 파일은 읽지 않음 → 망가뜨려도 인덱스대로 찾음, 인덱스가 없는 루트는 스캔
+        Path broken = indexed.resolve(resourceName(UserService.class));
+        Files.write(broken, new byte[]{0});
+        Files.setLastModifiedTime(broken, FileTime.fromMillis(written.toMillis() - 20_000));
+        URL[] roots = {indexed.toUri().toURL(), plain.toUri().toURL()};
+        try (URLClassLoader loader = new URLClassLoader(roots, null)) {
+            assertEquals(Set.of(UserService.class.getName(), ItemService.class.getName(), NestedComponent.class.getName()),
+                    new ComponentScanner(loader, MyComponent.class).scan(BASE_PACKAGE));
+        }
+
+        // 인덱스 뒤에 클래스가 추가되면 낡은 인덱스 → 스캔
+        Path added = writeClass(indexed, NestedComponent.class);
+        Files.setLastModifiedTime(added, FileTime.fromMillis(written.toMillis() + 10_000));
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{indexed.toUri().toURL()}, null)) {
+            assertEquals(Set.of(ItemService.class.getName(), NestedComponent.class.getName()),
+                    new ComponentScanner(loader, MyComponent.class).scan(BASE_PACKAGE));
+        }
+    }
+
+    /**
+     * 어떤 클래스를 로드했는지 확인할 수 있는 격리된 클래스 로더 (부모 없음)
+     */
+    private static final class TrackingClassLoader extends URLClassLoader {
+
+        private TrackingClassLoader(URL[] urls) {
+            super(urls, null);
+        }
+
+        boolean isLoaded(String className) {
+            return findLoadedClass(className) != null;
+        }
+    }
+
+    private static Path writeClass(Path root, Class<?> clazz) throws IOException {
+        Path file = root.resolve(resourceName(clazz));
+        Files.createDirectories(file.getParent());
+        return Files.write(file, classBytes(clazz));
+    }
+
+    private static String resourceName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/') + ".class";
+    }
+
+    private static byte[] classBytes(Class<?> clazz) throws IOException {
+        try (InputStream in = clazz.getClassLoader().getResourceAsStream(resourceName(clazz))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.mardi2020.tomcat.benchmark;
+
+import org.mardi2020.tomcat.server.ConnectorType;
+import org.mardi2020.tomcat.server.ServerConfig;
+import org.mardi2020.tomcat.server.TomcatByServerSocket;
+import org.mardi2020.tomcat.servlet.MyServletImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 루프백으로 TomcatByServerSocket 을 띄우고 keep-alive 클라이언트 N 개로 요청/응답을 반복
+ * - JMH 스레드 하나가 연결 하나 (기본 8개, -t 또는 jmh { threads = N } 로 바꿈)
+ * - Throughput 은 초당 응답 수, SampleTime 은 요청 하나의 왕복 지연 분포 (p50 / p99 / p99.9)
+ * - 서버의 start 는 멈출 때까지 반환하지 않으므로 별도 스레드로 띄우고, 트라이얼이 끝나면 @TearDown 에서 stop
+ *   (데몬 스레드라 stop 이 시간 안에 끝나지 않아도 포크된 JVM 의 종료를 막지 않음)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+public class LoopbackBenchmark {
+
+    private static final byte[] REQUEST = "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n"
+            .getBytes(StandardCharsets.ISO_8859_1);
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"BIO", "NIO"})
+        public ConnectorType connector;
+
+        private int port;
+
+        private TomcatByServerSocket server;
+
+        @Setup(Level.Trial)
+        public void start() throws IOException, InterruptedException {
+            port = freePort();
+            server = new TomcatByServerSocket(ServerConfig.builder()
+                    .port(port)
+                    .connectorType(connector)
+                    .maxKeepAliveRequests(Integer.MAX_VALUE)
+                    .build());
+            server.registerServlet("/hello", new MyServletImpl());
+            Thread thread = new Thread(server::start, "loopback-server");
+            thread.setDaemon(true);
+            thread.start();
+            awaitListening(port);
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            server.stop(1000);
+        }
+
+        private static int freePort() throws IOException {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                return socket.getLocalPort();
+            }
+        }
+
+        private static void awaitListening(int port) throws IOException, InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (true) {
+                try (Socket probe = new Socket()) {
+                    probe.connect(new InetSocketAddress("127.0.0.1", port), 200);
+                    return;
+                } catch (IOException e) {
+                    if (System.nanoTime() > deadline) {
+                        throw e;
+                    }
+                    Thread.sleep(50);
+                }
+            }
+        }
+    }
+
+    /**
+     * 스레드마다 keep-alive 연결 하나
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private Socket socket;
+
+        private OutputStream out;
+
+        private InputStream in;
+
+        @Setup(Level.Trial)
+        public void connect(Server server) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress("127.0.0.1", server.port));
+            out = socket.getOutputStream();
+            in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            socket.close();
+        }
+
+        /**
+         * @return 응답 바디 길이
+         */
+        int roundTrip() throws IOException {
+            out.write(REQUEST);
+            out.flush();
+            int contentLength = readHead();
+            in.skipNBytes(contentLength);
+            return contentLength;
+        }
+
+        /**
+         * @return Content-Length 값 (이 벤치마크의 응답은 항상 길이가 정해져 있음)
+         */
+        private int readHead() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int contentLength = 0;
+            while (true) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Server closed the connection");
+                }
+                if (b != '\n') {
+                    if (b != '\r') {
+                        line.append((char) b);
+                    }
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    return contentLength;
+                }
+                String header = line.toString();
+                if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+                line.setLength(0);
+            }
+        }
+    }
+
+    @Benchmark
+    public int keepAlive(Client client) throws IOException {
+        return client.roundTrip();
+    }
+}
@@ -0,0 +1,95 @@
+package org.mardi2020.tomcat.benchmark;
+
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyRequestParser;
+import org.mardi2020.tomcat.server.ServerConfig;
+import org.mardi2020.tomcat.server.http.HttpParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 파싱 비용
+ * - parseReused: 커넥터와 같은 방식 (파서/요청 객체를 재사용하고 버퍼에서 바로 파싱)
+ * - parseFromStream: MyRequest(InputStream) 생성자 (요청마다 파서와 버퍼를 새로 만듦)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MyRequestParserBenchmark {
+
+    private static final String MINIMAL = "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    private static final String BROWSER = "GET /users/42/orders?page=2&size=20 HTTP/1.1\r\n"
+            + "Host: localhost:8080\r\n"
+            + "Connection: keep-alive\r\n"
+            + "User-Agent: Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,*/*;q=0.8\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Accept-Language: ko-KR,ko;q=0.9,en-US;q=0.8,en;q=0.7\r\n"
+            + "Cache-Control: max-age=0\r\n"
+            + "Cookie: SESSION=6f1c2d3e4f5a6b7c8d9e0f1a2b3c4d5e; theme=dark; _ga=GA1.1.123456789.1700000000\r\n"
+            + "Upgrade-Insecure-Requests: 1\r\n"
+            + "\r\n";
+
+    private static final String CHUNKED = "POST /upload HTTP/1.1\r\n"
+            + "Host: localhost\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Transfer-Encoding: chunked\r\n"
+            + "\r\n"
+            + "19\r\n{\"name\":\"mardi\",\"age\":30,\r\n"
+            + "11\r\n\"tags\":[\"a\",\"b\"]}\r\n"
+            + "0\r\n\r\n";
+
+    @Param({"minimal", "browser", "chunked"})
+    public String shape;
+
+    private byte[] raw;
+
+    private ByteBuffer buffer;
+
+    private MyRequestParser parser;
+
+    private MyRequest request;
+
+    @Setup
+    public void setUp() {
+        String text = switch (shape) {
+            case "minimal" -> MINIMAL;
+            case "browser" -> BROWSER;
+            case "chunked" -> CHUNKED;
+            default -> throw new IllegalArgumentException(shape);
+        };
+        raw = text.getBytes(StandardCharsets.ISO_8859_1);
+        buffer = ByteBuffer.wrap(raw);
+        parser = new MyRequestParser(ServerConfig.defaults());
+        request = new MyRequest();
+    }
+
+    @Benchmark
+    public MyRequest parseReused() throws HttpParseException {
+        buffer.clear();
+        request.recycle();
+        parser.reset();
+        if (!parser.parse(buffer, request)) {
+            throw new IllegalStateException("Incomplete request: " + shape);
+        }
+        return request;
+    }
+
+    @Benchmark
+    public MyRequest parseFromStream() throws IOException {
+        return new MyRequest(new ByteArrayInputStream(raw));
+    }
+}
@@ -0,0 +1,116 @@
+package org.mardi2020.tomcat.benchmark;
+
+import org.mardi2020.tomcat.server.MyResponse;
+import org.mardi2020.tomcat.server.MyResponseFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 응답 생성과 직렬화 비용 (소켓 대신 메모리로 씀)
+ * - create: MyResponseFactory.create 만
+ * - sendToStream: 만들고 채워서 OutputStream 으로 보내기 (BIO 의 스트림 경로)
+ * - sendToChannel: 만들고 채워서 GatheringByteChannel 로 보내기 (커넥터의 gathering write 경로)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class MyResponseBenchmark {
+
+    @Param({"0", "1024", "65536"})
+    public int bodySize;
+
+    private String body;
+
+    private final ByteArrayOutputStream stream = new ByteArrayOutputStream(128 * 1024);
+
+    private final DiscardChannel channel = new DiscardChannel();
+
+    @Setup
+    public void setUp() {
+        body = "a".repeat(bodySize);
+    }
+
+    @Benchmark
+    public MyResponse create() {
+        return MyResponseFactory.create(body, "/hello", true);
+    }
+
+    @Benchmark
+    public int sendToStream() throws IOException {
+        stream.reset();
+        fill(MyResponseFactory.create(body, "/hello", true)).sendResponse(stream);
+        return stream.size();
+    }
+
+    @Benchmark
+    public long sendToChannel() throws IOException {
+        fill(MyResponseFactory.create(body, "/hello", true)).sendResponse(channel);
+        return channel.written;
+    }
+
+    @Benchmark
+    public long sendNotFound() throws IOException {
+        MyResponseFactory.create(HttpStatus.NOT_FOUND).sendResponse(channel);
+        return channel.written;
+    }
+
+    private static MyResponse fill(MyResponse response) {
+        response.addHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.addHeader("X-Request-Id", "3f2a9c1e");
+        response.setKeepAlive(true);
+        return response;
+    }
+
+    /**
+     * 받은 바이트를 세기만 하는 채널 (메모리 복사 비용도 빼고 직렬화만 잼)
+     */
+    private static final class DiscardChannel implements GatheringByteChannel {
+
+        private long written;
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            long total = 0;
+            for (int i = offset; i < offset + length; i++) {
+                total += write(sources[i]);
+            }
+            return total;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int remaining = source.remaining();
+            source.position(source.limit());
+            written += remaining;
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
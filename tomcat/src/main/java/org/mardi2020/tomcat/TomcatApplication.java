@@ -14,6 +14,7 @@ public class TomcatApplication {
 
 		TomcatByServerSocket server = new TomcatByServerSocket();
 		server.registerServlet("/hello", new MyServletImpl());
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "tomcat-shutdown")); // SIGTERM 에도 처리 중인 요청은 마침
 		server.start();
 	}
 
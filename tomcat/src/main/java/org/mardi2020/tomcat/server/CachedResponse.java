@@ -0,0 +1,57 @@
+package org.mardi2020.tomcat.server;
+
+import java.util.Set;
+
+/**
+ * 응답 캐시에 담아 둔 직렬화된 응답 (MyResponseSerializer#snapshot)
+ * - head: 상태 라인부터 Content-Length 까지 서블릿이 넣은 헤더만, 필터가 넣은 헤더와 Connection, 끝의 빈 줄은 보낼 때 붙임
+ * - body: 압축까지 끝난 바디, 여러 연결이 동시에 읽기만 하므로 바꾸지 않음
+ */
+final class CachedResponse {
+
+    /**
+     * 바이트 외에 항목 하나가 차지하는 대략의 메모리 (키, 노드, 배열 헤더)
+     */
+    private static final int OVERHEAD = 128;
+
+    private final int statusCode;
+
+    private final byte[] head;
+
+    private final byte[] body;
+
+    /**
+     * head 에 들어 있는 헤더 이름 (대소문자 무시), 보낼 때 응답의 같은 이름 헤더는 붙이지 않음
+     */
+    private final Set<String> headerNames;
+
+    CachedResponse(int statusCode, byte[] head, byte[] body, Set<String> headerNames) {
+        this.statusCode = statusCode;
+        this.head = head;
+        this.body = body;
+        this.headerNames = headerNames;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    byte[] getHead() {
+        return head;
+    }
+
+    byte[] getBody() {
+        return body;
+    }
+
+    boolean hasHeader(String name) {
+        return headerNames.contains(name);
+    }
+
+    /**
+     * @return 캐시 크기 상한에 셈하는 가중치 (바이트)
+     */
+    int weight() {
+        return OVERHEAD + head.length + body.length;
+    }
+}
@@ -0,0 +1,148 @@
+package org.mardi2020.tomcat.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.cache.CachePolicy;
+import org.mardi2020.tomcat.server.executor.ConnectionExecutor;
+import org.mardi2020.tomcat.server.metrics.ServerMetrics;
+import org.mardi2020.tomcat.servlet.AsyncMyServlet;
+import org.mardi2020.tomcat.servlet.MyServlet;
+import org.springframework.http.HttpStatus;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 캐시를 켠 라우트에서 필터 체인의 가장 안쪽(서블릿 자리)에 끼우는 단계 (ServletDispatcher#registerCache)
+ * - 필터는 적중 여부와 상관없이 매 요청 실행됨 (인증, 로깅 등), 캐시는 서블릿 실행만 대신함
+ * - 적중하면 캐시된 바이트로, 같은 키를 실행 중인 요청이 있으면 그 결과를 기다리고, 없으면 서블릿을 실행해서 담음
+ * - 기다린 결과를 담을 수 없었으면(200 이 아님, 시간 초과 등) 기다린 요청들은 서버 실행기에서 각자 서블릿을 실행, 실행기가 포화면 503
+ */
+@Slf4j
+final class CachingServlet implements MyServlet {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final MyServlet servlet;
+
+    private final CachePolicy policy;
+
+    private final ResponseCache cache;
+
+    private final ServerMetrics metrics;
+
+    /**
+     * 서버 밖에서 디스패처만 쓰면 null (기다리던 요청을 결과를 알린 스레드에서 바로 실행)
+     */
+    private final ConnectionExecutor executor;
+
+    CachingServlet(MyServlet servlet, CachePolicy policy, ResponseCache cache, ServerMetrics metrics,
+                   ConnectionExecutor executor) {
+        this.servlet = servlet;
+        this.policy = policy;
+        this.cache = cache;
+        this.metrics = metrics;
+        this.executor = executor;
+    }
+
+    @Override
+    public void service(MyRequest request, MyResponse response) {
+        if (!ResponseCache.accepts(request)) {
+            startAsync(response, run(request, response));
+            return;
+        }
+        String key = ResponseCache.key(request, policy, response.getAcceptedEncoding());
+        CachedResponse cached = cache.get(key, System.nanoTime());
+        if (cached != null) {
+            metrics.responseCacheHit();
+            response.useCached(cached);
+            return;
+        }
+        CompletableFuture<CachedResponse> loader = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> inFlight = cache.claim(key, loader);
+        if (inFlight != null) {
+            metrics.responseCacheCoalesced();
+            // ✅ 서블릿은 먼저 온 요청 하나만 실행, 나머지는 워커를 잡지 않고 그 결과를 기다림
+            response.startAsync(inFlight.thenCompose(entry -> entry != null ? served(response, entry) : rerun(request, response)));
+            return;
+        }
+        metrics.responseCacheMiss();
+        load(key, loader, request, response);
+    }
+
+    /**
+     * @implSpec 서블릿을 실행하고 끝나면 캐시에 담음, 시간 초과면 기다리던 요청들을 먼저 풀어 줌
+     * - 필터가 서블릿 전에 넣은 헤더는 요청마다 다를 수 있으므로 담지 않음
+     */
+    private void load(String key, CompletableFuture<CachedResponse> loader, MyRequest request, MyResponse response) {
+        Map<String, String> outerHeaders = new HashMap<>(response.getHeaders());
+        CompletionStage<Void> stage;
+        try {
+            stage = run(request, response);
+        } catch (RuntimeException e) {
+            cache.finish(key, loader, null, policy, outerHeaders);
+            throw e;
+        }
+        if (stage == DONE) {
+            cache.finish(key, loader, response, policy, outerHeaders);
+            return;
+        }
+        response.onAsyncTimeout(() -> cache.finish(key, loader, null, policy, outerHeaders));
+        response.startAsync(stage.whenComplete((ignored, error) ->
+                cache.finish(key, loader, error == null ? response : null, policy, outerHeaders)));
+    }
+
+    private CompletionStage<Void> served(MyResponse response, CachedResponse entry) {
+        response.useCached(entry);
+        return DONE;
+    }
+
+    /**
+     * @implSpec 결과를 알린 스레드(먼저 온 요청의 서블릿 쪽 스레드)를 잡지 않도록 서버 실행기에서 서블릿을 실행
+     */
+    private CompletionStage<Void> rerun(MyRequest request, MyResponse response) {
+        if (executor == null) {
+            return run(request, response);
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        boolean accepted = executor.execute(() -> {
+            try {
+                run(request, response).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(null);
+                    }
+                });
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        if (!accepted) {
+            log.debug("Rejecting coalesced request for {}: executor is saturated", request.getPath());
+            metrics.connectionRejected();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setBody(HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase());
+            return DONE;
+        }
+        return result;
+    }
+
+    /**
+     * @return 동기 서블릿이면 DONE, AsyncMyServlet 이면 서블릿이 반환한 stage
+     */
+    private CompletionStage<Void> run(MyRequest request, MyResponse response) {
+        if (servlet instanceof AsyncMyServlet asyncServlet) {
+            return asyncServlet.serviceAsync(request, response);
+        }
+        servlet.service(request, response);
+        return DONE;
+    }
+
+    private static void startAsync(MyResponse response, CompletionStage<Void> stage) {
+        if (stage != DONE) {
+            response.startAsync(stage);
+        }
+    }
+}
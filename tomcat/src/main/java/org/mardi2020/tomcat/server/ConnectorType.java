@@ -0,0 +1,14 @@
+package org.mardi2020.tomcat.server;
+
+public enum ConnectorType {
+
+    /**
+     * java.net.ServerSocket 기반, 연결 하나가 워커 스레드 하나를 점유
+     */
+    BIO,
+
+    /**
+     * java.nio Selector 기반, 요청이 완성됐을 때만 워커 스레드를 사용
+     */
+    NIO
+}
@@ -0,0 +1,13 @@
+package org.mardi2020.tomcat.server;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * 파일 내용을 직접 보낼 수 있는 쓰기 대상
+ * - 논블로킹 소켓은 transferTo 가 0 을 반환할 수 있으므로, 쓸 수 있을 때까지 기다리는 쪽(커넥터)이 구현
+ */
+public interface FileTransferTarget {
+
+    void transferFully(FileChannel file, long position, long count) throws IOException;
+}
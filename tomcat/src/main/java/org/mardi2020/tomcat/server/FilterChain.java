@@ -0,0 +1,62 @@
+package org.mardi2020.tomcat.server;
+
+import org.mardi2020.tomcat.servlet.AsyncMyServlet;
+import org.mardi2020.tomcat.servlet.MyFilter;
+import org.mardi2020.tomcat.servlet.MyFilterChain;
+import org.mardi2020.tomcat.servlet.MyServlet;
+
+/**
+ * 라우트마다 등록 시점에 미리 엮어 둔 필터 체인
+ * - 필터 배열을 뒤에서부터 (필터, 다음 체인) 노드로 연결해 두므로 요청마다 리스트/인덱스 객체를 만들지 않음
+ * - 마지막 노드가 서블릿을 실행, 서블릿이 없으면(404, 405) 디스패처가 미리 채운 응답을 그대로 둠
+ */
+final class FilterChain implements MyFilterChain {
+
+    static final MyFilter[] NO_FILTERS = new MyFilter[0];
+
+    /**
+     * 필터도 서블릿도 없는 체인 (디스패처가 채운 응답을 그대로 보냄)
+     */
+    static final FilterChain EMPTY = new FilterChain(null, null, null);
+
+    private final MyFilter filter;
+
+    private final FilterChain next;
+
+    private final MyServlet servlet;
+
+    private FilterChain(MyFilter filter, FilterChain next, MyServlet servlet) {
+        this.filter = filter;
+        this.next = next;
+        this.servlet = servlet;
+    }
+
+    /**
+     * @param servlet null 이면 필터만 실행
+     */
+    static FilterChain compile(MyFilter[] filters, MyServlet servlet) {
+        FilterChain chain = new FilterChain(null, null, servlet);
+        for (int i = filters.length - 1; i >= 0; i--) {
+            chain = new FilterChain(filters[i], chain, servlet);
+        }
+        return chain;
+    }
+
+    MyServlet getServlet() {
+        return servlet;
+    }
+
+    /**
+     * @implSpec AsyncMyServlet 이 반환한 stage 는 response 에 맡겨 두고, 디스패처가 체인이 끝난 뒤 꺼내서 기다림
+     */
+    @Override
+    public void doFilter(MyRequest request, MyResponse response) {
+        if (filter != null) {
+            filter.doFilter(request, response, next);
+        } else if (servlet instanceof AsyncMyServlet asyncServlet) {
+            response.startAsync(asyncServlet.serviceAsync(request, response));
+        } else if (servlet != null) {
+            servlet.service(request, response);
+        }
+    }
+}
@@ -1,25 +1,371 @@
 package org.mardi2020.tomcat.server;
 
 import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 
-import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
 
-@Getter
+/**
+ * HTTP 요청 하나
+ * - MyRequestParser 가 요청 헤드 바이트를 head 배열에 그대로 복사하고, 헤더는 위치(offset)만 기록
+ * - 헤더 이름은 자주 쓰는 것이면 HttpHeaders 상수를 그대로 쓰고, 값은 getHeader 로 꺼낼 때 한 번만 문자열로 만듦
+ * - 연결마다 재사용(recycle)하므로 keep-alive 요청에서는 배열을 새로 만들지 않음
+ */
 public class MyRequest {
 
-    private String method;
+    private static final int INITIAL_HEAD_SIZE = 512;
 
+    private static final int INITIAL_HEADER_COUNT = 16;
+
+    private static final int INITIAL_PATH_VARIABLE_COUNT = 4;
+
+    /**
+     * recycle 할 때 이보다 큰 바디 버퍼는 버림 (큰 업로드 한 번 때문에 연결이 메모리를 계속 잡지 않도록)
+     */
+    private static final int MAX_RETAINED_BODY_SIZE = 64 * 1024;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private HttpMethod httpMethod;
+
+    @Getter
     private String path;
 
+    @Getter
+    private String queryString;
+
+    @Getter
+    private String protocol;
+
+    byte[] head = new byte[INITIAL_HEAD_SIZE];
+
+    int headLength;
+
+    private String[] headerNames = new String[INITIAL_HEADER_COUNT];
+
+    private int[] valueStarts = new int[INITIAL_HEADER_COUNT];
+
+    private int[] valueEnds = new int[INITIAL_HEADER_COUNT];
+
+    private String[] values = new String[INITIAL_HEADER_COUNT];
+
+    private int headerCount;
+
+    /**
+     * Router 가 매칭하면서 채우는 경로 변수 ("/users/{id}" 의 id), 와일드카드 나머지는 "*"
+     */
+    private String[] pathVariableNames = new String[INITIAL_PATH_VARIABLE_COUNT];
+
+    private String[] pathVariableValues = new String[INITIAL_PATH_VARIABLE_COUNT];
+
+    private int pathVariableCount;
+
+    private byte[] body = EMPTY;
+
+    private int bodyLength;
+
+    /**
+     * 커넥터가 이 요청 객체와 함께 재사용하는 응답 객체, ServletDispatcher 가 처음 쓸 때 만듦
+     * - 요청 객체와 수명이 같음 (시간 초과로 버린 요청 객체와 함께 버려지므로 아직 쓰는 서블릿과 겹치지 않음)
+     */
+    private MyResponse response;
+
+    public MyRequest() {
+    }
+
+    /**
+     * @implSpec 스트림에서 요청 하나를 읽어 만듦 (테스트/간단한 용도)
+     * - 내부 버퍼 단위로 읽으므로 뒤따르는 요청 바이트까지 읽어버릴 수 있음, 커넥터는 MyRequestParser 를 직접 사용
+     */
     public MyRequest(InputStream inputStream) throws IOException {
-        BufferedReader reader = new BufferedReader(new java.io.InputStreamReader(inputStream));
-        String line = reader.readLine();
-        if (line != null) {
-            String[] parts = line.split(" ");
-            this.method = parts[0];
-            this.path = parts[1];
+        MyRequestParser parser = new MyRequestParser(8 * 1024, 2 * 1024 * 1024, 100);
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 1024);
+        buffer.flip();
+        while (!parser.parse(buffer, this)) {
+            int read = inputStream.read(buffer.array(), 0, buffer.capacity());
+            if (read < 0) {
+                if (parser.isStarted()) {
+                    throw new IOException("Connection closed in the middle of request");
+                }
+                return;
+            }
+            buffer.clear().limit(read);
+        }
+    }
+
+    /**
+     * @return 요청 메서드 이름 (GET, POST, ...) 표준 메서드는 상수 문자열
+     */
+    public String getMethod() {
+        return httpMethod == null ? null : httpMethod.name();
+    }
+
+    public HttpMethod getHttpMethod() {
+        return httpMethod;
+    }
+
+    /**
+     * @implSpec 헤더 이름은 대소문자를 구분하지 않음, 같은 이름이 여러 개면 첫 번째 값
+     * - HttpHeaders 상수로 물어보면 문자열 비교 없이 참조 비교로 찾음
+     */
+    public String getHeader(String name) {
+        int index = indexOf(name);
+        return index < 0 ? null : headerValue(index);
+    }
+
+    /**
+     * @implSpec 콤마로 구분된 헤더 값에 token 이 있는지 확인 (예: `Connection: keep-alive, Upgrade`), 문자열을 만들지 않음
+     */
+    public boolean hasHeaderToken(String name, String token) {
+        int index = indexOf(name);
+        if (index < 0) {
+            return false;
+        }
+        int position = valueStarts[index];
+        int end = valueEnds[index];
+        while (position < end) {
+            while (position < end && (head[position] == ' ' || head[position] == '\t' || head[position] == ',')) {
+                position++;
+            }
+            int tokenEnd = position;
+            while (tokenEnd < end && head[tokenEnd] != ',') {
+                tokenEnd++;
+            }
+            int trimmedEnd = tokenEnd;
+            while (trimmedEnd > position && (head[trimmedEnd - 1] == ' ' || head[trimmedEnd - 1] == '\t')) {
+                trimmedEnd--;
+            }
+            if (regionEqualsIgnoreCase(position, trimmedEnd, token)) {
+                return true;
+            }
+            position = tokenEnd + 1;
+        }
+        return false;
+    }
+
+    /**
+     * @return 모든 헤더를 담은 새 Map (호출할 때마다 만들어지므로 자주 부르지 말 것)
+     */
+    public Map<String, String> getHeaders() {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < headerCount; i++) {
+            headers.putIfAbsent(headerNames[i], headerValue(i));
+        }
+        return headers;
+    }
+
+    public int getHeaderCount() {
+        return headerCount;
+    }
+
+    public String getHeaderName(int index) {
+        return headerNames[index];
+    }
+
+    public String getHeaderValue(int index) {
+        return headerValue(index);
+    }
+
+    /**
+     * @return 라우팅에서 추출한 경로 변수, 없으면 null ("/users/{id}" 에 "/users/42" 가 매칭되면 getPathVariable("id") 는 "42")
+     */
+    public String getPathVariable(String name) {
+        for (int i = 0; i < pathVariableCount; i++) {
+            if (pathVariableNames[i].equals(name)) {
+                return pathVariableValues[i];
+            }
+        }
+        return null;
+    }
+
+    public int getPathVariableCount() {
+        return pathVariableCount;
+    }
+
+    public String getPathVariableName(int index) {
+        return pathVariableNames[index];
+    }
+
+    public String getPathVariableValue(int index) {
+        return pathVariableValues[index];
+    }
+
+    /**
+     * @implSpec HTTP/1.1 은 `Connection: close` 가 없으면 유지, HTTP/1.0 은 `Connection: keep-alive` 가 있어야 유지
+     */
+    public boolean isKeepAlive() {
+        if (MyRequestParser.HTTP_1_1.equals(protocol)) {
+            return !hasHeaderToken(HttpHeaders.CONNECTION, "close");
+        }
+        return hasHeaderToken(HttpHeaders.CONNECTION, "keep-alive");
+    }
+
+    /**
+     * @return 바디 길이 (chunked 요청이면 디코딩한 길이)
+     */
+    public int getContentLength() {
+        return bodyLength;
+    }
+
+    /**
+     * @return 바디 복사본
+     */
+    public byte[] getBody() {
+        return bodyLength == 0 ? EMPTY : Arrays.copyOf(body, bodyLength);
+    }
+
+    /**
+     * @return 바디를 복사하지 않는 읽기 전용 뷰 (요청이 recycle 되기 전까지만 유효)
+     */
+    public ByteBuffer getBodyBuffer() {
+        return ByteBuffer.wrap(body, 0, bodyLength).asReadOnlyBuffer();
+    }
+
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(body, 0, bodyLength);
+    }
+
+    /**
+     * @implSpec 다음 요청을 받을 수 있도록 상태 초기화, 배열은 그대로 재사용
+     */
+    public void recycle() {
+        httpMethod = null;
+        queryString = null;
+        protocol = null;
+        headLength = 0;
+        Arrays.fill(values, 0, headerCount, null);
+        Arrays.fill(headerNames, 0, headerCount, null);
+        headerCount = 0;
+        Arrays.fill(pathVariableValues, 0, pathVariableCount, null);
+        pathVariableCount = 0;
+        bodyLength = 0;
+        if (body.length > MAX_RETAINED_BODY_SIZE) {
+            body = EMPTY;
+        }
+        // path 는 다음 요청에서 같은 경로면 재사용하기 위해 남겨둠 (MyRequestParser#resolvePath)
+    }
+
+    MyResponse getRecycledResponse() {
+        return response;
+    }
+
+    void setRecycledResponse(MyResponse response) {
+        this.response = response;
+    }
+
+    // ===== MyRequestParser 가 채우는 부분 =====
+
+    void setHttpMethod(HttpMethod httpMethod) {
+        this.httpMethod = httpMethod;
+    }
+
+    void setProtocol(String protocol) {
+        this.protocol = protocol;
+    }
+
+    void setPath(String path) {
+        this.path = path;
+    }
+
+    void setQueryString(String queryString) {
+        this.queryString = queryString;
+    }
+
+    void addHeader(String name, int valueStart, int valueEnd) {
+        if (headerCount == headerNames.length) {
+            int size = headerCount * 2;
+            headerNames = Arrays.copyOf(headerNames, size);
+            valueStarts = Arrays.copyOf(valueStarts, size);
+            valueEnds = Arrays.copyOf(valueEnds, size);
+            values = Arrays.copyOf(values, size);
+        }
+        headerNames[headerCount] = name;
+        valueStarts[headerCount] = valueStart;
+        valueEnds[headerCount] = valueEnd;
+        headerCount++;
+    }
+
+    void ensureHeadCapacity(int size) {
+        if (head.length < size) {
+            head = Arrays.copyOf(head, Math.max(size, head.length * 2));
+        }
+    }
+
+    void ensureBodyCapacity(long size, int maxBodySize) {
+        if (body.length < size) {
+            body = Arrays.copyOf(body, (int) Math.min(maxBodySize, Math.max(size, body.length * 2L)));
+        }
+    }
+
+    void appendBody(ByteBuffer buffer, int position, int length, int maxBodySize) {
+        ensureBodyCapacity((long) bodyLength + length, maxBodySize);
+        buffer.get(position, body, bodyLength, length);
+        bodyLength += length;
+    }
+
+    // ===== Router 가 채우는 부분 =====
+
+    void addPathVariable(String name, String value) {
+        if (pathVariableCount == pathVariableNames.length) {
+            pathVariableNames = Arrays.copyOf(pathVariableNames, pathVariableCount * 2);
+            pathVariableValues = Arrays.copyOf(pathVariableValues, pathVariableCount * 2);
+        }
+        pathVariableNames[pathVariableCount] = name;
+        pathVariableValues[pathVariableCount++] = value;
+    }
+
+    /**
+     * @implSpec 다른 분기를 다시 시도할 때 그 분기에서 추가한 경로 변수를 되돌림
+     */
+    void truncatePathVariables(int count) {
+        Arrays.fill(pathVariableValues, count, pathVariableCount, null);
+        pathVariableCount = count;
+    }
+
+    // ===== 내부 =====
+
+    private int indexOf(String name) {
+        for (int i = 0; i < headerCount; i++) {
+            if (headerNames[i] == name) {
+                return i;
+            }
+        }
+        for (int i = 0; i < headerCount; i++) {
+            if (headerNames[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String headerValue(int index) {
+        String value = values[index];
+        if (value == null) {
+            value = new String(head, valueStarts[index], valueEnds[index] - valueStarts[index], StandardCharsets.ISO_8859_1);
+            values[index] = value;
+        }
+        return value;
+    }
+
+    private boolean regionEqualsIgnoreCase(int start, int end, String token) {
+        if (end - start != token.length()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            int b = head[start + i];
+            int c = token.charAt(i);
+            if (b != c && Character.toLowerCase(b) != Character.toLowerCase(c)) {
+                return false;
+            }
         }
+        return true;
     }
 }
@@ -0,0 +1,630 @@
+package org.mardi2020.tomcat.server;
+
+import org.mardi2020.tomcat.server.http.HttpParseException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ByteBuffer 를 한 바이트씩 읽는 점진적(incremental) HTTP/1.1 요청 파서
+ * - 데이터가 나눠서 도착해도 상태를 기억했다가 이어서 파싱, 요청이 완성되면 true 반환
+ * - 완성된 요청 뒤에 남은 바이트(파이프라이닝된 다음 요청)는 버퍼에 그대로 남겨둠
+ * - 메서드와 자주 쓰는 헤더 이름은 바이트 비교로 상수에 매핑하므로 요청마다 문자열을 만들지 않음
+ * - 읽기 전용 절대 위치 접근(get(int))만 쓰므로 heap / direct 버퍼 모두 사용 가능
+ */
+public class MyRequestParser {
+
+    static final String HTTP_1_1 = "HTTP/1.1";
+
+    static final String HTTP_1_0 = "HTTP/1.0";
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private static final byte SP = ' ';
+
+    private static final byte HT = '\t';
+
+    private static final byte[] CHUNKED = {'c', 'h', 'u', 'n', 'k', 'e', 'd'};
+
+    private static final HttpMethod[] METHODS = {
+            HttpMethod.GET, HttpMethod.POST, HttpMethod.PUT, HttpMethod.DELETE,
+            HttpMethod.HEAD, HttpMethod.OPTIONS, HttpMethod.PATCH, HttpMethod.TRACE
+    };
+
+    private static final byte[][] METHOD_BYTES = new byte[METHODS.length][];
+
+    private static final String[] KNOWN_HEADERS = {
+            HttpHeaders.HOST, HttpHeaders.CONNECTION, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING,
+            HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.ACCEPT_CHARSET, HttpHeaders.USER_AGENT,
+            HttpHeaders.AUTHORIZATION, HttpHeaders.COOKIE, HttpHeaders.CACHE_CONTROL, HttpHeaders.PRAGMA,
+            HttpHeaders.IF_NONE_MATCH, HttpHeaders.IF_MODIFIED_SINCE, HttpHeaders.IF_MATCH, HttpHeaders.IF_RANGE,
+            HttpHeaders.RANGE, HttpHeaders.ORIGIN, HttpHeaders.REFERER, HttpHeaders.UPGRADE, HttpHeaders.EXPECT,
+            HttpHeaders.CONTENT_ENCODING
+    };
+
+    /**
+     * 길이별로 묶은 헤더 이름 소문자 바이트 (같은 길이 후보만 비교)
+     */
+    private static final byte[][][] KNOWN_HEADER_BYTES_BY_LENGTH = new byte[32][][];
+
+    private static final String[][] KNOWN_HEADERS_BY_LENGTH = new String[32][];
+
+    static {
+        for (int i = 0; i < METHODS.length; i++) {
+            METHOD_BYTES[i] = METHODS[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        for (String name : KNOWN_HEADERS) {
+            int length = name.length();
+            byte[][] bytes = KNOWN_HEADER_BYTES_BY_LENGTH[length];
+            String[] names = KNOWN_HEADERS_BY_LENGTH[length];
+            int size = names == null ? 0 : names.length;
+            byte[][] grownBytes = new byte[size + 1][];
+            String[] grownNames = new String[size + 1];
+            if (size > 0) {
+                System.arraycopy(bytes, 0, grownBytes, 0, size);
+                System.arraycopy(names, 0, grownNames, 0, size);
+            }
+            grownBytes[size] = name.toLowerCase().getBytes(StandardCharsets.US_ASCII);
+            grownNames[size] = name;
+            KNOWN_HEADER_BYTES_BY_LENGTH[length] = grownBytes;
+            KNOWN_HEADERS_BY_LENGTH[length] = grownNames;
+        }
+    }
+
+    private enum State {
+        START, METHOD, TARGET, VERSION, REQUEST_LINE_LF,
+        HEADER_START, HEADER_NAME, HEADER_VALUE_START, HEADER_VALUE, HEADER_LF, HEADERS_END_LF,
+        BODY,
+        CHUNK_SIZE, CHUNK_EXTENSION, CHUNK_SIZE_LF, CHUNK_DATA, CHUNK_DATA_CR, CHUNK_DATA_LF,
+        TRAILER_START, TRAILER, TRAILER_END_LF,
+        DONE
+    }
+
+    private final int maxHeaderSize;
+
+    private final int maxBodySize;
+
+    private final int maxHeaderCount;
+
+    private State state = State.START;
+
+    private int targetStart;
+
+    private int queryStart;
+
+    private int versionStart;
+
+    private int nameStart;
+
+    private int nameEnd;
+
+    private int valueStart;
+
+    private int valueEnd;
+
+    private long contentLength;
+
+    private boolean chunked;
+
+    private long remaining;
+
+    private boolean chunkSizeSeen;
+
+    /**
+     * chunk 확장/트레일러처럼 head 에 복사하지 않는 부가 바이트 수
+     */
+    private int extraSize;
+
+    public MyRequestParser(int maxHeaderSize, int maxBodySize, int maxHeaderCount) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+        this.maxHeaderCount = maxHeaderCount;
+        reset();
+    }
+
+    public MyRequestParser(ServerConfig config) {
+        this(config.getMaxHeaderSize(), config.getMaxBodySize(), config.getMaxHeaderCount());
+    }
+
+    /**
+     * @implSpec 다음 요청을 파싱하기 전에 호출 (요청 객체는 따로 recycle)
+     */
+    public void reset() {
+        state = State.START;
+        queryStart = -1;
+        contentLength = -1;
+        chunked = false;
+        remaining = 0;
+        extraSize = 0;
+    }
+
+    /**
+     * @return 요청의 첫 바이트를 받았는지 (요청 사이에 연결이 끊긴 건지 구분용)
+     */
+    public boolean isStarted() {
+        return state != State.START;
+    }
+
+    /**
+     * @implSpec buffer 의 position 부터 limit 까지 파싱하고 position 을 소비한 만큼 옮김
+     * @param buffer 읽기 모드 버퍼
+     * @param request 채울 요청 (recycle 된 상태)
+     * @return 요청 하나가 완성되면 true, 더 읽어야 하면 false (이 경우 버퍼는 모두 소비됨)
+     * @throws HttpParseException 잘못된 요청이거나 크기 제한을 넘은 경우
+     */
+    public boolean parse(ByteBuffer buffer, MyRequest request) throws HttpParseException {
+        if (state == State.DONE) {
+            return true;
+        }
+        int position = buffer.position();
+        int limit = buffer.limit();
+        try {
+            while (position < limit) {
+                if (state == State.BODY || state == State.CHUNK_DATA) {
+                    int length = (int) Math.min(remaining, limit - position);
+                    request.appendBody(buffer, position, length, maxBodySize);
+                    position += length;
+                    remaining -= length;
+                    if (remaining == 0) {
+                        state = state == State.BODY ? State.DONE : State.CHUNK_DATA_CR;
+                    }
+                } else {
+                    parseByte(buffer.get(position++), request);
+                }
+                if (state == State.DONE) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            buffer.position(position);
+        }
+    }
+
+    private void parseByte(byte b, MyRequest request) throws HttpParseException {
+        switch (state) {
+            case START -> {
+                if (b == CR || b == LF) {
+                    return; // 요청 앞의 빈 줄은 무시 (RFC 9112 2.2)
+                }
+                reset();
+                checkToken(b);
+                append(request, b);
+                state = State.METHOD;
+            }
+            case METHOD -> {
+                if (b == SP) {
+                    request.setHttpMethod(resolveMethod(request.head, request.headLength));
+                    append(request, b);
+                    targetStart = request.headLength;
+                    state = State.TARGET;
+                    return;
+                }
+                checkToken(b);
+                append(request, b);
+            }
+            case TARGET -> {
+                if (b == SP) {
+                    int targetEnd = request.headLength;
+                    if (targetEnd == targetStart) {
+                        throw badRequest("Empty request target");
+                    }
+                    int pathEnd = queryStart < 0 ? targetEnd : queryStart - 1;
+                    request.setPath(resolvePath(request, targetStart, pathEnd));
+                    request.setQueryString(queryStart < 0 ? null
+                            : new String(request.head, queryStart, targetEnd - queryStart, StandardCharsets.ISO_8859_1));
+                    append(request, b);
+                    versionStart = request.headLength;
+                    state = State.VERSION;
+                    return;
+                }
+                if (b <= SP || b == 0x7F) {
+                    throw badRequest("Invalid character in request target");
+                }
+                append(request, b);
+                if (b == '?' && queryStart < 0) {
+                    queryStart = request.headLength;
+                }
+            }
+            case VERSION -> {
+                if (b == CR) {
+                    state = State.REQUEST_LINE_LF;
+                } else if (b == LF) {
+                    endRequestLine(request);
+                } else {
+                    append(request, b);
+                }
+            }
+            case REQUEST_LINE_LF -> {
+                expectLf(b);
+                endRequestLine(request);
+            }
+            case HEADER_START -> {
+                if (b == CR) {
+                    state = State.HEADERS_END_LF;
+                } else if (b == LF) {
+                    endHeaders(request);
+                } else if (b == SP || b == HT) {
+                    throw badRequest("Obsolete line folding is not supported");
+                } else {
+                    if (request.getHeaderCount() >= maxHeaderCount) {
+                        throw new HttpParseException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, "Too many headers");
+                    }
+                    checkToken(b);
+                    nameStart = request.headLength;
+                    append(request, b);
+                    state = State.HEADER_NAME;
+                }
+            }
+            case HEADER_NAME -> {
+                if (b == ':') {
+                    nameEnd = request.headLength;
+                    append(request, b);
+                    state = State.HEADER_VALUE_START;
+                    return;
+                }
+                checkToken(b);
+                append(request, b);
+            }
+            case HEADER_VALUE_START -> {
+                if (b == SP || b == HT) {
+                    append(request, b);
+                } else if (b == CR || b == LF) {
+                    valueStart = valueEnd = request.headLength;
+                    endHeaderLine(request, b);
+                } else {
+                    checkFieldValue(b);
+                    valueStart = request.headLength;
+                    append(request, b);
+                    valueEnd = request.headLength;
+                    state = State.HEADER_VALUE;
+                }
+            }
+            case HEADER_VALUE -> {
+                if (b == CR || b == LF) {
+                    endHeaderLine(request, b);
+                    return;
+                }
+                checkFieldValue(b);
+                append(request, b);
+                if (b != SP && b != HT) {
+                    valueEnd = request.headLength; // 값 뒤쪽 공백은 제외
+                }
+            }
+            case HEADER_LF -> {
+                expectLf(b);
+                endHeader(request);
+            }
+            case HEADERS_END_LF -> {
+                expectLf(b);
+                endHeaders(request);
+            }
+            case CHUNK_SIZE -> {
+                int digit = Character.digit(b, 16);
+                if (digit >= 0) {
+                    remaining = remaining * 16 + digit;
+                    chunkSizeSeen = true;
+                    if (remaining > maxBodySize) {
+                        throw payloadTooLarge();
+                    }
+                } else if (b == ';' || b == SP || b == HT) {
+                    state = State.CHUNK_EXTENSION;
+                } else if (b == CR) {
+                    state = State.CHUNK_SIZE_LF;
+                } else if (b == LF) {
+                    endChunkSize(request);
+                } else {
+                    throw badRequest("Invalid chunk size");
+                }
+            }
+            case CHUNK_EXTENSION -> {
+                countExtra();
+                if (b == CR) {
+                    state = State.CHUNK_SIZE_LF;
+                } else if (b == LF) {
+                    endChunkSize(request);
+                }
+            }
+            case CHUNK_SIZE_LF -> {
+                expectLf(b);
+                endChunkSize(request);
+            }
+            case CHUNK_DATA_CR -> {
+                if (b == CR) {
+                    state = State.CHUNK_DATA_LF;
+                } else if (b == LF) {
+                    startChunk();
+                } else {
+                    throw badRequest("Missing CRLF after chunk data");
+                }
+            }
+            case CHUNK_DATA_LF -> {
+                expectLf(b);
+                startChunk();
+            }
+            case TRAILER_START -> {
+                if (b == CR) {
+                    state = State.TRAILER_END_LF;
+                } else if (b == LF) {
+                    state = State.DONE;
+                } else {
+                    countExtra(); // 트레일러 필드는 읽고 버림
+                    state = State.TRAILER;
+                }
+            }
+            case TRAILER -> {
+                countExtra();
+                if (b == LF) {
+                    state = State.TRAILER_START;
+                }
+            }
+            case TRAILER_END_LF -> {
+                expectLf(b);
+                state = State.DONE;
+            }
+            default -> throw new IllegalStateException("Unexpected parser state: " + state);
+        }
+    }
+
+    private void endRequestLine(MyRequest request) throws HttpParseException {
+        request.setProtocol(resolveProtocol(request.head, versionStart, request.headLength));
+        append(request, LF);
+        state = State.HEADER_START;
+    }
+
+    private void endHeaderLine(MyRequest request, byte b) throws HttpParseException {
+        if (b == CR) {
+            state = State.HEADER_LF;
+        } else {
+            endHeader(request);
+        }
+    }
+
+    private void endHeader(MyRequest request) throws HttpParseException {
+        append(request, LF);
+        String name = resolveHeaderName(request.head, nameStart, nameEnd);
+        request.addHeader(name, valueStart, valueEnd);
+        if (name == HttpHeaders.CONTENT_LENGTH) {
+            long length = parseContentLength(request.head, valueStart, valueEnd);
+            if (contentLength >= 0 && contentLength != length) {
+                throw badRequest("Conflicting Content-Length headers");
+            }
+            contentLength = length;
+        } else if (name == HttpHeaders.TRANSFER_ENCODING) {
+            if (chunked) {
+                throw badRequest("Transfer-Encoding applied chunked more than once");
+            }
+            checkTransferCodings(request.head, valueStart, valueEnd);
+            chunked = true;
+        }
+        state = State.HEADER_START;
+    }
+
+    /**
+     * @implSpec 헤더가 끝나면 바디 형식 결정 (chunked > Content-Length > 바디 없음)
+     */
+    private void endHeaders(MyRequest request) throws HttpParseException {
+        append(request, LF);
+        if (chunked) {
+            if (contentLength >= 0) {
+                // 둘 다 있으면 request smuggling 에 악용될 수 있으므로 거절 (RFC 9112 6.1)
+                throw badRequest("Both Transfer-Encoding and Content-Length are present");
+            }
+            startChunk();
+        } else if (contentLength > maxBodySize) {
+            throw payloadTooLarge();
+        } else if (contentLength > 0) {
+            request.ensureBodyCapacity(contentLength, maxBodySize);
+            remaining = contentLength;
+            state = State.BODY;
+        } else {
+            state = State.DONE;
+        }
+    }
+
+    private void startChunk() {
+        remaining = 0;
+        chunkSizeSeen = false;
+        state = State.CHUNK_SIZE;
+    }
+
+    private void endChunkSize(MyRequest request) throws HttpParseException {
+        if (!chunkSizeSeen) {
+            throw badRequest("Missing chunk size");
+        }
+        if (remaining == 0) {
+            state = State.TRAILER_START;
+            return;
+        }
+        if (request.getContentLength() + remaining > maxBodySize) {
+            throw payloadTooLarge();
+        }
+        state = State.CHUNK_DATA;
+    }
+
+    private void append(MyRequest request, byte b) throws HttpParseException {
+        if (request.headLength >= maxHeaderSize) {
+            if (state == State.METHOD || state == State.TARGET) {
+                throw new HttpParseException(HttpStatus.URI_TOO_LONG, "Request line is too long");
+            }
+            throw new HttpParseException(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE, "Request header is too large");
+        }
+        request.ensureHeadCapacity(request.headLength + 1);
+        request.head[request.headLength++] = b;
+    }
+
+    private void countExtra() throws HttpParseException {
+        if (++extraSize > maxHeaderSize) {
+            throw badRequest("Chunk extensions or trailers are too large");
+        }
+    }
+
+    private static HttpMethod resolveMethod(byte[] head, int length) {
+        for (int i = 0; i < METHOD_BYTES.length; i++) {
+            if (regionEquals(head, 0, length, METHOD_BYTES[i])) {
+                return METHODS[i];
+            }
+        }
+        return HttpMethod.valueOf(new String(head, 0, length, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @implSpec 직전 요청과 경로가 같으면 (keep-alive 로 같은 URL 을 반복 호출) 기존 문자열 재사용
+     */
+    private static String resolvePath(MyRequest request, int start, int end) {
+        String previous = request.getPath();
+        if (previous != null && previous.length() == end - start) {
+            boolean same = true;
+            for (int i = start; i < end; i++) {
+                if (previous.charAt(i - start) != (request.head[i] & 0xFF)) {
+                    same = false;
+                    break;
+                }
+            }
+            if (same) {
+                return previous;
+            }
+        }
+        return new String(request.head, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String resolveProtocol(byte[] head, int start, int end) throws HttpParseException {
+        int length = end - start;
+        if (length == 8 && head[start] == 'H' && head[start + 1] == 'T' && head[start + 2] == 'T'
+                && head[start + 3] == 'P' && head[start + 4] == '/' && head[start + 6] == '.') {
+            if (head[start + 5] == '1' && head[start + 7] == '1') {
+                return HTTP_1_1;
+            }
+            if (head[start + 5] == '1' && head[start + 7] == '0') {
+                return HTTP_1_0;
+            }
+            throw new HttpParseException(HttpStatus.HTTP_VERSION_NOT_SUPPORTED, "Unsupported HTTP version");
+        }
+        throw badRequest("Malformed HTTP version");
+    }
+
+    private static String resolveHeaderName(byte[] head, int start, int end) {
+        int length = end - start;
+        if (length < KNOWN_HEADER_BYTES_BY_LENGTH.length) {
+            byte[][] candidates = KNOWN_HEADER_BYTES_BY_LENGTH[length];
+            if (candidates != null) {
+                for (int i = 0; i < candidates.length; i++) {
+                    if (regionEqualsLowerCase(head, start, candidates[i])) {
+                        return KNOWN_HEADERS_BY_LENGTH[length][i];
+                    }
+                }
+            }
+        }
+        return new String(head, start, length, StandardCharsets.ISO_8859_1);
+    }
+
+    private static long parseContentLength(byte[] head, int start, int end) throws HttpParseException {
+        if (start == end) {
+            throw badRequest("Empty Content-Length");
+        }
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            int digit = head[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw badRequest("Invalid Content-Length");
+            }
+            length = length * 10 + digit;
+            if (length > Integer.MAX_VALUE) {
+                throw payloadTooLarge();
+            }
+        }
+        return length;
+    }
+
+    /**
+     * @implSpec 쉼표로 나눈 코딩을 하나씩 앞뒤 공백을 빼고 비교, chunked 하나만 지원
+     * - gzip 등 다른 코딩이 앞에 붙거나 chunked 가 없으면 501 (디코딩하지 않은 채 넘기지 않도록)
+     * - 'xchunked' 처럼 chunked 로 끝나기만 하는 값은 chunked 가 아님 (요청 스머글링 방지)
+     */
+    private static void checkTransferCodings(byte[] head, int start, int end) throws HttpParseException {
+        boolean chunked = false;
+        int codingStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && head[i] != ',') {
+                continue;
+            }
+            int from = codingStart;
+            int to = i;
+            codingStart = i + 1;
+            while (from < to && (head[from] == SP || head[from] == HT)) {
+                from++;
+            }
+            while (to > from && (head[to - 1] == SP || head[to - 1] == HT)) {
+                to--;
+            }
+            if (from == to) {
+                continue; // 빈 목록 원소는 무시 (RFC 9110 5.6.1)
+            }
+            if (chunked || to - from != CHUNKED.length || !regionEqualsLowerCase(head, from, CHUNKED)) {
+                throw new HttpParseException(HttpStatus.NOT_IMPLEMENTED, "Unsupported Transfer-Encoding");
+            }
+            chunked = true;
+        }
+        if (!chunked) {
+            throw new HttpParseException(HttpStatus.NOT_IMPLEMENTED, "Unsupported Transfer-Encoding");
+        }
+    }
+
+    private static boolean regionEquals(byte[] head, int start, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (head[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @implSpec 토큰 문자(영문/숫자/'-')는 0x20 비트를 켜면 소문자가 되므로 분기 없이 대소문자 무시 비교
+     */
+    private static boolean regionEqualsLowerCase(byte[] head, int start, byte[] lowerCase) {
+        for (int i = 0; i < lowerCase.length; i++) {
+            if ((head[start + i] | 0x20) != lowerCase[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkToken(byte b) throws HttpParseException {
+        // RFC 9110 tchar: 제어문자, 공백, 구분자 제외
+        if (b <= SP || b >= 0x7F || "\"(),/:;<=>?@[\\]{}".indexOf(b) >= 0) {
+            throw badRequest("Invalid token character");
+        }
+    }
+
+    private static void checkFieldValue(byte b) throws HttpParseException {
+        int c = b & 0xFF; // obs-text(0x80~0xFF)는 허용
+        if ((c < SP && c != HT) || c == 0x7F) {
+            throw badRequest("Invalid character in header value");
+        }
+    }
+
+    private static void expectLf(byte b) throws HttpParseException {
+        if (b != LF) {
+            throw badRequest("Expected LF after CR");
+        }
+    }
+
+    private static HttpParseException badRequest(String message) {
+        return new HttpParseException(HttpStatus.BAD_REQUEST, message);
+    }
+
+    private static HttpParseException payloadTooLarge() {
+        return new HttpParseException(HttpStatus.PAYLOAD_TOO_LARGE, "Request body is too large");
+    }
+}
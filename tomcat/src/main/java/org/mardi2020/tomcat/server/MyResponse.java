@@ -1,31 +1,153 @@
 package org.mardi2020.tomcat.server;
 
 import lombok.Builder;
+import lombok.Getter;
+import org.mardi2020.tomcat.server.compression.ContentEncoding;
+import org.mardi2020.tomcat.server.compression.ResponseCompression;
+import org.mardi2020.tomcat.server.websocket.WebSocketUpgrade;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 public class MyResponse {
 
-    private PrintWriter writer;
+    static final String DEFAULT_CONTENT_TYPE = "text/html; charset=UTF-8";
+
+    /**
+     * 재사용할 때 이보다 커진 바디 버퍼는 버림 (큰 응답 하나 때문에 연결마다 메모리를 붙잡지 않도록)
+     */
+    private static final int MAX_RETAINED_BODY_SIZE = 64 * 1024;
 
+    @Getter
     private int statusCode = HttpStatus.OK.value();
 
+    @Getter
     private Map<String, String> headers = new HashMap<>();
 
+    @Getter
     private StringBuilder body = new StringBuilder();
 
+    /**
+     * 바이너리 바디 (정적 파일 등), 설정되면 body 대신 그대로 씀
+     */
+    @Getter
+    private byte[] bodyBytes;
+
+    /**
+     * 파일 바디 (큰 정적 파일), 쓸 때 transferTo 로 힙을 거치지 않고 보냄
+     */
+    @Getter
+    private FileBody bodyFile;
+
+    /**
+     * null 이면 Connection 헤더를 쓰지 않음
+     */
+    @Getter
+    private Boolean keepAlive;
+
+    /**
+     * HEAD 요청처럼 Content-Length 는 쓰되 바디는 보내지 않아야 하는 경우
+     */
+    @Getter
+    private boolean bodySuppressed;
+
+    /**
+     * 커넥터가 연결해 준 출력 채널, 있으면 getOutputStream 으로 바디를 흘려 쓸 수 있음
+     */
+    private GatheringByteChannel channel;
+
+    private boolean chunkedAllowed;
+
+    private MyResponseOutputStream outputStream;
+
+    private PrintWriter writer;
+
+    private boolean aborted;
+
+    /**
+     * 압축 정책과 요청이 받아들이는 방식 (압축하지 않으면 null), 직렬화기가 바디 크기/타입을 보고 실제로 압축할지 정함
+     */
+    private ResponseCompression compression;
+
+    private ContentEncoding acceptedEncoding;
+
+    /**
+     * 필터 체인 끝에서 AsyncMyServlet 이 반환한 stage, 디스패처가 꺼내 감
+     */
+    private CompletionStage<Void> asyncStage;
+
+    /**
+     * 비동기 서블릿이 시간 안에 끝나지 않았을 때 디스패처가 부르는 정리 작업 (응답 캐시가 기다리는 요청을 풀어 줌)
+     */
+    private Runnable asyncTimeoutHandler;
+
+    /**
+     * 헤더를 포함해 지금까지 보낸 바이트 (메트릭 용도)
+     */
+    @Getter
+    private long bytesWritten;
+
+    /**
+     * 응답 캐시에서 꺼낸 직렬화된 응답, 있으면 헤더/바디 대신 이걸 보냄
+     */
+    private CachedResponse cached;
+
+    /**
+     * 101 로 WebSocket 으로 넘어가는 응답이면 커넥터가 응답을 보낸 뒤 연결을 넘길 대상
+     */
+    @Getter
+    private WebSocketUpgrade upgrade;
+
     @Builder
     public MyResponse(int statusCode, Map<String, String> headers, StringBuilder body) {
-        this.headers.put("Content-Type", "text/html; charset=UTF-8");
+        this.headers.put(HttpHeaders.CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
         this.statusCode = statusCode;
         if (!headers.isEmpty()) this.headers = headers;
         this.body = body;
     }
 
+    /**
+     * @implSpec 커넥터가 다음 요청에 다시 쓰도록 새로 만든 응답과 같은 상태로 되돌림, 헤더 맵과 바디 버퍼는 비워서 재사용
+     */
+    MyResponse reset(int statusCode, String body) {
+        discard();
+        this.statusCode = statusCode;
+        headers.clear();
+        headers.put(HttpHeaders.CONTENT_TYPE, DEFAULT_CONTENT_TYPE);
+        if (this.body.capacity() > MAX_RETAINED_BODY_SIZE) {
+            this.body = new StringBuilder();
+        }
+        this.body.setLength(0);
+        this.body.append(body);
+        bodyBytes = null;
+        bodyFile = null;
+        keepAlive = null;
+        bodySuppressed = false;
+        channel = null;
+        chunkedAllowed = false;
+        outputStream = null;
+        writer = null;
+        aborted = false;
+        compression = null;
+        acceptedEncoding = null;
+        asyncStage = null;
+        asyncTimeoutHandler = null;
+        bytesWritten = 0;
+        cached = null;
+        upgrade = null;
+        return this;
+    }
+
     public void addHeader(String key, String value) {
         headers.put(key, value);
     }
@@ -34,17 +156,211 @@ public class MyResponse {
         body.append(content);
     }
 
+    public void setBody(byte[] content) {
+        this.bodyBytes = content;
+    }
+
+    /**
+     * @implSpec 파일의 [position, position + count) 구간을 바디로 사용
+     */
+    public void setBody(Path file, long position, long count) {
+        this.bodyFile = new FileBody(file, position, count);
+    }
+
     public void setStatus(int value) {
         this.statusCode = value;
     }
 
-    public void sendResponse(OutputStream outputStream) {
-        this.writer = new PrintWriter(outputStream, true);
-        writer.println("HTTP/1.1 " + statusCode + " " + HttpStatus.valueOf(statusCode).getReasonPhrase());
-        headers.forEach((key, value) -> writer.println(key + ": " + value));
-        writer.println(""); // 헤더와 바디 사이 빈 줄 추가
-        writer.println(body); // 응답 바디 출력
-        writer.flush(); // 💡 클라이언트로 즉시 전송
-        writer.close(); // 💡 스트림 종료
+    /**
+     * @implSpec 응답 후 연결을 유지할지 클라이언트에게 알림, 이미 헤더를 보냈으면 바꿀 수 없음
+     */
+    public void setKeepAlive(boolean keepAlive) {
+        if (!isCommitted()) {
+            this.keepAlive = keepAlive;
+        }
+    }
+
+    /**
+     * @implSpec 101 Switching Protocols 와 함께 설정, 응답을 보낸 뒤 커넥터가 이 연결을 WebSocket 세션으로 바꿈
+     */
+    public void setUpgrade(WebSocketUpgrade upgrade) {
+        this.upgrade = upgrade;
+    }
+
+    public void suppressBody() {
+        this.bodySuppressed = true;
+    }
+
+    /**
+     * @implSpec 바디를 흘려 쓰는 스트림, 이걸 쓰면 setBody 로 넣은 바디는 무시됨
+     * - 버퍼(8KB)를 넘거나 flush 하면 헤더를 보내고 chunked 로 이어서 보냄, 끝까지 버퍼 안이면 Content-Length 로 한 번에 보냄
+     * - 헤더는 처음 보낼 때 확정되므로 상태 코드/헤더는 먼저 설정해야 함
+     */
+    public OutputStream getOutputStream() {
+        if (outputStream == null) {
+            outputStream = new MyResponseOutputStream(this, channel, chunkedAllowed);
+        }
+        return outputStream;
+    }
+
+    /**
+     * @implSpec getOutputStream 위에 UTF-8 writer, flush 하기 전까지는 writer 와 스트림 버퍼에 모임
+     */
+    public PrintWriter getWriter() {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), StandardCharsets.UTF_8), false);
+        }
+        return writer;
+    }
+
+    /**
+     * @return 헤더를 이미 보냈으면 true (상태 코드/헤더를 더 바꿔도 반영되지 않음)
+     */
+    public boolean isCommitted() {
+        return outputStream != null && outputStream.isCommitted();
+    }
+
+    /**
+     * @implSpec 응답을 쓰고 flush 만 함, 스트림을 닫지 않아야 keep-alive 연결을 이어서 쓸 수 있음
+     * - Content-Length 를 항상 쓰므로 클라이언트가 응답 경계를 알 수 있음
+     */
+    public void sendResponse(OutputStream outputStream) throws IOException {
+        if (finishStream()) {
+            return;
+        }
+        MyResponseSerializer.current().write(this, outputStream);
+    }
+
+    /**
+     * @implSpec 헤더와 바디를 한 번의 gathering write 로 보냄 (💡 writev)
+     * - 바디를 흘려 쓰던 응답이면 남은 바디와 마지막 청크만 씀
+     */
+    public void sendResponse(GatheringByteChannel channel) throws IOException {
+        if (finishStream()) {
+            return;
+        }
+        MyResponseSerializer.current().write(this, channel);
+    }
+
+    // ===== 커넥터 / 디스패처가 쓰는 부분 =====
+
+    /**
+     * @implSpec 서블릿 실행 전에 출력 채널과 연결 정보를 붙임
+     * @param chunkedAllowed HTTP/1.1 요청이면 true
+     */
+    void bind(GatheringByteChannel channel, boolean keepAlive, boolean chunkedAllowed) {
+        this.channel = channel;
+        this.keepAlive = keepAlive;
+        this.chunkedAllowed = chunkedAllowed;
+    }
+
+    /**
+     * @implSpec 이미 헤더를 보낸 뒤 서블릿이 실패하면 다른 응답을 보낼 수 없으므로 끝 표시 없이 연결을 닫게 함
+     */
+    void abort() {
+        this.aborted = true;
+        this.keepAlive = false;
+    }
+
+    /**
+     * @implSpec 보내지 않고 버리는 응답 (서블릿이 헤더를 보내기 전에 실패, 커넥터가 보낼 워커를 얻지 못함), 흘려 쓰던 버퍼를 풀에 돌려줌
+     */
+    public void discard() {
+        if (outputStream != null) {
+            outputStream.discard();
+        }
+    }
+
+    void enableCompression(ResponseCompression compression, ContentEncoding acceptedEncoding) {
+        this.compression = compression;
+        this.acceptedEncoding = acceptedEncoding;
+    }
+
+    ResponseCompression getCompression() {
+        return compression;
+    }
+
+    ContentEncoding getAcceptedEncoding() {
+        return acceptedEncoding;
+    }
+
+    void addBytesWritten(long bytes) {
+        this.bytesWritten += bytes;
+    }
+
+    void startAsync(CompletionStage<Void> stage) {
+        this.asyncStage = stage;
+    }
+
+    /**
+     * @return 비동기 서블릿이 실행됐으면 그 stage, 아니면 null
+     */
+    CompletionStage<Void> takeAsyncStage() {
+        CompletionStage<Void> stage = asyncStage;
+        asyncStage = null;
+        return stage;
+    }
+
+    void onAsyncTimeout(Runnable handler) {
+        this.asyncTimeoutHandler = handler;
+    }
+
+    void asyncTimedOut() {
+        Runnable handler = asyncTimeoutHandler;
+        asyncTimeoutHandler = null;
+        if (handler != null) {
+            handler.run();
+        }
+    }
+
+    void closeAfterResponse() {
+        this.keepAlive = false;
+    }
+
+    /**
+     * @implSpec 서블릿이 흘려 쓰던 바디가 아직 나가지 않았으면 일반 바디로 모음 (응답 캐시에 담기 전)
+     * @return 바디가 모두 메모리에 있으면 true, 이미 헤더를 보냈거나 abort 된 응답이면 false
+     */
+    boolean collectBody() {
+        if (aborted) {
+            return false;
+        }
+        if (outputStream == null) {
+            return true;
+        }
+        try {
+            if (outputStream.isCommitted() || outputStream.finish(writer, false)) {
+                return false; // writer 를 비우다가 버퍼가 넘쳐 보내기 시작했을 수도 있음
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        outputStream = null;
+        writer = null;
+        return true;
+    }
+
+    /**
+     * @implSpec 응답을 캐시에 담긴 바이트로 바꿈, Connection 헤더와 HEAD 의 바디 생략은 이 응답의 것을 따름
+     */
+    void useCached(CachedResponse cached) {
+        this.cached = cached;
+        this.statusCode = cached.getStatusCode();
+        this.outputStream = null;
+        this.writer = null;
+    }
+
+    CachedResponse getCached() {
+        return cached;
+    }
+
+    /**
+     * @return 스트리밍으로 이미 보낸 응답이라 마무리만 했으면 true
+     */
+    private boolean finishStream() throws IOException {
+        return outputStream != null && outputStream.finish(writer, aborted);
+    }
+
+    public record FileBody(Path path, long position, long count) {
     }
 }
@@ -1,5 +1,6 @@
 package org.mardi2020.tomcat.server;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 
 import java.util.HashMap;
@@ -29,4 +30,41 @@ public class MyResponseFactory {
         }
         return createResponse(HttpStatus.OK.value(), body);
     }
+
+    /**
+     * @implSpec create(body, path, isExistServlet) 와 같은 응답을 만들되 reusable 이 있으면 그 객체를 초기화해서 씀
+     * @param reusable 커넥터가 연결마다 재사용하는 응답 객체, 없으면 null
+     */
+    static MyResponse create(MyResponse reusable, String body, String path, boolean isExistServlet) {
+        if (reusable == null) {
+            return create(body, path, isExistServlet);
+        }
+        if (path == null || path.isEmpty() || !isExistServlet) {
+            return reusable.reset(HttpStatus.NOT_FOUND.value(), HttpStatus.NOT_FOUND.getReasonPhrase());
+        }
+        return reusable.reset(HttpStatus.OK.value(), body);
+    }
+
+    /**
+     * @implSpec create(status) 와 같은 응답을 만들되 reusable 이 있으면 그 객체를 초기화해서 씀
+     */
+    static MyResponse create(MyResponse reusable, HttpStatus status) {
+        return reusable == null ? create(status) : reusable.reset(status.value(), status.getReasonPhrase());
+    }
+
+    /**
+     * @implSpec 서블릿을 거치지 않는 에러 응답 (reason phrase 를 바디로 사용)
+     */
+    public static MyResponse create(HttpStatus status) {
+        return createResponse(status.value(), status.getReasonPhrase());
+    }
+
+    /**
+     * @implSpec 요청 제한/과부하로 거절할 때 (429, 503), 다시 시도할 시각을 Retry-After 로 알림
+     */
+    public static MyResponse create(HttpStatus status, long retryAfterSeconds) {
+        MyResponse response = create(status);
+        response.addHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        return response;
+    }
 }
@@ -0,0 +1,275 @@
+package org.mardi2020.tomcat.server;
+
+import org.mardi2020.tomcat.server.buffer.BufferPool;
+import org.mardi2020.tomcat.server.buffer.PooledBuffer;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 서블릿이 바디를 흘려 쓰는 스트림 (MyResponse#getOutputStream)
+ * - 버퍼(8KB)가 차거나 flush 하면 그때 헤더를 보내고(commit) 버퍼 내용을 청크 하나로 씀
+ * - 길이를 모르면 `Transfer-Encoding: chunked`, 서블릿이 Content-Length 를 정했으면 그대로, HTTP/1.0 이면 연결 종료로 끝을 알림
+ * - 쓰기는 커넥터의 블로킹 채널로 바로 나가므로 소켓이 밀리면 서블릿 스레드가 기다림 (💡 메모리는 버퍼 크기만큼만 사용)
+ * - 커넥터에 연결되지 않은 응답(테스트, dispatch)은 버퍼를 늘려가며 모았다가 일반 바디로 보냄
+ * - 커넥터에 연결된 응답의 버퍼는 BufferPool 의 다이렉트 버퍼 (응답마다 새로 만들지 않고, 소켓에 쓸 때 JDK 가 한 번 더 복사하지 않음),
+ *   finish 에서 돌려줌
+ */
+final class MyResponseOutputStream extends OutputStream {
+
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final MyResponse response;
+
+    private final GatheringByteChannel channel;
+
+    private final boolean chunkedAllowed;
+
+    private ByteBuffer buffer;
+
+    /**
+     * buffer 를 풀에서 빌렸으면 그 핸들, 아니면 null
+     */
+    private PooledBuffer pooled;
+
+    private final ByteBuffer chunkHead = ByteBuffer.allocate(18);
+
+    private final ByteBuffer chunkTail = ByteBuffer.wrap(CRLF);
+
+    private final ByteBuffer[] chunk = {chunkHead, null, chunkTail};
+
+    private boolean committed;
+
+    private boolean chunked;
+
+    private boolean closed;
+
+    /**
+     * finish 중에 writer 를 비울 때 flush 가 헤더를 먼저 보내버리지 않도록 막음
+     */
+    private boolean finishing;
+
+    private boolean finished;
+
+    MyResponseOutputStream(MyResponse response, GatheringByteChannel channel, boolean chunkedAllowed) {
+        this.response = response;
+        this.channel = channel;
+        this.chunkedAllowed = chunkedAllowed;
+        if (channel != null) {
+            pooled = BufferPool.shared().acquire(BUFFER_SIZE);
+            buffer = pooled.buffer();
+        } else {
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    }
+
+    boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (!buffer.hasRemaining()) {
+            drain();
+            ensureOpen();
+        }
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+                ensureOpen();
+            }
+            if (channel != null && buffer.position() == 0 && length >= buffer.capacity()) {
+                commit();
+                writeChunk(ByteBuffer.wrap(bytes, offset, length)); // 큰 쓰기는 버퍼에 복사하지 않고 바로 보냄
+                return;
+            }
+            int copied = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, copied);
+            offset += copied;
+            length -= copied;
+        }
+    }
+
+    /**
+     * @implSpec 아직 헤더를 안 보냈으면 지금 보내고, 버퍼에 모인 바이트를 청크로 보냄
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (channel == null || finishing) {
+            return;
+        }
+        commit();
+        writeBuffered();
+    }
+
+    /**
+     * @implSpec 더 쓰지 못하게만 막음, 남은 바이트와 끝 표시는 커넥터가 finish 할 때 씀
+     * - 닫기만 했을 때 바로 보내지 않아야 작은 응답이 chunked 대신 Content-Length 로 나감
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * @implSpec 커넥터가 응답을 보낼 때 호출
+     * @param writer 서블릿이 getWriter 를 썼다면 그 writer
+     * @return 이미 헤더를 보냈으면 남은 바디와 마지막 청크까지 쓰고 true,
+     * 아직 안 보냈으면 모인 바이트를 일반 바디로 넘기고 false (직렬화기가 Content-Length 로 보냄), 두 번째 호출부터는 결과만 반환
+     */
+    boolean finish(Writer writer, boolean aborted) throws IOException {
+        if (finished) {
+            return committed;
+        }
+        finished = true;
+        try {
+            if (writer != null && !closed) {
+                finishing = true;
+                writer.flush(); // writer 가 인코딩해 둔 바이트를 버퍼로
+            }
+            closed = true;
+            if (!committed) {
+                byte[] body = new byte[buffer.position()];
+                buffer.flip().get(body);
+                response.setBody(body);
+                return false;
+            }
+            if (aborted) {
+                return true; // 끝을 알리지 않고 연결을 닫아 클라이언트가 잘린 응답임을 알게 함
+            }
+            writeBuffered();
+            if (chunked && !response.isBodySuppressed()) {
+                write(ByteBuffer.wrap(LAST_CHUNK));
+            }
+            return true;
+        } finally {
+            releaseBuffer();
+        }
+    }
+
+    /**
+     * @implSpec 아무것도 보내지 않고 닫음, 이후 쓰기는 실패
+     */
+    void discard() {
+        closed = true;
+        finished = true;
+        releaseBuffer();
+    }
+
+    private void releaseBuffer() {
+        if (pooled != null) {
+            pooled.release();
+            pooled = null;
+        }
+        buffer = null;
+    }
+
+    private void drain() throws IOException {
+        if (channel == null) {
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip()); // 연결이 없으면 모아 둠
+            return;
+        }
+        commit();
+        writeBuffered();
+    }
+
+    private void commit() throws IOException {
+        if (committed) {
+            return;
+        }
+        committed = true;
+        long contentLength = declaredContentLength();
+        chunked = contentLength < 0 && chunkedAllowed;
+        if (contentLength < 0 && !chunkedAllowed) {
+            response.closeAfterResponse(); // HTTP/1.0: 길이를 모르면 연결을 닫아서 끝을 알림
+        }
+        MyResponseSerializer.current().writeHead(response, contentLength, chunked, channel);
+    }
+
+    private long declaredContentLength() {
+        String value = response.getHeaders().get(HttpHeaders.CONTENT_LENGTH);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void writeBuffered() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        writeChunk(buffer);
+        buffer.clear();
+    }
+
+    private void writeChunk(ByteBuffer data) throws IOException {
+        if (response.isBodySuppressed()) {
+            data.position(data.limit()); // HEAD: 헤더만 보내고 바디는 버림
+            return;
+        }
+        if (!chunked) {
+            write(data);
+            return;
+        }
+        putChunkSize(data.remaining());
+        chunkTail.rewind();
+        chunk[1] = data;
+        response.addBytesWritten(chunkHead.remaining() + data.remaining() + chunkTail.remaining());
+        while (chunkHead.hasRemaining() || data.hasRemaining() || chunkTail.hasRemaining()) {
+            channel.write(chunk); // ✅ 청크 크기, 데이터, CRLF 를 한 번에
+        }
+        chunk[1] = null;
+    }
+
+    private void putChunkSize(int size) {
+        chunkHead.clear();
+        int shift = 28;
+        while (shift > 0 && (size >>> shift) == 0) {
+            shift -= 4;
+        }
+        for (; shift >= 0; shift -= 4) {
+            chunkHead.put(HEX[(size >>> shift) & 0xF]);
+        }
+        chunkHead.put(CRLF).flip();
+    }
+
+    private void write(ByteBuffer data) throws IOException {
+        response.addBytesWritten(data.remaining());
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * @implSpec discard/finish 로 버퍼를 풀에 돌려준 뒤에 쓰면 NPE 대신 IOException
+     */
+    private void ensureOpen() throws IOException {
+        if (closed || buffer == null) {
+            throw new IOException("Response output stream is closed");
+        }
+    }
+}
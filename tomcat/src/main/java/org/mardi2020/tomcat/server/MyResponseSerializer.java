@@ -0,0 +1,459 @@
+package org.mardi2020.tomcat.server;
+
+import org.mardi2020.tomcat.server.compression.Compressor;
+import org.mardi2020.tomcat.server.compression.ContentEncoding;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * MyResponse 를 HTTP/1.1 바이트로 바꿔서 쓰는 직렬화기
+ * - 상태 라인, 자주 쓰는 헤더 이름/줄은 미리 인코딩해 둔 바이트 배열을 복사만 함
+ * - 숫자(Content-Length)와 헤더 값은 문자열을 만들지 않고 바로 버퍼에 씀
+ * - 헤더 버퍼와 바디 버퍼를 한 번의 gathering write(writev)로 내보내 시스템 콜을 줄임
+ * - 버퍼를 재사용하므로 스레드마다 하나씩 사용 (current())
+ */
+public class MyResponseSerializer {
+
+    private static final ThreadLocal<MyResponseSerializer> CURRENT = ThreadLocal.withInitial(MyResponseSerializer::new);
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] COLON_SP = {':', ' '};
+
+    private static final byte[] CONTENT_LENGTH = ascii(HttpHeaders.CONTENT_LENGTH + ": ");
+
+    private static final byte[] TRANSFER_ENCODING_CHUNKED = ascii(HttpHeaders.TRANSFER_ENCODING + ": chunked\r\n");
+
+    private static final byte[] CONTENT_ENCODING_GZIP = ascii(HttpHeaders.CONTENT_ENCODING + ": gzip\r\n");
+
+    private static final byte[] CONTENT_ENCODING_DEFLATE = ascii(HttpHeaders.CONTENT_ENCODING + ": deflate\r\n");
+
+    private static final byte[] VARY_ACCEPT_ENCODING = ascii(HttpHeaders.VARY + ": " + HttpHeaders.ACCEPT_ENCODING + "\r\n");
+
+    private static final byte[] CONNECTION_KEEP_ALIVE = ascii(HttpHeaders.CONNECTION + ": keep-alive\r\n");
+
+    private static final byte[] CONNECTION_CLOSE = ascii(HttpHeaders.CONNECTION + ": close\r\n");
+
+    private static final String[] COMMON_HEADERS = {
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CACHE_CONTROL, HttpHeaders.CONTENT_ENCODING, HttpHeaders.VARY,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.LOCATION, HttpHeaders.SET_COOKIE,
+            HttpHeaders.ACCEPT_RANGES, HttpHeaders.CONTENT_RANGE, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.DATE,
+            HttpHeaders.EXPIRES, HttpHeaders.RETRY_AFTER, HttpHeaders.ALLOW
+    };
+
+    /**
+     * "Content-Type: " 처럼 이름 + ": " 까지 인코딩해 둔 헤더
+     */
+    private static final Map<String, byte[]> HEADER_NAMES = new HashMap<>();
+
+    /**
+     * 값까지 고정인 헤더 줄 ("Content-Type: text/html; charset=UTF-8\r\n")
+     */
+    private static final String DEFAULT_CONTENT_TYPE = MyResponse.DEFAULT_CONTENT_TYPE;
+
+    private static final byte[] DEFAULT_CONTENT_TYPE_LINE = ascii(HttpHeaders.CONTENT_TYPE + ": " + DEFAULT_CONTENT_TYPE + "\r\n");
+
+    /**
+     * 상태 코드별 "HTTP/1.1 200 OK\r\n", 처음 쓸 때 만들어 둠 (같은 값이 두 번 만들어져도 무해)
+     */
+    private static final byte[][] STATUS_LINES = new byte[600][];
+
+    private static final int OK = HttpStatus.OK.value();
+
+    private static final int NO_CONTENT = HttpStatus.NO_CONTENT.value();
+
+    private static final int NOT_MODIFIED = HttpStatus.NOT_MODIFIED.value();
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private static final int INITIAL_HEAD_SIZE = 1024;
+
+    private static final int INITIAL_BODY_SIZE = 8 * 1024;
+
+    /**
+     * 이보다 큰 바디 버퍼는 재사용하지 않음 (큰 응답 한 번 때문에 스레드가 메모리를 계속 잡지 않도록)
+     */
+    private static final int MAX_RETAINED_BODY_SIZE = 256 * 1024;
+
+    static {
+        for (String name : COMMON_HEADERS) {
+            HEADER_NAMES.put(name, ascii(name + ": "));
+        }
+        for (HttpStatus status : HttpStatus.values()) {
+            statusLine(status.value());
+        }
+    }
+
+    private final ByteBuffer[] buffers = new ByteBuffer[2];
+
+    private ByteBuffer head = ByteBuffer.allocate(INITIAL_HEAD_SIZE);
+
+    private ByteBuffer body = ByteBuffer.allocate(INITIAL_BODY_SIZE);
+
+    public static MyResponseSerializer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @implSpec 헤더와 바디를 gathering write 로 모두 쓸 때까지 반복 (블로킹 채널 기준)
+     */
+    public void write(MyResponse response, GatheringByteChannel channel) throws IOException {
+        ByteBuffer[] serialized = serialize(response);
+        response.addBytesWritten(serialized[0].remaining() + serialized[1].remaining());
+        while (serialized[0].hasRemaining() || serialized[1].hasRemaining()) {
+            channel.write(serialized);
+        }
+        if (hasFileBody(response)) {
+            transferFile(response.getBodyFile(), channel);
+            response.addBytesWritten(response.getBodyFile().count());
+        }
+    }
+
+    /**
+     * @implSpec OutputStream 은 gathering write 가 없으므로 헤더, 바디 순서로 씀
+     */
+    public void write(MyResponse response, OutputStream outputStream) throws IOException {
+        ByteBuffer[] serialized = serialize(response);
+        for (ByteBuffer buffer : serialized) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            response.addBytesWritten(buffer.remaining());
+        }
+        if (hasFileBody(response)) {
+            transferFile(response.getBodyFile(), Channels.newChannel(outputStream));
+            response.addBytesWritten(response.getBodyFile().count());
+        }
+        outputStream.flush();
+    }
+
+    /**
+     * @implSpec 스트리밍 응답의 헤더만 씀, 바디는 MyResponseOutputStream 이 이어서 씀
+     * @param contentLength 0 이상이면 Content-Length, 음수면 chunked 여부에 따라 Transfer-Encoding 또는 길이 없음(연결 종료로 끝)
+     */
+    void writeHead(MyResponse response, long contentLength, boolean chunked, GatheringByteChannel channel) throws IOException {
+        ByteBuffer serialized = serializeHead(response, contentLength, chunked, null);
+        response.addBytesWritten(serialized.remaining());
+        while (serialized.hasRemaining()) {
+            channel.write(serialized);
+        }
+    }
+
+    /**
+     * @return [헤더, 바디] 읽기 모드 버퍼, 다음 serialize 호출 전까지만 유효
+     */
+    ByteBuffer[] serialize(MyResponse response) {
+        if (response.getCached() != null) {
+            return serializeCached(response);
+        }
+        ByteBuffer content = encodeBody(response);
+        ContentEncoding encoding = null;
+        if (shouldCompress(response, content)) {
+            encoding = response.getAcceptedEncoding();
+            content = Compressor.current().compress(encoding, content);
+        }
+        long contentLength = response.getBodyFile() != null ? response.getBodyFile().count() : content.remaining();
+        boolean hasContentLength = hasContentLength(response);
+        buffers[0] = serializeHead(response, hasContentLength ? contentLength : -1, false, encoding);
+        buffers[1] = response.isBodySuppressed() || !hasContentLength ? content.limit(content.position()) : content;
+        return buffers;
+    }
+
+    /**
+     * @implSpec 응답 캐시에 담을 바이트를 만듦, 압축까지 이 응답을 보낼 때와 똑같이 하되 연결마다 다른 Connection 헤더만 뺌
+     * - HEAD 요청의 응답이어도 바디는 담음 (같은 키의 GET 이 그대로 쓸 수 있도록)
+     * @param outerHeaders 서블릿 실행 전에 있던 헤더 (필터가 넣은 것), 값이 그대로인 헤더는 담지 않고 보낼 때마다 그 요청의 것을 씀
+     */
+    CachedResponse snapshot(MyResponse response, Map<String, String> outerHeaders) {
+        ByteBuffer content = encodeBody(response);
+        ContentEncoding encoding = null;
+        if (shouldCompress(response, content)) {
+            encoding = response.getAcceptedEncoding();
+            content = Compressor.current().compress(encoding, content);
+        }
+        head.clear();
+        putHeaders(response, outerHeaders, content.remaining(), false, encoding);
+        byte[] headBytes = Arrays.copyOf(head.array(), head.position());
+        Set<String> headerNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        response.getHeaders().forEach((name, value) -> {
+            if (!value.equals(outerHeaders.get(name))) {
+                headerNames.add(name);
+            }
+        });
+        byte[] bodyBytes = encoding == null && response.getBodyBytes() != null
+                ? response.getBodyBytes() // 서블릿이 넘긴 배열을 그대로 (복사하지 않음)
+                : Arrays.copyOfRange(content.array(), content.arrayOffset() + content.position(),
+                        content.arrayOffset() + content.limit());
+        return new CachedResponse(response.getStatusCode(), headBytes, bodyBytes, headerNames);
+    }
+
+    /**
+     * @implSpec 캐시에 담아 둔 헤더 뒤에 이 요청의 필터가 넣은 헤더와 Connection 헤더를 붙임, 바디는 복사하지 않고 감싸서 보냄
+     */
+    private ByteBuffer[] serializeCached(MyResponse response) {
+        CachedResponse cached = response.getCached();
+        head.clear();
+        put(cached.getHead());
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            String name = header.getKey();
+            if (!cached.hasHeader(name) && isVerbatim(name)) {
+                putHeader(name, header.getValue());
+            }
+        }
+        putConnection(response);
+        put(CRLF);
+        buffers[0] = head.flip();
+        buffers[1] = response.isBodySuppressed() ? EMPTY : ByteBuffer.wrap(cached.getBody());
+        return buffers;
+    }
+
+    /**
+     * @implSpec Content-Length / Transfer-Encoding 은 직렬화기가 정하므로 서블릿이 넣은 같은 헤더는 건너뜀
+     */
+    private ByteBuffer serializeHead(MyResponse response, long contentLength, boolean chunked, ContentEncoding encoding) {
+        head.clear();
+        putHeaders(response, Map.of(), contentLength, chunked, encoding);
+        putConnection(response);
+        put(CRLF); // 헤더와 바디 사이 빈 줄
+        return head.flip();
+    }
+
+    /**
+     * @implSpec 상태 라인부터 Content-Length 까지 (Connection 과 빈 줄 전)
+     * @param skipped 이름과 값이 같으면 쓰지 않을 헤더
+     */
+    private void putHeaders(MyResponse response, Map<String, String> skipped, long contentLength, boolean chunked,
+                            ContentEncoding encoding) {
+        put(statusLine(response.getStatusCode()));
+        for (Map.Entry<String, String> header : response.getHeaders().entrySet()) {
+            String name = header.getKey();
+            if (isVerbatim(name) && !header.getValue().equals(skipped.get(name))) {
+                putHeader(name, header.getValue());
+            }
+        }
+        if (encoding != null) {
+            put(encoding == ContentEncoding.GZIP ? CONTENT_ENCODING_GZIP : CONTENT_ENCODING_DEFLATE);
+        }
+        if ((encoding != null || isVaryNeeded(response)) && !response.getHeaders().containsKey(HttpHeaders.VARY)) {
+            put(VARY_ACCEPT_ENCODING); // 캐시가 압축본을 압축을 모르는 클라이언트에게 주지 않도록
+        }
+        if (chunked) {
+            put(TRANSFER_ENCODING_CHUNKED);
+        } else if (contentLength >= 0) {
+            put(CONTENT_LENGTH);
+            putDigits(contentLength);
+            put(CRLF);
+        }
+    }
+
+    /**
+     * @return 응답에 넣은 그대로 쓰는 헤더면 true (Content-Length / Transfer-Encoding 은 직렬화기가 정함)
+     */
+    private static boolean isVerbatim(String name) {
+        return !name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH) && !name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    /**
+     * @implSpec 업그레이드 응답은 서블릿이 넣은 `Connection: Upgrade` 만 씀
+     */
+    private void putConnection(MyResponse response) {
+        if (response.getKeepAlive() != null && response.getUpgrade() == null) {
+            put(response.getKeepAlive() ? CONNECTION_KEEP_ALIVE : CONNECTION_CLOSE);
+        }
+    }
+
+    /**
+     * @implSpec 200 이고, 서블릿이 직접 인코딩하지 않았고, 압축할 만한 타입/크기이며, 클라이언트가 받아들일 때만 압축
+     */
+    private static boolean shouldCompress(MyResponse response, ByteBuffer content) {
+        return response.getAcceptedEncoding() != null
+                && isCompressionCandidate(response)
+                && response.getCompression().shouldCompress(response.getHeaders().get(HttpHeaders.CONTENT_TYPE), content.remaining());
+    }
+
+    private static boolean isVaryNeeded(MyResponse response) {
+        return isCompressionCandidate(response)
+                && response.getCompression().isCompressible(response.getHeaders().get(HttpHeaders.CONTENT_TYPE));
+    }
+
+    private static boolean isCompressionCandidate(MyResponse response) {
+        return response.getCompression() != null
+                && response.getStatusCode() == OK
+                && response.getBodyFile() == null
+                && !response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING);
+    }
+
+    /**
+     * @implSpec 1xx, 204, 304 는 바디가 없는 응답이므로 Content-Length 도 바디도 쓰지 않음 (RFC 9110 8.6)
+     */
+    private static boolean hasContentLength(MyResponse response) {
+        int statusCode = response.getStatusCode();
+        return statusCode >= OK && statusCode != NO_CONTENT && statusCode != NOT_MODIFIED;
+    }
+
+    private static boolean hasFileBody(MyResponse response) {
+        return response.getBodyFile() != null && !response.isBodySuppressed();
+    }
+
+    /**
+     * @implSpec 커넥터가 직접 보낼 수 있으면 맡기고, 아니면 transferTo 를 다 보낼 때까지 반복
+     * - 블로킹 SocketChannel 이면 JDK 가 sendfile 을 사용함
+     */
+    private static void transferFile(MyResponse.FileBody body, WritableByteChannel target) throws IOException {
+        try (FileChannel file = FileChannel.open(body.path(), StandardOpenOption.READ)) {
+            if (target instanceof FileTransferTarget transferTarget) {
+                transferTarget.transferFully(file, body.position(), body.count());
+                return;
+            }
+            long position = body.position();
+            long end = position + body.count();
+            while (position < end) {
+                long sent = file.transferTo(position, end - position, target);
+                if (sent <= 0) {
+                    throw new EOFException("File truncated while sending: " + body.path());
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private ByteBuffer encodeBody(MyResponse response) {
+        if (response.getBodyFile() != null) {
+            return EMPTY;
+        }
+        byte[] bytes = response.getBodyBytes();
+        if (bytes != null) {
+            return ByteBuffer.wrap(bytes);
+        }
+        CharSequence chars = response.getBody();
+        int maxLength = chars.length() * 3; // UTF-8 최악의 경우
+        if (body.capacity() < maxLength) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(maxLength, body.capacity() * 2));
+            if (grown.capacity() > MAX_RETAINED_BODY_SIZE) {
+                return encodeUtf8(chars, grown);
+            }
+            body = grown;
+        }
+        return encodeUtf8(chars, body);
+    }
+
+    /**
+     * @implSpec CharSequence 를 UTF-8 로 직접 인코딩 (CharsetEncoder / String 복사 없이)
+     */
+    private static ByteBuffer encodeUtf8(CharSequence chars, ByteBuffer out) {
+        out.clear();
+        int length = chars.length();
+        for (int i = 0; i < length; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?'); // 짝이 맞지 않는 서로게이트
+            } else {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return out.flip();
+    }
+
+    private void putHeader(String name, String value) {
+        if (name == HttpHeaders.CONTENT_TYPE && value == DEFAULT_CONTENT_TYPE) {
+            put(DEFAULT_CONTENT_TYPE_LINE);
+            return;
+        }
+        byte[] encodedName = HEADER_NAMES.get(name);
+        if (encodedName != null) {
+            put(encodedName);
+        } else {
+            putAscii(name);
+            put(COLON_SP);
+        }
+        putAscii(value);
+        put(CRLF);
+    }
+
+    private void put(byte[] bytes) {
+        ensureHeadCapacity(bytes.length);
+        head.put(bytes);
+    }
+
+    /**
+     * @implSpec 헤더는 ISO-8859-1 이므로 char 를 그대로 byte 로 씀, CR/LF 는 헤더 인젝션 방지를 위해 공백으로 바꿈
+     */
+    private void putAscii(String value) {
+        int length = value.length();
+        ensureHeadCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            head.put(c == '\r' || c == '\n' || c > 0xFF ? (byte) ' ' : (byte) c);
+        }
+    }
+
+    private void putDigits(long value) {
+        ensureHeadCapacity(19);
+        if (value == 0) {
+            head.put((byte) '0');
+            return;
+        }
+        int start = head.position();
+        while (value > 0) {
+            head.put((byte) ('0' + value % 10));
+            value /= 10;
+        }
+        for (int i = start, j = head.position() - 1; i < j; i++, j--) {
+            byte tmp = head.get(i);
+            head.put(i, head.get(j));
+            head.put(j, tmp);
+        }
+    }
+
+    private void ensureHeadCapacity(int size) {
+        if (head.remaining() < size) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(head.capacity() * 2, head.position() + size));
+            head.flip();
+            grown.put(head);
+            head = grown;
+        }
+    }
+
+    private static byte[] statusLine(int statusCode) {
+        byte[] line = statusCode >= 0 && statusCode < STATUS_LINES.length ? STATUS_LINES[statusCode] : null;
+        if (line == null) {
+            HttpStatus status = HttpStatus.resolve(statusCode);
+            line = ascii("HTTP/1.1 " + statusCode + " " + (status == null ? "" : status.getReasonPhrase()) + "\r\n");
+            if (statusCode >= 0 && statusCode < STATUS_LINES.length) {
+                STATUS_LINES[statusCode] = line;
+            }
+        }
+        return line;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,114 @@
+package org.mardi2020.tomcat.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.cache.CachePolicy;
+import org.mardi2020.tomcat.server.cache.WTinyLfuCache;
+import org.mardi2020.tomcat.server.compression.ContentEncoding;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 라우트별로 켜는 GET 응답 캐시 (ServletDispatcher#registerCache)
+ * - 키: 경로 + 쿼리, 정책의 vary 헤더 값, 협상된 압축 방식 (GET 만 담고 HEAD 는 같은 키의 GET 응답을 바디 없이 씀)
+ * - 값: 직렬화/압축까지 끝난 응답 바이트, 적중하면 서블릿 없이 헤더 복사와 바디 감싸기만 함 (필터는 CachingServlet 바깥이라 그대로 실행)
+ * - 같은 키의 미스가 동시에 여러 개면 첫 요청만 서블릿을 실행하고 나머지는 그 결과를 기다림 (request coalescing)
+ * - 200 이고 바디가 메모리에 다 모인 응답만 담음, Set-Cookie 가 있거나 Cache-Control 이 no-store/private 면 담지 않음
+ */
+@Slf4j
+final class ResponseCache {
+
+    static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private static final int OK = HttpStatus.OK.value();
+
+    private final WTinyLfuCache<String, CachedResponse> entries;
+
+    /**
+     * 서블릿을 실행 중인 키 → 그 결과 (담지 못하면 null 로 완료)
+     */
+    private final Map<String, CompletableFuture<CachedResponse>> loading = new ConcurrentHashMap<>();
+
+    ResponseCache(long maxSize) {
+        this.entries = new WTinyLfuCache<>(maxSize, CachedResponse::weight);
+    }
+
+    void setMaxSize(long maxSize) {
+        entries.setMaximum(maxSize);
+    }
+
+    WTinyLfuCache<String, CachedResponse> getEntries() {
+        return entries;
+    }
+
+    static boolean accepts(MyRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method);
+    }
+
+    static String key(MyRequest request, CachePolicy policy, ContentEncoding encoding) {
+        StringBuilder key = new StringBuilder(request.getPath());
+        if (request.getQueryString() != null) {
+            key.append('?').append(request.getQueryString());
+        }
+        for (String header : policy.varyHeaders()) {
+            String value = request.getHeader(header);
+            key.append('\n').append(value == null ? "" : value);
+        }
+        return key.append('\n').append(encoding == null ? "identity" : encoding.getToken()).toString();
+    }
+
+    CachedResponse get(String key, long now) {
+        return entries.get(key, now);
+    }
+
+    /**
+     * @return 같은 키를 이미 실행 중인 요청이 있으면 그 결과, 없으면 null (호출한 쪽이 loader 의 주인이 되어 finish 해야 함)
+     */
+    CompletableFuture<CachedResponse> claim(String key, CompletableFuture<CachedResponse> loader) {
+        return loading.putIfAbsent(key, loader);
+    }
+
+    /**
+     * @implSpec 담을 수 있는 응답이면 직렬화해서 담고, 그 응답도 담은 바이트로 보내게 함 (직렬화는 한 번만)
+     * - 캐시에 먼저 넣고 나서 loading 에서 빼므로 그 사이 들어온 요청은 둘 중 하나를 반드시 봄
+     * - 시간 초과로 먼저 null 로 불린 뒤 서블릿이 끝나 다시 불려도 됨 (담기만 하고 기다리는 요청은 이미 풀려 있음)
+     * @param response     서블릿이 채운 응답, 실패/시간 초과면 null
+     * @param outerHeaders 서블릿 실행 전에 응답에 있던 헤더 (필터가 넣은 것), 값이 그대로면 담지 않음
+     */
+    void finish(String key, CompletableFuture<CachedResponse> loader, MyResponse response, CachePolicy policy,
+                Map<String, String> outerHeaders) {
+        CachedResponse entry = null;
+        try {
+            if (response != null && isStorable(response)) {
+                entry = MyResponseSerializer.current().snapshot(response, outerHeaders);
+                entries.put(key, entry, System.nanoTime() + policy.ttlNanos());
+                response.useCached(entry);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to cache response for {}: {}", key, e.getMessage());
+        } finally {
+            loading.remove(key, loader);
+            loader.complete(entry);
+        }
+    }
+
+    private static boolean isStorable(MyResponse response) {
+        if (response.getStatusCode() != OK || response.getBodyFile() != null
+                || response.getHeaders().containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = response.getHeaders().get(HttpHeaders.CACHE_CONTROL);
+        if (cacheControl != null) {
+            String directives = cacheControl.toLowerCase(Locale.ROOT);
+            if (directives.contains("no-store") || directives.contains("private")) {
+                return false;
+            }
+        }
+        return response.collectBody();
+    }
+}
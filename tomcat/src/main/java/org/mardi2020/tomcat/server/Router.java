@@ -0,0 +1,377 @@
+package org.mardi2020.tomcat.server;
+
+import org.mardi2020.tomcat.server.cache.CachePolicy;
+import org.mardi2020.tomcat.server.metrics.RouteMetrics;
+import org.mardi2020.tomcat.server.ratelimit.RateLimit;
+import org.mardi2020.tomcat.server.ratelimit.TokenBucket;
+import org.mardi2020.tomcat.servlet.MyFilter;
+import org.mardi2020.tomcat.servlet.MyServlet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 경로 세그먼트 단위 트라이로 서블릿을 찾는 라우터
+ * - 패턴: "/users" (정적), "/users/{id}" (경로 변수), "/static/*" (접두사 와일드카드, 마지막에만)
+ * - 우선순위: 정적 세그먼트 > 경로 변수 > 와일드카드, 맞지 않으면 되돌아가서 다음 후보를 시도
+ * - 세그먼트마다 해시 한 번이라 조회 비용은 등록된 라우트 수와 무관하고 경로 깊이에만 비례
+ * - 조회 중엔 정규식, split, 세그먼트 substring 을 쓰지 않음 (경로 변수 값만 문자열로 만듦)
+ * - 스레드 안전하지 않음, 다 만든 뒤 공개해서 읽기만 해야 함 (ServletDispatcher 는 등록이 바뀌면 새로 만들어 바꿔 끼움)
+ */
+public class Router {
+
+    /**
+     * 와일드카드에 매칭된 나머지 경로를 담는 경로 변수 이름
+     */
+    public static final String WILDCARD_VARIABLE = "*";
+
+    private static final String WILDCARD = "*";
+
+    private final Node root = new Node();
+
+    private final List<Route> routes = new ArrayList<>();
+
+    /**
+     * @param method null 이면 모든 메서드
+     * @return 서블릿이 등록된 라우트 (같은 패턴이면 메서드가 달라도 같은 라우트)
+     */
+    public Route add(String method, String pattern, MyServlet servlet) {
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
+        }
+        Node node = root;
+        int start = 1;
+        while (start < pattern.length()) {
+            int end = segmentEnd(pattern, start, pattern.length());
+            String segment = pattern.substring(start, end);
+            if (segment.equals(WILDCARD)) {
+                if (end != pattern.length()) {
+                    throw new IllegalArgumentException("Wildcard must be the last segment: " + pattern);
+                }
+                node = node.wildcardChild();
+            } else if (segment.startsWith("{") && segment.endsWith("}")) {
+                node = node.paramChild(segment.substring(1, segment.length() - 1), pattern);
+            } else {
+                node = node.staticChild(segment);
+            }
+            start = end + 1;
+        }
+        Route route = node.route(pattern, routes);
+        route.put(method, servlet);
+        return route;
+    }
+
+    /**
+     * @return 등록된 모든 라우트 (필터를 다시 엮을 때 사용)
+     */
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    /**
+     * @implSpec 경로에 맞는 라우트를 찾고, 경로 변수를 request 에 채움
+     * - 쿼리 스트링이 붙어 있어도 '?' 앞까지만 봄
+     * @return 경로가 맞는 라우트 (메서드별 서블릿 묶음), 없으면 null
+     */
+    public Route find(String path, MyRequest request) {
+        if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        int end = path.indexOf('?');
+        return match(root, path, 1, end < 0 ? path.length() : end, request);
+    }
+
+    private static Route match(Node node, String path, int start, int end, MyRequest request) {
+        if (start >= end) {
+            if (node.route != null) {
+                return node.route;
+            }
+            if (node.wildcard != null) {
+                request.addPathVariable(WILDCARD_VARIABLE, ""); // "/static/*" 은 "/static" 에도 매칭
+                return node.wildcard.route;
+            }
+            return null;
+        }
+        int segmentEnd = segmentEnd(path, start, end);
+
+        Node child = node.children.get(path, start, segmentEnd);
+        if (child != null) {
+            Route route = match(child, path, segmentEnd + 1, end, request);
+            if (route != null) {
+                return route;
+            }
+        }
+        if (node.param != null) {
+            int mark = request.getPathVariableCount();
+            request.addPathVariable(node.param.paramName, path.substring(start, segmentEnd));
+            Route route = match(node.param, path, segmentEnd + 1, end, request);
+            if (route != null) {
+                return route;
+            }
+            request.truncatePathVariables(mark);
+        }
+        if (node.wildcard != null) {
+            request.addPathVariable(WILDCARD_VARIABLE, path.substring(start, end));
+            return node.wildcard.route;
+        }
+        return null;
+    }
+
+    private static int segmentEnd(String path, int start, int end) {
+        int slash = path.indexOf('/', start);
+        return slash < 0 || slash > end ? end : slash;
+    }
+
+    /**
+     * 같은 경로에 메서드별로 등록된 서블릿
+     * - 서블릿마다 이 라우트에 걸린 필터를 미리 엮은 체인으로 들고 있음 (필터가 바뀌면 setFilters 로 다시 엮음)
+     */
+    public static class Route {
+
+        private final String pattern;
+
+        private final Map<String, FilterChain> chains = new LinkedHashMap<>();
+
+        private FilterChain anyMethod;
+
+        private MyFilter[] filters = FilterChain.NO_FILTERS;
+
+        private FilterChain notAllowed = FilterChain.compile(filters, null);
+
+        private String allowedMethods;
+
+        private RouteMetrics metrics;
+
+        /**
+         * 이 라우트 전체(모든 클라이언트 합산)의 요청 제한, 없으면 null
+         */
+        private TokenBucket rateLimiter;
+
+        /**
+         * GET 응답 캐시 설정, 캐시하지 않으면 null
+         */
+        private CachePolicy cachePolicy;
+
+        Route(String pattern) {
+            this.pattern = pattern;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public RouteMetrics getMetrics() {
+            return metrics;
+        }
+
+        void setMetrics(RouteMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        public RateLimit getRateLimit() {
+            return rateLimiter == null ? null : rateLimiter.getLimit();
+        }
+
+        /**
+         * @param rateLimiter 같은 패턴이면 라우트 테이블을 다시 만들어도 같은 버킷
+         */
+        void setRateLimiter(TokenBucket rateLimiter) {
+            this.rateLimiter = rateLimiter;
+        }
+
+        public CachePolicy getCachePolicy() {
+            return cachePolicy;
+        }
+
+        void setCachePolicy(CachePolicy cachePolicy) {
+            this.cachePolicy = cachePolicy;
+        }
+
+        /**
+         * @return 요청 제한이 없거나 토큰이 남아 있으면 true
+         */
+        boolean tryAcquire() {
+            return rateLimiter == null || rateLimiter.tryAcquire(System.nanoTime());
+        }
+
+        void put(String method, MyServlet servlet) {
+            FilterChain chain = FilterChain.compile(filters, servlet);
+            if (method == null) {
+                anyMethod = chain;
+            } else {
+                chains.put(method, chain);
+            }
+            allowedMethods = null;
+        }
+
+        /**
+         * @implSpec 등록된 서블릿마다 체인을 다시 엮음, 등록 시점에만 호출
+         */
+        void setFilters(MyFilter[] filters) {
+            this.filters = filters;
+            chains.replaceAll((method, chain) -> FilterChain.compile(filters, chain.getServlet()));
+            if (anyMethod != null) {
+                anyMethod = FilterChain.compile(filters, anyMethod.getServlet());
+            }
+            notAllowed = FilterChain.compile(filters, null);
+        }
+
+        /**
+         * @implSpec 메서드별 서블릿 > 모든 메서드 서블릿 순서, HEAD 는 GET 서블릿으로도 처리
+         * @return 처리할 서블릿이 없으면 null (405)
+         */
+        public MyServlet get(String method) {
+            FilterChain chain = chain(method);
+            return chain == null ? null : chain.getServlet();
+        }
+
+        /**
+         * @return get(method) 의 서블릿을 필터와 함께 엮은 체인, 서블릿이 없으면 null
+         */
+        FilterChain chain(String method) {
+            FilterChain chain = chains.get(method);
+            if (chain == null && "HEAD".equals(method)) {
+                chain = chains.get("GET");
+            }
+            return chain != null ? chain : anyMethod;
+        }
+
+        /**
+         * @return 405 응답에도 이 라우트의 필터를 거치게 하는 체인 (CORS preflight 등)
+         */
+        FilterChain notAllowedChain() {
+            return notAllowed;
+        }
+
+        /**
+         * @return 405 응답의 Allow 헤더 값
+         */
+        public String getAllowedMethods() {
+            if (allowedMethods == null) {
+                StringBuilder builder = new StringBuilder();
+                chains.keySet().forEach(method -> builder.append(builder.isEmpty() ? "" : ", ").append(method));
+                if (chains.containsKey("GET") && !chains.containsKey("HEAD")) {
+                    builder.append(", HEAD");
+                }
+                allowedMethods = builder.toString();
+            }
+            return allowedMethods;
+        }
+    }
+
+    private static class Node {
+
+        private final SegmentMap children = new SegmentMap();
+
+        private Node param;
+
+        private String paramName;
+
+        private Node wildcard;
+
+        private Route route;
+
+        Node staticChild(String segment) {
+            Node child = children.get(segment, 0, segment.length());
+            if (child == null) {
+                child = new Node();
+                children.put(segment, child);
+            }
+            return child;
+        }
+
+        Node paramChild(String name, String pattern) {
+            if (param == null) {
+                param = new Node();
+                param.paramName = name;
+            } else if (!param.paramName.equals(name)) {
+                throw new IllegalArgumentException("Conflicting path variable {" + name + "} with {"
+                        + param.paramName + "} in " + pattern);
+            }
+            return param;
+        }
+
+        Node wildcardChild() {
+            if (wildcard == null) {
+                wildcard = new Node();
+            }
+            return wildcard;
+        }
+
+        Route route(String pattern, List<Route> routes) {
+            if (route == null) {
+                route = new Route(pattern);
+                routes.add(route);
+            }
+            return route;
+        }
+    }
+
+    /**
+     * 세그먼트 문자열 → 자식 노드 해시 테이블 (open addressing)
+     * - 요청 경로의 일부 구간(start, end)으로 바로 찾을 수 있어 조회 때 substring 을 만들지 않음
+     */
+    private static class SegmentMap {
+
+        private String[] keys = new String[4];
+
+        private Node[] values = new Node[4];
+
+        private int size;
+
+        Node get(String path, int start, int end) {
+            int length = end - start;
+            int mask = keys.length - 1;
+            for (int i = hash(path, start, end) & mask; ; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key == null) {
+                    return null;
+                }
+                if (key.length() == length && key.regionMatches(0, path, start, length)) {
+                    return values[i];
+                }
+            }
+        }
+
+        void put(String key, Node node) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            insert(keys, values, key, node);
+            size++;
+        }
+
+        private void resize() {
+            String[] newKeys = new String[keys.length * 2];
+            Node[] newValues = new Node[values.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    insert(newKeys, newValues, keys[i], values[i]);
+                }
+            }
+            keys = newKeys;
+            values = newValues;
+        }
+
+        private static void insert(String[] keys, Node[] values, String key, Node node) {
+            int mask = keys.length - 1;
+            int i = hash(key, 0, key.length()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = node;
+        }
+
+        private static int hash(String value, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + value.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.mardi2020.tomcat.server;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.mardi2020.tomcat.server.executor.ExecutorType;
+import org.mardi2020.tomcat.server.tls.TlsConfig;
+
+import java.util.Set;
+
+/**
+ * 서버 설정 값 모음
+ * - 지정하지 않은 값은 톰캣 기본값과 비슷한 수준으로 채워짐
+ */
+@Getter
+@Builder
+public class ServerConfig {
+
+    @Builder.Default
+    private final int port = 8080;
+
+    /**
+     * OS 에 넘기는 accept backlog (accept() 되기 전 대기할 수 있는 연결 수)
+     */
+    @Builder.Default
+    private final int acceptBacklog = 100;
+
+    @Builder.Default
+    private final ConnectorType connectorType = ConnectorType.BIO;
+
+    /**
+     * HTTPS 설정, null 이면 평문 HTTP (NIO 커넥터만 지원)
+     */
+    private final TlsConfig tls;
+
+    /**
+     * NIO 커넥터의 acceptor / poller 스레드 수
+     */
+    @Builder.Default
+    private final int acceptorThreads = 1;
+
+    @Builder.Default
+    private final int pollerThreads = Math.min(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 요청 라인 + 헤더의 최대 크기, 넘으면 431 로 거절
+     */
+    @Builder.Default
+    private final int maxHeaderSize = 8 * 1024;
+
+    /**
+     * 요청 하나에 허용하는 최대 헤더 수, 넘으면 431 로 거절
+     */
+    @Builder.Default
+    private final int maxHeaderCount = 100;
+
+    /**
+     * 바디 최대 크기, 넘으면 413 으로 거절
+     */
+    @Builder.Default
+    private final int maxBodySize = 2 * 1024 * 1024;
+
+    /**
+     * keep-alive 연결이 다음 요청을 기다리는 최대 시간 (ms)
+     */
+    @Builder.Default
+    private final int keepAliveTimeout = 20_000;
+
+    /**
+     * 연결 하나로 처리할 최대 요청 수, 마지막 응답에는 `Connection: close` 를 붙임
+     */
+    @Builder.Default
+    private final int maxKeepAliveRequests = 100;
+
+    @Builder.Default
+    private final ExecutorType executorType = ExecutorType.PLATFORM;
+
+    /**
+     * 플랫폼 스레드 풀의 최대/최소 스레드 수 (톰캣 maxThreads, minSpareThreads)
+     */
+    @Builder.Default
+    private final int maxThreads = 200;
+
+    @Builder.Default
+    private final int minSpareThreads = 10;
+
+    /**
+     * 모든 워커가 바쁠 때 대기할 수 있는 연결 수, 넘치면 503 으로 거절
+     */
+    @Builder.Default
+    private final int acceptQueueSize = 100;
+
+    /**
+     * 동시에 열어 둘 수 있는 최대 연결 수 (모든 커넥터/실행기), 넘치면 요청을 읽지 않고 503 으로 거절
+     */
+    @Builder.Default
+    private final int maxConnections = 10_000;
+
+    /**
+     * 원격 주소(IP) 하나가 보낼 수 있는 초당 요청 수 (토큰 버킷), 넘으면 서블릿을 실행하지 않고 429, 0 이하면 제한 없음
+     */
+    @Builder.Default
+    private final double rateLimitPerAddress = 0;
+
+    /**
+     * 주소별 버킷 크기, 쉬었다가 한 번에 몰아서 보낼 수 있는 요청 수
+     */
+    @Builder.Default
+    private final int rateLimitBurst = 50;
+
+    /**
+     * 요청 제한 상태를 기억할 최대 주소 수, 넘으면 오래 요청이 없던 주소부터 잊음
+     */
+    @Builder.Default
+    private final int rateLimitMaxAddresses = 100_000;
+
+    /**
+     * 이 시간(ms) 동안 요청이 없던 주소의 상태는 지움
+     */
+    @Builder.Default
+    private final long rateLimitIdleTimeout = 60_000;
+
+    /**
+     * AsyncMyServlet 이 응답을 완료해야 하는 시간 (ms), 넘으면 503 후 연결 종료, 0 이하면 제한 없음
+     */
+    @Builder.Default
+    private final long asyncTimeout = 30_000;
+
+    /**
+     * stop() 이 처리 중인 요청을 기다리는 최대 시간 (ms), 지나면 남은 연결을 끊음
+     */
+    @Builder.Default
+    private final long shutdownTimeout = 30_000;
+
+    /**
+     * Accept-Encoding 에 따라 응답을 gzip/deflate 로 압축할지 (톰캣 compression)
+     */
+    @Builder.Default
+    private final boolean compression = false;
+
+    /**
+     * 이 크기(바이트) 이상인 바디만 압축, 작은 바디는 압축해도 헤더 오버헤드가 더 큼
+     */
+    @Builder.Default
+    private final int compressionMinSize = 2048;
+
+    /**
+     * 압축할 Content-Type (charset 등 파라미터는 빼고 비교)
+     */
+    @Builder.Default
+    private final Set<String> compressibleMimeTypes = Set.of(
+            "text/html", "text/xml", "text/plain", "text/css", "text/javascript",
+            "application/javascript", "application/json", "application/xml", "image/svg+xml");
+
+    /**
+     * 응답 캐시(registerCache 로 켠 라우트)가 쓰는 바이트 합의 상한
+     */
+    @Builder.Default
+    private final long responseCacheMaxSize = 64L * 1024 * 1024;
+
+    /**
+     * 메트릭을 Prometheus 텍스트 형식으로 내보낼 경로 (GET), null 이면 노출하지 않음 (기록은 항상 함)
+     */
+    @Builder.Default
+    private final String metricsPath = "/metrics";
+
+    /**
+     * WebSocket 메시지(조각을 모은 전체) 최대 크기, 넘으면 1009 로 닫음
+     */
+    @Builder.Default
+    private final int webSocketMaxMessageSize = 1024 * 1024;
+
+    /**
+     * WebSocket 세션 하나의 송신 큐 상한 (바이트), 클라이언트가 받는 속도가 보내는 속도를 못 따라가 넘치면 연결을 끊음
+     */
+    @Builder.Default
+    private final long webSocketMaxPendingBytes = 1024 * 1024;
+
+    /**
+     * 아무것도 받지 않은 WebSocket 연결을 닫는 시간 (ms), 0 이면 닫지 않음 (살아 있는지는 클라이언트 ping 에 맡김)
+     */
+    @Builder.Default
+    private final long webSocketIdleTimeout = 0;
+
+    public static ServerConfig defaults() {
+        return ServerConfig.builder().build();
+    }
+}
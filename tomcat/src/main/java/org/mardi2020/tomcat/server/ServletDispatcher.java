@@ -0,0 +1,380 @@
+package org.mardi2020.tomcat.server;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.cache.CachePolicy;
+import org.mardi2020.tomcat.server.compression.ResponseCompression;
+import org.mardi2020.tomcat.server.executor.ConnectionExecutor;
+import org.mardi2020.tomcat.server.metrics.RouteMetrics;
+import org.mardi2020.tomcat.server.metrics.ServerMetrics;
+import org.mardi2020.tomcat.server.ratelimit.RateLimit;
+import org.mardi2020.tomcat.server.ratelimit.TokenBucket;
+import org.mardi2020.tomcat.servlet.MyFilter;
+import org.mardi2020.tomcat.servlet.MyServlet;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 경로에 맞는 서블릿을 찾아 실행
+ * - 블로킹(ServerSocket) 커넥터와 NIO 커넥터가 같은 서블릿 매핑을 공유하기 위해 분리
+ * - 매핑은 Router(세그먼트 트라이)로 찾으므로 요청마다 조회는 한 번
+ * - 필터는 라우트마다 미리 엮어 둔 체인으로 실행 (요청마다 필터 목록을 만들거나 패턴을 비교하지 않음)
+ * - 등록은 서버가 도는 중에도 할 수 있음, 라우트 테이블을 새로 만들어 바꿔 끼우므로 요청 처리 쪽엔 락이 없음
+ */
+@Slf4j
+public class ServletDispatcher {
+
+    /**
+     * 요청이 보는 라우트 테이블, 등록이 바뀌면 새로 만든 테이블로 통째로 바꿈 (copy-on-write)
+     * - 요청은 volatile 읽기 한 번으로 테이블을 잡고 끝날 때까지 그 테이블만 씀 (교체 중에도 락 없음)
+     */
+    private volatile RouteTable routes = new RouteTable(new Router(), FilterChain.EMPTY);
+
+    @Getter
+    private final ServerMetrics metrics = new ServerMetrics();
+
+    private ResponseCompression compression;
+
+    /**
+     * 아래 등록 정보는 이 락 안에서만 읽고 씀, 요청 처리 쪽은 보지 않음
+     */
+    private final Object registrationLock = new Object();
+
+    /**
+     * (메서드, 패턴) → 서블릿, 등록 순서 유지 (같은 키로 다시 등록하면 자리는 그대로 두고 서블릿만 바뀜)
+     */
+    private final Map<ServletMapping, MyServlet> servlets = new LinkedHashMap<>();
+
+    /**
+     * 등록 순서대로 쌓인 필터, 라우트 체인을 다시 엮을 때 순서(order → 등록 순서)대로 정렬해서 씀
+     */
+    private final List<FilterMapping> filters = new ArrayList<>();
+
+    /**
+     * 라우트 패턴 → 라우트 전체 요청 제한, 라우트가 나중에 등록돼도 적용됨
+     * - 테이블을 다시 만들어도 같은 버킷을 이어서 씀 (교체할 때마다 토큰이 다시 차지 않도록)
+     */
+    private final Map<String, TokenBucket> rateLimiters = new HashMap<>();
+
+    /**
+     * 라우트 패턴 → GET 응답 캐시 설정, 라우트가 나중에 등록돼도 적용됨
+     */
+    private final Map<String, CachePolicy> cachePolicies = new HashMap<>();
+
+    /**
+     * 캐시를 켠 모든 라우트가 크기 상한을 함께 나눠 쓰는 저장소
+     */
+    private final ResponseCache responseCache = new ResponseCache(ResponseCache.DEFAULT_MAX_SIZE);
+
+    /**
+     * 캐시된 라우트에서 먼저 온 요청의 결과를 담지 못했을 때 기다리던 요청들이 서블릿을 실행할 실행기, 서버 없이 쓰면 null
+     */
+    private ConnectionExecutor connectionExecutor;
+
+    /**
+     * @param compression null 이면 압축하지 않음
+     */
+    public void setCompression(ResponseCompression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @param maxSize 캐시한 응답 바이트 합의 상한, 넘치면 W-TinyLFU 로 덜 쓰이는 응답부터 내보냄
+     */
+    public void setResponseCacheMaxSize(long maxSize) {
+        responseCache.setMaxSize(maxSize);
+    }
+
+    /**
+     * @implSpec 서버가 start 할 때 커넥터와 같은 실행기를 넘김 (응답 캐시의 재실행도 같은 상한과 503 을 따르도록)
+     */
+    public void setConnectionExecutor(ConnectionExecutor connectionExecutor) {
+        synchronized (registrationLock) {
+            this.connectionExecutor = connectionExecutor;
+            publish();
+        }
+    }
+
+    /**
+     * @implSpec 모든 메서드에 매핑, "/users/{id}" 경로 변수와 "/static/*" 접두사 와일드카드 사용 가능
+     */
+    public void register(String path, MyServlet servlet) {
+        register(null, path, servlet);
+    }
+
+    /**
+     * @implSpec 특정 메서드에만 매핑, 같은 경로의 다른 메서드 요청은 405
+     * - 서버가 도는 중에 불러도 됨, 같은 (메서드, 경로)면 서블릿을 바꿔 끼움 (처리 중인 요청은 이전 서블릿으로 끝남)
+     */
+    public void register(String method, String path, MyServlet servlet) {
+        synchronized (registrationLock) {
+            ServletMapping mapping = new ServletMapping(method, path);
+            MyServlet previous = servlets.put(mapping, servlet);
+            try {
+                publish();
+            } catch (RuntimeException e) {
+                // 잘못된 패턴이면 등록 전 상태로 되돌림
+                if (previous == null) {
+                    servlets.remove(mapping);
+                } else {
+                    servlets.put(mapping, previous);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @implSpec register 로 등록한 매핑을 뺌, 다음 요청부터 404 (다른 메서드가 남아 있으면 405)
+     * @return 등록돼 있었으면 true
+     */
+    public boolean unregister(String method, String path) {
+        synchronized (registrationLock) {
+            if (servlets.remove(new ServletMapping(method, path)) == null) {
+                return false;
+            }
+            publish();
+            return true;
+        }
+    }
+
+    /**
+     * @implSpec 라우트 하나에 들어오는 요청 전체(클라이언트 합산)를 토큰 버킷으로 제한, 넘으면 필터/서블릿 없이 429
+     * @param pattern 등록한(또는 등록할) 서블릿의 경로 패턴 그대로 ("/users/{id}")
+     */
+    public void registerRateLimit(String pattern, RateLimit limit) {
+        synchronized (registrationLock) {
+            rateLimiters.put(pattern, new TokenBucket(limit));
+            publish();
+        }
+    }
+
+    /**
+     * @implSpec 라우트의 GET/HEAD 응답을 직렬화된 바이트로 ttl 동안 캐시, 적중하면 서블릿을 실행하지 않음
+     * - 캐시는 체인의 가장 안쪽이라 필터(인증/로깅 등)는 적중해도 매번 실행됨 (필터 → 캐시 → 서블릿)
+     * - 서블릿이 요청자와 무관한 응답을 내는 라우트에만 켜야 함
+     * @param pattern 등록한(또는 등록할) 서블릿의 경로 패턴 그대로
+     */
+    public void registerCache(String pattern, CachePolicy policy) {
+        synchronized (registrationLock) {
+            cachePolicies.put(pattern, policy);
+            publish();
+        }
+    }
+
+    /**
+     * @implSpec 등록 순서대로 실행, 필터를 등록할 때마다 모든 라우트의 체인을 미리 다시 엮음 (요청 처리 중엔 엮지 않음)
+     * @param pattern "/*" (모든 요청, 404 포함), "/api/*" (접두사 아래 라우트), "/users/{id}" (같은 패턴의 라우트)
+     */
+    public void registerFilter(String pattern, MyFilter filter) {
+        registerFilter(pattern, 0, filter);
+    }
+
+    /**
+     * @param order 작을수록 먼저 실행 (바깥쪽), 같으면 등록 순서
+     */
+    public void registerFilter(String pattern, int order, MyFilter filter) {
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Filter pattern must start with '/': " + pattern);
+        }
+        synchronized (registrationLock) {
+            filters.add(new FilterMapping(pattern, order, filter));
+            filters.sort(Comparator.comparingInt(FilterMapping::order)); // 안정 정렬이라 같은 order 는 등록 순서 유지
+            publish();
+        }
+    }
+
+    /**
+     * @implSpec 등록 정보로 라우터와 체인을 처음부터 새로 만들어 공개, registrationLock 안에서만 호출
+     * - 공개한 뒤엔 그 테이블을 고치지 않으므로 요청 쪽은 volatile 읽기만으로 다 만들어진 테이블을 봄
+     */
+    private void publish() {
+        Router router = new Router();
+        servlets.forEach((mapping, servlet) -> {
+            CachePolicy cachePolicy = cachePolicies.get(mapping.pattern());
+            router.add(mapping.method(), mapping.pattern(), cachePolicy == null ? servlet
+                    : new CachingServlet(servlet, cachePolicy, responseCache, metrics, connectionExecutor));
+        });
+        for (Router.Route route : router.getRoutes()) {
+            String pattern = route.getPattern();
+            route.setFilters(filtersFor(pattern));
+            route.setMetrics(metrics.route(pattern));
+            route.setRateLimiter(rateLimiters.get(pattern));
+            route.setCachePolicy(cachePolicies.get(pattern));
+        }
+        routes = new RouteTable(router, FilterChain.compile(filtersFor(null), null));
+    }
+
+    /**
+     * @implSpec 서블릿이 없으면 404, 경로는 맞지만 메서드가 없으면 405, 있으면 서블릿이 채운 응답을 반환
+     * - AsyncMyServlet 이면 완료될 때까지 기다림 (시간 제한 없음)
+     */
+    public MyResponse dispatch(MyRequest request) {
+        return dispatchAsync(request, 0).join();
+    }
+
+    /**
+     * @implSpec 출력 채널 없이 실행, 서블릿이 getOutputStream 으로 쓴 바디도 메모리에 모였다가 한 번에 보내짐
+     */
+    public CompletableFuture<MyResponse> dispatchAsync(MyRequest request, long timeoutMillis) {
+        return dispatchAsync(request, null, false, timeoutMillis);
+    }
+
+    /**
+     * @implSpec 동기 서블릿은 이미 완료된 future, AsyncMyServlet 은 서블릿이 stage 를 완료할 때 완료되는 future 를 반환
+     * - 서블릿이 예외를 던지거나 stage 가 예외로 끝나면 500 응답으로 완료 (이미 헤더를 보냈으면 원래 응답을 abort)
+     * - timeoutMillis 안에 완료되지 않으면 TimeoutException 으로 완료 (서블릿이 아직 request 를 쓰고 있을 수 있으므로
+     *   커넥터는 503 을 보내고 연결과 요청 객체를 버려야 함), 버려진 응답은 서블릿의 stage 가 끝날 때 discard
+     * - 커넥터가 부르면(channel 이 있으면) 응답 객체는 요청 객체에 붙여 두고 재사용하므로 같은 요청 객체로 다음 요청을
+     *   dispatch 하기 전까지만 유효 (요청 객체처럼 연결마다 재사용, 요청마다 헤더 맵과 바디 버퍼를 새로 만들지 않음)
+     * @param channel 서블릿이 바디를 흘려 쓸 커넥터의 출력 채널, null 이면 흘려 쓰지 않고 응답도 매번 새로 만듦
+     */
+    public CompletableFuture<MyResponse> dispatchAsync(MyRequest request, GatheringByteChannel channel,
+                                                       boolean keepAlive, long timeoutMillis) {
+        RouteTable table = routes;
+        Router.Route route = table.router().find(request.getPath(), request);
+        FilterChain chain = route == null ? table.notFound() : route.chain(request.getMethod());
+        MyResponse reusable = channel != null ? recycledResponse(request) : null;
+        MyResponse response;
+        if (route != null && !route.tryAcquire()) {
+            chain = FilterChain.EMPTY;
+            response = MyResponseFactory.create(reusable, HttpStatus.TOO_MANY_REQUESTS);
+            response.addHeader(HttpHeaders.RETRY_AFTER, Long.toString(route.getRateLimit().retryAfterSeconds()));
+        } else if (route != null && chain == null) {
+            chain = route.notAllowedChain();
+            response = MyResponseFactory.create(reusable, HttpStatus.METHOD_NOT_ALLOWED);
+            response.addHeader(HttpHeaders.ALLOW, route.getAllowedMethods());
+        } else {
+            response = MyResponseFactory.create(reusable, "", request.getPath(), route != null);
+        }
+        prepare(request, response, channel, keepAlive);
+        RouteMetrics routeMetrics = route == null ? metrics.getUnmatched() : route.getMetrics();
+        long started = metrics.requestStarted(routeMetrics);
+        return execute(request, response, chain, routeMetrics, started, channel, keepAlive, timeoutMillis);
+    }
+
+    private CompletableFuture<MyResponse> execute(MyRequest request, MyResponse response, FilterChain chain,
+                                                  RouteMetrics routeMetrics, long started,
+                                                  GatheringByteChannel channel, boolean keepAlive, long timeoutMillis) {
+        try {
+            chain.doFilter(request, response); // ✅ 미리 엮은 필터들 → 서블릿, 필터가 체인을 멈추면 채운 응답 그대로
+            CompletionStage<Void> stage = response.takeAsyncStage();
+            if (stage == null) {
+                metrics.requestCompleted(routeMetrics, response.getStatusCode(), started);
+                return CompletableFuture.completedFuture(response);
+            }
+            CompletableFuture<MyResponse> result = new CompletableFuture<>();
+            stage.whenComplete((ignored, error) -> {
+                MyResponse completed = response;
+                if (error != null) {
+                    log.warn("Async servlet failed on {}: {}", request.getPath(), error.getMessage());
+                    completed = failed(request, response, channel, keepAlive);
+                }
+                if (!result.complete(completed)) {
+                    // 시간 초과 뒤에야 끝남: 커넥터는 이 응답을 버렸으므로 서블릿이 다 쓴 지금 버퍼를 풀에 돌려줌
+                    completed.discard();
+                    response.discard();
+                }
+            });
+            if (timeoutMillis > 0 && !result.isDone()) {
+                result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            // 시간 초과면 커넥터가 503 을 보냄
+            result.whenComplete((completed, error) -> {
+                if (error != null) {
+                    response.asyncTimedOut();
+                }
+                metrics.requestCompleted(routeMetrics,
+                        completed != null ? completed.getStatusCode() : HttpStatus.SERVICE_UNAVAILABLE.value(), started);
+            });
+            return result;
+        } catch (RuntimeException e) {
+            log.warn("Servlet failed on {}: {}", request.getPath(), e.getMessage());
+            MyResponse error = failed(request, response, channel, keepAlive);
+            metrics.requestCompleted(routeMetrics, error.getStatusCode(), started);
+            return CompletableFuture.completedFuture(error);
+        }
+    }
+
+    private static MyResponse recycledResponse(MyRequest request) {
+        MyResponse response = request.getRecycledResponse();
+        if (response == null) {
+            response = MyResponseFactory.create(HttpStatus.OK);
+            request.setRecycledResponse(response);
+        }
+        return response;
+    }
+
+    private MyResponse failed(MyRequest request, MyResponse response, GatheringByteChannel channel, boolean keepAlive) {
+        if (response.isCommitted()) {
+            response.abort();
+            return response;
+        }
+        response.discard();
+        return prepare(request, MyResponseFactory.create(HttpStatus.INTERNAL_SERVER_ERROR), channel, keepAlive);
+    }
+
+    private MyResponse prepare(MyRequest request, MyResponse response, GatheringByteChannel channel, boolean keepAlive) {
+        if (channel != null) {
+            response.bind(channel, keepAlive, MyRequestParser.HTTP_1_1.equals(request.getProtocol()));
+        }
+        if (compression != null) {
+            response.enableCompression(compression, compression.negotiate(request));
+        }
+        if ("HEAD".equals(request.getMethod())) {
+            response.suppressBody(); // 헤더(Content-Length 포함)는 GET 과 같게, 바디만 생략
+        }
+        return response;
+    }
+
+    /**
+     * @param routePattern null 이면 라우트가 없는 요청 ("/*" 필터만)
+     * @return 이 라우트에 걸리는 필터를 실행 순서대로
+     */
+    private MyFilter[] filtersFor(String routePattern) {
+        return filters.stream()
+                .filter(mapping -> mapping.matches(routePattern))
+                .map(FilterMapping::filter)
+                .toArray(MyFilter[]::new);
+    }
+
+    /**
+     * @param notFound 어떤 라우트에도 맞지 않는 요청(404)이 거치는 체인, "/*" 필터만 걸림
+     */
+    private record RouteTable(Router router, FilterChain notFound) {
+    }
+
+    /**
+     * @param method null 이면 모든 메서드
+     */
+    private record ServletMapping(String method, String pattern) {
+    }
+
+    private record FilterMapping(String pattern, int order, MyFilter filter) {
+
+        boolean matches(String routePattern) {
+            if (pattern.equals("/*")) {
+                return true;
+            }
+            if (routePattern == null) {
+                return false;
+            }
+            if (pattern.endsWith("/*")) {
+                String prefix = pattern.substring(0, pattern.length() - 2);
+                return routePattern.equals(prefix) || routePattern.startsWith(prefix + "/");
+            }
+            return pattern.equals(routePattern);
+        }
+    }
+}
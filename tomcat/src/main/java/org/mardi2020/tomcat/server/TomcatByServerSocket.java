@@ -2,56 +2,457 @@ package org.mardi2020.tomcat.server;
 
 import lombok.NoArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.cache.CachePolicy;
+import org.mardi2020.tomcat.server.compression.ResponseCompression;
+import org.mardi2020.tomcat.server.executor.ConnectionExecutor;
+import org.mardi2020.tomcat.server.executor.ConnectionExecutors;
+import org.mardi2020.tomcat.server.http.HttpParseException;
+import org.mardi2020.tomcat.server.metrics.PrometheusMetricsServlet;
+import org.mardi2020.tomcat.server.metrics.ServerMetrics;
+import org.mardi2020.tomcat.server.nio.NioConnector;
+import org.mardi2020.tomcat.server.ratelimit.AdmissionControl;
+import org.mardi2020.tomcat.server.ratelimit.RateLimit;
+import org.mardi2020.tomcat.server.websocket.WebSocketUpgradeServlet;
+import org.mardi2020.tomcat.servlet.MyFilter;
 import org.mardi2020.tomcat.servlet.MyServlet;
+import org.mardi2020.tomcat.servlet.MyWebSocketHandler;
+import org.mardi2020.tomcat.servlet.StaticResourceServlet;
 import org.springframework.http.HttpStatus;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @NoArgsConstructor
 public class TomcatByServerSocket {
 
-    private int port = 8080;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
 
-    private final Map<String, MyServlet> servlets = new HashMap<>();
+    private static final long DRAIN_POLL_MILLIS = 50;
+
+    private ServerConfig config = ServerConfig.defaults();
+
+    private ConnectionExecutor connectionExecutor;
+
+    private final ServletDispatcher dispatcher = new ServletDispatcher();
+
+    private volatile AdmissionControl admission;
+
+    /**
+     * 블로킹 커넥터의 열린 연결 → 요청을 처리 중이면 true (종료할 때 기다리기만 하는 연결부터 닫기 위함)
+     */
+    private final Map<SocketChannel, Boolean> connections = new ConcurrentHashMap<>();
+
+    private volatile ServerSocketChannel serverSocket;
+
+    private volatile NioConnector nioConnector;
+
+    private final AtomicBoolean stopping = new AtomicBoolean();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private volatile boolean drained;
 
     public TomcatByServerSocket(int port) {
-        this.port = port;
+        this.config = ServerConfig.builder().port(port).build();
     }
 
+    public TomcatByServerSocket(ServerConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @implSpec 서버가 도는 중에도 호출 가능, 같은 경로면 서블릿을 바꿔 끼움 (처리 중인 요청은 이전 서블릿으로 마침)
+     */
     public void registerServlet(String path, MyServlet servlet) {
-        servlets.put(path, servlet);
+        dispatcher.register(path, servlet);
     }
 
-    public void start() {
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            log.info("Server started at port {}", port);
+    /**
+     * @implSpec method 요청에만 매핑 ("GET", "/users/{id}")
+     */
+    public void registerServlet(String method, String path, MyServlet servlet) {
+        dispatcher.register(method, path, servlet);
+    }
 
-            while (true) {
-                Socket socket = serverSocket.accept();
-                handleRequest(socket);
+    /**
+     * @return 등록돼 있었으면 true, 다음 요청부터 404
+     */
+    public boolean unregisterServlet(String path) {
+        return dispatcher.unregister(null, path);
+    }
+
+    public boolean unregisterServlet(String method, String path) {
+        return dispatcher.unregister(method, path);
+    }
+
+    /**
+     * @implSpec pattern 에 맞는 라우트 앞에 필터를 등록 ("/*", "/api/*", "/users/{id}"), 등록 순서대로 실행
+     */
+    public void registerFilter(String pattern, MyFilter filter) {
+        dispatcher.registerFilter(pattern, filter);
+    }
+
+    /**
+     * @param order 작을수록 먼저 실행, 같으면 등록 순서
+     */
+    public void registerFilter(String pattern, int order, MyFilter filter) {
+        dispatcher.registerFilter(pattern, order, filter);
+    }
+
+    /**
+     * @implSpec 라우트 하나로 들어오는 요청 전체를 초당 permitsPerSecond 로 제한 (순간 burst 개까지), 넘으면 서블릿 없이 429
+     * - 클라이언트(IP)별 제한은 ServerConfig.rateLimitPerAddress
+     */
+    public void registerRateLimit(String pattern, double permitsPerSecond, int burst) {
+        dispatcher.registerRateLimit(pattern, new RateLimit(permitsPerSecond, burst));
+    }
+
+    /**
+     * @implSpec 라우트의 GET 응답을 ttlMillis 동안 캐시, 같은 키의 동시 요청은 서블릿을 한 번만 실행
+     * - 키는 경로 + 쿼리 + varyHeaders 의 값 (예: "Accept-Language"), 캐시 전체 크기는 ServerConfig.responseCacheMaxSize
+     */
+    public void registerCache(String pattern, long ttlMillis, String... varyHeaders) {
+        dispatcher.registerCache(pattern, new CachePolicy(ttlMillis, List.of(varyHeaders)));
+    }
+
+    /**
+     * @implSpec directory 아래 파일을 prefix 경로로 서빙 ("/static" → "/static/app.js" 가 directory/app.js)
+     */
+    public void registerStaticResources(String prefix, Path directory) {
+        dispatcher.register(prefix + "/*", new StaticResourceServlet(prefix, directory, ResponseCompression.from(config)));
+    }
+
+    /**
+     * @implSpec path 로 들어오는 WebSocket 업그레이드(GET)를 handler 에 연결, 필터와 경로 변수는 일반 라우트와 같음
+     * - 연결을 이벤트로 처리하는 NIO 커넥터에서만 지원 (유휴 세션이 스레드를 잡지 않도록)
+     */
+    public void registerWebSocket(String path, MyWebSocketHandler handler) {
+        if (config.getConnectorType() != ConnectorType.NIO) {
+            throw new IllegalStateException("WebSocket is only supported by the NIO connector");
+        }
+        dispatcher.register("GET", path, new WebSocketUpgradeServlet(handler));
+    }
+
+    /**
+     * @implSpec 기본 실행기(설정 기반) 대신 직접 만든 실행기 사용, start() 전에 호출해야 함
+     */
+    public void setConnectionExecutor(ConnectionExecutor connectionExecutor) {
+        this.connectionExecutor = connectionExecutor;
+    }
+
+    /**
+     * @return 요청/연결 메트릭, config.metricsPath 로 Prometheus 형식으로도 노출됨
+     */
+    public ServerMetrics getMetrics() {
+        return dispatcher.getMetrics();
+    }
+
+    /**
+     * @implSpec 포트를 열고 요청을 받기 시작, stop() 으로 멈출 때까지(종료 대기가 끝날 때까지) 반환하지 않음
+     * - 포트를 못 열거나 accept 가 실패하면 정리하고 반환
+     * @throws IllegalStateException BIO 커넥터에 TLS 를 설정함
+     */
+    public void start() {
+        if (config.getTls() != null && config.getConnectorType() != ConnectorType.NIO) {
+            throw new IllegalStateException("TLS is only supported by the NIO connector");
+        }
+        if (connectionExecutor == null) {
+            connectionExecutor = ConnectionExecutors.create(config);
+        }
+        dispatcher.setCompression(ResponseCompression.from(config));
+        dispatcher.setResponseCacheMaxSize(config.getResponseCacheMaxSize());
+        dispatcher.setConnectionExecutor(connectionExecutor);
+        admission = AdmissionControl.from(config);
+        if (config.getMetricsPath() != null) {
+            dispatcher.register("GET", config.getMetricsPath(), new PrometheusMetricsServlet(dispatcher.getMetrics()));
+        }
+        try {
+            if (config.getConnectorType() == ConnectorType.NIO) {
+                startNio();
+            } else {
+                acceptBlocking();
             }
         } catch (IOException e) {
             log.error(e.getMessage(), e);
+        } finally {
+            stop(); // 다른 스레드가 이미 멈추는 중이면 끝날 때까지 기다리기만 함
+        }
+    }
+
+    /**
+     * @implSpec config.shutdownTimeout 안에서 처리 중인 요청을 마치고 종료
+     */
+    public boolean stop() {
+        return stop(config.getShutdownTimeout());
+    }
+
+    /**
+     * @implSpec 정상 종료: 포트를 닫고 → 새 연결은 받지 않고, 처리 중인 요청은 Connection: close 로 응답하게 하고,
+     * 요청 없이 기다리는 keep-alive 연결은 닫으면서 → 연결이 모두 닫히거나 drainTimeoutMillis 가 지나면 남은 연결을 끊음
+     * - 여러 번(여러 스레드에서) 불러도 한 번만 수행, 나머지 호출은 종료가 끝날 때까지 기다림
+     * @return 시간 안에 모든 연결이 스스로 끝났으면 true, 남은 연결을 끊었으면 false
+     */
+    public boolean stop(long drainTimeoutMillis) {
+        if (!stopping.compareAndSet(false, true)) {
+            awaitStopped();
+            return drained;
+        }
+        try {
+            closeListener();
+            if (admission != null) {
+                admission.startDraining();
+                drained = drain(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis));
+            } else {
+                drained = true; // 시작하지 않았음
+            }
+            if (nioConnector != null) {
+                nioConnector.stop();
+            }
+            connections.keySet().forEach(TomcatByServerSocket::closeQuietly);
+            if (connectionExecutor != null) {
+                connectionExecutor.shutdown();
+            }
+            log.info("Server stopped at port {}{}", config.getPort(), drained ? "" : " (closed remaining connections after timeout)");
+            return drained;
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private void acceptBlocking() throws IOException {
+        // 💡 블로킹 모드 채널을 쓰면 응답을 gathering write 로 보낼 수 있음
+        try (ServerSocketChannel serverSocket = ServerSocketChannel.open()) {
+            serverSocket.bind(new InetSocketAddress(config.getPort()), config.getAcceptBacklog());
+            this.serverSocket = serverSocket;
+            log.info("Server started at port {}", config.getPort());
+            if (stopping.get()) {
+                return; // 포트를 여는 사이에 stop 이 불림
+            }
+
+            while (true) {
+                SocketChannel socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (ClosedChannelException e) {
+                    return; // stop
+                }
+                long accepted = System.nanoTime();
+                if (!admission.tryOpenConnection()) {
+                    rejectConnection(socket); // 연결 수 상한
+                    continue;
+                }
+                // ✅ accept 루프는 연결을 넘기기만 하고 바로 다음 연결을 받음
+                if (!connectionExecutor.execute(() -> handleConnection(socket, accepted))) {
+                    admission.connectionClosed();
+                    rejectConnection(socket);
+                }
+            }
+        }
+    }
+
+    private void startNio() throws IOException {
+        nioConnector = new NioConnector(config, dispatcher, connectionExecutor, admission);
+        nioConnector.start();
+        if (stopping.get()) {
+            nioConnector.stopAccepting(); // 포트를 여는 사이에 stop 이 불림
+        }
+        awaitStopped();
+    }
+
+    private void closeListener() {
+        if (serverSocket != null) {
+            closeQuietly(serverSocket);
+        }
+        if (nioConnector != null) {
+            nioConnector.stopAccepting();
+        }
+    }
+
+    /**
+     * @return 열린 연결이 모두 닫혔으면 true, deadline 이 지났으면 false
+     */
+    private boolean drain(long deadline) {
+        while (admission.getConnections() > 0) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            // 응답을 끝내고 keep-alive 로 돌아온 연결도 닫히도록 계속 반복
+            if (nioConnector != null) {
+                nioConnector.closeIdle();
+            }
+            connections.forEach((socket, busy) -> {
+                if (!busy) {
+                    closeQuietly(socket);
+                }
+            });
+            try {
+                Thread.sleep(DRAIN_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void awaitStopped() {
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    private void handleRequest(Socket socket) throws IOException {
+    private static void closeQuietly(Closeable closeable) {
         try {
-            MyRequest request = new MyRequest(socket.getInputStream());
-            MyResponse response = MyResponseFactory.create("", request.getPath(),
-                    servlets.get(request.getPath()) != null);
-            MyServlet servlet = servlets.get(request.getPath());
-            if (servlet != null) {
-                servlet.service(request, response);
-            }
-            response.sendResponse(socket.getOutputStream()); // 반드시 응답을 보내도록 보장
+            closeable.close();
+        } catch (IOException e) {
+            log.debug("Failed to close {}: {}", closeable, e.getMessage());
+        }
+    }
+
+    private void handleConnection(SocketChannel socket, long accepted) {
+        ServerMetrics metrics = dispatcher.getMetrics();
+        metrics.connectionOpened(accepted);
+        connections.put(socket, false);
+        try (socket) {
+            handleRequests(socket, metrics);
+        } catch (IOException e) {
+            if (!admission.isDraining()) { // 종료 중엔 기다리던 연결을 일부러 닫음
+                log.warn("Failed to handle request from {}: {}", socket.socket().getRemoteSocketAddress(), e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+            metrics.connectionClosed();
+            admission.connectionClosed();
+        }
+    }
+
+    /**
+     * @implSpec keep-alive 연결에서 요청을 순서대로 처리
+     * - 연결마다 읽기 버퍼, 파서, 요청 객체를 하나씩 두고 요청마다 재사용
+     * - 파이프라이닝된 요청은 버퍼에 남아 있으므로 읽은 순서대로 응답하게 됨
+     * - keepAliveTimeout 동안 다음 요청이 없거나 maxKeepAliveRequests 에 도달하면 연결 종료
+     */
+    private void handleRequests(SocketChannel socket, ServerMetrics metrics) throws IOException {
+        // 읽기는 SO_TIMEOUT 이 적용되는 소켓 스트림으로, 쓰기는 채널로 함
+        socket.socket().setSoTimeout(config.getKeepAliveTimeout());
+        InputStream inputStream = socket.socket().getInputStream();
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        buffer.flip();
+        MyRequestParser parser = new MyRequestParser(config);
+        MyRequest request = new MyRequest();
+        int served = 0;
+        boolean keepAlive = true;
+
+        while (keepAlive) {
+            request.recycle();
+            parser.reset();
+            try {
+                if (!readRequest(socket, inputStream, buffer, parser, request, metrics)) {
+                    return; // 클라이언트가 연결을 닫음
+                }
+            } catch (SocketTimeoutException e) {
+                return; // 유휴 시간 초과
+            } catch (HttpParseException e) {
+                MyResponse error = MyResponseFactory.create(e.getStatus());
+                error.setKeepAlive(false);
+                send(error, socket, metrics);
+                return;
+            }
+            if (!admission.allowRequest(socket.socket().getInetAddress())) {
+                // 이 클라이언트의 요청이 너무 많음: 서블릿을 돌리지 않고 연결을 닫아 워커를 돌려받음
+                metrics.requestRateLimited();
+                MyResponse limited = MyResponseFactory.create(HttpStatus.TOO_MANY_REQUESTS,
+                        admission.getPerAddressLimit().retryAfterSeconds());
+                limited.setKeepAlive(false);
+                send(limited, socket, metrics);
+                return;
+            }
+            keepAlive = request.isKeepAlive() && ++served < config.getMaxKeepAliveRequests()
+                    && !admission.isDraining(); // 종료 중이면 이 응답을 끝으로 연결을 닫음
+            MyResponse response;
+            try {
+                // 블로킹 커넥터는 연결마다 스레드를 잡으므로 비동기 서블릿도 여기서 완료를 기다림
+                response = dispatcher.dispatchAsync(request, socket, keepAlive, config.getAsyncTimeout()).join();
+            } catch (CompletionException e) {
+                MyResponse error = MyResponseFactory.create(HttpStatus.SERVICE_UNAVAILABLE);
+                error.setKeepAlive(false);
+                send(error, socket, metrics);
+                return;
+            }
+            if (admission.isDraining()) {
+                response.setKeepAlive(false); // 서블릿이 도는 사이 종료가 시작됨
+            }
+            send(response, socket, metrics); // 반드시 응답을 보내도록 보장
+            keepAlive = Boolean.TRUE.equals(response.getKeepAlive()); // 스트리밍 응답이 연결 종료로 끝났을 수 있음
+            connections.put(socket, false);
+        }
+    }
+
+    private static void send(MyResponse response, SocketChannel socket, ServerMetrics metrics) throws IOException {
+        long started = System.nanoTime();
+        response.sendResponse(socket);
+        metrics.responseWritten(started, response.getBytesWritten());
+    }
+
+    /**
+     * @return 요청 하나를 다 읽었으면 true, 요청을 시작하기 전에 연결이 끊겼으면 false
+     */
+    private boolean readRequest(SocketChannel socket, InputStream inputStream, ByteBuffer buffer, MyRequestParser parser,
+                                MyRequest request, ServerMetrics metrics) throws IOException {
+        // 파싱 시간은 첫 바이트가 도착한 뒤부터 잼 (keep-alive 유휴 시간은 빼고)
+        long parseStart = buffer.hasRemaining() ? System.nanoTime() : 0;
+        if (parseStart != 0) {
+            connections.put(socket, true);
+        }
+        while (!parser.parse(buffer, request)) {
+            // 파서가 버퍼를 모두 소비했으므로 처음부터 다시 채움
+            int read = inputStream.read(buffer.array(), 0, buffer.capacity());
+            if (read < 0) {
+                if (parser.isStarted()) {
+                    throw new IOException("Connection closed in the middle of request");
+                }
+                return false;
+            }
+            buffer.clear().limit(read);
+            metrics.bytesRead(read);
+            if (parseStart == 0) {
+                parseStart = System.nanoTime();
+                connections.put(socket, true); // 요청을 받기 시작함, 종료 중에도 응답까지 기다림
+            }
+        }
+        metrics.requestParsed(parseStart);
+        return true;
+    }
+
+    /**
+     * @implSpec 연결 수 상한에 닿았거나 워커가 모두 바쁘고 대기 큐도 가득 찼을 때, 요청을 읽지 않고 곧바로 503 응답 후 연결 종료
+     */
+    private void rejectConnection(SocketChannel socket) {
+        dispatcher.getMetrics().connectionRejected();
+        try (socket) {
+            MyResponse response = MyResponseFactory.create(HttpStatus.SERVICE_UNAVAILABLE);
+            response.setKeepAlive(false);
+            response.sendResponse(socket);
         } catch (IOException e) {
-            throw new IOException(e);
+            log.debug("Failed to send 503 to {}: {}", socket.socket().getRemoteSocketAddress(), e.getMessage());
         }
     }
 }
@@ -0,0 +1,304 @@
+package org.mardi2020.tomcat.server.buffer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 크기 등급별 다이렉트 ByteBuffer 풀 (NIO 커넥터, TLS 레코드, 스트리밍 응답 버퍼가 공유)
+ * - 등급: 1KB ~ 64KB, 요청한 크기 이상인 가장 작은 등급을 줌, 그보다 크면 풀을 거치지 않고 새로 만듦
+ * - 빌릴 때: 스레드 캐시 → 등급별 공유 스택 → 새로 할당, 돌려줄 때는 그 반대 (💡 같은 스레드에서 빌리고 돌려주면 락이 없음)
+ * - 가상 스레드는 금방 사라지므로 스레드 캐시 없이 공유 스택만 씀
+ * - 버퍼는 하나씩 따로 할당 (큰 슬랩을 잘라 쓰지 않음), 돌려주지 않은 버퍼는 GC 가 네이티브 메모리까지 회수하므로 풀 자체가 줄어들지는 않음
+ * - leakDetection 이면 빌린 위치(스택)를 기억했다가 돌려주지 않고 GC 된 버퍼를 누수로 세고 로그를 남김 (빌릴 때마다 할당이 생기므로 디버그용)
+ */
+@Slf4j
+public final class BufferPool {
+
+    /**
+     * 20KB 는 TLS 레코드(평문 16KB + 헤더/MAC/패딩) 용
+     */
+    static final int[] SIZE_CLASSES = {1024, 2048, 4096, 8192, 16 * 1024, 20 * 1024, 32 * 1024, 64 * 1024};
+
+    /**
+     * -Dtomcat.buffer.leakDetection=true 로 공유 풀의 누수 탐지를 켬
+     */
+    public static final String LEAK_DETECTION_PROPERTY = "tomcat.buffer.leakDetection";
+
+    static final int THREAD_CACHE_SIZE = 16;
+
+    private static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+    private static final BufferPool SHARED = new BufferPool(DEFAULT_MAX_POOLED_BYTES, Boolean.getBoolean(LEAK_DETECTION_PROPERTY));
+
+    private static final Method IS_VIRTUAL = isVirtualMethod();
+
+    private final SizeClass[] classes = new SizeClass[SIZE_CLASSES.length];
+
+    private final ThreadLocal<ThreadCache> threadCaches = ThreadLocal.withInitial(BufferPool::newThreadCache);
+
+    private final boolean leakDetection;
+
+    private final ReferenceQueue<PooledBuffer> collected = new ReferenceQueue<>();
+
+    /**
+     * 아직 돌려주지 않은 버퍼의 추적기 (추적기가 먼저 GC 되지 않도록 붙잡아 둠)
+     */
+    private final Set<LeakTracker> outstandingTrackers = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder unpooled = new LongAdder();
+
+    private final LongAdder outstanding = new LongAdder();
+
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * @param maxPooledBytes 공유 스택에 쌓아 둘 바이트 상한 (등급마다 똑같이 나눔), 넘치게 돌려받은 버퍼는 GC 에 맡김
+     */
+    public BufferPool(long maxPooledBytes, boolean leakDetection) {
+        this.leakDetection = leakDetection;
+        long perClass = maxPooledBytes / SIZE_CLASSES.length;
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            classes[i] = new SizeClass((int) Math.max(THREAD_CACHE_SIZE, perClass / SIZE_CLASSES[i]));
+        }
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return capacity 이상인 비어 있는 버퍼
+     */
+    public PooledBuffer acquire(int capacity) {
+        int sizeClass = sizeClass(capacity);
+        PooledBuffer buffer;
+        if (sizeClass < 0) {
+            unpooled.increment();
+            buffer = new PooledBuffer(this, ByteBuffer.allocateDirect(capacity), -1);
+        } else {
+            buffer = threadCaches.get().pop(sizeClass);
+            if (buffer == null) {
+                buffer = classes[sizeClass].pop();
+            }
+            if (buffer != null) {
+                hits.increment();
+                buffer.buffer().clear();
+            } else {
+                misses.increment();
+                buffer = new PooledBuffer(this, ByteBuffer.allocateDirect(SIZE_CLASSES[sizeClass]), sizeClass);
+            }
+        }
+        buffer.acquired = true;
+        outstanding.increment();
+        if (leakDetection) {
+            track(buffer);
+        }
+        return buffer;
+    }
+
+    void release(PooledBuffer buffer) {
+        if (!buffer.acquired) {
+            throw new IllegalStateException("Buffer was already released");
+        }
+        buffer.acquired = false;
+        outstanding.decrement();
+        if (buffer.tracker != null) {
+            outstandingTrackers.remove(buffer.tracker);
+            buffer.tracker.clear();
+            buffer.tracker = null;
+        }
+        if (buffer.sizeClass < 0) {
+            return;
+        }
+        if (!threadCaches.get().push(buffer)) {
+            classes[buffer.sizeClass].push(buffer);
+        }
+    }
+
+    /**
+     * @return 풀(스레드 캐시, 공유 스택)에서 꺼내 준 비율, 아직 빌려 간 적이 없으면 1
+     */
+    public double getHitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 1 : (double) hit / total;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return 풀이 비어 있어 새로 할당한 횟수 (등급보다 커서 풀을 거치지 않은 것은 getUnpooled)
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getUnpooled() {
+        return unpooled.sum();
+    }
+
+    /**
+     * @return 빌려 가서 아직 돌려주지 않은 버퍼 수
+     */
+    public long getOutstanding() {
+        return outstanding.sum();
+    }
+
+    /**
+     * @return 돌려주지 않은 채 GC 된 버퍼 수 (누수 탐지를 켰을 때만 셈)
+     */
+    public long getLeaks() {
+        reportLeaks();
+        return leaks.sum();
+    }
+
+    public boolean isLeakDetection() {
+        return leakDetection;
+    }
+
+    /**
+     * @return capacity 가 들어가는 가장 작은 등급, 가장 큰 등급보다 크면 -1
+     */
+    static int sizeClass(int capacity) {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (capacity <= SIZE_CLASSES[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void track(PooledBuffer buffer) {
+        reportLeaks();
+        LeakTracker tracker = new LeakTracker(buffer, collected);
+        buffer.tracker = tracker;
+        outstandingTrackers.add(tracker);
+    }
+
+    private void reportLeaks() {
+        LeakTracker tracker;
+        while ((tracker = (LeakTracker) collected.poll()) != null) {
+            if (outstandingTrackers.remove(tracker)) {
+                leaks.increment();
+                outstanding.decrement();
+                log.warn("Pooled buffer was garbage collected without release (capacity={})", tracker.capacity,
+                        tracker.acquiredAt);
+            }
+        }
+    }
+
+    private static ThreadCache newThreadCache() {
+        return isVirtual(Thread.currentThread()) ? ThreadCache.NONE : new ThreadCache(SIZE_CLASSES.length);
+    }
+
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return IS_VIRTUAL != null && (boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return JDK 21 미만이면 null (toolchain 이 17 이라 리플렉션으로 찾음)
+     */
+    private static Method isVirtualMethod() {
+        try {
+            return Thread.class.getMethod("isVirtual");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 빌려 간 버퍼 하나를 지켜보는 참조, 돌려주기 전에 GC 되면 큐에 들어옴
+     */
+    static final class LeakTracker extends PhantomReference<PooledBuffer> {
+
+        private final int capacity;
+
+        private final Throwable acquiredAt = new Throwable("Acquired here");
+
+        LeakTracker(PooledBuffer buffer, ReferenceQueue<PooledBuffer> queue) {
+            super(buffer, queue);
+            this.capacity = buffer.capacity();
+        }
+    }
+
+    /**
+     * 등급 하나의 공유 스택, 스레드 캐시가 넘치거나 빌 때만 들르므로 락으로 충분
+     */
+    private static final class SizeClass {
+
+        private final PooledBuffer[] stack;
+
+        private int size;
+
+        SizeClass(int capacity) {
+            this.stack = new PooledBuffer[capacity];
+        }
+
+        synchronized PooledBuffer pop() {
+            if (size == 0) {
+                return null;
+            }
+            PooledBuffer buffer = stack[--size];
+            stack[size] = null;
+            return buffer;
+        }
+
+        synchronized void push(PooledBuffer buffer) {
+            if (size < stack.length) {
+                stack[size++] = buffer;
+            }
+        }
+    }
+
+    /**
+     * 스레드 하나가 등급마다 THREAD_CACHE_SIZE 개까지 들고 있는 버퍼
+     */
+    private static final class ThreadCache {
+
+        static final ThreadCache NONE = new ThreadCache(0);
+
+        private final PooledBuffer[][] stacks;
+
+        private final int[] sizes;
+
+        ThreadCache(int classCount) {
+            this.stacks = new PooledBuffer[classCount][THREAD_CACHE_SIZE];
+            this.sizes = new int[classCount];
+        }
+
+        PooledBuffer pop(int sizeClass) {
+            if (stacks.length == 0 || sizes[sizeClass] == 0) {
+                return null;
+            }
+            PooledBuffer[] stack = stacks[sizeClass];
+            PooledBuffer buffer = stack[--sizes[sizeClass]];
+            stack[sizes[sizeClass]] = null;
+            return buffer;
+        }
+
+        boolean push(PooledBuffer buffer) {
+            if (stacks.length == 0 || sizes[buffer.sizeClass] == THREAD_CACHE_SIZE) {
+                return false;
+            }
+            stacks[buffer.sizeClass][sizes[buffer.sizeClass]++] = buffer;
+            return true;
+        }
+    }
+}
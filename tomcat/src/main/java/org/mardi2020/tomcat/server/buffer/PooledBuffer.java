@@ -0,0 +1,51 @@
+package org.mardi2020.tomcat.server.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * BufferPool 에서 빌린 다이렉트 버퍼, 다 쓰면 release 로 돌려줘야 함
+ * - 핸들도 버퍼와 함께 풀에 들어가므로 빌리고 돌려줄 때 객체를 새로 만들지 않음
+ * - 돌려준 뒤에는 buffer() 로 얻었던 ByteBuffer 를 쓰면 안 됨 (다른 연결이 빌려 감)
+ */
+public final class PooledBuffer {
+
+    private final BufferPool pool;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * BufferPool 의 크기 등급, 등급보다 커서 풀을 거치지 않은 버퍼면 -1
+     */
+    final int sizeClass;
+
+    boolean acquired;
+
+    /**
+     * 누수 탐지 중일 때만 있음
+     */
+    BufferPool.LeakTracker tracker;
+
+    PooledBuffer(BufferPool pool, ByteBuffer buffer, int sizeClass) {
+        this.pool = pool;
+        this.buffer = buffer;
+        this.sizeClass = sizeClass;
+    }
+
+    /**
+     * @return 빌릴 때 비워 둔(쓰기 모드) 버퍼, 용량은 요청한 크기 이상
+     */
+    public ByteBuffer buffer() {
+        return buffer;
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @throws IllegalStateException 이미 돌려준 버퍼
+     */
+    public void release() {
+        pool.release(this);
+    }
+}
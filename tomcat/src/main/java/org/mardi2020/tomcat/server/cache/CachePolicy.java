@@ -0,0 +1,22 @@
+package org.mardi2020.tomcat.server.cache;
+
+import java.util.List;
+
+/**
+ * 라우트 하나의 응답 캐시 설정
+ * @param ttlMillis   응답을 캐시에 두는 시간 (ms), 지나면 다음 요청이 서블릿을 다시 실행
+ * @param varyHeaders 캐시 키에 넣을 요청 헤더 (값이 다르면 다른 응답으로 캐시), 메서드/경로/쿼리는 항상 키에 들어감
+ */
+public record CachePolicy(long ttlMillis, List<String> varyHeaders) {
+
+    public CachePolicy {
+        if (ttlMillis <= 0) {
+            throw new IllegalArgumentException("Invalid cache ttl: " + ttlMillis + "ms");
+        }
+        varyHeaders = List.copyOf(varyHeaders);
+    }
+
+    public long ttlNanos() {
+        return ttlMillis * 1_000_000;
+    }
+}
@@ -0,0 +1,94 @@
+package org.mardi2020.tomcat.server.cache;
+
+/**
+ * 키별 최근 접근 빈도를 근사하는 count-min sketch (W-TinyLFU 의 입장 심사용)
+ * - 카운터는 4비트(최대 15)라서 long 하나에 16개, 키마다 서로 다른 해시로 4개 카운터를 올리고 그중 최솟값을 빈도로 봄
+ * - 올린 횟수가 표본 크기(카운터 수 x 10)에 닿으면 모든 카운터를 절반으로 줄여 오래된 인기를 잊게 함 (aging)
+ * - 스레드 안전하지 않음, 캐시의 락 안에서만 사용
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0x97cb3127L, 0xc3a5c85cL, 0xb492b66fL, 0x9ae16a3bL
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_FREQUENCY = 15;
+
+    private long[] table = new long[0];
+
+    private int tableMask;
+
+    private int sampleSize;
+
+    private int additions;
+
+    /**
+     * @implSpec 예상 항목 수에 맞게 테이블을 키움 (줄이지는 않음), 키울 때 기존 빈도는 버림
+     */
+    void ensureCapacity(int expectedEntries) {
+        int size = Integer.highestOneBit(Math.max(16, Math.min(expectedEntries, 1 << 24)) - 1) << 1;
+        if (size <= table.length) {
+            return;
+        }
+        table = new long[size];
+        tableMask = size - 1;
+        sampleSize = size * 10;
+        additions = 0;
+    }
+
+    int frequency(int hash) {
+        if (table.length == 0) {
+            return 0;
+        }
+        int start = (hash & 3) << 2; // long 안에서 쓸 16개 카운터 중 4개 묶음
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+            frequency = Math.min(frequency, (int) ((table[index] >>> offset) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        if (table.length == 0) {
+            return;
+        }
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        if ((table[index] & mask) == mask) {
+            return false; // 이미 최대
+        }
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * @implSpec 모든 카운터를 절반으로 (4비트씩 한 칸 밀고 넘어온 비트를 지움)
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = additions >>> 1;
+    }
+}
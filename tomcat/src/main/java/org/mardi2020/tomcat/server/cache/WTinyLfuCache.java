@@ -0,0 +1,342 @@
+package org.mardi2020.tomcat.server.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * 만료 시각과 크기(가중치) 상한이 있는 W-TinyLFU 캐시
+ * - 새 항목은 작은 window(1%) LRU 에 들어가고, 밀려나면 main 의 probation 구역 후보가 됨
+ * - main 이 넘치면 후보와 probation 의 가장 오래된 항목 중 최근 접근 빈도(FrequencySketch)가 낮은 쪽을 내보냄
+ *   (한 번 스쳐 간 키들이 자주 쓰는 항목을 밀어내지 못함)
+ * - probation 에서 다시 쓰이면 protected(main 의 80%) 로 올라가고, protected 가 넘치면 오래된 것부터 probation 으로 내려감
+ * - 조회는 ConcurrentHashMap 만 보고 락을 잡지 않음, 순서/빈도 갱신은 락을 바로 얻을 때만 함
+ *   (💡 락이 바쁘면 갱신을 건너뜀, 인기 항목은 다음 조회에서 다시 기록되므로 정확도만 조금 떨어짐)
+ */
+public final class WTinyLfuCache<K, V> {
+
+    private static final double WINDOW_RATIO = 0.01;
+
+    private static final double PROTECTED_RATIO = 0.8;
+
+    /**
+     * 빈도 sketch 크기를 정할 때 가정하는 항목 하나의 평균 가중치
+     */
+    private static final int ESTIMATED_ENTRY_WEIGHT = 1024;
+
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+
+    private final ToIntFunction<V> weigher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private final Node<K, V> window = Node.sentinel();
+
+    private final Node<K, V> probation = Node.sentinel();
+
+    private final Node<K, V> protectedQueue = Node.sentinel();
+
+    private long maximum;
+
+    private long windowMaximum;
+
+    private long protectedMaximum;
+
+    private long windowWeight;
+
+    private long probationWeight;
+
+    private long protectedWeight;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximum 가중치 합의 상한 (예: 바이트)
+     * @param weigher 값의 가중치, 0 이상
+     */
+    public WTinyLfuCache(long maximum, ToIntFunction<V> weigher) {
+        this.weigher = weigher;
+        setMaximum(maximum);
+    }
+
+    /**
+     * @implSpec 상한을 바꾸고 넘치는 만큼 바로 내보냄
+     */
+    public void setMaximum(long maximum) {
+        if (maximum <= 0) {
+            throw new IllegalArgumentException("Invalid cache maximum: " + maximum);
+        }
+        lock.lock();
+        try {
+            this.maximum = maximum;
+            this.windowMaximum = Math.max(1, (long) (maximum * WINDOW_RATIO));
+            this.protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_RATIO);
+            sketch.ensureCapacity((int) Math.min(Integer.MAX_VALUE, maximum / ESTIMATED_ENTRY_WEIGHT));
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param now System.nanoTime()
+     * @return 만료되지 않은 값, 없으면 null
+     */
+    public V get(K key, long now) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            misses.increment();
+            recordMiss(key);
+            return null;
+        }
+        if (now - node.expiresAt >= 0) {
+            misses.increment();
+            remove(node);
+            return null;
+        }
+        hits.increment();
+        recordHit(node);
+        return node.value;
+    }
+
+    /**
+     * @param expiresAt 이 시각(System.nanoTime 기준)부터 조회되지 않음
+     */
+    public void put(K key, V value, long expiresAt) {
+        int weight = weigher.applyAsInt(value);
+        if (weight > maximum) {
+            return; // 혼자서 캐시를 넘치게 하는 값은 담지 않음
+        }
+        Node<K, V> node = new Node<>(key, value, weight, expiresAt);
+        lock.lock();
+        try {
+            Node<K, V> previous = data.put(key, node);
+            if (previous != null) {
+                unlink(previous);
+            }
+            sketch.increment(node.hash);
+            node.queue = Node.WINDOW;
+            linkFirst(window, node);
+            windowWeight += weight;
+            evict();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            for (Node<K, V> node : data.values()) {
+                unlink(node);
+            }
+            data.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        lock.lock();
+        try {
+            return windowWeight + probationWeight + protectedWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void recordMiss(K key) {
+        if (lock.tryLock()) {
+            try {
+                sketch.increment(spread(key.hashCode())); // 아직 없는 키도 빈도를 쌓아야 나중에 입장 심사를 통과함
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void recordHit(Node<K, V> node) {
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            sketch.increment(node.hash);
+            switch (node.queue) {
+                case Node.WINDOW -> moveToFirst(window, node);
+                case Node.PROBATION -> promote(node);
+                case Node.PROTECTED -> moveToFirst(protectedQueue, node);
+                default -> {
+                    // 그 사이 내보내진 항목
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Node<K, V> node) {
+        lock.lock();
+        try {
+            if (data.remove(node.key, node)) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @implSpec probation → protected, protected 가 넘치면 오래된 것부터 probation 으로 내림
+     */
+    private void promote(Node<K, V> node) {
+        unlink(node);
+        node.queue = Node.PROTECTED;
+        linkFirst(protectedQueue, node);
+        protectedWeight += node.weight;
+        while (protectedWeight > protectedMaximum && protectedQueue.prev != node) {
+            Node<K, V> demoted = protectedQueue.prev;
+            unlink(demoted);
+            demoted.queue = Node.PROBATION;
+            linkFirst(probation, demoted);
+            probationWeight += demoted.weight;
+        }
+    }
+
+    /**
+     * @implSpec window 가 넘치면 오래된 항목을 probation 으로 넘기고, 전체가 넘치면 후보와 희생자 중 빈도가 낮은 쪽을 내보냄
+     */
+    private void evict() {
+        Node<K, V> candidate = null;
+        while (windowWeight > windowMaximum && window.prev != window) {
+            Node<K, V> moved = window.prev;
+            unlink(moved);
+            moved.queue = Node.PROBATION;
+            linkFirst(probation, moved);
+            probationWeight += moved.weight;
+            if (candidate == null) {
+                candidate = moved; // window 에서 가장 먼저 밀려난 항목부터 심사
+            }
+        }
+        while (windowWeight + probationWeight + protectedWeight > maximum) {
+            Node<K, V> victim = probation.prev != probation ? probation.prev
+                    : protectedQueue.prev != protectedQueue ? protectedQueue.prev
+                    : window.prev;
+            Node<K, V> evicted = victim;
+            if (candidate != null && candidate != victim && candidate.queue == Node.PROBATION
+                    && sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+                evicted = candidate; // ✅ 후보가 기존 항목보다 자주 쓰이지 않으면 들이지 않음
+            }
+            if (evicted == candidate) {
+                candidate = candidate.prev != probation ? candidate.prev : null; // 다음으로 늦게 들어온 후보
+            }
+            data.remove(evicted.key, evicted);
+            unlink(evicted);
+            evictions.increment();
+        }
+    }
+
+    private void linkFirst(Node<K, V> queue, Node<K, V> node) {
+        node.prev = queue;
+        node.next = queue.next;
+        queue.next.prev = node;
+        queue.next = node;
+    }
+
+    private void moveToFirst(Node<K, V> queue, Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        linkFirst(queue, node);
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.prev == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        switch (node.queue) {
+            case Node.WINDOW -> windowWeight -= node.weight;
+            case Node.PROBATION -> probationWeight -= node.weight;
+            case Node.PROTECTED -> protectedWeight -= node.weight;
+            default -> {
+            }
+        }
+        node.queue = Node.NONE;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * 큐 세 개에 걸친 이중 연결 리스트 노드, 큐마다 자기 자신을 가리키는 sentinel 로 시작/끝을 표시
+     * - head(sentinel.next) 가 가장 최근, tail(sentinel.prev) 이 가장 오래된 항목
+     */
+    private static final class Node<K, V> {
+
+        static final int NONE = 0;
+
+        static final int WINDOW = 1;
+
+        static final int PROBATION = 2;
+
+        static final int PROTECTED = 3;
+
+        final K key;
+
+        final V value;
+
+        final int hash;
+
+        final int weight;
+
+        final long expiresAt;
+
+        int queue = NONE;
+
+        Node<K, V> prev;
+
+        Node<K, V> next;
+
+        Node(K key, V value, int weight, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.hash = key == null ? 0 : spread(key.hashCode());
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        static <K, V> Node<K, V> sentinel() {
+            Node<K, V> sentinel = new Node<>(null, null, 0, 0);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+    }
+}
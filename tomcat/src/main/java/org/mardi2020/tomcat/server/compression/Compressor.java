@@ -0,0 +1,106 @@
+package org.mardi2020.tomcat.server.compression;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 스레드마다 하나씩 두고 재사용하는 압축기
+ * - Deflater 는 네이티브 메모리를 잡고 있어 요청마다 만들고 버리면 비싸므로 워커 스레드별로 reset 해서 씀
+ * - 출력 버퍼도 재사용하므로 반환한 버퍼는 같은 스레드의 다음 compress 호출 전까지만 유효
+ */
+public class Compressor {
+
+    private static final ThreadLocal<Compressor> CURRENT = ThreadLocal.withInitial(Compressor::new);
+
+    private static final int LEVEL = 6;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final int GZIP_TRAILER_SIZE = 8;
+
+    /**
+     * 이보다 큰 출력 버퍼는 재사용하지 않음
+     */
+    private static final int MAX_RETAINED_SIZE = 256 * 1024;
+
+    private final Deflater gzipDeflater = new Deflater(LEVEL, true);
+
+    private final Deflater zlibDeflater = new Deflater(LEVEL, false);
+
+    private final CRC32 crc = new CRC32();
+
+    private byte[] output = new byte[8 * 1024];
+
+    public static Compressor current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @param input 읽기 모드 버퍼 (position ~ limit 를 압축, 힙 버퍼여야 함)
+     * @return 압축된 바이트 읽기 모드 버퍼
+     */
+    public ByteBuffer compress(ContentEncoding encoding, ByteBuffer input) {
+        byte[] bytes = input.array();
+        int offset = input.arrayOffset() + input.position();
+        int length = input.remaining();
+        byte[] out = output.length >= length + 64 || length + 64 > MAX_RETAINED_SIZE ? output : (output = new byte[length + 64]);
+        int size;
+        if (encoding == ContentEncoding.GZIP) {
+            System.arraycopy(GZIP_HEADER, 0, out, 0, GZIP_HEADER.length);
+            size = GZIP_HEADER.length;
+            ByteBuffer deflated = deflate(gzipDeflater, bytes, offset, length, out, size, GZIP_TRAILER_SIZE);
+            out = deflated.array();
+            size = deflated.limit();
+            crc.reset();
+            crc.update(bytes, offset, length);
+            writeIntLE(out, size, (int) crc.getValue());
+            writeIntLE(out, size + 4, length);
+            size += GZIP_TRAILER_SIZE;
+        } else {
+            ByteBuffer deflated = deflate(zlibDeflater, bytes, offset, length, out, 0, 0);
+            out = deflated.array();
+            size = deflated.limit();
+        }
+        return ByteBuffer.wrap(out, 0, size);
+    }
+
+    /**
+     * @implSpec 정적 리소스 캐시에 넣을 수 있도록 복사본을 반환
+     */
+    public byte[] compressToArray(ContentEncoding encoding, byte[] input) {
+        ByteBuffer compressed = compress(encoding, ByteBuffer.wrap(input));
+        byte[] copy = new byte[compressed.remaining()];
+        compressed.get(copy);
+        return copy;
+    }
+
+    /**
+     * @return out 에 [0, limit) 까지 채운 버퍼 (모자라면 더 큰 배열로 바꿔서 계속), reserve 만큼 뒤에 여유를 남김
+     */
+    private ByteBuffer deflate(Deflater deflater, byte[] input, int offset, int length, byte[] out, int position, int reserve) {
+        deflater.reset();
+        deflater.setInput(input, offset, length);
+        deflater.finish();
+        while (true) {
+            position += deflater.deflate(out, position, out.length - position - reserve);
+            if (deflater.finished()) {
+                break;
+            }
+            byte[] grown = new byte[out.length * 2];
+            System.arraycopy(out, 0, grown, 0, position);
+            out = grown;
+            if (out.length <= MAX_RETAINED_SIZE) {
+                output = out;
+            }
+        }
+        return ByteBuffer.wrap(out, 0, position);
+    }
+
+    private static void writeIntLE(byte[] out, int position, int value) {
+        out[position] = (byte) value;
+        out[position + 1] = (byte) (value >>> 8);
+        out[position + 2] = (byte) (value >>> 16);
+        out[position + 3] = (byte) (value >>> 24);
+    }
+}
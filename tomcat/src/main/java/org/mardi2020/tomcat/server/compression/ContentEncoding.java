@@ -0,0 +1,24 @@
+package org.mardi2020.tomcat.server.compression;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 지원하는 응답 압축 방식 (Content-Encoding 값)
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ContentEncoding {
+
+    /**
+     * gzip 헤더/트레일러(CRC32) + deflate 데이터, 대부분의 클라이언트가 가장 먼저 지원
+     */
+    GZIP("gzip"),
+
+    /**
+     * zlib 헤더 + deflate 데이터 (RFC 1950)
+     */
+    DEFLATE("deflate");
+
+    private final String token;
+}
@@ -0,0 +1,101 @@
+package org.mardi2020.tomcat.server.compression;
+
+import lombok.Getter;
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.ServerConfig;
+import org.springframework.http.HttpHeaders;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 응답 압축 정책 (톰캣 compression / compressionMinSize / compressibleMimeType)
+ * - Accept-Encoding 으로 gzip 또는 deflate 를 고르고, 압축할 만한 Content-Type 이면서 minSize 이상인 바디만 압축
+ */
+public class ResponseCompression {
+
+    @Getter
+    private final int minSize;
+
+    private final Set<String> mimeTypes;
+
+    public ResponseCompression(int minSize, Set<String> mimeTypes) {
+        this.minSize = minSize;
+        this.mimeTypes = Set.copyOf(mimeTypes);
+    }
+
+    /**
+     * @return 설정에서 압축을 끈 경우 null
+     */
+    public static ResponseCompression from(ServerConfig config) {
+        if (!config.isCompression()) {
+            return null;
+        }
+        return new ResponseCompression(config.getCompressionMinSize(), config.getCompressibleMimeTypes());
+    }
+
+    /**
+     * @implSpec Accept-Encoding 의 토큰과 q 값을 보고 고름, 같으면 gzip 우선, `q=0` 은 거절로 봄
+     * @return 압축하지 않아야 하면 null
+     */
+    public ContentEncoding negotiate(MyRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (accept == null) {
+            return null;
+        }
+        float gzip = -1;
+        float deflate = -1;
+        float wildcard = 0;
+        int start = 0;
+        while (start < accept.length()) {
+            int comma = accept.indexOf(',', start);
+            int end = comma < 0 ? accept.length() : comma;
+            int semicolon = accept.indexOf(';', start);
+            int tokenEnd = semicolon >= 0 && semicolon < end ? semicolon : end;
+            String token = accept.substring(start, tokenEnd).trim();
+            float quality = tokenEnd < end ? quality(accept.substring(tokenEnd + 1, end)) : 1;
+            if (token.equalsIgnoreCase(ContentEncoding.GZIP.getToken()) || token.equalsIgnoreCase("x-gzip")) {
+                gzip = quality;
+            } else if (token.equalsIgnoreCase(ContentEncoding.DEFLATE.getToken())) {
+                deflate = quality;
+            } else if (token.equals("*")) {
+                wildcard = quality;
+            }
+            start = end + 1;
+        }
+        gzip = gzip < 0 ? wildcard : gzip; // 명시하지 않은 방식은 "*" 의 q 값을 따름
+        deflate = deflate < 0 ? wildcard : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return ContentEncoding.GZIP;
+        }
+        return deflate > 0 ? ContentEncoding.DEFLATE : null;
+    }
+
+    /**
+     * @param contentType 파라미터(charset 등)가 붙어 있어도 됨
+     */
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semicolon = contentType.indexOf(';');
+        String mimeType = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim();
+        return mimeTypes.contains(mimeType.toLowerCase(Locale.ROOT));
+    }
+
+    public boolean shouldCompress(String contentType, long length) {
+        return length >= minSize && isCompressible(contentType);
+    }
+
+    private static float quality(String parameters) {
+        String trimmed = parameters.trim();
+        if (!trimmed.startsWith("q=")) {
+            return 1;
+        }
+        try {
+            return Float.parseFloat(trimmed.substring(2));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
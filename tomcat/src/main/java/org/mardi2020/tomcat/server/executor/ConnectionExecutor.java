@@ -0,0 +1,20 @@
+package org.mardi2020.tomcat.server.executor;
+
+/**
+ * accept 된 연결을 처리할 작업을 실행하는 실행기
+ * - accept 루프는 연결을 받자마자 여기에 넘기고 바로 다음 accept 로 돌아감
+ * - 포화 상태라면 큐에 무한정 쌓지 않고 false 를 반환해 호출 측이 503 으로 거절하게 함
+ */
+public interface ConnectionExecutor {
+
+    /**
+     * @param task 연결 처리 작업
+     * @return 실행(또는 대기열 등록)에 성공하면 true, 포화 상태라 거절되면 false
+     */
+    boolean execute(Runnable task);
+
+    /**
+     * 새 작업을 더 받지 않고 종료
+     */
+    void shutdown();
+}
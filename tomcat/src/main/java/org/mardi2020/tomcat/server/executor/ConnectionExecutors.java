@@ -0,0 +1,29 @@
+package org.mardi2020.tomcat.server.executor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.ServerConfig;
+
+@Slf4j
+public final class ConnectionExecutors {
+
+    private ConnectionExecutors() {
+    }
+
+    /**
+     * @implSpec 설정에 맞는 실행기 생성, 가상 스레드를 쓸 수 없으면 플랫폼 스레드 풀로 대체
+     */
+    public static ConnectionExecutor create(ServerConfig config) {
+        if (config.getExecutorType() == ExecutorType.VIRTUAL) {
+            ConnectionExecutor executor = VirtualThreadConnectionExecutor.createIfSupported(config.getMaxConnections());
+            if (executor != null) {
+                log.info("Using virtual thread per connection (maxConnections={})", config.getMaxConnections());
+                return executor;
+            }
+            log.warn("Virtual threads require JDK 21+, falling back to platform thread pool");
+        }
+        log.info("Using platform thread pool (maxThreads={}, acceptQueueSize={})",
+                config.getMaxThreads(), config.getAcceptQueueSize());
+        return new PooledConnectionExecutor(config.getMinSpareThreads(), config.getMaxThreads(),
+                config.getAcceptQueueSize());
+    }
+}
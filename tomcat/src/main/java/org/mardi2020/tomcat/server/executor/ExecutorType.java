@@ -0,0 +1,14 @@
+package org.mardi2020.tomcat.server.executor;
+
+public enum ExecutorType {
+
+    /**
+     * 크기가 제한된 플랫폼 스레드 풀 + 제한된 대기 큐
+     */
+    PLATFORM,
+
+    /**
+     * 연결마다 가상 스레드 하나 (JDK 21 이상), 그 미만이면 PLATFORM 으로 동작
+     */
+    VIRTUAL
+}
@@ -0,0 +1,118 @@
+package org.mardi2020.tomcat.server.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 크기가 제한된 플랫폼 스레드 풀
+ * - 기본 ThreadPoolExecutor 는 큐가 가득 찬 다음에야 스레드를 늘리므로,
+ *   톰캣의 TaskQueue 처럼 maxThreads 에 닿기 전까지는 큐 대신 스레드를 먼저 늘림
+ * - 스레드도 큐도 가득 차면 거절 (호출 측에서 503 응답)
+ */
+@Slf4j
+public class PooledConnectionExecutor implements ConnectionExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public PooledConnectionExecutor(int minSpareThreads, int maxThreads, int queueSize) {
+        if (maxThreads < 1 || queueSize < 0) {
+            throw new IllegalArgumentException("maxThreads must be >= 1 and queueSize >= 0");
+        }
+        TaskQueue queue = new TaskQueue(queueSize);
+        this.executor = new ThreadPoolExecutor(Math.min(minSpareThreads, maxThreads), maxThreads,
+                60, TimeUnit.SECONDS, queue, new WorkerThreadFactory("http-exec-"),
+                (task, pool) -> {
+                    // 스레드가 maxThreads 에 도달했으니 이제는 큐에 넣어봄 (용량 초과면 거절)
+                    if (!queue.force(task)) {
+                        throw new RejectedExecutionException("Connection queue is full");
+                    }
+                });
+        queue.setParent(executor);
+    }
+
+    @Override
+    public boolean execute(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("Worker pool saturated (active={}, queued={}), rejecting connection",
+                    executor.getActiveCount(), executor.getQueue().size());
+            return false;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 놀고 있는 스레드가 없고 풀을 더 키울 수 있으면 offer 를 실패시켜 스레드 생성을 유도하는 큐
+     */
+    private static class TaskQueue extends LinkedBlockingQueue<Runnable> {
+
+        private final int capacity;
+
+        private transient volatile ThreadPoolExecutor parent;
+
+        TaskQueue(int capacity) {
+            super(); // 용량 검사는 force 에서 직접 함 (capacity 0 도 허용하기 위해)
+            this.capacity = capacity;
+        }
+
+        void setParent(ThreadPoolExecutor parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public boolean offer(Runnable task) {
+            ThreadPoolExecutor pool = parent;
+            if (pool == null) {
+                return false;
+            }
+            // 놀고 있는 워커가 있으면 큐에 넣어서 바로 가져가게 함
+            if (pool.getActiveCount() + size() < pool.getPoolSize()) {
+                return super.offer(task);
+            }
+            // 아직 스레드를 더 만들 수 있으면 false -> ThreadPoolExecutor 가 새 스레드 생성
+            if (pool.getPoolSize() < pool.getMaximumPoolSize()) {
+                return false;
+            }
+            return force(task);
+        }
+
+        boolean force(Runnable task) {
+            synchronized (this) {
+                if (size() >= capacity) {
+                    return false;
+                }
+                return super.offer(task);
+            }
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger sequence = new AtomicInteger(1);
+
+        private final String prefix;
+
+        WorkerThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
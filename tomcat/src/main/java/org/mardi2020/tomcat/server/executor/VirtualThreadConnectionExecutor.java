@@ -0,0 +1,67 @@
+package org.mardi2020.tomcat.server.executor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 연결마다 가상 스레드를 하나씩 띄우는 실행기 (JDK 21+)
+ * - 프로젝트 toolchain 이 17 이라 Executors#newVirtualThreadPerTaskExecutor 는 리플렉션으로 찾음
+ * - 가상 스레드는 사실상 무제한으로 만들 수 있으므로 동시 연결 수는 세마포어로 제한
+ */
+@Slf4j
+public class VirtualThreadConnectionExecutor implements ConnectionExecutor {
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    private VirtualThreadConnectionExecutor(ExecutorService executor, int maxConnections) {
+        this.executor = executor;
+        this.permits = new Semaphore(maxConnections);
+    }
+
+    /**
+     * @return 가상 스레드를 지원하지 않는 JDK 라면 `null`
+     */
+    public static VirtualThreadConnectionExecutor createIfSupported(int maxConnections) {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            return new VirtualThreadConnectionExecutor(executor, maxConnections);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads are not available on this JDK ({})", Runtime.version());
+            return null;
+        }
+    }
+
+    @Override
+    public boolean execute(Runnable task) {
+        if (!permits.tryAcquire()) {
+            log.warn("Max connections reached, rejecting connection");
+            return false;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    permits.release();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            return false;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
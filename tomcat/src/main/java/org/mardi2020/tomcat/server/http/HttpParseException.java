@@ -0,0 +1,20 @@
+package org.mardi2020.tomcat.server.http;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+
+/**
+ * 요청을 해석할 수 없을 때 발생, 클라이언트에게 돌려줄 상태 코드를 함께 가지고 있음
+ */
+@Getter
+public class HttpParseException extends IOException {
+
+    private final HttpStatus status;
+
+    public HttpParseException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
@@ -0,0 +1,116 @@
+package org.mardi2020.tomcat.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HdrHistogram 방식(로그-선형 버킷)의 지연 시간 히스토그램
+ * - 2의 거듭제곱 구간마다 32개 하위 버킷을 두어 어느 크기든 상대 오차 3% 남짓 안에서 백분위를 구함
+ * - 기록은 버킷 인덱스 계산(비트 연산) + 카운터 증가 한 번, 락도 할당도 없음
+ * - LongAdder 처럼 스레드마다 다른 줄무늬(stripe)의 카운터를 올려 여러 워커가 같은 버킷을 두고 경합하지 않게 함
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+    /**
+     * 기록할 수 있는 최대값 (나노초, 약 73분), 넘으면 최대값으로 기록
+     */
+    static final long MAX_VALUE = (1L << 42) - 1;
+
+    static final int BUCKET_COUNT = index(MAX_VALUE) + 1;
+
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * BUCKET_COUNT);
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.getAndIncrement(stripe() * BUCKET_COUNT + index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @implSpec 줄무늬를 합친 사본, 기록과 동시에 읽으므로 버킷끼리는 약간 어긋날 수 있음 (모니터링 용도로는 충분)
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            int offset = stripe * BUCKET_COUNT;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long value = counts.get(offset + i);
+                buckets[i] += value;
+                count += value;
+            }
+        }
+        return new Snapshot(buckets, count, sum.sum(), max.get());
+    }
+
+    /**
+     * @implSpec 64 미만은 그대로, 그 이상은 최상위 비트 위치(구간)와 그 아래 5비트(하위 버킷)로 인덱스를 만듦
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * @return index 버킷에 들어가는 가장 작은 값
+     */
+    static long lowestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_HALF - 1;
+        return (long) (index % SUB_BUCKET_HALF + SUB_BUCKET_HALF) << shift;
+    }
+
+    private static int stripe() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        int processors = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        return Integer.highestOneBit(Math.max(processors, 1) * 2 - 1);
+    }
+
+    /**
+     * 한 시점의 히스토그램 사본
+     */
+    public record Snapshot(long[] buckets, long count, long sum, long max) {
+
+        /**
+         * @param quantile 0 ~ 1 (0.99 = p99)
+         * @return 해당 백분위가 들어간 버킷의 가장 큰 값 (HdrHistogram 의 highestEquivalentValue 와 같은 기준), 기록이 없으면 0
+         */
+        public long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(lowestValue(i + 1) - 1, max);
+                }
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.mardi2020.tomcat.server.metrics;
+
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyResponse;
+import org.mardi2020.tomcat.server.buffer.BufferPool;
+import org.mardi2020.tomcat.servlet.MyServlet;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ServerMetrics 를 Prometheus 텍스트 형식(0.0.4)으로 내보내는 서블릿
+ * - 지연 시간은 summary(quantile 0.5 / 0.9 / 0.99 / 0.999, 초 단위)로, 라우트별 요청 수는 상태 코드 계열(2xx 등) 라벨로 냄
+ * - 스크레이프할 때만 히스토그램을 합치므로 기록 쪽 비용에는 영향 없음
+ */
+public class PrometheusMetricsServlet implements MyServlet {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final ServerMetrics metrics;
+
+    public PrometheusMetricsServlet(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void service(MyRequest request, MyResponse response) {
+        response.addHeader(HttpHeaders.CONTENT_TYPE, CONTENT_TYPE);
+        response.addHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        response.setBody(format(metrics));
+    }
+
+    public static String format(ServerMetrics metrics) {
+        StringBuilder out = new StringBuilder(4096);
+        sample(out, "tomcat_connections_accepted_total", "counter", "Accepted connections", metrics.getConnectionsAccepted());
+        sample(out, "tomcat_connections_rejected_total", "counter", "Connections rejected before reading a request", metrics.getConnectionsRejected());
+        sample(out, "tomcat_connections_active", "gauge", "Open connections", metrics.getConnectionsActive());
+        sample(out, "tomcat_requests_rate_limited_total", "counter", "Requests rejected by the per-address rate limit", metrics.getRequestsRateLimited());
+        header(out, "tomcat_response_cache_requests_total", "counter", "Requests to cached routes by cache result");
+        out.append("tomcat_response_cache_requests_total{result=\"hit\"} ").append(metrics.getResponseCacheHits()).append('\n');
+        out.append("tomcat_response_cache_requests_total{result=\"miss\"} ").append(metrics.getResponseCacheMisses()).append('\n');
+        out.append("tomcat_response_cache_requests_total{result=\"coalesced\"} ").append(metrics.getResponseCacheCoalesced()).append('\n');
+        header(out, "tomcat_tls_handshakes_total", "counter", "Completed TLS handshakes by session reuse");
+        out.append("tomcat_tls_handshakes_total{session=\"new\"} ").append(metrics.getTlsHandshakes() - metrics.getTlsResumed()).append('\n');
+        out.append("tomcat_tls_handshakes_total{session=\"resumed\"} ").append(metrics.getTlsResumed()).append('\n');
+        sample(out, "tomcat_websocket_sessions_active", "gauge", "Open WebSocket sessions", metrics.getWebSocketsActive());
+        header(out, "tomcat_websocket_messages_total", "counter", "WebSocket data messages by direction");
+        out.append("tomcat_websocket_messages_total{direction=\"in\"} ").append(metrics.getWebSocketMessagesReceived()).append('\n');
+        out.append("tomcat_websocket_messages_total{direction=\"out\"} ").append(metrics.getWebSocketMessagesSent()).append('\n');
+        BufferPool pool = metrics.getBufferPool();
+        header(out, "tomcat_buffer_pool_acquires_total", "counter", "Direct buffer acquisitions by pool result");
+        out.append("tomcat_buffer_pool_acquires_total{result=\"hit\"} ").append(pool.getHits()).append('\n');
+        out.append("tomcat_buffer_pool_acquires_total{result=\"miss\"} ").append(pool.getMisses()).append('\n');
+        out.append("tomcat_buffer_pool_acquires_total{result=\"unpooled\"} ").append(pool.getUnpooled()).append('\n');
+        header(out, "tomcat_buffer_pool_hit_ratio", "gauge", "Share of pooled acquisitions served without allocating");
+        out.append("tomcat_buffer_pool_hit_ratio ").append(pool.getHitRate()).append('\n');
+        sample(out, "tomcat_buffer_pool_outstanding", "gauge", "Buffers acquired and not yet released", pool.getOutstanding());
+        sample(out, "tomcat_buffer_pool_leaks_total", "counter", "Buffers garbage collected without release (leak detection only)", pool.getLeaks());
+        sample(out, "tomcat_requests_in_flight", "gauge", "Requests being serviced", metrics.getInFlight());
+        sample(out, "tomcat_bytes_received_total", "counter", "Bytes read from clients", metrics.getBytesRead());
+        sample(out, "tomcat_bytes_sent_total", "counter", "Bytes written to clients including headers", metrics.getBytesWritten());
+
+        header(out, "tomcat_phase_latency_seconds", "summary", "Latency of accept, parse, service, write and TLS handshake phases");
+        summary(out, "accept", metrics.getAcceptTime().snapshot());
+        summary(out, "parse", metrics.getParseTime().snapshot());
+        summary(out, "service", metrics.getServiceTime().snapshot());
+        summary(out, "write", metrics.getWriteTime().snapshot());
+        summary(out, "handshake", metrics.getHandshakeTime().snapshot());
+
+        List<RouteMetrics> routes = new ArrayList<>(metrics.getRoutes());
+        routes.sort(Comparator.comparing(RouteMetrics::getRoute));
+        routes.add(metrics.getUnmatched());
+
+        header(out, "tomcat_route_requests_total", "counter", "Completed requests per route and status class");
+        for (RouteMetrics route : routes) {
+            for (int statusClass = 1; statusClass <= STATUS_CLASSES.length; statusClass++) {
+                long count = route.getResponses(statusClass);
+                if (count > 0) {
+                    out.append("tomcat_route_requests_total{route=\"");
+                    label(out, route.getRoute()).append("\",status=\"").append(STATUS_CLASSES[statusClass - 1])
+                            .append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+        header(out, "tomcat_route_in_flight", "gauge", "Requests being serviced per route");
+        for (RouteMetrics route : routes) {
+            out.append("tomcat_route_in_flight{route=\"");
+            label(out, route.getRoute()).append("\"} ").append(route.getInFlight()).append('\n');
+        }
+        header(out, "tomcat_route_service_seconds_total", "counter", "Total service time per route");
+        for (RouteMetrics route : routes) {
+            out.append("tomcat_route_service_seconds_total{route=\"");
+            label(out, route.getRoute()).append("\"} ").append(seconds(route.getServiceNanos())).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String type, String help, long value) {
+        header(out, name, type, help);
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String phase, LatencyHistogram.Snapshot snapshot) {
+        for (double quantile : QUANTILES) {
+            out.append("tomcat_phase_latency_seconds{phase=\"").append(phase).append("\",quantile=\"").append(quantile)
+                    .append("\"} ").append(seconds(snapshot.valueAt(quantile))).append('\n');
+        }
+        out.append("tomcat_phase_latency_seconds_sum{phase=\"").append(phase).append("\"} ")
+                .append(seconds(snapshot.sum())).append('\n');
+        out.append("tomcat_phase_latency_seconds_count{phase=\"").append(phase).append("\"} ")
+                .append(snapshot.count()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+
+    /**
+     * @implSpec 라벨 값의 역슬래시, 큰따옴표, 줄바꿈을 이스케이프
+     */
+    private static StringBuilder label(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,64 @@
+package org.mardi2020.tomcat.server.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 라우트(등록한 경로 패턴) 하나의 요청 수, 처리 중인 요청 수, 처리 시간 합계
+ * - 라우트가 등록될 때 만들어 Router.Route 에 붙여 두므로 요청마다 맵 조회 없이 바로 기록
+ */
+public final class RouteMetrics {
+
+    @Getter
+    private final String route;
+
+    private final LongAdder inFlight = new LongAdder();
+
+    /**
+     * 상태 코드 1xx ~ 5xx 별 완료된 요청 수
+     */
+    private final LongAdder[] responses = new LongAdder[5];
+
+    private final LongAdder serviceNanos = new LongAdder();
+
+    RouteMetrics(String route) {
+        this.route = route;
+        for (int i = 0; i < responses.length; i++) {
+            responses[i] = new LongAdder();
+        }
+    }
+
+    void started() {
+        inFlight.increment();
+    }
+
+    void completed(int status, long nanos) {
+        inFlight.decrement();
+        responses[Math.min(Math.max(status / 100, 1), 5) - 1].increment();
+        serviceNanos.add(nanos);
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    /**
+     * @param statusClass 1 ~ 5 (2 = 2xx)
+     */
+    public long getResponses(int statusClass) {
+        return responses[statusClass - 1].sum();
+    }
+
+    public long getRequests() {
+        long total = 0;
+        for (LongAdder counter : responses) {
+            total += counter.sum();
+        }
+        return total;
+    }
+
+    public long getServiceNanos() {
+        return serviceNanos.sum();
+    }
+}
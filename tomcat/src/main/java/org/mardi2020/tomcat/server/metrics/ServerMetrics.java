@@ -0,0 +1,259 @@
+package org.mardi2020.tomcat.server.metrics;
+
+import lombok.Getter;
+import org.mardi2020.tomcat.server.buffer.BufferPool;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 서버 전체 메트릭 (연결, 처리 중인 요청, 송수신 바이트, 단계별 지연 시간)
+ * - 모든 기록은 LongAdder / 줄무늬 히스토그램에 더하기만 하므로 워커끼리 락 경합이 없음
+ * - 단계: accept(accept 후 연결 처리를 시작하기까지), parse(첫 바이트부터 요청 완성까지),
+ *   service(필터/서블릿 실행, 비동기면 완료까지), write(응답을 보내는 데 걸린 시간),
+ *   handshake(HTTPS 연결을 등록한 뒤 TLS 핸드셰이크가 끝나기까지)
+ */
+public class ServerMetrics {
+
+    /**
+     * 어떤 라우트에도 맞지 않은 요청(404)을 모으는 라우트 이름
+     */
+    public static final String UNMATCHED_ROUTE = "unmatched";
+
+    private final LongAdder connectionsAccepted = new LongAdder();
+
+    private final LongAdder connectionsRejected = new LongAdder();
+
+    private final LongAdder connectionsActive = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final LongAdder requestsRateLimited = new LongAdder();
+
+    private final LongAdder responseCacheHits = new LongAdder();
+
+    private final LongAdder responseCacheMisses = new LongAdder();
+
+    private final LongAdder responseCacheCoalesced = new LongAdder();
+
+    private final LongAdder tlsHandshakes = new LongAdder();
+
+    private final LongAdder tlsResumed = new LongAdder();
+
+    private final LongAdder webSocketsActive = new LongAdder();
+
+    private final LongAdder webSocketMessagesReceived = new LongAdder();
+
+    private final LongAdder webSocketMessagesSent = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    @Getter
+    private final LatencyHistogram acceptTime = new LatencyHistogram();
+
+    @Getter
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+
+    @Getter
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    @Getter
+    private final LatencyHistogram writeTime = new LatencyHistogram();
+
+    @Getter
+    private final LatencyHistogram handshakeTime = new LatencyHistogram();
+
+    /**
+     * 커넥터/응답 버퍼를 빌리는 풀 (적중률, 빌려 간 수, 누수 수를 함께 내보냄)
+     */
+    @Getter
+    private final BufferPool bufferPool = BufferPool.shared();
+
+    /**
+     * 라우트 등록 시점에만 추가됨
+     */
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+
+    @Getter
+    private final RouteMetrics unmatched = new RouteMetrics(UNMATCHED_ROUTE);
+
+    /**
+     * @implSpec 같은 패턴이면 같은 객체 (메서드별로 나눠 등록해도 한 라우트로 셈)
+     */
+    public RouteMetrics route(String pattern) {
+        return routes.computeIfAbsent(pattern, RouteMetrics::new);
+    }
+
+    public Collection<RouteMetrics> getRoutes() {
+        return Collections.unmodifiableCollection(routes.values());
+    }
+
+    /**
+     * @param acceptedNanos accept 가 반환된 시각 (System.nanoTime)
+     */
+    public void connectionOpened(long acceptedNanos) {
+        connectionsAccepted.increment();
+        connectionsActive.increment();
+        acceptTime.record(System.nanoTime() - acceptedNanos);
+    }
+
+    public void connectionClosed() {
+        connectionsActive.decrement();
+    }
+
+    /**
+     * @implSpec 워커 부족 등으로 요청을 읽지 않고 거절한 연결
+     */
+    public void connectionRejected() {
+        connectionsRejected.increment();
+    }
+
+    /**
+     * @implSpec 클라이언트(IP)별 요청 제한에 걸려 서블릿 없이 429 로 거절한 요청 (라우트 제한은 라우트의 4xx 로 셈)
+     */
+    public void requestRateLimited() {
+        requestsRateLimited.increment();
+    }
+
+    public void responseCacheHit() {
+        responseCacheHits.increment();
+    }
+
+    /**
+     * @implSpec 캐시에 없어 서블릿을 실행한 요청 (같은 키를 기다린 요청은 coalesced 로 따로 셈)
+     */
+    public void responseCacheMiss() {
+        responseCacheMisses.increment();
+    }
+
+    public void responseCacheCoalesced() {
+        responseCacheCoalesced.increment();
+    }
+
+    /**
+     * @param resumed 세션 캐시/티켓으로 전체 핸드셰이크를 건너뛰었으면 true
+     */
+    public void tlsHandshakeCompleted(long startNanos, boolean resumed) {
+        handshakeTime.record(System.nanoTime() - startNanos);
+        tlsHandshakes.increment();
+        if (resumed) {
+            tlsResumed.increment();
+        }
+    }
+
+    public void webSocketOpened() {
+        webSocketsActive.increment();
+    }
+
+    public void webSocketClosed() {
+        webSocketsActive.decrement();
+    }
+
+    public void webSocketMessageReceived() {
+        webSocketMessagesReceived.increment();
+    }
+
+    public void webSocketMessageSent() {
+        webSocketMessagesSent.increment();
+    }
+
+    public void bytesRead(long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    /**
+     * @param startNanos 요청의 첫 바이트를 받은 시각
+     */
+    public void requestParsed(long startNanos) {
+        parseTime.record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return 서비스 시작 시각, requestCompleted 에 그대로 넘김
+     */
+    public long requestStarted(RouteMetrics route) {
+        inFlight.increment();
+        route.started();
+        return System.nanoTime();
+    }
+
+    public void requestCompleted(RouteMetrics route, int status, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        inFlight.decrement();
+        route.completed(status, elapsed);
+        serviceTime.record(elapsed);
+    }
+
+    /**
+     * @param bytes 헤더를 포함해 이 응답으로 보낸 바이트 (흘려 쓴 바디 포함)
+     */
+    public void responseWritten(long startNanos, long bytes) {
+        writeTime.record(System.nanoTime() - startNanos);
+        bytesWritten.add(bytes);
+    }
+
+    public long getConnectionsAccepted() {
+        return connectionsAccepted.sum();
+    }
+
+    public long getConnectionsRejected() {
+        return connectionsRejected.sum();
+    }
+
+    public long getConnectionsActive() {
+        return connectionsActive.sum();
+    }
+
+    public long getRequestsRateLimited() {
+        return requestsRateLimited.sum();
+    }
+
+    public long getResponseCacheHits() {
+        return responseCacheHits.sum();
+    }
+
+    public long getResponseCacheMisses() {
+        return responseCacheMisses.sum();
+    }
+
+    public long getResponseCacheCoalesced() {
+        return responseCacheCoalesced.sum();
+    }
+
+    public long getTlsHandshakes() {
+        return tlsHandshakes.sum();
+    }
+
+    public long getTlsResumed() {
+        return tlsResumed.sum();
+    }
+
+    public long getWebSocketsActive() {
+        return webSocketsActive.sum();
+    }
+
+    public long getWebSocketMessagesReceived() {
+        return webSocketMessagesReceived.sum();
+    }
+
+    public long getWebSocketMessagesSent() {
+        return webSocketMessagesSent.sum();
+    }
+
+    public long getInFlight() {
+        return inFlight.sum();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+}
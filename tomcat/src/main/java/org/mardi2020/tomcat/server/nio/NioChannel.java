@@ -0,0 +1,474 @@
+package org.mardi2020.tomcat.server.nio;
+
+import lombok.Getter;
+import org.mardi2020.tomcat.server.FileTransferTarget;
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyRequestParser;
+import org.mardi2020.tomcat.server.buffer.BufferPool;
+import org.mardi2020.tomcat.server.buffer.PooledBuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * poller 에 등록된 연결 하나의 상태
+ * - 유휴 연결이 들고 있는 건 소켓, SelectionKey, 파서 상태 정도이고
+ *   요청 객체는 요청을 받는 동안에만 풀에서 빌려옴, pending 버퍼는 파이프라이닝된 다음 요청이 있을 때만 잡음
+ */
+public class NioChannel {
+
+    private static final ThreadLocal<Selector> WRITE_SELECTOR = new ThreadLocal<>();
+
+    @Getter
+    private final SocketChannel socket;
+
+    @Getter
+    private final NioPoller poller;
+
+    @Getter
+    private SelectionKey key;
+
+    @Getter
+    private MyRequestParser parser;
+
+    @Getter
+    private MyRequest request;
+
+    /**
+     * 파이프라이닝된 다음 요청 바이트, BufferPool 에서 빌린 버퍼라 다 쓰거나 연결을 닫을 때 돌려줌
+     */
+    private PooledBuffer pending;
+
+    private int served;
+
+    private volatile long lastAccess = System.currentTimeMillis();
+
+    /**
+     * 지금 읽고 있는 요청의 첫 바이트를 받은 시각 (System.nanoTime)
+     */
+    @Getter
+    private long parseStart;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private InetAddress remoteAddress;
+
+    private final BlockingChannel blockingChannel = new BlockingChannel();
+
+    private final OneShotChannel oneShotChannel = new OneShotChannel();
+
+    /**
+     * HTTPS 연결이면 TLS 상태, 평문이면 null
+     */
+    private final TlsSession tls;
+
+    /**
+     * WebSocket 으로 업그레이드된 뒤의 세션, 그 전엔 null
+     */
+    private volatile NioWebSocketSession webSocket;
+
+    NioChannel(SocketChannel socket, NioPoller poller, TlsSession tls) {
+        this.socket = socket;
+        this.poller = poller;
+        this.tls = tls;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * @implSpec 요청을 받기 시작할 때 파서와 (재사용) 요청 객체를 붙임
+     */
+    void attach(MyRequestParser parser, MyRequest request) {
+        if (this.parser == null) {
+            this.parser = parser;
+        }
+        this.request = request;
+    }
+
+    /**
+     * @return 떼어낸 요청 객체 (재사용 풀에 돌려주기 위함), 유휴 상태에선 요청 객체를 들고 있지 않음
+     */
+    MyRequest detachRequest() {
+        MyRequest detached = request;
+        request = null;
+        return detached;
+    }
+
+    NioWebSocketSession getWebSocket() {
+        return webSocket;
+    }
+
+    /**
+     * @implSpec 101 응답을 보낸 뒤 호출, 이후 읽은 바이트는 HTTP 파서 대신 WebSocket 프레임 디코더로 감
+     */
+    void upgrade(NioWebSocketSession session) {
+        this.webSocket = session;
+    }
+
+    /**
+     * @implSpec 요청을 완성하고 남은 바이트(파이프라이닝된 다음 요청)를 보관
+     * - poller 의 공유 읽기 버퍼는 다음 read 에서 덮어써지므로 풀에서 빌린 버퍼에 복사해 둠
+     */
+    synchronized void stash(ByteBuffer remaining) {
+        PooledBuffer copy = BufferPool.shared().acquire(remaining.remaining());
+        copy.buffer().put(remaining).flip();
+        pending = copy;
+    }
+
+    synchronized ByteBuffer getPending() {
+        return pending == null ? null : pending.buffer();
+    }
+
+    synchronized void clearPending() {
+        if (pending != null) {
+            pending.release();
+            pending = null;
+        }
+    }
+
+    /**
+     * @return 원격 주소 (요청 제한 키), 처음 물어볼 때 한 번만 구함
+     */
+    InetAddress getRemoteAddress() {
+        if (remoteAddress == null) {
+            remoteAddress = socket.socket().getInetAddress();
+        }
+        return remoteAddress;
+    }
+
+    /**
+     * @return 요청을 받기 시작하지 않은 상태면 true (poller 가 읽기를 기다리는 동안에만 의미 있음)
+     */
+    boolean isIdle() {
+        return request == null || parser == null || !parser.isStarted();
+    }
+
+    /**
+     * @implSpec poller 스레드에서 호출, TLS 면 복호화까지 함
+     * @param shared poller 의 공유 읽기 버퍼 (평문 연결만 씀)
+     * @return 읽은 평문 (읽기 모드, 비어 있을 수 있음), 연결이 끝났으면 null
+     */
+    ByteBuffer read(ByteBuffer shared) throws IOException {
+        if (tls != null) {
+            return tls.read(this);
+        }
+        shared.clear();
+        if (socket.read(shared) < 0) {
+            return null;
+        }
+        return shared.flip();
+    }
+
+    /**
+     * @implSpec read 가 넘긴 버퍼를 다 쓴 뒤 호출, TLS 평문 버퍼를 풀에 돌려줌
+     */
+    void readConsumed() {
+        if (tls != null) {
+            tls.consumed();
+        }
+    }
+
+    /**
+     * @return 소켓을 다시 읽지 않아도 처리할 바이트가 남아 있으면 true (TLS 평문 버퍼가 넘친 경우)
+     */
+    boolean hasBufferedInput() {
+        return tls != null && tls.hasBufferedInput();
+    }
+
+    public boolean isSecure() {
+        return tls != null;
+    }
+
+    /**
+     * @return ALPN 으로 정한 프로토콜 (예: "http/1.1"), 평문이거나 ALPN 을 쓰지 않았으면 null
+     */
+    public String getApplicationProtocol() {
+        return tls == null ? null : tls.getApplicationProtocol();
+    }
+
+    void markParseStart() {
+        this.parseStart = System.nanoTime();
+    }
+
+    int incrementServed() {
+        return ++served;
+    }
+
+    /**
+     * @implSpec poller 스레드에서만 호출, 다른 관심 이벤트(OP_WRITE)는 그대로 둠
+     */
+    void pauseRead() {
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * @implSpec 워커 스레드에서 호출하는 블로킹 쓰기
+     * - 소켓 송신 버퍼가 가득 차서 write 가 0 을 반환하면 스레드별 임시 Selector 로 OP_WRITE 를 기다림
+     *   (톰캣 NioBlockingSelector 와 같은 방식, 메인 poller 는 건드리지 않음)
+     * - TLS 면 암호화해서 씀
+     */
+    public void writeFully(ByteBuffer... buffers) throws IOException {
+        if (tls != null) {
+            tls.write(this, buffers);
+            return;
+        }
+        writeRaw(buffers);
+    }
+
+    /**
+     * @implSpec 소켓에 그대로 쓰는 블로킹 쓰기 (TLS 레코드를 쓸 때도 사용)
+     */
+    void writeRaw(ByteBuffer... buffers) throws IOException {
+        SelectionKey writeKey = null;
+        try {
+            while (hasRemaining(buffers)) {
+                if (socket.write(buffers) == 0) {
+                    writeKey = awaitWritable(writeKey);
+                }
+            }
+        } finally {
+            cancel(writeKey);
+        }
+    }
+
+    /**
+     * @implSpec poller 스레드에서 호출하는 논블로킹 쓰기, 소켓이 받는 만큼만 쓰고 바로 반환
+     * - TLS 면 암호화한 뒤 다 못 쓴 레코드는 TLS 세션이 들고 있다가 다음 호출에서 먼저 씀
+     * @return 모두 썼으면 true, 남았으면 false (OP_WRITE 를 기다렸다가 같은 버퍼로 다시 호출)
+     */
+    boolean writeNonBlocking(ByteBuffer[] buffers, int length) throws IOException {
+        if (tls != null) {
+            return tls.writeNonBlocking(socket, buffers, length);
+        }
+        if (length > 0) {
+            socket.write(buffers, 0, length);
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffers[i].hasRemaining()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @implSpec 파일 내용을 힙을 거치지 않고 소켓으로 보냄 (💡 FileChannel.transferTo → sendfile)
+     * - TLS 면 암호화해야 하므로 파일을 읽어서 씀
+     */
+    public void transferFully(FileChannel file, long position, long count) throws IOException {
+        if (tls != null) {
+            tls.transfer(this, file, position, count);
+            return;
+        }
+        SelectionKey writeKey = null;
+        try {
+            long end = position + count;
+            while (position < end) {
+                long sent = file.transferTo(position, end - position, socket);
+                if (sent == 0) {
+                    if (position >= file.size()) {
+                        throw new EOFException("File truncated while sending");
+                    }
+                    writeKey = awaitWritable(writeKey);
+                }
+                position += sent;
+            }
+        } finally {
+            cancel(writeKey);
+        }
+    }
+
+    /**
+     * @implSpec 응답 직렬화기가 gathering write 와 transferTo 를 쓸 수 있도록 블로킹 쓰기를 채널 형태로 노출
+     * - 반환 시점엔 항상 모두 쓴 상태이므로 호출자가 남은 바이트를 다시 쓸 필요 없음
+     */
+    public GatheringByteChannel getGatheringChannel() {
+        return blockingChannel;
+    }
+
+    /**
+     * @implSpec 블로킹하면 안 되는 스레드(poller, 타이머)에서 에러 응답을 보낼 때 쓰는 채널
+     * - 논블로킹 쓰기를 한 번만 시도하고, 소켓이 다 받지 못하면 IOException (호출자는 그대로 연결을 닫음)
+     */
+    GatheringByteChannel getOneShotChannel() {
+        return oneShotChannel;
+    }
+
+    public OutputStream getOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                writeFully(ByteBuffer.wrap(new byte[]{(byte) b}));
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                writeFully(ByteBuffer.wrap(bytes, offset, length));
+            }
+
+            @Override
+            public void close() throws IOException {
+                NioChannel.this.close();
+            }
+        };
+    }
+
+    /**
+     * @implSpec poller(유휴 시간 초과)와 워커가 함께 닫을 수 있으므로 처음 한 번만 닫고 커넥터에 알림
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (tls != null) {
+            tls.close(socket);
+        }
+        clearPending();
+        try {
+            socket.close(); // 등록된 SelectionKey 도 함께 취소됨
+        } catch (IOException ignored) {
+            // 이미 닫힌 연결
+        }
+        poller.closed(this);
+    }
+
+    private SelectionKey awaitWritable(SelectionKey writeKey) throws IOException {
+        Selector selector = writeSelector();
+        if (writeKey == null) {
+            writeKey = socket.register(selector, SelectionKey.OP_WRITE);
+        }
+        if (selector.select(poller.getWriteTimeoutMillis()) == 0) {
+            throw new IOException("Write timed out");
+        }
+        selector.selectedKeys().clear();
+        return writeKey;
+    }
+
+    private static void cancel(SelectionKey writeKey) throws IOException {
+        if (writeKey != null) {
+            writeKey.cancel();
+            writeSelector().selectNow(); // cancel 된 키를 정리해야 다음에 다시 등록 가능
+        }
+    }
+
+    static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long remaining(ByteBuffer[] buffers) {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        return remaining;
+    }
+
+    private static Selector writeSelector() throws IOException {
+        Selector selector = WRITE_SELECTOR.get();
+        if (selector == null) {
+            selector = Selector.open();
+            WRITE_SELECTOR.set(selector);
+        }
+        return selector;
+    }
+
+    private class BlockingChannel implements GatheringByteChannel, FileTransferTarget {
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            ByteBuffer[] slice = offset == 0 && length == srcs.length ? srcs : Arrays.copyOfRange(srcs, offset, offset + length);
+            long remaining = remaining(slice);
+            writeFully(slice);
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) throws IOException {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int remaining = src.remaining();
+            writeFully(src);
+            return remaining;
+        }
+
+        @Override
+        public void transferFully(FileChannel file, long position, long count) throws IOException {
+            NioChannel.this.transferFully(file, position, count);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return socket.isOpen();
+        }
+
+        @Override
+        public void close() {
+            NioChannel.this.close();
+        }
+    }
+
+    private class OneShotChannel implements GatheringByteChannel {
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            ByteBuffer[] slice = offset == 0 && length == srcs.length ? srcs : Arrays.copyOfRange(srcs, offset, offset + length);
+            long remaining = remaining(slice);
+            if (!writeNonBlocking(slice, slice.length)) {
+                throw new IOException("Socket is not writable");
+            }
+            return remaining;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) throws IOException {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return (int) write(new ByteBuffer[]{src});
+        }
+
+        @Override
+        public boolean isOpen() {
+            return socket.isOpen();
+        }
+
+        @Override
+        public void close() {
+            NioChannel.this.close();
+        }
+    }
+}
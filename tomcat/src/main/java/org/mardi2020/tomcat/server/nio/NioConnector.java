@@ -0,0 +1,519 @@
+package org.mardi2020.tomcat.server.nio;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyRequestParser;
+import org.mardi2020.tomcat.server.MyResponse;
+import org.mardi2020.tomcat.server.MyResponseFactory;
+import org.mardi2020.tomcat.server.ServerConfig;
+import org.mardi2020.tomcat.server.ServletDispatcher;
+import org.mardi2020.tomcat.server.buffer.BufferPool;
+import org.mardi2020.tomcat.server.executor.ConnectionExecutor;
+import org.mardi2020.tomcat.server.http.HttpParseException;
+import org.mardi2020.tomcat.server.metrics.ServerMetrics;
+import org.mardi2020.tomcat.server.ratelimit.AdmissionControl;
+import org.mardi2020.tomcat.server.tls.TlsContext;
+import org.mardi2020.tomcat.server.websocket.WebSocketFrame;
+import org.mardi2020.tomcat.server.websocket.WebSocketProtocolException;
+import org.mardi2020.tomcat.server.websocket.WebSocketUpgrade;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * java.nio 기반 커넥터 (톰캣 NioEndpoint 구조를 단순화)
+ * - acceptor: 블로킹 accept 후 소켓을 논블로킹으로 바꿔 poller 에 라운드로빈으로 분배
+ * - poller: Selector 로 읽기 이벤트를 감시하고 읽은 바이트를 바로 파싱, 요청이 완성되면 워커로 넘김
+ * - worker: 서블릿 실행, 응답 쓰기 후 keep-alive 면 poller 로 되돌려 보냄
+ * - config.tls 가 있으면 HTTPS: 연결마다 SSLEngine, 복호화/핸드셰이크는 poller 에서, 암호화는 쓰는 워커에서
+ * - 101 로 WebSocket 업그레이드된 연결은 같은 poller 에 남아 프레임 단위로 읽고, 메시지가 완성될 때만 워커를 씀
+ */
+@Slf4j
+public class NioConnector implements NioPoller.ReadHandler {
+
+    private static final long WRITE_TIMEOUT_MILLIS = 20_000;
+
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * 재사용할 요청 객체를 보관하는 최대 개수 (톰캣 processorCache)
+     */
+    private static final int REQUEST_CACHE_SIZE = 200;
+
+    private final ServerConfig config;
+
+    private final ServletDispatcher dispatcher;
+
+    private final ConnectionExecutor executor;
+
+    private final ServerMetrics metrics;
+
+    private final AdmissionControl admission;
+
+    private final List<NioPoller> pollers = new ArrayList<>();
+
+    private final AtomicInteger pollerRotater = new AtomicInteger();
+
+    private final Queue<MyRequest> recycledRequests = new ArrayBlockingQueue<>(REQUEST_CACHE_SIZE);
+
+    private ServerSocketChannel serverChannel;
+
+    /**
+     * HTTPS 가 아니면 null
+     */
+    private TlsContext tlsContext;
+
+    public NioConnector(ServerConfig config, ServletDispatcher dispatcher, ConnectionExecutor executor,
+                        AdmissionControl admission) {
+        this.config = config;
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+        this.metrics = dispatcher.getMetrics();
+        this.admission = admission;
+    }
+
+    /**
+     * @implSpec 포트를 열고 poller / acceptor 스레드를 띄운 뒤 바로 반환, 멈추는 건 stopAccepting → closeIdle → stop 순서로
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(config.getPort()), config.getAcceptBacklog());
+        serverChannel.configureBlocking(true);
+
+        NioPoller.Limits limits = new NioPoller.Limits(READ_BUFFER_SIZE, config.getKeepAliveTimeout(),
+                WRITE_TIMEOUT_MILLIS, config.getWebSocketIdleTimeout());
+        Supplier<TlsSession> tlsSessions = tlsSessions();
+        for (int i = 0; i < config.getPollerThreads(); i++) {
+            NioPoller poller = new NioPoller(this, limits, metrics, tlsSessions);
+            pollers.add(poller);
+            poller.start("http-nio-poller-" + i);
+        }
+        for (int i = 0; i < config.getAcceptorThreads(); i++) {
+            startDaemon(this::accept, "http-nio-acceptor-" + i);
+        }
+        log.info("NIO connector started at port {} ({}, acceptors={}, pollers={})",
+                config.getPort(), tlsContext != null ? "https" : "http", config.getAcceptorThreads(), pollers.size());
+    }
+
+    /**
+     * @implSpec 레코드 버퍼는 BufferPool 에서 빌림 (암호문용 packetBufferSize, 평문용 applicationBufferSize)
+     * @return 평문이면 null
+     */
+    private Supplier<TlsSession> tlsSessions() throws IOException {
+        if (config.getTls() == null) {
+            return null;
+        }
+        tlsContext = TlsContext.create(config.getTls());
+        return () -> new TlsSession(tlsContext.createEngine(), BufferPool.shared(),
+                tlsContext.getPacketBufferSize(), tlsContext.getApplicationBufferSize(), metrics);
+    }
+
+    /**
+     * @implSpec 포트를 닫아 새 연결을 받지 않음 (acceptor 스레드가 끝남), 이미 열린 연결은 그대로 처리
+     */
+    public void stopAccepting() {
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close server channel: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @implSpec 요청 없이 기다리기만 하는 keep-alive 연결을 닫음, 종료를 기다리는 동안 반복해서 호출
+     */
+    public void closeIdle() {
+        pollers.forEach(NioPoller::closeIdle);
+    }
+
+    /**
+     * @implSpec 남은 연결을 모두 닫고 poller 를 멈춤 (처리 중인 요청도 끊김)
+     */
+    public void stop() {
+        stopAccepting();
+        pollers.forEach(NioPoller::stop);
+    }
+
+    private void accept() {
+        while (serverChannel.isOpen()) {
+            try {
+                SocketChannel socket = serverChannel.accept();
+                long accepted = System.nanoTime();
+                if (!admission.tryOpenConnection()) {
+                    rejectConnection(socket);
+                    continue;
+                }
+                socket.configureBlocking(false);
+                socket.socket().setTcpNoDelay(true);
+                pollers.get(Math.floorMod(pollerRotater.getAndIncrement(), pollers.size())).register(socket, accepted);
+            } catch (ClosedChannelException e) {
+                break; // stopAccepting
+            } catch (IOException e) {
+                log.error("Accept failed", e);
+            }
+        }
+    }
+
+    /**
+     * @implSpec 연결 수 상한이면 poller 에 넘기지 않고 accept 스레드에서 바로 503 후 닫음 (아직 블로킹 모드라 그대로 씀)
+     * - HTTPS 면 핸드셰이크 전이라 응답을 보낼 수 없으므로 닫기만 함
+     */
+    private void rejectConnection(SocketChannel socket) {
+        metrics.connectionRejected();
+        try (socket) {
+            if (tlsContext != null) {
+                return;
+            }
+            MyResponse response = MyResponseFactory.create(HttpStatus.SERVICE_UNAVAILABLE);
+            response.setKeepAlive(false);
+            response.sendResponse(socket);
+        } catch (IOException e) {
+            log.debug("Failed to send 503: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void onClose(NioChannel channel) {
+        if (channel.getWebSocket() != null) {
+            channel.getWebSocket().closed();
+        }
+        metrics.connectionClosed();
+        admission.connectionClosed();
+    }
+
+    /**
+     * @implSpec poller 스레드에서 호출, 읽은 만큼 파싱하고 요청이 완성되면 워커로 넘김
+     * - 클라이언트별 요청 제한에 걸리면 워커에 넘기지 않고 poller 에서 바로 429 후 닫음
+     */
+    @Override
+    public void onRead(NioChannel channel, ByteBuffer buffer) {
+        metrics.bytesRead(buffer.remaining());
+        if (channel.getWebSocket() != null) {
+            onWebSocketRead(channel, channel.getWebSocket(), buffer);
+            return;
+        }
+        if (channel.getRequest() == null) {
+            channel.attach(channel.getParser() == null ? new MyRequestParser(config) : null, borrowRequest());
+            channel.getParser().reset();
+        }
+        if (!channel.getParser().isStarted()) {
+            channel.markParseStart(); // 파싱 시간은 요청의 첫 바이트부터
+        }
+        try {
+            if (!channel.getParser().parse(buffer, channel.getRequest())) {
+                return; // 버퍼는 모두 소비됨, 다음 읽기를 기다림
+            }
+            metrics.requestParsed(channel.getParseStart());
+        } catch (HttpParseException e) {
+            log.debug("Rejecting request: {}", e.getMessage());
+            channel.getKey().interestOps(0);
+            releaseRequest(channel);
+            sendErrorAndClose(channel, e.getStatus());
+            return;
+        }
+        channel.getKey().interestOps(0); // ✅ 워커가 처리하는 동안엔 읽지 않음
+        if (!admit(channel)) {
+            return;
+        }
+        if (buffer.hasRemaining()) {
+            channel.stash(buffer);
+        }
+        if (!executor.execute(() -> process(channel))) {
+            metrics.connectionRejected();
+            releaseRequest(channel);
+            sendErrorAndClose(channel, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * @implSpec 워커 스레드에서 요청 처리
+     * - 이미 도착해 있는 파이프라이닝된 요청은 같은 워커가 순서대로 이어서 처리
+     * - AsyncMyServlet 이 아직 완료하지 않았으면 워커를 반납하고, 완료되면 워커에서 응답을 이어서 씀
+     */
+    private void process(NioChannel channel) {
+        try {
+            while (true) {
+                MyRequest request = channel.getRequest();
+                boolean keepAlive = request.isKeepAlive() && channel.incrementServed() < config.getMaxKeepAliveRequests()
+                        && !admission.isDraining(); // 종료 중이면 이 응답을 끝으로 연결을 닫음
+                CompletableFuture<MyResponse> response =
+                        dispatcher.dispatchAsync(request, channel.getGatheringChannel(), keepAlive, config.getAsyncTimeout());
+                if (!response.isDone()) {
+                    // ✅ 워커는 여기서 반납, 응답은 완료 콜백이 다시 워커에 맡김
+                    response.whenComplete((completed, error) -> resume(channel, keepAlive, completed, error));
+                    return;
+                }
+                if (!respond(channel, keepAlive, response.join())) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to handle request: {}", e.getMessage());
+            releaseRequest(channel);
+            channel.close();
+        }
+    }
+
+    /**
+     * @implSpec 비동기 응답이 완료된 스레드(서블릿 쪽 스레드, 시간 초과면 타이머 스레드)를 잡지 않도록 쓰기는 워커에서 함
+     * - 시간 초과면 서블릿이 아직 요청 객체를 쓰고 있을 수 있으므로 503 후 연결을 닫고 요청 객체는 풀에 돌려주지 않음
+     * - 워커가 모두 바쁘면 완료한 스레드에서 응답을 쓰지 않고, 논블로킹으로 503 만 시도한 뒤 닫음
+     */
+    private void resume(NioChannel channel, boolean keepAlive, MyResponse response, Throwable error) {
+        if (error != null) {
+            log.debug("Async request timed out: {}", error.toString());
+            channel.detachRequest();
+            sendErrorAndClose(channel, HttpStatus.SERVICE_UNAVAILABLE); // 논블로킹이라 워커를 거치지 않음
+            return;
+        }
+        if (executor.execute(() -> {
+            if (respond(channel, keepAlive, response)) {
+                process(channel);
+            }
+        })) {
+            return;
+        }
+        metrics.connectionRejected();
+        boolean committed = response.isCommitted();
+        response.discard();
+        releaseRequest(channel); // 응답 객체도 요청 객체와 함께 재사용되므로 다 쓴 뒤에 돌려줌
+        if (committed) {
+            channel.close(); // 이미 보내기 시작한 응답 뒤에 503 을 붙일 수 없음
+            return;
+        }
+        sendErrorAndClose(channel, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * @implSpec 응답을 쓰고 다음 단계를 정함
+     * - keep-alive 라면 poller 에 돌려보내 다음 요청을 기다리고, 아니면 연결 종료
+     * @return 파이프라이닝된 다음 요청이 이미 완성돼 있어 바로 처리해야 하면 true
+     */
+    private boolean respond(NioChannel channel, boolean keepAlive, MyResponse response) {
+        if (response.getUpgrade() != null) {
+            upgrade(channel, response);
+            return false;
+        }
+        try {
+            if (admission.isDraining()) {
+                response.setKeepAlive(false); // 서블릿이 도는 사이 종료가 시작됨
+            }
+            long started = System.nanoTime();
+            response.sendResponse(channel.getGatheringChannel());
+            metrics.responseWritten(started, response.getBytesWritten());
+            keepAlive = Boolean.TRUE.equals(response.getKeepAlive()); // 스트리밍 응답이 연결 종료로 끝났을 수 있음
+            if (keepAlive && parsePipelined(channel)) {
+                return admit(channel);
+            }
+        } catch (HttpParseException e) {
+            keepAlive = false;
+            sendError(channel, e.getStatus());
+        } catch (IOException | RuntimeException e) {
+            keepAlive = false;
+            log.warn("Failed to handle request: {}", e.getMessage());
+        }
+        if (keepAlive) {
+            channel.getPoller().resumeRead(channel);
+        } else {
+            releaseRequest(channel);
+            channel.close();
+        }
+        return false;
+    }
+
+    /**
+     * @implSpec 101 을 보낸 뒤 연결을 WebSocket 세션으로 바꾸고 onOpen 을 이 워커에서 호출
+     * - 핸드셰이크 바로 뒤에 붙어 온 프레임이 있으면 이어서 처리, 없으면 poller 로 돌려보내 읽게 함
+     * - 종료 중이면 업그레이드하지 않고 503
+     */
+    private void upgrade(NioChannel channel, MyResponse response) {
+        WebSocketUpgrade upgrade = response.getUpgrade();
+        if (admission.isDraining()) {
+            releaseRequest(channel);
+            sendErrorAndClose(channel, HttpStatus.SERVICE_UNAVAILABLE);
+            return;
+        }
+        try {
+            long started = System.nanoTime();
+            response.sendResponse(channel.getGatheringChannel());
+            metrics.responseWritten(started, response.getBytesWritten());
+        } catch (IOException e) {
+            log.debug("Failed to send WebSocket handshake: {}", e.getMessage());
+            channel.close();
+            return;
+        } finally {
+            releaseRequest(channel); // 응답 객체도 요청 객체와 함께 재사용되므로 보낸 뒤에 돌려줌
+        }
+        NioWebSocketSession session = new NioWebSocketSession(channel, upgrade,
+                config.getWebSocketMaxMessageSize(), config.getWebSocketMaxPendingBytes(), metrics);
+        channel.upgrade(session);
+        session.open();
+        readFrames(channel, session);
+    }
+
+    /**
+     * @implSpec poller 스레드에서 호출, 메시지(또는 제어 프레임)가 완성되면 읽기를 멈추고 워커에서 핸들러 실행
+     * - 메시지가 덜 왔으면 디코더가 상태를 들고 다음 읽기를 기다림 (워커를 쓰지 않음)
+     */
+    private void onWebSocketRead(NioChannel channel, NioWebSocketSession session, ByteBuffer buffer) {
+        boolean complete;
+        try {
+            complete = session.decode(buffer);
+        } catch (WebSocketProtocolException e) {
+            channel.pauseRead();
+            session.fail(e);
+            return;
+        }
+        if (!complete) {
+            return;
+        }
+        channel.pauseRead(); // ✅ 한 세션의 콜백은 하나씩, 순서대로
+        if (buffer.hasRemaining()) {
+            channel.stash(buffer);
+        }
+        if (!executor.execute(() -> {
+            session.dispatch();
+            readFrames(channel, session);
+        })) {
+            session.close(WebSocketFrame.CLOSE_TRY_AGAIN_LATER, "");
+        }
+    }
+
+    /**
+     * @implSpec 워커 스레드에서 호출, 이미 받아 둔 바이트로 완성되는 메시지를 이어서 처리하고, 다 쓰면 poller 로 돌려보냄
+     * - close 를 주고받았으면 더 읽지 않음 (송신 큐를 비우면 poller 가 연결을 닫음)
+     */
+    private void readFrames(NioChannel channel, NioWebSocketSession session) {
+        while (session.isOpen()) {
+            ByteBuffer pending = channel.getPending();
+            if (pending == null) {
+                channel.getPoller().resumeRead(channel);
+                return;
+            }
+            boolean complete;
+            try {
+                complete = session.decode(pending);
+            } catch (WebSocketProtocolException e) {
+                channel.clearPending();
+                session.fail(e);
+                return;
+            }
+            if (!pending.hasRemaining()) {
+                channel.clearPending();
+            }
+            if (complete) {
+                session.dispatch();
+            }
+        }
+    }
+
+    /**
+     * @implSpec poller 에서도 부르므로 429 는 논블로킹으로 한 번만 시도 (요청을 몰아 보내면서 읽지 않는 클라이언트에 묶이지 않도록)
+     * @return 요청을 처리해도 되면 true, 클라이언트별 요청 제한에 걸렸으면 429 를 보내고 연결을 닫은 뒤 false
+     */
+    private boolean admit(NioChannel channel) {
+        if (admission.allowRequest(channel.getRemoteAddress())) {
+            return true;
+        }
+        metrics.requestRateLimited();
+        MyResponse response = MyResponseFactory.create(HttpStatus.TOO_MANY_REQUESTS,
+                admission.getPerAddressLimit().retryAfterSeconds());
+        response.setKeepAlive(false);
+        sendNonBlocking(channel, response);
+        releaseRequest(channel);
+        channel.close();
+        return false;
+    }
+
+    /**
+     * @return 보관해 둔 바이트로 다음 요청이 완성됐으면 true
+     */
+    private boolean parsePipelined(NioChannel channel) throws HttpParseException {
+        MyRequest request = channel.getRequest();
+        request.recycle();
+        channel.getParser().reset();
+        ByteBuffer pending = channel.getPending();
+        if (pending == null) {
+            releaseRequest(channel); // ✅ 유휴 상태에선 요청 객체를 풀에 돌려줌
+            return false;
+        }
+        channel.markParseStart();
+        boolean complete = channel.getParser().parse(pending, request);
+        if (!pending.hasRemaining()) {
+            channel.clearPending();
+        }
+        if (complete) {
+            metrics.requestParsed(channel.getParseStart());
+        }
+        return complete;
+    }
+
+    private MyRequest borrowRequest() {
+        MyRequest request = recycledRequests.poll();
+        return request != null ? request : new MyRequest();
+    }
+
+    private void releaseRequest(NioChannel channel) {
+        MyRequest request = channel.detachRequest();
+        if (request != null) {
+            request.recycle();
+            recycledRequests.offer(request);
+        }
+    }
+
+    /**
+     * @implSpec poller 에서도 부를 수 있도록 논블로킹 쓰기를 한 번만 시도하고 닫음
+     * - 소켓이 응답을 다 받지 못하면(클라이언트가 읽지 않음) 응답 없이 닫힘
+     */
+    private void sendErrorAndClose(NioChannel channel, HttpStatus status) {
+        MyResponse response = MyResponseFactory.create(status);
+        response.setKeepAlive(false);
+        sendNonBlocking(channel, response);
+        channel.close();
+    }
+
+    private void sendNonBlocking(NioChannel channel, MyResponse response) {
+        try {
+            long started = System.nanoTime();
+            response.sendResponse(channel.getOneShotChannel());
+            metrics.responseWritten(started, response.getBytesWritten());
+        } catch (IOException e) {
+            log.debug("Dropping {}: {}", response.getStatusCode(), e.getMessage());
+        }
+    }
+
+    private void sendError(NioChannel channel, HttpStatus status) {
+        MyResponse response = MyResponseFactory.create(status);
+        response.setKeepAlive(false);
+        send(channel, response);
+    }
+
+    private void send(NioChannel channel, MyResponse response) {
+        try {
+            long started = System.nanoTime();
+            response.sendResponse(channel.getGatheringChannel());
+            metrics.responseWritten(started, response.getBytesWritten());
+        } catch (IOException e) {
+            log.debug("Failed to send {}: {}", response.getStatusCode(), e.getMessage());
+        }
+    }
+
+    private static Thread startDaemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+}
@@ -0,0 +1,333 @@
+package org.mardi2020.tomcat.server.nio;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Selector 하나를 돌리면서 읽기 가능한 연결에서 데이터를 읽는 스레드
+ * - 읽은 데이터는 바로 파서에 넘기고, 요청이 완성되면 관심 이벤트를 끄고 워커로 넘김 (워커가 처리하는 동안엔 읽지 않음)
+ * - 다른 스레드에서 들어온 등록 요청은 큐에 쌓았다가 poller 스레드에서 처리 (Selector 는 스레드 안전하지 않음)
+ * - 1초마다 읽기 대기 중인 연결을 훑어서 keepAliveTimeout 이 지난 연결을 닫음
+ * - WebSocket 연결은 송신 큐도 여기서 논블로킹으로 씀, 다 못 쓰면 OP_WRITE 를 켜고 소켓이 비워지길 기다림
+ */
+@Slf4j
+public class NioPoller implements Runnable {
+
+    private static final long SELECT_TIMEOUT_MILLIS = 1000;
+
+    private final Selector selector;
+
+    private final Queue<Runnable> events = new ConcurrentLinkedQueue<>();
+
+    private final ReadHandler handler;
+
+    private final Limits limits;
+
+    private final ServerMetrics metrics;
+
+    /**
+     * HTTPS 면 연결마다 TLS 상태를 만듦, 평문이면 null
+     */
+    private final Supplier<TlsSession> tlsSessions;
+
+    /**
+     * poller 가 공유하는 읽기 버퍼, 연결마다 버퍼를 들고 있지 않아도 됨
+     */
+    private final ByteBuffer readBuffer;
+
+    private long nextTimeoutCheck;
+
+    private volatile boolean running = true;
+
+    private Thread thread;
+
+    /**
+     * 읽어온 데이터를 처리하는 쪽 (파싱 후 요청이 완성되면 워커 풀에 제출)
+     */
+    interface ReadHandler {
+        void onRead(NioChannel channel, ByteBuffer buffer);
+
+        /**
+         * @implSpec 연결이 닫힐 때 한 번 호출 (어느 스레드에서 닫든)
+         */
+        void onClose(NioChannel channel);
+    }
+
+    /**
+     * @param webSocketIdleTimeoutMillis 0 이면 유휴 WebSocket 연결을 닫지 않음
+     */
+    record Limits(int readBufferSize, long keepAliveTimeoutMillis, long writeTimeoutMillis, long webSocketIdleTimeoutMillis) {
+    }
+
+    NioPoller(ReadHandler handler, Limits limits, ServerMetrics metrics, Supplier<TlsSession> tlsSessions)
+            throws IOException {
+        this.selector = Selector.open();
+        this.handler = handler;
+        this.limits = limits;
+        this.metrics = metrics;
+        this.tlsSessions = tlsSessions;
+        this.readBuffer = ByteBuffer.allocateDirect(limits.readBufferSize());
+    }
+
+    void closed(NioChannel channel) {
+        handler.onClose(channel);
+    }
+
+    long getWriteTimeoutMillis() {
+        return limits.writeTimeoutMillis();
+    }
+
+    /**
+     * @implSpec acceptor 스레드에서 호출, 실제 등록은 poller 스레드에서 수행
+     * @param accepted accept 가 반환된 시각, poller 가 등록할 때까지가 accept 단계 지연 시간
+     */
+    void register(SocketChannel socket, long accepted) {
+        NioChannel channel = new NioChannel(socket, this, tlsSessions == null ? null : tlsSessions.get());
+        addEvent(() -> {
+            metrics.connectionOpened(accepted);
+            try {
+                channel.setKey(socket.register(selector, SelectionKey.OP_READ, channel));
+            } catch (IOException e) {
+                channel.close();
+            }
+        });
+    }
+
+    /**
+     * @implSpec 워커가 keep-alive 응답을 끝낸 뒤 호출, 다음 요청을 기다리도록 다시 OP_READ 를 켬
+     * - TLS 로 이미 받아 둔 레코드가 남아 있으면 소켓 이벤트를 기다리지 않고 바로 처리
+     */
+    void resumeRead(NioChannel channel) {
+        channel.touch();
+        addEvent(() -> {
+            try {
+                SelectionKey key = channel.getKey();
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ); // WebSocket 이면 OP_WRITE 가 켜져 있을 수 있음
+            } catch (CancelledKeyException e) {
+                channel.close();
+                return;
+            }
+            if (channel.hasBufferedInput()) {
+                read(channel);
+            }
+        });
+    }
+
+    /**
+     * @implSpec WebSocket 송신 큐에 프레임이 들어왔을 때 (어느 스레드든) 호출, 쓰기는 poller 스레드에서
+     */
+    void flush(NioChannel channel) {
+        addEvent(() -> write(channel));
+    }
+
+    /**
+     * @implSpec poller 스레드를 데몬으로 띄움, stop 이 이 스레드가 끝나길 기다림
+     */
+    void start(String name) {
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void addEvent(Runnable event) {
+        events.offer(event);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            poll();
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void poll() {
+        while (running) {
+            try {
+                selector.select(SELECT_TIMEOUT_MILLIS);
+                runEvents();
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    NioChannel channel = (NioChannel) key.attachment();
+                    if (key.isValid() && key.isWritable()) {
+                        write(channel);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(channel);
+                    }
+                }
+                closeTimedOut();
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (IOException e) {
+                log.error("Poller error", e);
+            }
+        }
+    }
+
+    /**
+     * @implSpec 루프가 끝난 뒤 poller 스레드에서 남은 연결과 Selector 를 닫음 (Selector 를 다른 스레드에서 훑지 않도록)
+     * - 아직 처리하지 못한 등록 요청도 먼저 실행해서 그 연결까지 닫음
+     */
+    private void closeAll() {
+        try {
+            runEvents();
+        } catch (RuntimeException e) {
+            log.debug("Failed to run pending poller events: {}", e.getMessage());
+        }
+        for (SelectionKey key : new ArrayList<>(selector.keys())) {
+            ((NioChannel) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.debug("Failed to close selector: {}", e.getMessage());
+        }
+    }
+
+    private void runEvents() {
+        Runnable event;
+        while ((event = events.poll()) != null) {
+            event.run();
+        }
+    }
+
+    private void read(NioChannel channel) {
+        try {
+            do {
+                ByteBuffer data = channel.read(readBuffer);
+                if (data == null) {
+                    channel.close();
+                    return;
+                }
+                channel.touch();
+                if (data.hasRemaining()) {
+                    handler.onRead(channel, data);
+                }
+                channel.readConsumed();
+            } while (channel.hasBufferedInput() && isReading(channel));
+        } catch (IOException e) {
+            log.debug("Read failed: {}", e.getMessage());
+            channel.close();
+        }
+    }
+
+    /**
+     * @implSpec 송신 큐를 소켓이 받는 만큼 쓰고, 남았으면 OP_WRITE 를 켜 두고 다 비우면 끔
+     */
+    private void write(NioChannel channel) {
+        if (channel.isClosed()) {
+            return;
+        }
+        try {
+            boolean drained = channel.getWebSocket().flush();
+            SelectionKey key = channel.getKey();
+            if (key.isValid()) {
+                key.interestOps(drained ? key.interestOps() & ~SelectionKey.OP_WRITE : key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            log.debug("Write failed: {}", e.getMessage());
+            channel.close();
+        } catch (CancelledKeyException e) {
+            channel.close();
+        }
+    }
+
+    /**
+     * @return 워커에 넘기지 않고 계속 읽는 중이면 true
+     */
+    private static boolean isReading(NioChannel channel) {
+        try {
+            return (channel.getKey().interestOps() & SelectionKey.OP_READ) != 0;
+        } catch (CancelledKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @implSpec 워커가 잡고 있지 않은(OP_READ 대기 중인) 연결 중 유휴 시간이 지난 연결을 닫음
+     * - WebSocket 은 webSocketIdleTimeout 을 쓰고, close 를 보낸 뒤 송신 큐를 비우지 못한 채 writeTimeout 이 지나도 닫음
+     */
+    private void closeTimedOut() {
+        long now = System.currentTimeMillis();
+        if (now < nextTimeoutCheck) {
+            return;
+        }
+        nextTimeoutCheck = now + SELECT_TIMEOUT_MILLIS;
+        for (SelectionKey key : selector.keys()) {
+            try {
+                NioChannel channel = (NioChannel) key.attachment();
+                long timeout = timeout(channel);
+                if (timeout > 0 && (key.interestOps() & (SelectionKey.OP_READ | SelectionKey.OP_WRITE)) != 0
+                        && now - channel.getLastAccess() > timeout) {
+                    channel.close();
+                }
+            } catch (CancelledKeyException ignored) {
+                // 이미 닫힌 연결
+            }
+        }
+    }
+
+    private long timeout(NioChannel channel) {
+        NioWebSocketSession webSocket = channel.getWebSocket();
+        if (webSocket == null) {
+            return limits.keepAliveTimeoutMillis();
+        }
+        return webSocket.isClosing() ? limits.writeTimeoutMillis() : limits.webSocketIdleTimeoutMillis();
+    }
+
+    /**
+     * @implSpec 종료 중에 호출, 다음 요청을 기다리기만 하는 keep-alive 연결을 poller 스레드에서 닫음
+     * - 요청을 받는 중이거나 워커가 잡고 있는 연결은 그대로 둠 (응답 후 스스로 닫힘)
+     * - WebSocket 연결은 1001(going away) close 를 보내고 큐를 비운 뒤 닫음
+     */
+    void closeIdle() {
+        addEvent(() -> {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    NioChannel channel = (NioChannel) key.attachment();
+                    if (channel.getWebSocket() != null) {
+                        channel.getWebSocket().goingAway();
+                    } else if ((key.interestOps() & SelectionKey.OP_READ) != 0 && channel.isIdle()) {
+                        channel.close();
+                    }
+                } catch (CancelledKeyException ignored) {
+                    // 이미 닫힌 연결
+                }
+            }
+        });
+    }
+
+    /**
+     * @implSpec 루프를 멈추고 poller 스레드가 연결과 Selector 를 다 닫을 때까지 기다림
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+        if (thread == null || thread == Thread.currentThread()) {
+            return;
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package org.mardi2020.tomcat.server.nio;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.metrics.ServerMetrics;
+import org.mardi2020.tomcat.server.websocket.PreparedFrame;
+import org.mardi2020.tomcat.server.websocket.WebSocketFrame;
+import org.mardi2020.tomcat.server.websocket.WebSocketFrameDecoder;
+import org.mardi2020.tomcat.server.websocket.WebSocketProtocolException;
+import org.mardi2020.tomcat.server.websocket.WebSocketSession;
+import org.mardi2020.tomcat.server.websocket.WebSocketUpgrade;
+import org.mardi2020.tomcat.servlet.MyWebSocketHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.mardi2020.tomcat.server.websocket.WebSocketFrame.*;
+
+/**
+ * NIO 연결 위의 WebSocket 세션
+ * - 읽기: poller 가 프레임을 디코딩하다 메시지(또는 제어 프레임)가 완성되면 읽기를 멈추고 워커에서 핸들러를 호출, 끝나면 다시 읽음
+ * - 쓰기: 어느 스레드든 송신 큐에 넣기만 하고, 실제 쓰기는 poller 가 논블로킹으로 함 (다 못 쓰면 OP_WRITE 를 켜고 기다림)
+ *   → 느린 클라이언트 때문에 브로드캐스트하는 스레드나 워커가 막히지 않음
+ * - 닫기: close 프레임을 큐에 넣고 큐를 다 보낸 뒤 연결을 닫음, onClose 는 어떤 경로로 닫히든 한 번만
+ */
+@Slf4j
+final class NioWebSocketSession implements WebSocketSession {
+
+    private static final AtomicLong IDS = new AtomicLong();
+
+    /**
+     * 한 번의 gathering write 에 담을 최대 프레임 수
+     */
+    private static final int MAX_GATHER = 64;
+
+    private final String id = Long.toString(IDS.incrementAndGet());
+
+    private final NioChannel channel;
+
+    private final WebSocketUpgrade upgrade;
+
+    private final MyWebSocketHandler handler;
+
+    private final WebSocketFrameDecoder decoder;
+
+    private final long maxPendingBytes;
+
+    private final ServerMetrics metrics;
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    private final ReentrantLock outboundLock = new ReentrantLock();
+
+    /**
+     * 보낼 프레임 (position 0 부터 시작하는 버퍼), outboundLock 으로 보호
+     */
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+
+    private long pendingBytes;
+
+    /**
+     * poller 에 쓰기를 맡겨 두었으면 true (큐가 빌 때까지 다시 맡기지 않음)
+     */
+    private boolean flushScheduled;
+
+    /**
+     * close 프레임을 큐에 넣었으면 true, 이후 보내기는 모두 false
+     */
+    private volatile boolean closeSent;
+
+    /**
+     * poller 스레드만 씀
+     */
+    private final ByteBuffer[] batch = new ByteBuffer[MAX_GATHER];
+
+    private final AtomicBoolean closeReported = new AtomicBoolean();
+
+    NioWebSocketSession(NioChannel channel, WebSocketUpgrade upgrade, int maxMessageSize, long maxPendingBytes,
+                        ServerMetrics metrics) {
+        this.channel = channel;
+        this.upgrade = upgrade;
+        this.handler = upgrade.handler();
+        this.decoder = new WebSocketFrameDecoder(maxMessageSize);
+        this.maxPendingBytes = maxPendingBytes;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getPath() {
+        return upgrade.path();
+    }
+
+    @Override
+    public String getQueryString() {
+        return upgrade.queryString();
+    }
+
+    @Override
+    public String getPathVariable(String name) {
+        return upgrade.pathVariables().get(name);
+    }
+
+    @Override
+    public String getSubprotocol() {
+        return upgrade.subprotocol();
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closeSent && !channel.isClosed();
+    }
+
+    @Override
+    public boolean sendText(String message) {
+        return sendMessage(WebSocketFrame.encode(OPCODE_TEXT, message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public boolean sendBinary(byte[] message) {
+        return sendMessage(WebSocketFrame.encode(OPCODE_BINARY, message));
+    }
+
+    @Override
+    public boolean send(PreparedFrame frame) {
+        return sendMessage(frame.buffer());
+    }
+
+    @Override
+    public boolean ping(byte[] payload) {
+        if (payload.length > MAX_CONTROL_PAYLOAD) {
+            throw new IllegalArgumentException("Ping payload exceeds " + MAX_CONTROL_PAYLOAD + " bytes");
+        }
+        return enqueue(WebSocketFrame.encode(OPCODE_PING, payload), false);
+    }
+
+    @Override
+    public void close(int code, String reason) {
+        reportClose(code, reason); // ✅ 큐를 비우자마자 연결이 닫혀 closed() 가 1006 으로 먼저 알리지 않도록
+        enqueue(WebSocketFrame.close(code, reason), true);
+    }
+
+    @Override
+    public String toString() {
+        return "WebSocketSession[" + id + " " + upgrade.path() + "]";
+    }
+
+    // ===== 커넥터 / poller 가 쓰는 부분 =====
+
+    /**
+     * @implSpec 연결을 넘겨받은 워커에서 호출
+     */
+    void open() {
+        metrics.webSocketOpened();
+        try {
+            handler.onOpen(this);
+        } catch (RuntimeException e) {
+            handlerFailed(e);
+        }
+    }
+
+    /**
+     * @return 메시지 또는 제어 프레임이 완성됐으면 true (dispatch 로 처리), 남은 바이트는 buffer 에 그대로
+     */
+    boolean decode(ByteBuffer buffer) throws WebSocketProtocolException {
+        return decoder.decode(buffer);
+    }
+
+    /**
+     * @implSpec 워커 스레드에서 완성된 메시지를 핸들러에 넘김, ping 과 close 는 여기서 답장
+     */
+    void dispatch() {
+        try {
+            switch (decoder.getOpcode()) {
+                case OPCODE_TEXT -> {
+                    metrics.webSocketMessageReceived();
+                    handler.onText(this, decoder.getText());
+                }
+                case OPCODE_BINARY -> {
+                    metrics.webSocketMessageReceived();
+                    handler.onBinary(this, decoder.getPayload());
+                }
+                case OPCODE_PING -> enqueue(WebSocketFrame.encode(OPCODE_PONG, decoder.getPayload()), false);
+                case OPCODE_PONG -> handler.onPong(this, decoder.getPayload());
+                case OPCODE_CLOSE -> {
+                    int code = decoder.getCloseCode();
+                    String reason = decoder.getCloseReason();
+                    reportClose(code, reason);
+                    // 받은 코드를 그대로 돌려줌 (코드 없이 왔으면 코드 없이)
+                    enqueue(WebSocketFrame.close(code == CLOSE_NO_STATUS ? -1 : code, ""), true);
+                }
+                default -> throw new IllegalStateException("No decoded frame");
+            }
+        } catch (WebSocketProtocolException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            handlerFailed(e);
+        }
+    }
+
+    /**
+     * @implSpec 클라이언트가 규칙을 어겼으면 해당 코드로 닫음
+     */
+    void fail(WebSocketProtocolException e) {
+        log.debug("Closing {}: {}", this, e.getMessage());
+        close(e.getCloseCode(), "");
+    }
+
+    /**
+     * @implSpec 종료 중에 호출, 1001 로 닫음 (여러 번 불러도 한 번만)
+     */
+    void goingAway() {
+        close(CLOSE_GOING_AWAY, "Server shutting down");
+    }
+
+    /**
+     * @implSpec 연결이 닫힐 때 커넥터가 호출, close 를 주고받지 못했으면 1006 으로 알림
+     */
+    void closed() {
+        reportClose(CLOSE_ABNORMAL, "");
+        metrics.webSocketClosed();
+    }
+
+    /**
+     * @return close 를 보낸 뒤 큐를 비우는 중이면 true (poller 가 쓰기 시간 초과로 정리)
+     */
+    boolean isClosing() {
+        return closeSent;
+    }
+
+    /**
+     * @implSpec poller 스레드에서 호출, 큐에 쌓인 프레임을 gathering write 로 논블로킹으로 씀
+     * - close 프레임까지 다 보냈으면 연결을 닫음
+     * @return 큐를 다 비웠으면 true, 소켓이 더 받지 못해 남았으면 false (OP_WRITE 를 기다려야 함)
+     */
+    boolean flush() throws IOException {
+        while (true) {
+            int count = 0;
+            outboundLock.lock();
+            try {
+                for (ByteBuffer frame : outbound) {
+                    if (count == batch.length) {
+                        break;
+                    }
+                    batch[count++] = frame;
+                }
+            } finally {
+                outboundLock.unlock();
+            }
+            boolean written = channel.writeNonBlocking(batch, count);
+            channel.touch();
+            boolean finished;
+            boolean close = false;
+            outboundLock.lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    batch[i] = null;
+                }
+                while (!outbound.isEmpty() && !outbound.peekFirst().hasRemaining()) {
+                    pendingBytes -= outbound.pollFirst().limit();
+                }
+                finished = written && outbound.isEmpty();
+                if (finished) {
+                    flushScheduled = false;
+                    close = closeSent;
+                }
+            } finally {
+                outboundLock.unlock();
+            }
+            if (finished) {
+                if (close) {
+                    channel.close();
+                }
+                return true;
+            }
+            if (!written) {
+                return false;
+            }
+        }
+    }
+
+    private boolean sendMessage(ByteBuffer frame) {
+        if (!enqueue(frame, false)) {
+            return false;
+        }
+        metrics.webSocketMessageSent();
+        return true;
+    }
+
+    /**
+     * @implSpec 큐에 넣고, poller 가 쓰고 있지 않으면 쓰기를 맡김
+     * - 큐가 상한을 넘으면 close 프레임도 보낼 수 없으므로 바로 연결을 끊음
+     * @param closing close 프레임이면 true, 이후의 보내기는 모두 거절
+     */
+    private boolean enqueue(ByteBuffer frame, boolean closing) {
+        boolean schedule = false;
+        boolean overflow;
+        outboundLock.lock();
+        try {
+            if (closeSent || channel.isClosed()) {
+                return false;
+            }
+            overflow = pendingBytes + frame.remaining() > maxPendingBytes;
+            if (overflow) {
+                closeSent = true;
+            } else {
+                outbound.add(frame);
+                pendingBytes += frame.remaining();
+                closeSent = closing;
+                schedule = !flushScheduled;
+                flushScheduled = true;
+            }
+        } finally {
+            outboundLock.unlock();
+        }
+        if (overflow) {
+            log.debug("Closing {}: client is too slow ({} bytes queued)", this, pendingBytes);
+            channel.close();
+            return false;
+        }
+        if (schedule) {
+            channel.getPoller().flush(channel);
+        }
+        return true;
+    }
+
+    private void handlerFailed(RuntimeException error) {
+        log.warn("WebSocket handler failed on {}: {}", this, error.toString());
+        try {
+            handler.onError(this, error);
+        } catch (RuntimeException e) {
+            log.debug("onError failed: {}", e.toString());
+        }
+        close(CLOSE_INTERNAL_ERROR, "");
+    }
+
+    private void reportClose(int code, String reason) {
+        if (!closeReported.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            handler.onClose(this, code, reason);
+        } catch (RuntimeException e) {
+            log.warn("WebSocket onClose failed on {}: {}", this, e.toString());
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.mardi2020.tomcat.server.nio;
+
+import org.mardi2020.tomcat.server.buffer.BufferPool;
+import org.mardi2020.tomcat.server.buffer.PooledBuffer;
+import org.mardi2020.tomcat.server.metrics.ServerMetrics;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NIO 연결 하나의 TLS 상태 (SSLEngine 래퍼)
+ * - 읽기(poller 스레드): 소켓 → netIn → unwrap → appIn, 핸드셰이크도 poller 에서 진행 (위임 작업은 그 자리에서 실행)
+ * - 쓰기(워커 스레드): 평문 → wrap → netOut → 블로킹 쓰기, 쓰기 락으로 poller 의 핸드셰이크 쓰기와 겹치지 않게 함
+ * - WebSocket 송신 큐는 poller 가 논블로킹으로 씀 (소켓이 다 받지 못한 레코드는 다음 쓰기까지 들고 있음)
+ * - 버퍼는 데이터가 오가는 동안에만 풀에서 빌림 (💡 유휴 keep-alive 연결은 TLS 버퍼를 들고 있지 않음)
+ */
+final class TlsSession {
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SSLEngine engine;
+
+    private final BufferPool buffers;
+
+    private final int packetSize;
+
+    private final int applicationSize;
+
+    private final ServerMetrics metrics;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final long handshakeStart = System.nanoTime();
+
+    private final long handshakeStartMillis = System.currentTimeMillis();
+
+    /**
+     * 아직 복호화하지 않은 바이트 (쓰기 모드), 읽기 경로에서만 씀
+     */
+    private PooledBuffer netIn;
+
+    /**
+     * 복호화한 평문, read 가 읽기 모드로 넘기고 consumed 에서 반납
+     */
+    private PooledBuffer appIn;
+
+    /**
+     * appIn 이 가득 차서 netIn 에 복호화하지 못한 레코드가 남아 있음 (소켓이 다시 읽기 가능해지길 기다리면 안 됨)
+     */
+    private boolean inboundBuffered;
+
+    /**
+     * 논블로킹 쓰기에서 소켓이 다 받지 못한 암호문 (읽기 모드), writeNonBlocking 만 씀
+     */
+    private PooledBuffer netOutPending;
+
+    private volatile boolean handshakeDone;
+
+    private volatile String applicationProtocol;
+
+    TlsSession(SSLEngine engine, BufferPool buffers, int packetSize, int applicationSize, ServerMetrics metrics) {
+        this.engine = engine;
+        this.buffers = buffers;
+        this.packetSize = packetSize;
+        this.applicationSize = applicationSize;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return ALPN 으로 정한 프로토콜, 핸드셰이크 전이거나 ALPN 을 쓰지 않았으면 null
+     */
+    String getApplicationProtocol() {
+        return applicationProtocol;
+    }
+
+    boolean isHandshakeDone() {
+        return handshakeDone;
+    }
+
+    boolean hasBufferedInput() {
+        return inboundBuffered;
+    }
+
+    /**
+     * @implSpec poller 스레드에서 호출, 소켓에서 읽은 만큼 복호화 (핸드셰이크 메시지는 여기서 답장까지 씀)
+     * @return 복호화한 평문 (읽기 모드, 핸드셰이크 중이면 비어 있음), 연결이 끝났으면(EOF, close_notify) null
+     */
+    ByteBuffer read(NioChannel channel) throws IOException {
+        if (netIn == null) {
+            netIn = buffers.acquire(packetSize);
+        }
+        ByteBuffer in = netIn.buffer();
+        if (channel.getSocket().read(in) < 0) {
+            return null;
+        }
+        if (appIn == null) {
+            appIn = buffers.acquire(applicationSize);
+        }
+        ByteBuffer out = appIn.buffer();
+        in.flip();
+        boolean closed;
+        try {
+            closed = unwrap(channel, in, out);
+        } finally {
+            in.compact();
+            out.flip();
+        }
+        if (in.position() == 0) {
+            releaseNetIn();
+        }
+        if (closed && !out.hasRemaining()) {
+            return null;
+        }
+        return out;
+    }
+
+    /**
+     * @implSpec read 가 넘긴 평문을 다 쓴 뒤 호출 (남은 바이트는 커넥터가 복사해 둠)
+     */
+    synchronized void consumed() {
+        if (appIn != null) {
+            appIn.release();
+            appIn = null;
+        }
+    }
+
+    /**
+     * @return close_notify 를 받았으면 true
+     */
+    private boolean unwrap(NioChannel channel, ByteBuffer in, ByteBuffer out) throws IOException {
+        inboundBuffered = false;
+        while (true) {
+            HandshakeStatus status = engine.getHandshakeStatus();
+            if (status == HandshakeStatus.NEED_TASK) {
+                runDelegatedTasks();
+                continue;
+            }
+            if (status == HandshakeStatus.NEED_WRAP) {
+                writeHandshake(channel);
+                continue;
+            }
+            if (!in.hasRemaining()) {
+                return false;
+            }
+            SSLEngineResult result = engine.unwrap(in, out);
+            if (result.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+                handshakeFinished();
+            }
+            switch (result.getStatus()) {
+                case CLOSED:
+                    return true;
+                case BUFFER_UNDERFLOW:
+                    return false; // 레코드가 덜 왔음
+                case BUFFER_OVERFLOW:
+                    inboundBuffered = true; // 지금 평문부터 넘기고 나머지는 다음 read 에서
+                    return false;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @implSpec 핸드셰이크 메시지를 netOut 하나에 모아 한 번에 씀 (TLS 1.3 서버 flight 가 여러 번 wrap 되어도 write 는 한 번)
+     * - poller 스레드가 블로킹 쓰기를 하지만 핸드셰이크 메시지는 송신 버퍼보다 작아 기다리는 일은 거의 없음
+     */
+    private void writeHandshake(NioChannel channel) throws IOException {
+        writeLock.lock();
+        PooledBuffer pooled = buffers.acquire(packetSize);
+        ByteBuffer netOut = pooled.buffer();
+        try {
+            while (engine.getHandshakeStatus() == HandshakeStatus.NEED_WRAP) {
+                SSLEngineResult result = engine.wrap(EMPTY, netOut);
+                if (result.getHandshakeStatus() == HandshakeStatus.FINISHED) {
+                    handshakeFinished();
+                }
+                if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW && netOut.position() > 0) {
+                    flush(channel, netOut);
+                } else if (result.bytesProduced() == 0) {
+                    throw new SSLException("TLS handshake stalled: " + result);
+                }
+            }
+            flush(channel, netOut);
+        } finally {
+            pooled.release();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @implSpec 워커 스레드에서 호출, 평문을 레코드 단위로 암호화해 블로킹으로 씀
+     * - 여러 버퍼(헤더, 바디)를 한 번에 넘기면 엔진이 한 레코드에 함께 담음
+     */
+    void write(NioChannel channel, ByteBuffer[] srcs) throws IOException {
+        writeLock.lock();
+        PooledBuffer pooled = buffers.acquire(packetSize);
+        ByteBuffer netOut = pooled.buffer();
+        try {
+            while (NioChannel.hasRemaining(srcs)) {
+                SSLEngineResult result = engine.wrap(srcs, netOut);
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new SSLException("TLS connection is closed");
+                }
+                if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                    runDelegatedTasks();
+                }
+                if (result.bytesProduced() == 0 && result.bytesConsumed() == 0) {
+                    throw new SSLException("TLS renegotiation is not supported: " + result);
+                }
+                flush(channel, netOut);
+            }
+        } finally {
+            pooled.release();
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @implSpec poller 스레드에서 호출하는 논블로킹 쓰기 (WebSocket 송신 큐)
+     * - 암호화한 레코드를 소켓이 다 받지 못하면 netOutPending 에 두고 반환, 다음 호출에서 그것부터 씀
+     * @return 평문을 모두 암호화해서 다 썼으면 true
+     */
+    boolean writeNonBlocking(SocketChannel socket, ByteBuffer[] srcs, int length) throws IOException {
+        writeLock.lock();
+        try {
+            while (true) {
+                if (netOutPending != null) {
+                    ByteBuffer netOut = netOutPending.buffer();
+                    socket.write(netOut);
+                    if (netOut.hasRemaining()) {
+                        return false;
+                    }
+                    netOutPending.release();
+                    netOutPending = null;
+                }
+                if (!hasRemaining(srcs, length)) {
+                    return true;
+                }
+                netOutPending = buffers.acquire(packetSize);
+                SSLEngineResult result = engine.wrap(srcs, 0, length, netOutPending.buffer());
+                netOutPending.buffer().flip();
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                    throw new SSLException("TLS connection is closed");
+                }
+                if (result.bytesProduced() == 0 && result.bytesConsumed() == 0) {
+                    throw new SSLException("TLS renegotiation is not supported: " + result);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @implSpec TLS 에선 sendfile 로 보낼 수 없으므로 파일을 평문 버퍼로 읽어 암호화해서 씀
+     */
+    void transfer(NioChannel channel, FileChannel file, long position, long count) throws IOException {
+        PooledBuffer pooled = buffers.acquire(applicationSize);
+        ByteBuffer chunk = pooled.buffer();
+        ByteBuffer[] srcs = {chunk};
+        try {
+            long end = position + count;
+            while (position < end) {
+                chunk.clear().limit((int) Math.min(chunk.capacity(), end - position));
+                int read = file.read(chunk, position);
+                if (read < 0) {
+                    throw new EOFException("File is shorter than " + end + " bytes");
+                }
+                position += read;
+                chunk.flip();
+                write(channel, srcs);
+            }
+        } finally {
+            pooled.release();
+        }
+    }
+
+    /**
+     * @implSpec 연결을 닫기 직전에 호출, close_notify 를 한 번만 시도하고(기다리지 않음) 읽기 버퍼를 반납
+     * - 워커가 쓰는 중이면 close_notify 는 생략 (쓰기 버퍼는 그 워커가 반납)
+     */
+    void close(SocketChannel socket) {
+        engine.closeOutbound();
+        if (handshakeDone && writeLock.tryLock()) {
+            PooledBuffer pooled = buffers.acquire(packetSize);
+            try {
+                if (netOutPending == null) { // 보내다 만 레코드 뒤에 끼워 넣을 수는 없음
+                    ByteBuffer netOut = pooled.buffer();
+                    engine.wrap(EMPTY, netOut);
+                    socket.write(netOut.flip());
+                }
+            } catch (IOException ignored) {
+                // 이미 끊긴 연결
+            } finally {
+                pooled.release();
+                writeLock.unlock();
+            }
+        }
+        consumed();
+        releaseNetIn();
+        releaseNetOutPending();
+    }
+
+    /**
+     * @implSpec poller 가 쓰는 중이면 그 쓰기가 끝난 뒤 반납 (닫는 스레드가 기다리는 건 논블로킹 쓰기 한 번뿐)
+     */
+    private void releaseNetOutPending() {
+        writeLock.lock();
+        try {
+            if (netOutPending != null) {
+                netOutPending.release();
+                netOutPending = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private synchronized void releaseNetIn() {
+        if (netIn != null) {
+            netIn.release();
+            netIn = null;
+        }
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] srcs, int length) {
+        for (int i = 0; i < length; i++) {
+            if (srcs[i].hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flush(NioChannel channel, ByteBuffer netOut) throws IOException {
+        netOut.flip();
+        channel.writeRaw(netOut);
+        netOut.clear();
+    }
+
+    private void runDelegatedTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * @implSpec 재개한 세션은 처음 만든 시각이 이번 핸드셰이크보다 앞섬
+     */
+    private void handshakeFinished() {
+        if (handshakeDone) {
+            return;
+        }
+        handshakeDone = true;
+        String protocol = engine.getApplicationProtocol();
+        applicationProtocol = protocol == null || protocol.isEmpty() ? null : protocol;
+        metrics.tlsHandshakeCompleted(handshakeStart,
+                engine.getSession().getCreationTime() < handshakeStartMillis);
+    }
+}
@@ -0,0 +1,97 @@
+package org.mardi2020.tomcat.server.ratelimit;
+
+import lombok.Getter;
+import org.mardi2020.tomcat.server.ServerConfig;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 커넥터 앞단에서 연결/요청을 받을지 정함 (서블릿을 실행하기 전에 거절)
+ * - 연결: 동시에 열린 연결 수가 maxConnections 에 닿으면 accept 직후 503 으로 닫음
+ * - 요청: 원격 주소(IP)마다 토큰 버킷, 비면 429 로 닫음 (한 클라이언트가 워커를 독차지하지 못하게)
+ * - 종료 중(draining): 새 연결은 받지 않고, 처리 중인 요청은 응답에 Connection: close 를 붙여 끝내게 함
+ */
+public class AdmissionControl {
+
+    private final int maxConnections;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * 주소별 요청 제한이 꺼져 있으면 null
+     */
+    @Getter
+    private final RateLimit perAddressLimit;
+
+    private final BoundedExpiringMap<InetAddress, TokenBucket> buckets;
+
+    private volatile boolean draining;
+
+    public AdmissionControl(int maxConnections, RateLimit perAddressLimit, int maxAddresses, long idleTimeoutMillis) {
+        this.maxConnections = maxConnections;
+        this.perAddressLimit = perAddressLimit;
+        this.buckets = perAddressLimit == null ? null : new BoundedExpiringMap<>(
+                address -> new TokenBucket(perAddressLimit), maxAddresses, TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis));
+    }
+
+    public static AdmissionControl from(ServerConfig config) {
+        RateLimit perAddress = config.getRateLimitPerAddress() > 0
+                ? new RateLimit(config.getRateLimitPerAddress(), config.getRateLimitBurst())
+                : null;
+        return new AdmissionControl(config.getMaxConnections(), perAddress,
+                config.getRateLimitMaxAddresses(), config.getRateLimitIdleTimeout());
+    }
+
+    /**
+     * @return 연결을 받아도 되면 true (닫을 때 connectionClosed 를 꼭 호출), 가득 찼으면 false
+     */
+    public boolean tryOpenConnection() {
+        if (draining) {
+            return false;
+        }
+        while (true) {
+            int current = connections.get();
+            if (current >= maxConnections) {
+                return false;
+            }
+            if (connections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void connectionClosed() {
+        connections.decrementAndGet();
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * @implSpec 서버 종료를 시작, 되돌릴 수 없음
+     */
+    public void startDraining() {
+        draining = true;
+    }
+
+    /**
+     * @return 종료 중이면 true, 커넥터는 응답 후 keep-alive 연결을 닫아야 함
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * @return 이 주소의 요청을 처리해도 되면 true, 토큰이 없으면 false (429)
+     */
+    public boolean allowRequest(InetAddress address) {
+        if (buckets == null || address == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        return buckets.get(address, now).tryAcquire(now);
+    }
+}
@@ -0,0 +1,134 @@
+package org.mardi2020.tomcat.server.ratelimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * 크기 제한과 유휴 만료가 있는 동시성 맵 (원격 주소별 요청 제한 상태 보관용)
+ * - 조회/추가는 ConcurrentHashMap 만 쓰고 별도 락이 없음, 마지막 접근 시각은 항목의 volatile 필드에 씀
+ * - 정리는 한 스레드만 맡고(CAS 플래그), 다른 스레드는 기다리지 않고 그냥 지나감
+ * - 가득 차면 항목 몇 개만 골라 보고 그중 가장 오래 안 쓴 항목을 지움 (Redis 의 근사 LRU 처럼, 추가 비용이 맵 크기와 무관)
+ * - 만료 항목 전체 정리는 ttl 마다 한 번만
+ * - 여러 스레드가 동시에 추가하면 잠깐 maxSize 를 조금 넘을 수 있음
+ */
+public final class BoundedExpiringMap<K, V> {
+
+    /**
+     * 가득 찼을 때 지울 항목을 고르려고 살펴보는 항목 수
+     */
+    private static final int EVICTION_SAMPLES = 16;
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+    private final Function<K, V> factory;
+
+    private final int maxSize;
+
+    private final long ttlNanos;
+
+    private final AtomicBoolean cleaning = new AtomicBoolean();
+
+    private volatile long nextSweep;
+
+    /**
+     * 표본을 맵 앞쪽에서만 뽑지 않도록 이전 정리가 멈춘 곳부터 이어서 봄 (cleaning 을 잡은 스레드만 사용)
+     */
+    private Iterator<Map.Entry<K, Entry<V>>> cursor;
+
+    /**
+     * @param factory  없는 키를 처음 볼 때 값을 만드는 함수
+     * @param ttlNanos 이 시간 동안 접근이 없으면 만료
+     */
+    public BoundedExpiringMap(Function<K, V> factory, int maxSize, long ttlNanos) {
+        this.factory = factory;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+        this.nextSweep = System.nanoTime() + ttlNanos;
+    }
+
+    /**
+     * @param now System.nanoTime()
+     * @return 키의 값, 없거나 만료됐으면 새로 만든 값
+     */
+    public V get(K key, long now) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || now - entry.lastAccess > ttlNanos) {
+            entry = insert(key, entry, now);
+        }
+        entry.lastAccess = now;
+        if (now - nextSweep > 0) {
+            cleanUp(now, false);
+        }
+        return entry.value;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Entry<V> insert(K key, Entry<V> expired, long now) {
+        if (expired == null && entries.size() >= maxSize) {
+            cleanUp(now, true);
+        }
+        Entry<V> created = new Entry<>(factory.apply(key), now);
+        if (expired != null) {
+            return entries.replace(key, expired, created) ? created : entries.getOrDefault(key, created);
+        }
+        Entry<V> existing = entries.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    private void cleanUp(long now, boolean full) {
+        if (!cleaning.compareAndSet(false, true)) {
+            return; // 다른 스레드가 정리 중
+        }
+        try {
+            if (full) {
+                evictSampled(now);
+            } else {
+                nextSweep = now + ttlNanos;
+                entries.values().removeIf(entry -> now - entry.lastAccess > ttlNanos);
+            }
+        } finally {
+            cleaning.set(false);
+        }
+    }
+
+    /**
+     * @implSpec 표본 중 만료된 항목이 있으면 그것을, 없으면 가장 오래 안 쓴 항목을 지움
+     */
+    private void evictSampled(long now) {
+        Map.Entry<K, Entry<V>> oldest = null;
+        for (int i = 0; i < EVICTION_SAMPLES; i++) {
+            if (cursor == null || !cursor.hasNext()) {
+                cursor = entries.entrySet().iterator();
+                if (!cursor.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<K, Entry<V>> sample = cursor.next();
+            if (oldest == null || sample.getValue().lastAccess - oldest.getValue().lastAccess < 0) {
+                oldest = sample;
+            }
+            if (now - oldest.getValue().lastAccess > ttlNanos) {
+                break;
+            }
+        }
+        entries.remove(oldest.getKey(), oldest.getValue());
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private volatile long lastAccess;
+
+        Entry(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
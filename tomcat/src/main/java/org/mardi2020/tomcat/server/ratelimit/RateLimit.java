@@ -0,0 +1,22 @@
+package org.mardi2020.tomcat.server.ratelimit;
+
+/**
+ * 토큰 버킷 설정
+ * @param permitsPerSecond 초당 채워지는 토큰 수 (지속 가능한 요청률)
+ * @param burst            버킷 크기, 쉬었다가 한 번에 몰아서 보낼 수 있는 요청 수
+ */
+public record RateLimit(double permitsPerSecond, int burst) {
+
+    public RateLimit {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: " + permitsPerSecond + "/s, burst " + burst);
+        }
+    }
+
+    /**
+     * @return 거절할 때 Retry-After 로 알려줄 초 (토큰 하나가 채워지는 시간, 최소 1초)
+     */
+    public long retryAfterSeconds() {
+        return Math.max(1, (long) Math.ceil(1 / permitsPerSecond));
+    }
+}
@@ -0,0 +1,52 @@
+package org.mardi2020.tomcat.server.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 락 없는 토큰 버킷 (GCRA, generic cell rate algorithm)
+ * - 남은 토큰 수와 마지막 충전 시각 대신 "다음 토큰이 비는 이론상 시각(TAT)" long 하나만 CAS 로 갱신
+ * - TAT 가 지금보다 (burst - 1) 간격 넘게 앞서 있으면 버킷이 빈 것이므로 거절
+ * - 타이머로 충전하지 않아도 시간이 지나면 저절로 토큰이 찬 것과 같아짐
+ */
+public final class TokenBucket {
+
+    private static final long UNUSED = Long.MIN_VALUE;
+
+    private final RateLimit limit;
+
+    private final long emissionInterval;
+
+    private final long tolerance;
+
+    /**
+     * 아직 한 번도 안 썼으면 UNUSED (버킷이 가득 찬 상태)
+     */
+    private final AtomicLong theoreticalArrival = new AtomicLong(UNUSED);
+
+    public TokenBucket(RateLimit limit) {
+        this.limit = limit;
+        this.emissionInterval = Math.max(1, (long) (1_000_000_000L / limit.permitsPerSecond()));
+        this.tolerance = emissionInterval * (limit.burst() - 1);
+    }
+
+    public RateLimit getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param now System.nanoTime()
+     * @return 토큰을 하나 썼으면 true, 버킷이 비어 있으면 false
+     */
+    public boolean tryAcquire(long now) {
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = tat != UNUSED && tat - now > 0 ? tat : now; // nanoTime 은 넘칠 수 있어 차이로 비교
+            if (base - now > tolerance) {
+                return false;
+            }
+            if (theoreticalArrival.compareAndSet(tat, base + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+}
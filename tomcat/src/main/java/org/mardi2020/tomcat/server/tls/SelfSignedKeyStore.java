@@ -0,0 +1,58 @@
+package org.mardi2020.tomcat.server.tls;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 로컬 테스트용 자체 서명 인증서 키스토어 (운영에는 CA 가 서명한 인증서를 쓸 것)
+ * - JDK 에 들어 있는 keytool 로 만듦, 직접 만들려면:
+ *   keytool -genkeypair -alias tomcat -keyalg EC -groupname secp256r1 -dname CN=localhost
+ *           -ext SAN=dns:localhost,ip:127.0.0.1 -validity 365 -storetype PKCS12 -keystore localhost.p12 -storepass changeit
+ * - 클라이언트는 curl -k 또는 이 키스토어를 trust store 로 써서 붙으면 됨
+ */
+public final class SelfSignedKeyStore {
+
+    public static final String ALIAS = "tomcat";
+
+    private static final long KEYTOOL_TIMEOUT_SECONDS = 30;
+
+    private SelfSignedKeyStore() {
+    }
+
+    /**
+     * @implSpec 파일이 없을 때만 새로 만듦 (EC P-256, 1년), 이미 있으면 그대로 씀
+     * @return keyStore / keyStorePassword 를 채운 설정
+     */
+    public static TlsConfig create(Path keyStore, String password, String hostname) throws IOException {
+        if (!Files.exists(keyStore)) {
+            generate(keyStore, password, hostname);
+        }
+        return TlsConfig.builder().keyStore(keyStore).keyStorePassword(password).build();
+    }
+
+    private static void generate(Path keyStore, String password, String hostname) throws IOException {
+        Path keytool = Path.of(System.getProperty("java.home"), "bin", "keytool");
+        Process process = new ProcessBuilder(List.of(keytool.toString(), "-genkeypair",
+                "-alias", ALIAS, "-keyalg", "EC", "-groupname", "secp256r1",
+                "-dname", "CN=" + hostname, "-ext", "SAN=dns:" + hostname + ",ip:127.0.0.1",
+                "-validity", "365", "-storetype", "PKCS12",
+                "-keystore", keyStore.toString(), "-storepass", password, "-keypass", password))
+                .redirectErrorStream(true)
+                .start();
+        try {
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            if (!process.waitFor(KEYTOOL_TIMEOUT_SECONDS, TimeUnit.SECONDS) || process.exitValue() != 0) {
+                throw new IOException("keytool failed: " + output.trim());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running keytool", e);
+        } finally {
+            process.destroy();
+        }
+    }
+}
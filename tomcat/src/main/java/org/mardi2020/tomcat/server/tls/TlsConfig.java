@@ -0,0 +1,63 @@
+package org.mardi2020.tomcat.server.tls;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import javax.net.ssl.SSLEngine;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * HTTPS 설정 (톰캣 SSLHostConfig 의 일부), ServerConfig.tls 에 넣으면 NIO 커넥터가 TLS 로 받음
+ * - 로컬 테스트용 키스토어는 SelfSignedKeyStore 로 만들 수 있음
+ */
+@Getter
+@Builder
+public class TlsConfig {
+
+    /**
+     * 서버 인증서와 개인 키가 든 키스토어 파일
+     */
+    private final Path keyStore;
+
+    private final String keyStorePassword;
+
+    @Builder.Default
+    private final String keyStoreType = "PKCS12";
+
+    /**
+     * 개인 키 비밀번호, null 이면 keyStorePassword 와 같다고 봄
+     */
+    private final String keyPassword;
+
+    @Builder.Default
+    private final List<String> protocols = List.of("TLSv1.3", "TLSv1.2");
+
+    /**
+     * null 이면 JDK 기본 cipher suite
+     */
+    private final List<String> cipherSuites;
+
+    /**
+     * ALPN 으로 광고할 프로토콜 (선호 순서)
+     */
+    @Builder.Default
+    private final List<String> applicationProtocols = List.of("http/1.1");
+
+    /**
+     * ALPN 훅: (엔진, 클라이언트가 제안한 프로토콜) → 고른 프로토콜
+     * - null 이면 applicationProtocols 순서대로 클라이언트도 제안한 첫 프로토콜, 겹치는 게 없으면 ALPN 없이 진행
+     * - 빈 문자열을 반환하면 ALPN 없이 진행, null 을 반환하면 핸드셰이크 실패 (no_application_protocol)
+     */
+    private final BiFunction<SSLEngine, List<String>, String> applicationProtocolSelector;
+
+    /**
+     * 세션 재개(resumption)용 서버 세션 캐시 크기와 유지 시간 (초)
+     */
+    @Builder.Default
+    private final int sessionCacheSize = 20_000;
+
+    @Builder.Default
+    private final int sessionTimeout = 24 * 60 * 60;
+}
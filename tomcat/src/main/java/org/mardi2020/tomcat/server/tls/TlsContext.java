@@ -0,0 +1,109 @@
+package org.mardi2020.tomcat.server.tls;
+
+import lombok.Getter;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * TlsConfig 로 만든 SSLContext, 연결마다 서버 모드 SSLEngine 을 만들어 줌
+ * - 세션 캐시는 SSLContext 에 하나라서 모든 연결(poller)이 공유, 같은 클라이언트가 다시 붙으면 전체 핸드셰이크를 건너뜀
+ */
+public final class TlsContext {
+
+    private final SSLContext sslContext;
+
+    private final TlsConfig config;
+
+    private final BiFunction<SSLEngine, List<String>, String> protocolSelector;
+
+    /**
+     * 암호화된 레코드 하나, 복호화된 레코드 하나가 들어가는 버퍼 크기
+     */
+    @Getter
+    private final int packetBufferSize;
+
+    @Getter
+    private final int applicationBufferSize;
+
+    private TlsContext(SSLContext sslContext, TlsConfig config) {
+        this.sslContext = sslContext;
+        this.config = config;
+        this.protocolSelector = config.getApplicationProtocolSelector() != null
+                ? config.getApplicationProtocolSelector()
+                : (engine, offered) -> preferred(config.getApplicationProtocols(), offered);
+        SSLEngine probe = sslContext.createSSLEngine();
+        this.packetBufferSize = probe.getSession().getPacketBufferSize();
+        this.applicationBufferSize = probe.getSession().getApplicationBufferSize();
+    }
+
+    /**
+     * @implSpec 키스토어를 읽어 SSLContext 를 만들고 세션 캐시 크기/유지 시간을 적용
+     * @throws IOException 키스토어를 읽지 못했거나 키/인증서가 잘못됨
+     */
+    public static TlsContext create(TlsConfig config) throws IOException {
+        if (config.getKeyStore() == null) {
+            throw new IllegalArgumentException("TLS key store is not configured");
+        }
+        char[] storePassword = password(config.getKeyStorePassword());
+        char[] keyPassword = config.getKeyPassword() != null ? password(config.getKeyPassword()) : storePassword;
+        try (InputStream in = Files.newInputStream(config.getKeyStore())) {
+            KeyStore keyStore = KeyStore.getInstance(config.getKeyStoreType());
+            keyStore.load(in, storePassword);
+            KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            keyManagers.init(keyStore, keyPassword);
+
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(keyManagers.getKeyManagers(), null, null);
+            SSLSessionContext sessions = sslContext.getServerSessionContext();
+            sessions.setSessionCacheSize(config.getSessionCacheSize());
+            sessions.setSessionTimeout(config.getSessionTimeout());
+            return new TlsContext(sslContext, config);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Failed to load TLS key store " + config.getKeyStore() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return 프로토콜/cipher suite/ALPN 을 적용한 서버 모드 엔진 (핸드셰이크는 첫 unwrap 에서 시작)
+     */
+    public SSLEngine createEngine() {
+        SSLEngine engine = sslContext.createSSLEngine();
+        engine.setUseClientMode(false);
+        SSLParameters parameters = engine.getSSLParameters();
+        parameters.setProtocols(config.getProtocols().toArray(String[]::new));
+        if (config.getCipherSuites() != null) {
+            parameters.setCipherSuites(config.getCipherSuites().toArray(String[]::new));
+        }
+        parameters.setApplicationProtocols(config.getApplicationProtocols().toArray(String[]::new));
+        engine.setSSLParameters(parameters);
+        engine.setHandshakeApplicationProtocolSelector(protocolSelector);
+        return engine;
+    }
+
+    /**
+     * @return 서버 선호 순서로 클라이언트도 제안한 첫 프로토콜, 없으면 "" (ALPN 없이 진행)
+     */
+    static String preferred(List<String> supported, List<String> offered) {
+        for (String protocol : supported) {
+            if (offered.contains(protocol)) {
+                return protocol;
+            }
+        }
+        return "";
+    }
+
+    private static char[] password(String password) {
+        return password == null ? new char[0] : password.toCharArray();
+    }
+}
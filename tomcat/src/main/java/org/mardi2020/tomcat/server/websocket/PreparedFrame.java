@@ -0,0 +1,41 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 한 번 인코딩해 두고 여러 세션에 그대로 보내는 프레임 (브로드캐스트용)
+ * - 다이렉트 버퍼에 한 번만 인코딩하고 세션마다 duplicate 로 위치만 따로 가짐
+ *   (💡 세션 수만큼 인코딩하지 않고, 소켓에 쓸 때도 힙 → 네이티브 복사가 없음)
+ * - 만든 뒤에는 바뀌지 않으므로 여러 스레드에서 함께 써도 됨
+ */
+public final class PreparedFrame {
+
+    private final ByteBuffer frame;
+
+    private PreparedFrame(int opcode, byte[] payload) {
+        this.frame = WebSocketFrame.encode(opcode, payload, true).asReadOnlyBuffer();
+    }
+
+    public static PreparedFrame text(String message) {
+        return new PreparedFrame(WebSocketFrame.OPCODE_TEXT, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PreparedFrame binary(byte[] message) {
+        return new PreparedFrame(WebSocketFrame.OPCODE_BINARY, message);
+    }
+
+    /**
+     * @return 이 프레임을 처음부터 읽는 새 뷰 (바이트는 공유)
+     */
+    public ByteBuffer buffer() {
+        return frame.duplicate();
+    }
+
+    /**
+     * @return 헤더를 포함한 프레임 크기
+     */
+    public int size() {
+        return frame.limit();
+    }
+}
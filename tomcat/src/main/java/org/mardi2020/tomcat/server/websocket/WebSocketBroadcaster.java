@@ -0,0 +1,50 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 여러 세션에 같은 메시지를 보내는 그룹 (채팅방, 구독 채널 등)
+ * - 메시지는 한 번만 인코딩(PreparedFrame)하고 모든 세션이 같은 바이트를 공유
+ * - 보내기는 세션 송신 큐에 넣기만 하므로 느린 클라이언트가 있어도 다른 세션이나 보내는 스레드가 기다리지 않음
+ * - 닫힌 세션은 보낼 때 알아서 빠짐 (onClose 에서 remove 하지 않아도 됨)
+ */
+public class WebSocketBroadcaster {
+
+    private final Set<WebSocketSession> sessions = ConcurrentHashMap.newKeySet();
+
+    public void add(WebSocketSession session) {
+        sessions.add(session);
+    }
+
+    public void remove(WebSocketSession session) {
+        sessions.remove(session);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public int broadcastText(String message) {
+        return broadcast(PreparedFrame.text(message));
+    }
+
+    public int broadcastBinary(byte[] message) {
+        return broadcast(PreparedFrame.binary(message));
+    }
+
+    /**
+     * @return 송신 큐에 넣은 세션 수
+     */
+    public int broadcast(PreparedFrame frame) {
+        int sent = 0;
+        for (WebSocketSession session : sessions) {
+            if (session.send(frame)) {
+                sent++;
+            } else if (!session.isOpen()) {
+                sessions.remove(session);
+            }
+        }
+        return sent;
+    }
+}
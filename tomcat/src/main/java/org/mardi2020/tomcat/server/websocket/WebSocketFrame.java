@@ -0,0 +1,108 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 6455 프레임 상수와 서버 → 클라이언트 프레임 인코딩
+ * - 서버가 보내는 프레임은 마스킹하지 않음 (마스킹된 클라이언트 프레임은 WebSocketFrameDecoder 가 읽음)
+ * - 메시지는 조각내지 않고 FIN 프레임 하나로 보냄
+ */
+public final class WebSocketFrame {
+
+    public static final int OPCODE_CONTINUATION = 0x0;
+
+    public static final int OPCODE_TEXT = 0x1;
+
+    public static final int OPCODE_BINARY = 0x2;
+
+    public static final int OPCODE_CLOSE = 0x8;
+
+    public static final int OPCODE_PING = 0x9;
+
+    public static final int OPCODE_PONG = 0xA;
+
+    public static final int CLOSE_NORMAL = 1000;
+
+    public static final int CLOSE_GOING_AWAY = 1001;
+
+    public static final int CLOSE_PROTOCOL_ERROR = 1002;
+
+    /**
+     * 상대가 코드 없이 닫음 (프레임에 담아 보내지 않는 코드)
+     */
+    public static final int CLOSE_NO_STATUS = 1005;
+
+    /**
+     * close 프레임 없이 연결이 끊김 (프레임에 담아 보내지 않는 코드)
+     */
+    public static final int CLOSE_ABNORMAL = 1006;
+
+    public static final int CLOSE_INVALID_PAYLOAD = 1007;
+
+    public static final int CLOSE_TOO_BIG = 1009;
+
+    public static final int CLOSE_INTERNAL_ERROR = 1011;
+
+    public static final int CLOSE_TRY_AGAIN_LATER = 1013;
+
+    /**
+     * 제어 프레임(close, ping, pong) payload 최대 크기
+     */
+    public static final int MAX_CONTROL_PAYLOAD = 125;
+
+    private WebSocketFrame() {
+    }
+
+    /**
+     * @return 헤더 + payload 를 담은 읽기 모드 버퍼 (position 0)
+     */
+    public static ByteBuffer encode(int opcode, byte[] payload, boolean direct) {
+        int length = payload.length;
+        int headerLength = length < 126 ? 2 : length <= 0xFFFF ? 4 : 10;
+        ByteBuffer frame = direct ? ByteBuffer.allocateDirect(headerLength + length) : ByteBuffer.allocate(headerLength + length);
+        frame.put((byte) (0x80 | opcode)); // FIN
+        if (length < 126) {
+            frame.put((byte) length);
+        } else if (length <= 0xFFFF) {
+            frame.put((byte) 126);
+            frame.putShort((short) length);
+        } else {
+            frame.put((byte) 127);
+            frame.putLong(length);
+        }
+        frame.put(payload);
+        return frame.flip();
+    }
+
+    public static ByteBuffer encode(int opcode, byte[] payload) {
+        return encode(opcode, payload, false);
+    }
+
+    /**
+     * @param code 음수면 코드 없는 close 프레임 (받은 close 에 코드가 없었을 때의 답장)
+     * @implSpec reason 은 payload 한도(125)에 맞게 UTF-8 바이트 기준으로 자름
+     */
+    public static ByteBuffer close(int code, String reason) {
+        if (code < 0) {
+            return encode(OPCODE_CLOSE, new byte[0]);
+        }
+        byte[] text = reason == null ? new byte[0] : reason.getBytes(StandardCharsets.UTF_8);
+        int textLength = Math.min(text.length, MAX_CONTROL_PAYLOAD - 2);
+        while (textLength > 0 && textLength < text.length && (text[textLength] & 0xC0) == 0x80) {
+            textLength--; // 글자 중간에서 자르지 않음
+        }
+        byte[] payload = new byte[2 + textLength];
+        payload[0] = (byte) (code >> 8);
+        payload[1] = (byte) code;
+        System.arraycopy(text, 0, payload, 2, textLength);
+        return encode(OPCODE_CLOSE, payload);
+    }
+
+    /**
+     * @return close 프레임에 담아 보낼 수 있는 코드면 true (1005, 1006 처럼 내부에서만 쓰는 코드는 false)
+     */
+    public static boolean isValidCloseCode(int code) {
+        return (code >= 1000 && code <= 1003) || (code >= 1007 && code <= 1014) || (code >= 3000 && code <= 4999);
+    }
+}
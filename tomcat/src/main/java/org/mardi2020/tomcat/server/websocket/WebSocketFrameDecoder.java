@@ -0,0 +1,276 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.mardi2020.tomcat.server.websocket.WebSocketFrame.*;
+
+/**
+ * 클라이언트 → 서버 프레임을 읽는 점진적 디코더 (연결마다 하나, 한 번에 한 스레드만 씀)
+ * - 프레임이 여러 번에 나뉘어 와도 헤더/payload 를 읽던 자리부터 이어서 읽음
+ * - 마스킹은 payload 를 메시지 버퍼로 복사하면서 벗김
+ * - 조각난 메시지(continuation)는 FIN 까지 모아서 한 번에 넘기고, 그 사이에 끼어든 제어 프레임(ping 등)은 바로 넘김
+ */
+public final class WebSocketFrameDecoder {
+
+    private static final int MAX_HEADER_LENGTH = 14;
+
+    private static final int INITIAL_MESSAGE_SIZE = 1024;
+
+    /**
+     * 메시지를 넘긴 뒤 이보다 큰 메시지 버퍼는 버림 (큰 메시지 한 번 때문에 유휴 세션이 메모리를 계속 잡지 않도록)
+     */
+    private static final int MAX_RETAINED_MESSAGE_SIZE = 64 * 1024;
+
+    private final int maxMessageSize;
+
+    private final byte[] header = new byte[MAX_HEADER_LENGTH];
+
+    private int headerLength;
+
+    private int headerNeeded = 2;
+
+    /**
+     * 지금 읽는 프레임 (헤더를 다 읽은 뒤 payload 를 읽는 중이면 inPayload)
+     */
+    private boolean inPayload;
+
+    private int opcode;
+
+    private boolean fin;
+
+    private final byte[] mask = new byte[4];
+
+    private int maskIndex;
+
+    private long payloadRemaining;
+
+    /**
+     * 모으는 중인 데이터 메시지의 opcode (text/binary), 없으면 -1
+     */
+    private int messageOpcode = -1;
+
+    private byte[] message = new byte[INITIAL_MESSAGE_SIZE];
+
+    private int messageLength;
+
+    private final byte[] control = new byte[MAX_CONTROL_PAYLOAD];
+
+    private int controlLength;
+
+    /**
+     * decode 가 true 를 반환했을 때 완성된 메시지/제어 프레임의 opcode, 없으면 -1
+     */
+    private int readyOpcode = -1;
+
+    private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    public WebSocketFrameDecoder(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * @implSpec 메시지 하나(또는 제어 프레임 하나)가 완성될 때까지만 읽고 멈춤, 나머지 바이트는 buffer 에 그대로 남김
+     * - 이전에 완성된 결과는 다음 decode 호출에서 버려짐
+     * @return 완성됐으면 true (getOpcode / getPayload / getText 로 꺼냄), 바이트가 더 필요하면 false
+     */
+    public boolean decode(ByteBuffer buffer) throws WebSocketProtocolException {
+        if (readyOpcode >= 0) {
+            reset();
+        }
+        while (true) {
+            if (!inPayload) {
+                if (!readHeader(buffer)) {
+                    return false;
+                }
+                inPayload = true;
+            }
+            if (payloadRemaining > 0) {
+                readPayload(buffer);
+                if (payloadRemaining > 0) {
+                    return false;
+                }
+            }
+            inPayload = false;
+            if (opcode >= OPCODE_CLOSE) {
+                readyOpcode = opcode;
+                return true;
+            }
+            if (fin) {
+                readyOpcode = messageOpcode;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return 완성된 메시지의 opcode (OPCODE_TEXT, OPCODE_BINARY, OPCODE_CLOSE, OPCODE_PING, OPCODE_PONG)
+     */
+    public int getOpcode() {
+        return readyOpcode;
+    }
+
+    /**
+     * @return 완성된 payload 의 복사본
+     */
+    public byte[] getPayload() {
+        return readyOpcode >= OPCODE_CLOSE
+                ? Arrays.copyOf(control, controlLength)
+                : Arrays.copyOf(message, messageLength);
+    }
+
+    /**
+     * @throws WebSocketProtocolException UTF-8 이 아니면 1007
+     */
+    public String getText() throws WebSocketProtocolException {
+        return decodeUtf8(message, 0, messageLength);
+    }
+
+    /**
+     * @implSpec close 프레임의 reason (payload 의 코드 뒤)
+     */
+    public String getCloseReason() throws WebSocketProtocolException {
+        return controlLength <= 2 ? "" : decodeUtf8(control, 2, controlLength - 2);
+    }
+
+    /**
+     * @return close 프레임의 코드, 코드가 없으면 CLOSE_NO_STATUS
+     * @throws WebSocketProtocolException payload 가 1바이트이거나 보낼 수 없는 코드
+     */
+    public int getCloseCode() throws WebSocketProtocolException {
+        if (controlLength == 0) {
+            return CLOSE_NO_STATUS;
+        }
+        int code = controlLength < 2 ? -1 : ((control[0] & 0xFF) << 8) | (control[1] & 0xFF);
+        if (!isValidCloseCode(code)) {
+            throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "Invalid close code: " + code);
+        }
+        return code;
+    }
+
+    private boolean readHeader(ByteBuffer buffer) throws WebSocketProtocolException {
+        while (headerLength < headerNeeded) {
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+            header[headerLength++] = buffer.get();
+            if (headerLength == 2) {
+                validateStart();
+            }
+        }
+        long length = header[1] & 0x7F;
+        if (length == 126) {
+            length = ((header[2] & 0xFF) << 8) | (header[3] & 0xFF);
+        } else if (length == 127) {
+            length = ByteBuffer.wrap(header, 2, 8).getLong();
+            if (length < 0) {
+                throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "Invalid frame length");
+            }
+        }
+        System.arraycopy(header, headerNeeded - 4, mask, 0, 4);
+        headerLength = 0;
+        headerNeeded = 2;
+        maskIndex = 0;
+        payloadRemaining = length;
+        if (opcode >= OPCODE_CLOSE) {
+            controlLength = 0;
+            return true;
+        }
+        if (messageLength + length > maxMessageSize) {
+            throw new WebSocketProtocolException(CLOSE_TOO_BIG, "Message exceeds " + maxMessageSize + " bytes");
+        }
+        if (opcode != OPCODE_CONTINUATION) {
+            messageOpcode = opcode;
+        }
+        ensureMessageCapacity(messageLength + (int) length);
+        return true;
+    }
+
+    /**
+     * @implSpec 앞 두 바이트로 알 수 있는 규칙을 먼저 검사하고 남은 헤더 길이를 정함
+     */
+    private void validateStart() throws WebSocketProtocolException {
+        int first = header[0] & 0xFF;
+        int second = header[1] & 0xFF;
+        fin = (first & 0x80) != 0;
+        opcode = first & 0x0F;
+        if ((first & 0x70) != 0) {
+            throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "RSV bits set without extension");
+        }
+        if ((second & 0x80) == 0) {
+            throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "Client frame is not masked");
+        }
+        int length = second & 0x7F;
+        if (opcode >= OPCODE_CLOSE) {
+            if (opcode > OPCODE_PONG) {
+                throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "Unknown opcode: " + opcode);
+            }
+            if (!fin || length > MAX_CONTROL_PAYLOAD) {
+                throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "Control frame is fragmented or too long");
+            }
+        } else if (opcode > OPCODE_BINARY) {
+            throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "Unknown opcode: " + opcode);
+        } else if (opcode == OPCODE_CONTINUATION && messageOpcode < 0) {
+            throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "Continuation frame without a message");
+        } else if (opcode != OPCODE_CONTINUATION && messageOpcode >= 0) {
+            throw new WebSocketProtocolException(CLOSE_PROTOCOL_ERROR, "New message before the previous one finished");
+        }
+        headerNeeded = 2 + (length == 126 ? 2 : length == 127 ? 8 : 0) + 4;
+    }
+
+    private void readPayload(ByteBuffer buffer) {
+        int count = (int) Math.min(payloadRemaining, buffer.remaining());
+        byte[] target;
+        int offset;
+        if (opcode >= OPCODE_CLOSE) {
+            target = control;
+            offset = controlLength;
+            controlLength += count;
+        } else {
+            target = message;
+            offset = messageLength;
+            messageLength += count;
+        }
+        buffer.get(target, offset, count);
+        for (int i = offset; i < offset + count; i++) {
+            target[i] ^= mask[maskIndex++ & 3];
+        }
+        payloadRemaining -= count;
+    }
+
+    /**
+     * @implSpec 넘긴 결과를 비움, 제어 프레임이었으면 모으던 데이터 메시지는 그대로 둠
+     */
+    private void reset() {
+        if (readyOpcode < OPCODE_CLOSE) {
+            messageOpcode = -1;
+            messageLength = 0;
+            if (message.length > MAX_RETAINED_MESSAGE_SIZE) {
+                message = new byte[INITIAL_MESSAGE_SIZE];
+            }
+        }
+        readyOpcode = -1;
+    }
+
+    private void ensureMessageCapacity(int capacity) {
+        if (message.length < capacity) {
+            message = Arrays.copyOf(message, Math.min(Math.max(capacity, message.length * 2), maxMessageSize));
+        }
+    }
+
+    private String decodeUtf8(byte[] bytes, int offset, int length) throws WebSocketProtocolException {
+        try {
+            CharBuffer chars = utf8.reset().decode(ByteBuffer.wrap(bytes, offset, length));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            throw new WebSocketProtocolException(CLOSE_INVALID_PAYLOAD, "Text is not valid UTF-8");
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * 클라이언트 프레임이 RFC 6455 를 어겼을 때 발생, 연결을 닫을 때 보낼 close 코드를 함께 가지고 있음
+ */
+@Getter
+public class WebSocketProtocolException extends IOException {
+
+    private final int closeCode;
+
+    public WebSocketProtocolException(int closeCode, String message) {
+        super(message);
+        this.closeCode = closeCode;
+    }
+}
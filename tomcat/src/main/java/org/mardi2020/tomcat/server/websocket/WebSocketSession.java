@@ -0,0 +1,63 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import java.util.Map;
+
+/**
+ * 업그레이드된 WebSocket 연결 하나, 핸들러 콜백에서도 애플리케이션의 다른 스레드에서도 보낼 수 있음
+ * - 보내기는 블로킹하지 않음: 세션의 송신 큐에 넣으면 커넥터가 소켓이 받을 수 있을 때 내보냄
+ * - 송신 큐가 ServerConfig.webSocketMaxPendingBytes 를 넘으면(받는 쪽이 너무 느림) 연결을 끊고 false
+ */
+public interface WebSocketSession {
+
+    String getId();
+
+    /**
+     * @return 업그레이드 요청의 경로 (쿼리 제외)
+     */
+    String getPath();
+
+    String getQueryString();
+
+    /**
+     * @return 라우트 패턴의 경로 변수 ("/rooms/{room}" 의 room), 없으면 null
+     */
+    String getPathVariable(String name);
+
+    /**
+     * @return 핸드셰이크에서 고른 하위 프로토콜 (Sec-WebSocket-Protocol), 없으면 null
+     */
+    String getSubprotocol();
+
+    /**
+     * @return 세션에 붙여 둘 애플리케이션 상태 (여러 스레드에서 써도 됨)
+     */
+    Map<String, Object> getAttributes();
+
+    /**
+     * @return close 를 주고받기 전이면 true
+     */
+    boolean isOpen();
+
+    boolean sendText(String message);
+
+    boolean sendBinary(byte[] message);
+
+    /**
+     * @implSpec 미리 인코딩한 프레임을 복사 없이 보냄 (브로드캐스트)
+     */
+    boolean send(PreparedFrame frame);
+
+    /**
+     * @param payload 125 바이트 이하
+     */
+    boolean ping(byte[] payload);
+
+    /**
+     * @implSpec close 프레임을 보내고, 큐에 남은 프레임까지 다 보낸 뒤 연결을 닫음 (여러 번 불러도 한 번만)
+     */
+    void close(int code, String reason);
+
+    default void close() {
+        close(WebSocketFrame.CLOSE_NORMAL, "");
+    }
+}
@@ -0,0 +1,12 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import org.mardi2020.tomcat.servlet.MyWebSocketHandler;
+
+import java.util.Map;
+
+/**
+ * 101 응답에 실어 커넥터에 넘기는 업그레이드 정보 (요청 객체는 재사용되므로 세션에 필요한 값만 복사해 둠)
+ */
+public record WebSocketUpgrade(MyWebSocketHandler handler, String path, String queryString,
+                               Map<String, String> pathVariables, String subprotocol) {
+}
@@ -0,0 +1,135 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyResponse;
+import org.mardi2020.tomcat.servlet.MyServlet;
+import org.mardi2020.tomcat.servlet.MyWebSocketHandler;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebSocket 업그레이드 요청을 검사하고 101 응답을 만드는 서블릿 (RFC 6455 4.2)
+ * - 연결을 실제로 넘기는 건 커넥터가 101 을 보낸 뒤에 함 (MyResponse.getUpgrade)
+ * - 필터는 일반 요청처럼 먼저 실행되므로 인증 같은 검사는 필터에서 하면 됨
+ */
+public class WebSocketUpgradeServlet implements MyServlet {
+
+    public static final String SEC_WEBSOCKET_KEY = "Sec-WebSocket-Key";
+
+    public static final String SEC_WEBSOCKET_ACCEPT = "Sec-WebSocket-Accept";
+
+    public static final String SEC_WEBSOCKET_VERSION = "Sec-WebSocket-Version";
+
+    public static final String SEC_WEBSOCKET_PROTOCOL = "Sec-WebSocket-Protocol";
+
+    private static final String VERSION = "13";
+
+    private static final String ACCEPT_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final MyWebSocketHandler handler;
+
+    public WebSocketUpgradeServlet(MyWebSocketHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void service(MyRequest request, MyResponse response) {
+        if (!request.hasHeaderToken(HttpHeaders.UPGRADE, "websocket")
+                || !request.hasHeaderToken(HttpHeaders.CONNECTION, "Upgrade")) {
+            reject(response, HttpStatus.UPGRADE_REQUIRED);
+            response.addHeader(HttpHeaders.UPGRADE, "websocket");
+            return;
+        }
+        if (!VERSION.equals(request.getHeader(SEC_WEBSOCKET_VERSION))) {
+            reject(response, HttpStatus.UPGRADE_REQUIRED);
+            response.addHeader(SEC_WEBSOCKET_VERSION, VERSION);
+            return;
+        }
+        String key = request.getHeader(SEC_WEBSOCKET_KEY);
+        if (!isValidKey(key)) {
+            reject(response, HttpStatus.BAD_REQUEST);
+            return;
+        }
+        if (!handler.acceptOrigin(request.getHeader(HttpHeaders.ORIGIN))) {
+            reject(response, HttpStatus.FORBIDDEN);
+            return;
+        }
+        String subprotocol = handler.selectSubprotocol(offeredSubprotocols(request.getHeader(SEC_WEBSOCKET_PROTOCOL)));
+
+        response.setStatus(HttpStatus.SWITCHING_PROTOCOLS.value());
+        response.getHeaders().remove(HttpHeaders.CONTENT_TYPE);
+        response.addHeader(HttpHeaders.UPGRADE, "websocket");
+        response.addHeader(HttpHeaders.CONNECTION, "Upgrade");
+        response.addHeader(SEC_WEBSOCKET_ACCEPT, acceptKey(key));
+        if (subprotocol != null) {
+            response.addHeader(SEC_WEBSOCKET_PROTOCOL, subprotocol);
+        }
+        response.setUpgrade(new WebSocketUpgrade(handler, request.getPath(), request.getQueryString(),
+                pathVariables(request), subprotocol));
+    }
+
+    /**
+     * @return base64(SHA-1(key + GUID)), 클라이언트가 핸드셰이크를 이해하는 서버인지 확인하는 값
+     */
+    public static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            byte[] digest = sha1.digest((key + ACCEPT_GUID).getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * @implSpec 키는 16바이트 난수를 base64 로 인코딩한 값
+     */
+    private static boolean isValidKey(String key) {
+        if (key == null) {
+            return false;
+        }
+        try {
+            return Base64.getDecoder().decode(key.trim()).length == 16;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static List<String> offeredSubprotocols(String header) {
+        List<String> offered = new ArrayList<>();
+        if (header != null) {
+            for (String protocol : header.split(",")) {
+                if (!protocol.isBlank()) {
+                    offered.add(protocol.trim());
+                }
+            }
+        }
+        return offered;
+    }
+
+    private static Map<String, String> pathVariables(MyRequest request) {
+        int count = request.getPathVariableCount();
+        if (count == 0) {
+            return Map.of();
+        }
+        Map<String, String> variables = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            variables.put(request.getPathVariableName(i), request.getPathVariableValue(i));
+        }
+        return variables;
+    }
+
+    private static void reject(MyResponse response, HttpStatus status) {
+        response.setStatus(status.value());
+        response.setBody(status.getReasonPhrase());
+    }
+}
@@ -0,0 +1,25 @@
+package org.mardi2020.tomcat.servlet;
+
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyResponse;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 응답을 나중에 완성하는 서블릿
+ * - serviceAsync 가 반환한 stage 가 완료되면 서버가 그때 response 를 씀
+ * - NIO 커넥터는 기다리는 동안 워커 스레드를 반납함 (다운스트림 호출을 기다리느라 워커를 잡지 않음)
+ * - stage 가 완료되기 전까지는 request/response 를 다른 스레드에서 써도 되고, 완료 후에는 건드리면 안 됨
+ */
+public interface AsyncMyServlet extends MyServlet {
+
+    CompletionStage<Void> serviceAsync(MyRequest request, MyResponse response);
+
+    /**
+     * @implSpec 동기 호출이 필요할 때는 완료될 때까지 기다림
+     */
+    @Override
+    default void service(MyRequest request, MyResponse response) {
+        serviceAsync(request, response).toCompletableFuture().join();
+    }
+}
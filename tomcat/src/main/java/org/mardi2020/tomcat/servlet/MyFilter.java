@@ -0,0 +1,16 @@
+package org.mardi2020.tomcat.servlet;
+
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyResponse;
+
+/**
+ * 서블릿 앞뒤에서 실행되는 필터 (인증, CORS, 메트릭, 요청 제한 등)
+ * - chain.doFilter 를 호출하면 다음 필터(마지막이면 서블릿)가 실행되고, 그 뒤의 코드는 서블릿 실행 후에 실행됨
+ * - chain.doFilter 를 호출하지 않으면 거기서 끝남, 그때까지 response 에 채운 상태 코드/헤더/바디가 그대로 응답됨
+ * - AsyncMyServlet 이면 chain.doFilter 는 serviceAsync 가 stage 를 반환하면 돌아옴 (응답 완료를 기다리지 않음)
+ */
+@FunctionalInterface
+public interface MyFilter {
+
+    void doFilter(MyRequest request, MyResponse response, MyFilterChain chain);
+}
@@ -0,0 +1,13 @@
+package org.mardi2020.tomcat.servlet;
+
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyResponse;
+
+/**
+ * 필터가 다음 단계로 넘길 때 호출하는 체인
+ */
+@FunctionalInterface
+public interface MyFilterChain {
+
+    void doFilter(MyRequest request, MyResponse response);
+}
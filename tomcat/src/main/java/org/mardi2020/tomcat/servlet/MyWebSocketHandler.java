@@ -0,0 +1,53 @@
+package org.mardi2020.tomcat.servlet;
+
+import org.mardi2020.tomcat.server.websocket.WebSocketSession;
+
+import java.util.List;
+
+/**
+ * WebSocket 엔드포인트 (TomcatByServerSocket.registerWebSocket 으로 경로에 등록)
+ * - 콜백은 워커 스레드에서 실행되고, 한 세션의 콜백은 순서대로 하나씩만 실행됨 (콜백이 끝나야 다음 메시지를 읽음)
+ * - 메시지를 기다리는 동안엔 스레드를 잡지 않음, 유휴 세션이 차지하는 건 poller 의 SelectionKey 정도
+ * - ping 에는 커넥터가 pong 으로 답하므로 따로 처리하지 않아도 됨
+ */
+public interface MyWebSocketHandler {
+
+    /**
+     * @return 업그레이드를 받아들일 Origin 이면 true, false 면 403
+     */
+    default boolean acceptOrigin(String origin) {
+        return true;
+    }
+
+    /**
+     * @param offered 클라이언트가 제안한 하위 프로토콜 (Sec-WebSocket-Protocol, 선호 순서)
+     * @return 고른 프로토콜, null 이면 하위 프로토콜 없이 진행
+     */
+    default String selectSubprotocol(List<String> offered) {
+        return null;
+    }
+
+    default void onOpen(WebSocketSession session) {
+    }
+
+    default void onText(WebSocketSession session, String message) {
+    }
+
+    default void onBinary(WebSocketSession session, byte[] message) {
+    }
+
+    default void onPong(WebSocketSession session, byte[] payload) {
+    }
+
+    /**
+     * @implSpec 세션마다 한 번, close 를 주고받았든 연결이 그냥 끊겼든(1006)
+     */
+    default void onClose(WebSocketSession session, int code, String reason) {
+    }
+
+    /**
+     * @implSpec 콜백이 예외를 던지면 호출되고, 그 뒤 세션은 1011 로 닫힘
+     */
+    default void onError(WebSocketSession session, Throwable error) {
+    }
+}
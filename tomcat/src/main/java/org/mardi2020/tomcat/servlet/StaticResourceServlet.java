@@ -0,0 +1,425 @@
+package org.mardi2020.tomcat.servlet;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyResponse;
+import org.mardi2020.tomcat.server.Router;
+import org.mardi2020.tomcat.server.compression.Compressor;
+import org.mardi2020.tomcat.server.compression.ContentEncoding;
+import org.mardi2020.tomcat.server.compression.ResponseCompression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 디렉토리 하나를 경로 접두사 아래에 그대로 서빙하는 정적 리소스 서블릿 ("/static/*" 로 등록)
+ * - 작은 파일: 읽어 둔 바이트를 크기 제한이 있는 LRU 캐시에 두고 재사용
+ * - 큰 파일: 응답에 파일 구간만 넘기고 커넥터가 transferTo 로 보냄 (힙으로 복사하지 않음)
+ * - ETag/If-None-Match, Last-Modified/If-Modified-Since 로 304, Range/If-Range 로 206 지원
+ */
+@Slf4j
+public class StaticResourceServlet implements MyServlet {
+
+    public static final int DEFAULT_MAX_CACHED_FILE_SIZE = 64 * 1024;
+
+    public static final long DEFAULT_MAX_CACHE_SIZE = 16 * 1024 * 1024;
+
+    private static final String INDEX_FILE = "index.html";
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final String ALLOWED_METHODS = "GET, HEAD";
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private static final Map<String, String> CONTENT_TYPES = Map.ofEntries(
+            Map.entry("html", "text/html; charset=UTF-8"),
+            Map.entry("htm", "text/html; charset=UTF-8"),
+            Map.entry("css", "text/css; charset=UTF-8"),
+            Map.entry("js", "text/javascript; charset=UTF-8"),
+            Map.entry("mjs", "text/javascript; charset=UTF-8"),
+            Map.entry("json", "application/json"),
+            Map.entry("txt", "text/plain; charset=UTF-8"),
+            Map.entry("xml", "application/xml"),
+            Map.entry("svg", "image/svg+xml"),
+            Map.entry("png", "image/png"),
+            Map.entry("jpg", "image/jpeg"),
+            Map.entry("jpeg", "image/jpeg"),
+            Map.entry("gif", "image/gif"),
+            Map.entry("webp", "image/webp"),
+            Map.entry("ico", "image/x-icon"),
+            Map.entry("woff", "font/woff"),
+            Map.entry("woff2", "font/woff2"),
+            Map.entry("pdf", "application/pdf"),
+            Map.entry("wasm", "application/wasm"),
+            Map.entry("mp4", "video/mp4")
+    );
+
+    private final String prefix;
+
+    private final Path root;
+
+    private final int maxCachedFileSize;
+
+    private final ResourceCache cache;
+
+    private final ResponseCompression compression;
+
+    public StaticResourceServlet(String prefix, Path root) {
+        this(prefix, root, null);
+    }
+
+    /**
+     * @param compression null 이면 압축본을 만들지 않음
+     */
+    public StaticResourceServlet(String prefix, Path root, ResponseCompression compression) {
+        this(prefix, root, DEFAULT_MAX_CACHED_FILE_SIZE, DEFAULT_MAX_CACHE_SIZE, compression);
+    }
+
+    public StaticResourceServlet(String prefix, Path root, int maxCachedFileSize, long maxCacheSize) {
+        this(prefix, root, maxCachedFileSize, maxCacheSize, null);
+    }
+
+    /**
+     * @param prefix            등록 경로에서 "/*" 를 뺀 접두사 ("/static")
+     * @param maxCachedFileSize 이 크기 이하인 파일만 메모리에 캐시
+     * @param maxCacheSize      캐시에 담을 파일 바이트의 총합 (압축본은 원본보다 작으므로 원본 크기로만 계산)
+     */
+    public StaticResourceServlet(String prefix, Path root, int maxCachedFileSize, long maxCacheSize,
+                                 ResponseCompression compression) {
+        this.prefix = prefix.endsWith("/*") ? prefix.substring(0, prefix.length() - 2) : prefix;
+        this.root = root.toAbsolutePath().normalize();
+        this.maxCachedFileSize = maxCachedFileSize;
+        this.cache = new ResourceCache(maxCacheSize);
+        this.compression = compression;
+    }
+
+    @Override
+    public void service(MyRequest request, MyResponse response) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            response.addHeader(HttpHeaders.ALLOW, ALLOWED_METHODS);
+            error(response, HttpStatus.METHOD_NOT_ALLOWED);
+            return;
+        }
+        try {
+            Resource resource = resolve(relativePath(request));
+            if (resource == null) {
+                error(response, HttpStatus.NOT_FOUND);
+                return;
+            }
+            serve(request, response, resource);
+        } catch (IOException e) {
+            log.warn("Failed to read static resource {}: {}", request.getPath(), e.getMessage());
+            error(response, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private void serve(MyRequest request, MyResponse response, Resource resource) {
+        Variant variant = variant(request, resource);
+        String etag = variant == null ? resource.etag() : variant.etag();
+        response.addHeader(HttpHeaders.CONTENT_TYPE, resource.contentType());
+        response.addHeader(HttpHeaders.ETAG, etag);
+        response.addHeader(HttpHeaders.LAST_MODIFIED, resource.lastModified());
+        response.addHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (variant != null) {
+            response.addHeader(HttpHeaders.CONTENT_ENCODING, variant.encoding().getToken());
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        if (isNotModified(request, resource, etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long start = 0;
+        long length = resource.size();
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && isRangeApplicable(request, resource)) {
+            long[] bounds = parseRange(range, resource.size());
+            if (bounds == UNSATISFIABLE) {
+                response.addHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + resource.size());
+                error(response, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            if (bounds != null) {
+                start = bounds[0];
+                length = bounds[1] - bounds[0] + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.addHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + bounds[0] + "-" + bounds[1] + "/" + resource.size());
+            }
+        }
+
+        if (variant != null) {
+            response.setBody(variant.content()); // ✅ 한 번 압축해 둔 바이트를 그대로
+        } else if (resource.content() == null) {
+            response.setBody(resource.path(), start, length); // ✅ 큰 파일은 transferTo 로
+        } else if (length == resource.size()) {
+            response.setBody(resource.content());
+        } else {
+            response.setBody(Arrays.copyOfRange(resource.content(), (int) start, (int) (start + length)));
+        }
+    }
+
+    /**
+     * @implSpec 메모리에 있는 작은 파일을 전체로 보낼 때만 압축본을 씀 (Range 요청과 transferTo 로 보내는 큰 파일은 원본)
+     * - 압축본은 인코딩마다 처음 요청될 때 한 번 만들어 리소스에 붙여 둠, 파일이 바뀌면 리소스와 함께 새로 만들어짐
+     * @return 압축본을 보내지 않으면 null
+     */
+    private Variant variant(MyRequest request, Resource resource) {
+        if (compression == null || resource.content() == null || request.getHeader(HttpHeaders.RANGE) != null
+                || !compression.shouldCompress(resource.contentType(), resource.size())) {
+            return null;
+        }
+        ContentEncoding encoding = compression.negotiate(request);
+        if (encoding == null) {
+            return null;
+        }
+        return resource.variants().computeIfAbsent(encoding, key -> new Variant(key,
+                Compressor.current().compressToArray(key, resource.content()),
+                resource.etag().substring(0, resource.etag().length() - 1) + "-" + key.getToken() + "\""));
+    }
+
+    /**
+     * @return 접두사 뒤의 경로, 라우터가 채운 와일드카드 변수를 우선 사용
+     */
+    private String relativePath(MyRequest request) {
+        String remainder = request.getPathVariable(Router.WILDCARD_VARIABLE);
+        if (remainder != null) {
+            return remainder;
+        }
+        String path = request.getPath();
+        return path != null && path.startsWith(prefix) ? path.substring(prefix.length()) : null;
+    }
+
+    /**
+     * @return 요청 경로에 해당하는 파일, 루트 밖이거나 없으면 null
+     */
+    private Resource resolve(String relative) throws IOException {
+        if (relative == null) {
+            return null;
+        }
+        while (relative.startsWith("/")) {
+            relative = relative.substring(1);
+        }
+        Path file;
+        try {
+            file = root.resolve(relative).normalize();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (!file.startsWith(root)) {
+            return null; // "../" 로 루트 밖을 가리키는 요청
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isDirectory()) {
+                file = file.resolve(INDEX_FILE);
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+        Resource cached = cache.get(file);
+        if (cached != null && cached.size() == size && cached.modified() == modified) {
+            return cached; // 💡 크기와 수정 시각이 같으면 캐시된 바이트를 그대로 사용
+        }
+
+        byte[] content = size <= maxCachedFileSize ? Files.readAllBytes(file) : null;
+        Resource resource = new Resource(file, content, content != null ? content.length : size, modified,
+                etag(size, modified), HTTP_DATE.format(Instant.ofEpochMilli(modified)), contentType(file),
+                new ConcurrentHashMap<>());
+        if (content != null) {
+            cache.put(file, resource);
+        } else if (cached != null) {
+            cache.remove(file);
+        }
+        return resource;
+    }
+
+    /**
+     * @implSpec If-None-Match 가 있으면 그것만 보고, 없을 때만 If-Modified-Since 를 봄 (RFC 9110 13.2.2)
+     */
+    private static boolean isNotModified(MyRequest request, Resource resource, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch, etag);
+        }
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince != null) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, HTTP_DATE).toInstant().toEpochMilli();
+                return resource.modified() / 1000 <= since / 1000; // HTTP 날짜는 초 단위
+            } catch (DateTimeParseException ignored) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @implSpec If-Range 가 ETag 또는 Last-Modified 와 같을 때만 Range 를 적용, 다르면 전체를 보냄
+     */
+    private static boolean isRangeApplicable(MyRequest request, Resource resource) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(resource.etag()) || ifRange.equals(resource.lastModified());
+    }
+
+    private static boolean matchesAny(String header, String etag) {
+        int start = 0;
+        while (start < header.length()) {
+            int comma = header.indexOf(',', start);
+            int end = comma < 0 ? header.length() : comma;
+            String candidate = header.substring(start, end).trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2); // If-None-Match 는 약한 비교
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * @return [시작, 끝(포함)], 범위 헤더를 무시하고 전체를 보내야 하면 null, 만족할 수 없으면 UNSATISFIABLE
+     * - 여러 구간(multipart/byteranges)은 지원하지 않으므로 전체를 보냄
+     */
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1)); // "bytes=-500": 마지막 500 바이트
+                if (suffix <= 0) {
+                    return UNSATISFIABLE;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1 ? size - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)), size - 1);
+            }
+            if (start >= size || start > end) {
+                return UNSATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String etag(long size, long modified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified) + "\"";
+    }
+
+    private static String contentType(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+        return CONTENT_TYPES.getOrDefault(name.substring(dot + 1).toLowerCase(Locale.ROOT), DEFAULT_CONTENT_TYPE);
+    }
+
+    private static void error(MyResponse response, HttpStatus status) {
+        response.setStatus(status.value());
+        response.addHeader(HttpHeaders.CONTENT_TYPE, "text/html; charset=UTF-8");
+        response.setBody(status.getReasonPhrase());
+    }
+
+    /**
+     * @param content 캐시 대상(작은 파일)이면 파일 전체 바이트, 아니면 null
+     */
+    private record Resource(Path path, byte[] content, long size, long modified,
+                            String etag, String lastModified, String contentType,
+                            Map<ContentEncoding, Variant> variants) {
+    }
+
+    /**
+     * 압축본, 원본과 다른 표현이므로 ETag 도 따로 둠 ("...-gzip")
+     */
+    private record Variant(ContentEncoding encoding, byte[] content, String etag) {
+    }
+
+    /**
+     * 바이트 총합으로 크기를 제한하는 LRU 캐시
+     * - 접근 순서 LinkedHashMap 으로 가장 오래 안 쓴 파일부터 내보냄
+     */
+    private static class ResourceCache {
+
+        private final long maxSize;
+
+        private final LinkedHashMap<Path, Resource> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private long size;
+
+        ResourceCache(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        synchronized Resource get(Path path) {
+            return entries.get(path);
+        }
+
+        synchronized void put(Path path, Resource resource) {
+            if (resource.size() > maxSize) {
+                return;
+            }
+            Resource previous = entries.put(path, resource);
+            if (previous != null) {
+                size -= previous.size();
+            }
+            size += resource.size();
+            var iterator = entries.values().iterator();
+            while (size > maxSize && iterator.hasNext()) {
+                size -= iterator.next().size();
+                iterator.remove();
+            }
+        }
+
+        synchronized void remove(Path path) {
+            Resource removed = entries.remove(path);
+            if (removed != null) {
+                size -= removed.size();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.mardi2020.tomcat.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.tomcat.server.http.HttpParseException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyRequestParserTest {
+
+    private final MyRequestParser parser = new MyRequestParser(1024, 1024, 10);
+
+    private final MyRequest request = new MyRequest();
+
+    @Test
+    @DisplayName("요청 라인과 헤더를 파싱하고 자주 쓰는 헤더 이름은 상수로 매핑한다")
+    void parseRequestLineAndHeaders() throws HttpParseException {
+        ByteBuffer buffer = buffer("GET /hello?name=world HTTP/1.1\r\nhost: localhost\r\nX-Custom:  value  \r\n\r\n");
+
+        assertTrue(parser.parse(buffer, request));
+        assertSame(HttpMethod.GET, request.getHttpMethod());
+        assertEquals("/hello", request.getPath());
+        assertEquals("name=world", request.getQueryString());
+        assertEquals("HTTP/1.1", request.getProtocol());
+        assertSame(HttpHeaders.HOST, request.getHeaderName(0));
+        assertEquals("localhost", request.getHeader("Host"));
+        assertEquals("value", request.getHeader("x-custom"));
+        assertTrue(request.isKeepAlive());
+    }
+
+    @Test
+    @DisplayName("데이터가 한 바이트씩 나눠서 도착해도 이어서 파싱한다")
+    void parseIncrementally() throws HttpParseException {
+        byte[] bytes = "POST /items HTTP/1.1\r\nContent-Length: 5\r\n\r\nhello".getBytes(StandardCharsets.US_ASCII);
+
+        for (int i = 0; i < bytes.length - 1; i++) {
+            assertFalse(parser.parse(ByteBuffer.wrap(bytes, i, 1), request));
+        }
+        assertTrue(parser.parse(ByteBuffer.wrap(bytes, bytes.length - 1, 1), request));
+        assertEquals("hello", new String(request.getBody(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    @DisplayName("chunked 바디를 디코딩하고 트레일러는 버린다")
+    void parseChunkedBody() throws HttpParseException {
+        ByteBuffer buffer = buffer("POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n"
+                + "5;ext=1\r\nhello\r\n6\r\n world\r\n0\r\nX-Trailer: 1\r\n\r\n");
+
+        assertTrue(parser.parse(buffer, request));
+        assertEquals("hello world", new String(request.getBody(), StandardCharsets.US_ASCII));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    @DisplayName("파이프라이닝된 다음 요청은 버퍼에 그대로 남긴다")
+    void leavePipelinedRequestInBuffer() throws HttpParseException {
+        ByteBuffer buffer = buffer("GET /a HTTP/1.1\r\n\r\nGET /b HTTP/1.1\r\nConnection: close\r\n\r\n");
+
+        assertTrue(parser.parse(buffer, request));
+        assertEquals("/a", request.getPath());
+
+        request.recycle();
+        parser.reset();
+        assertTrue(parser.parse(buffer, request));
+        assertEquals("/b", request.getPath());
+        assertFalse(request.isKeepAlive());
+    }
+
+    @Test
+    @DisplayName("크기 제한을 넘거나 잘못된 요청은 알맞은 상태 코드로 거절한다")
+    void rejectInvalidRequests() {
+        assertStatus(HttpStatus.REQUEST_HEADER_FIELDS_TOO_LARGE,
+                "GET / HTTP/1.1\r\nX-Big: " + "a".repeat(2000) + "\r\n\r\n");
+        assertStatus(HttpStatus.BAD_REQUEST,
+                "POST / HTTP/1.1\r\nContent-Length: 3\r\nTransfer-Encoding: chunked\r\n\r\n");
+        assertStatus(HttpStatus.PAYLOAD_TOO_LARGE, "POST / HTTP/1.1\r\nContent-Length: 4096\r\n\r\n");
+        assertStatus(HttpStatus.HTTP_VERSION_NOT_SUPPORTED, "GET / HTTP/2.0\r\n\r\n");
+    }
+
+    @Test
+    @DisplayName("마지막 코딩이 정확히 chunked 가 아닌 Transfer-Encoding 은 501 로 거절한다")
+    void rejectUnsupportedTransferCodings() throws HttpParseException {
+        assertStatus(HttpStatus.NOT_IMPLEMENTED, "POST / HTTP/1.1\r\nTransfer-Encoding: gzip, chunked\r\n\r\n");
+        assertStatus(HttpStatus.NOT_IMPLEMENTED, "POST / HTTP/1.1\r\nTransfer-Encoding: xchunked\r\n\r\n");
+        assertStatus(HttpStatus.NOT_IMPLEMENTED, "POST / HTTP/1.1\r\nTransfer-Encoding: identity\r\n\r\n");
+
+        assertTrue(parser.parse(buffer("POST / HTTP/1.1\r\nTransfer-Encoding: , Chunked \r\n\r\n0\r\n\r\n"), request));
+    }
+
+    private void assertStatus(HttpStatus expected, String raw) {
+        MyRequestParser freshParser = new MyRequestParser(1024, 1024, 10);
+        HttpParseException e = assertThrows(HttpParseException.class,
+                () -> freshParser.parse(buffer(raw), new MyRequest()));
+        assertEquals(expected, e.getStatus());
+    }
+
+    private static ByteBuffer buffer(String raw) {
+        return ByteBuffer.wrap(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,107 @@
+package org.mardi2020.tomcat.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MyResponseOutputStreamTest {
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+    @Test
+    @DisplayName("버퍼를 넘기면 헤더를 먼저 보내고 chunked 로 이어서 보낸다")
+    void streamChunked() throws IOException {
+        MyResponse response = bound(true);
+        OutputStream out = response.getOutputStream();
+        byte[] block = "x".repeat(MyResponseOutputStream.BUFFER_SIZE).getBytes(StandardCharsets.US_ASCII);
+        out.write(block);
+        assertTrue(response.isCommitted());
+        out.write("tail".getBytes(StandardCharsets.US_ASCII));
+
+        response.sendResponse(channel());
+
+        String text = written.toString(StandardCharsets.US_ASCII);
+        assertTrue(text.contains("Transfer-Encoding: chunked\r\n"));
+        assertFalse(text.contains("Content-Length"));
+        assertTrue(text.contains("\r\n\r\n2000\r\n"));
+        assertTrue(text.endsWith("\r\n4\r\ntail\r\n0\r\n\r\n"));
+    }
+
+    @Test
+    @DisplayName("flush 하지 않은 작은 바디는 Content-Length 로 한 번에 보낸다")
+    void smallBodyUsesContentLength() throws IOException {
+        MyResponse response = bound(true);
+        response.getWriter().print("안녕");
+
+        response.sendResponse(channel());
+
+        String text = written.toString(StandardCharsets.UTF_8);
+        assertTrue(text.contains("Content-Length: 6\r\n"));
+        assertTrue(text.endsWith("\r\n\r\n안녕"));
+    }
+
+    @Test
+    @DisplayName("HTTP/1.0 에서 길이를 모르면 chunked 대신 연결 종료로 끝을 알린다")
+    void closeDelimitedForHttp10() throws IOException {
+        MyResponse response = bound(false);
+        OutputStream out = response.getOutputStream();
+        out.write('a');
+        out.flush();
+
+        response.sendResponse(channel());
+
+        String text = written.toString(StandardCharsets.US_ASCII);
+        assertTrue(text.contains("Connection: close\r\n"));
+        assertTrue(text.endsWith("\r\n\r\na"));
+        assertEquals(Boolean.FALSE, response.getKeepAlive());
+    }
+
+    private MyResponse bound(boolean chunkedAllowed) {
+        MyResponse response = MyResponseFactory.create("", "/report", true);
+        response.bind(channel(), true, chunkedAllowed);
+        return response;
+    }
+
+    private GatheringByteChannel channel() {
+        WritableByteChannel target = Channels.newChannel(written);
+        return new GatheringByteChannel() {
+            @Override
+            public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+                long total = 0;
+                for (int i = offset; i < offset + length; i++) {
+                    total += target.write(srcs[i]);
+                }
+                return total;
+            }
+
+            @Override
+            public long write(ByteBuffer[] srcs) throws IOException {
+                return write(srcs, 0, srcs.length);
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                return target.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package org.mardi2020.tomcat.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MyResponseSerializerTest {
+
+    private final MyResponseSerializer serializer = new MyResponseSerializer();
+
+    @Test
+    @DisplayName("상태 라인, 헤더, Content-Length(UTF-8 바이트 수), 바디를 순서대로 씀")
+    void serialize() throws IOException {
+        MyResponse response = MyResponseFactory.create("안녕 😀", "/hello", true);
+        response.setKeepAlive(true);
+
+        String written = write(response);
+
+        assertTrue(written.startsWith("HTTP/1.1 200 OK\r\n"));
+        assertTrue(written.contains("Content-Type: text/html; charset=UTF-8\r\n"));
+        assertTrue(written.contains("Content-Length: 11\r\n"));
+        assertTrue(written.contains("Connection: keep-alive\r\n"));
+        assertTrue(written.endsWith("\r\n\r\n안녕 😀"));
+    }
+
+    @Test
+    @DisplayName("바디를 생략해도 Content-Length 는 원래 길이로 씀")
+    void suppressBody() throws IOException {
+        MyResponse response = MyResponseFactory.create(HttpStatus.NOT_FOUND);
+        response.suppressBody();
+
+        String written = write(response);
+
+        assertTrue(written.contains("Content-Length: 9\r\n"));
+        assertTrue(written.endsWith("\r\n\r\n"));
+    }
+
+    @Test
+    @DisplayName("204 에는 Content-Length 도 바디도 쓰지 않음")
+    void noContent() throws IOException {
+        MyResponse response = MyResponseFactory.create(HttpStatus.NO_CONTENT);
+
+        String written = write(response);
+
+        assertTrue(written.startsWith("HTTP/1.1 204 No Content\r\n"));
+        assertFalse(written.contains("Content-Length"));
+        assertTrue(written.endsWith("\r\n\r\n"));
+    }
+
+    @Test
+    @DisplayName("버퍼를 재사용해도 이전 응답의 내용이 섞이지 않음")
+    void reuseBuffers() throws IOException {
+        MyResponse large = MyResponseFactory.create("a".repeat(20_000), "/hello", true);
+        write(large);
+        MyResponse small = MyResponseFactory.create("b", "/hello", true);
+
+        String written = write(small);
+
+        assertEquals("b", written.substring(written.indexOf("\r\n\r\n") + 4));
+        assertTrue(written.contains("Content-Length: 1\r\n"));
+    }
+
+    private String write(MyResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.write(response, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,78 @@
+package org.mardi2020.tomcat.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.tomcat.servlet.MyServlet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouterTest {
+
+    private final Router router = new Router();
+
+    private final MyRequest request = new MyRequest();
+
+    @Test
+    @DisplayName("정적 세그먼트가 경로 변수보다 우선하고, 맞지 않으면 경로 변수 분기로 되돌아간다")
+    void staticBeforeParam() {
+        MyServlet me = servlet();
+        MyServlet user = servlet();
+        MyServlet orders = servlet();
+        router.add(null, "/users/me", me);
+        router.add(null, "/users/{id}", user);
+        router.add(null, "/users/{id}/orders/{orderId}", orders);
+
+        assertSame(me, router.find("/users/me", request).get("GET"));
+        assertEquals(0, request.getPathVariableCount());
+
+        assertSame(user, router.find("/users/42?verbose=true", request).get("GET"));
+        assertEquals("42", request.getPathVariable("id"));
+
+        request.recycle();
+        assertSame(orders, router.find("/users/me/orders/7", request).get("GET"));
+        assertEquals("me", request.getPathVariable("id"));
+        assertEquals("7", request.getPathVariable("orderId"));
+        assertEquals(2, request.getPathVariableCount());
+    }
+
+    @Test
+    @DisplayName("와일드카드는 나머지 경로를 담고, 더 구체적인 라우트가 없을 때만 매칭된다")
+    void wildcard() {
+        MyServlet assets = servlet();
+        MyServlet health = servlet();
+        router.add(null, "/static/*", assets);
+        router.add(null, "/static/health", health);
+
+        assertSame(health, router.find("/static/health", request).get("GET"));
+        assertSame(assets, router.find("/static/css/app.css", request).get("GET"));
+        assertEquals("css/app.css", request.getPathVariable(Router.WILDCARD_VARIABLE));
+        assertNull(router.find("/other", request));
+    }
+
+    @Test
+    @DisplayName("메서드별 라우트: HEAD 는 GET 으로 처리하고, 없는 메서드는 Allow 목록을 알려준다")
+    void perMethodRoutes() {
+        MyServlet get = servlet();
+        MyServlet post = servlet();
+        router.add("GET", "/items", get);
+        router.add("POST", "/items", post);
+
+        Router.Route route = router.find("/items", request);
+        assertSame(get, route.get("HEAD"));
+        assertSame(post, route.get("POST"));
+        assertNull(route.get("DELETE"));
+        assertEquals("GET, POST, HEAD", route.getAllowedMethods());
+    }
+
+    @Test
+    @DisplayName("같은 위치에 이름이 다른 경로 변수를 등록하면 예외")
+    void conflictingParams() {
+        router.add(null, "/users/{id}", servlet());
+        assertThrows(IllegalArgumentException.class, () -> router.add(null, "/users/{name}/posts", servlet()));
+    }
+
+    private static MyServlet servlet() {
+        return (request, response) -> {
+        };
+    }
+}
@@ -0,0 +1,273 @@
+package org.mardi2020.tomcat.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.tomcat.server.buffer.BufferPool;
+import org.mardi2020.tomcat.server.cache.CachePolicy;
+import org.mardi2020.tomcat.server.executor.ConnectionExecutor;
+import org.mardi2020.tomcat.servlet.AsyncMyServlet;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServletDispatcherTest {
+
+    private final ServletDispatcher dispatcher = new ServletDispatcher();
+
+    @Test
+    @DisplayName("비동기 서블릿은 stage 가 완료될 때 응답이 완성된다")
+    void asyncServletCompletesLater() throws IOException {
+        CompletableFuture<Void> downstream = new CompletableFuture<>();
+        dispatcher.register("/async", (AsyncMyServlet) (request, response) ->
+                downstream.thenRun(() -> response.setBody("done")));
+
+        CompletableFuture<MyResponse> response = dispatcher.dispatchAsync(request("/async"), 1000);
+        assertFalse(response.isDone());
+
+        downstream.complete(null);
+        assertEquals("done", response.join().getBody().toString());
+    }
+
+    @Test
+    @DisplayName("시간 안에 완료되지 않으면 TimeoutException, 예외로 끝나면 500")
+    void asyncServletTimeoutAndFailure() throws IOException {
+        dispatcher.register("/slow", (AsyncMyServlet) (request, response) -> new CompletableFuture<>());
+        dispatcher.register("/fail", (AsyncMyServlet) (request, response) ->
+                CompletableFuture.failedFuture(new IllegalStateException("downstream")));
+
+        CompletionException timeout = assertThrows(CompletionException.class,
+                () -> dispatcher.dispatchAsync(request("/slow"), 50).join());
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), dispatcher.dispatchAsync(request("/fail"), 50).join().getStatusCode());
+    }
+
+    @Test
+    @DisplayName("시간 초과로 버려진 응답은 서블릿의 stage 가 끝날 때 버퍼를 풀에 돌려주고, 이후 쓰기는 IOException")
+    void discardAbandonedResponseWhenStageCompletes() throws IOException {
+        CompletableFuture<Void> downstream = new CompletableFuture<>();
+        List<OutputStream> streams = new ArrayList<>();
+        dispatcher.register("/slow", (AsyncMyServlet) (request, response) -> {
+            streams.add(response.getOutputStream());
+            return downstream;
+        });
+        long outstanding = BufferPool.shared().getOutstanding();
+
+        try (FileChannel channel = FileChannel.open(Files.createTempFile("response", ".txt"), StandardOpenOption.WRITE)) {
+            CompletableFuture<MyResponse> response = dispatcher.dispatchAsync(request("/slow"), channel, true, 50);
+            assertThrows(CompletionException.class, response::join);
+            assertEquals(outstanding + 1, BufferPool.shared().getOutstanding()); // 서블릿이 아직 쓰는 중일 수 있음
+
+            downstream.complete(null);
+        }
+        assertEquals(outstanding, BufferPool.shared().getOutstanding());
+        assertThrows(IOException.class, () -> streams.get(0).write('a'));
+    }
+
+    @Test
+    @DisplayName("필터는 order, 등록 순서대로 서블릿을 감싸고, 체인을 멈추면 서블릿 없이 응답한다")
+    void filterChain() throws IOException {
+        List<String> calls = new ArrayList<>();
+        dispatcher.register("/api/users/{id}", (request, response) -> calls.add("servlet"));
+        dispatcher.register("/health", (request, response) -> calls.add("health"));
+        dispatcher.registerFilter("/api/*", (request, response, chain) -> {
+            if (request.getHeader(HttpHeaders.AUTHORIZATION) == null) {
+                response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                return;
+            }
+            chain.doFilter(request, response);
+        });
+        dispatcher.registerFilter("/*", -1, (request, response, chain) -> {
+            calls.add("before");
+            chain.doFilter(request, response);
+            calls.add("after");
+        });
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), dispatcher.dispatch(request("/api/users/1")).getStatusCode());
+        assertEquals(List.of("before", "after"), calls);
+
+        calls.clear();
+        dispatcher.dispatch(request("/health"));
+        assertEquals(HttpStatus.NOT_FOUND.value(), dispatcher.dispatch(request("/missing")).getStatusCode());
+        assertEquals(List.of("before", "health", "after", "before", "after"), calls);
+    }
+
+    @Test
+    @DisplayName("캐시한 라우트는 동시에 들어온 같은 요청도 서블릿을 한 번만 실행하고, 이후엔 캐시된 바이트로 응답한다")
+    void responseCacheCoalescesMisses() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Void> downstream = new CompletableFuture<>();
+        dispatcher.register("/page", (AsyncMyServlet) (request, response) -> {
+            calls.incrementAndGet();
+            return downstream.thenRun(() -> response.setBody("page " + request.getQueryString()));
+        });
+        dispatcher.registerCache("/page", new CachePolicy(60_000, List.of()));
+
+        List<CompletableFuture<MyResponse>> pending = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            pending.add(dispatcher.dispatchAsync(request("/page?v=1"), 1000));
+        }
+        downstream.complete(null);
+
+        String expected = send(pending.get(0).join());
+        for (CompletableFuture<MyResponse> response : pending) {
+            assertEquals(expected, send(response.join()));
+        }
+        assertEquals(expected, send(dispatcher.dispatch(request("/page?v=1"))));
+        assertEquals(1, calls.get());
+        assertTrue(expected.endsWith("\r\n\r\npage v=1"));
+
+        dispatcher.dispatch(request("/page?v=2")); // 쿼리가 다르면 다른 키
+        assertEquals(2, calls.get());
+        assertEquals(1, dispatcher.getMetrics().getResponseCacheHits());
+        assertEquals(2, dispatcher.getMetrics().getResponseCacheMisses());
+        assertEquals(4, dispatcher.getMetrics().getResponseCacheCoalesced());
+    }
+
+    @Test
+    @DisplayName("캐시한 라우트도 필터는 매 요청 실행하고, 필터가 넣은 헤더는 캐시하지 않는다")
+    void responseCacheRunsFilters() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger filtered = new AtomicInteger();
+        dispatcher.register("/page", (request, response) -> {
+            calls.incrementAndGet();
+            response.addHeader("X-Page", "1");
+            response.setBody("page");
+        });
+        dispatcher.registerCache("/page", new CachePolicy(60_000, List.of()));
+        dispatcher.registerFilter("/*", (request, response, chain) -> {
+            response.addHeader("X-Seq", Integer.toString(filtered.incrementAndGet()));
+            if (request.getHeader(HttpHeaders.AUTHORIZATION) == null) {
+                response.setStatus(HttpStatus.UNAUTHORIZED.value());
+                return;
+            }
+            chain.doFilter(request, response);
+        });
+
+        String first = send(dispatcher.dispatch(request("/page", "Authorization: token\r\n")));
+        String second = send(dispatcher.dispatch(request("/page", "Authorization: token\r\n")));
+
+        assertEquals(HttpStatus.UNAUTHORIZED.value(), dispatcher.dispatch(request("/page")).getStatusCode());
+        assertEquals(1, calls.get());
+        assertEquals(1, dispatcher.getMetrics().getResponseCacheHits());
+        assertTrue(first.contains("X-Seq: 1\r\n") && first.contains("X-Page: 1\r\n"), first);
+        assertTrue(second.contains("X-Seq: 2\r\n") && !second.contains("X-Seq: 1"), second);
+        assertTrue(second.contains("X-Page: 1\r\n") && second.endsWith("\r\n\r\npage"), second);
+    }
+
+    @Test
+    @DisplayName("먼저 온 요청의 응답을 캐시하지 못하면 기다린 요청은 서버 실행기에서 서블릿을 다시 실행하고, 실행기가 포화면 503")
+    void responseCacheRerunsOnExecutor() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Void> downstream = new CompletableFuture<>();
+        dispatcher.register("/page", (AsyncMyServlet) (request, response) -> {
+            calls.incrementAndGet();
+            return downstream.thenRun(() -> response.addHeader(HttpHeaders.SET_COOKIE, "id=1")); // 캐시하지 않는 응답
+        });
+        dispatcher.registerCache("/page", new CachePolicy(60_000, List.of()));
+        List<Runnable> tasks = new ArrayList<>();
+        dispatcher.setConnectionExecutor(new ConnectionExecutor() {
+            @Override
+            public boolean execute(Runnable task) {
+                return tasks.isEmpty() && tasks.add(task); // 하나만 받고 포화
+            }
+
+            @Override
+            public void shutdown() {
+            }
+        });
+
+        CompletableFuture<MyResponse> leader = dispatcher.dispatchAsync(request("/page"), 1000);
+        List<CompletableFuture<MyResponse>> waiters = List.of(
+                dispatcher.dispatchAsync(request("/page"), 1000), dispatcher.dispatchAsync(request("/page"), 1000));
+        downstream.complete(null);
+
+        assertEquals(HttpStatus.OK.value(), leader.join().getStatusCode());
+        assertEquals(1, tasks.size());
+        CompletableFuture<MyResponse> rejected = waiters.get(0).isDone() ? waiters.get(0) : waiters.get(1);
+        CompletableFuture<MyResponse> queued = waiters.get(0).isDone() ? waiters.get(1) : waiters.get(0);
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.join().getStatusCode());
+        assertFalse(queued.isDone());
+
+        tasks.get(0).run();
+        assertEquals(HttpStatus.OK.value(), queued.join().getStatusCode());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("커넥터가 같은 요청 객체로 다음 요청을 보내면 응답 객체를 초기화해서 재사용한다")
+    void recyclesResponseWithRequest() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        dispatcher.register("/page", (request, response) -> {
+            response.addHeader("X-Call", Integer.toString(calls.incrementAndGet()));
+            response.setBody("page");
+        });
+        MyRequest request = request("/page");
+
+        try (FileChannel channel = FileChannel.open(Files.createTempFile("response", ".txt"), StandardOpenOption.WRITE)) {
+            MyResponse first = dispatcher.dispatchAsync(request, channel, true, 1000).join();
+            assertEquals("page", first.getBody().toString());
+            MyResponse second = dispatcher.dispatchAsync(request, channel, true, 1000).join();
+
+            assertSame(first, second);
+            assertEquals("page", second.getBody().toString());
+            assertEquals("2", second.getHeaders().get("X-Call"));
+        }
+        assertNotSame(dispatcher.dispatch(request), dispatcher.dispatch(request)); // 채널 없이 부르면 매번 새로 만듦
+    }
+
+    @Test
+    @DisplayName("서블릿을 다시 등록하면 다음 요청부터 바뀌고, 처리 중인 요청은 이전 서블릿으로 끝난다")
+    void hotReregistration() throws IOException {
+        CompletableFuture<Void> downstream = new CompletableFuture<>();
+        dispatcher.register("GET", "/app", (AsyncMyServlet) (request, response) ->
+                downstream.thenRun(() -> response.setBody("v1")));
+        CompletableFuture<MyResponse> inFlight = dispatcher.dispatchAsync(request("/app"), 1000);
+
+        dispatcher.register("GET", "/app", (request, response) -> response.setBody("v2"));
+        assertEquals("v2", dispatcher.dispatch(request("/app")).getBody().toString());
+        downstream.complete(null);
+        assertEquals("v1", inFlight.join().getBody().toString());
+
+        assertThrows(IllegalArgumentException.class, () -> dispatcher.register("/app/*/x", (request, response) -> {
+        }));
+        assertEquals("v2", dispatcher.dispatch(request("/app")).getBody().toString()); // 잘못된 등록은 반영되지 않음
+
+        assertTrue(dispatcher.unregister("GET", "/app"));
+        assertFalse(dispatcher.unregister("GET", "/app"));
+        assertEquals(HttpStatus.NOT_FOUND.value(), dispatcher.dispatch(request("/app")).getStatusCode());
+    }
+
+    private static String send(MyResponse response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.sendResponse(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private static MyRequest request(String path) throws IOException {
+        return request(path, "");
+    }
+
+    /**
+     * @param headers "Name: value\r\n" 로 이어 붙인 추가 헤더
+     */
+    private static MyRequest request(String path, String headers) throws IOException {
+        String raw = "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n" + headers + "\r\n";
+        return new MyRequest(new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,337 @@
+package org.mardi2020.tomcat.server;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.tomcat.server.tls.SelfSignedKeyStore;
+import org.mardi2020.tomcat.server.tls.TlsConfig;
+import org.mardi2020.tomcat.server.websocket.WebSocketBroadcaster;
+import org.mardi2020.tomcat.server.websocket.WebSocketFrame;
+import org.mardi2020.tomcat.server.websocket.WebSocketSession;
+import org.mardi2020.tomcat.servlet.AsyncMyServlet;
+import org.mardi2020.tomcat.servlet.MyWebSocketHandler;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TomcatByServerSocketTest {
+
+    @Test
+    @DisplayName("stop 은 처리 중인 요청을 마저 응답하고(Connection: close), 기다리기만 하는 연결은 닫은 뒤 start 를 끝낸다")
+    void gracefulStop() throws Exception {
+        for (ConnectorType connectorType : ConnectorType.values()) {
+            int port = freePort();
+            TomcatByServerSocket server = new TomcatByServerSocket(ServerConfig.builder()
+                    .port(port).connectorType(connectorType).minSpareThreads(1).build());
+            server.registerServlet("/slow", (AsyncMyServlet) (request, response) -> CompletableFuture.runAsync(
+                    () -> response.setBody("done"), CompletableFuture.delayedExecutor(300, TimeUnit.MILLISECONDS)));
+            Thread serverThread = new Thread(server::start);
+            serverThread.start();
+
+            try (Socket idle = connect(port); Socket busy = connect(port)) {
+                busy.getOutputStream().write("GET /slow HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                Thread.sleep(100); // 요청이 서블릿에 도착할 때까지
+
+                CompletableFuture<Boolean> stopped = CompletableFuture.supplyAsync(() -> server.stop(5000));
+                String response = readUntilClosed(busy.getInputStream());
+                assertTrue(response.startsWith("HTTP/1.1 200"), connectorType + ": " + response);
+                assertTrue(response.contains("Connection: close"));
+                assertTrue(response.endsWith("done"));
+                assertEquals(-1, idle.getInputStream().read());
+                assertTrue(stopped.get(5, TimeUnit.SECONDS));
+            }
+            serverThread.join(5000);
+            assertFalse(serverThread.isAlive());
+        }
+    }
+
+    @Test
+    @DisplayName("한 번에 도착한 파이프라이닝 요청들에 순서대로 응답한다")
+    void pipelining() throws Exception {
+        for (ConnectorType connectorType : ConnectorType.values()) {
+            int port = freePort();
+            TomcatByServerSocket server = new TomcatByServerSocket(ServerConfig.builder()
+                    .port(port).connectorType(connectorType).minSpareThreads(1).build());
+            server.registerServlet("/first", (request, response) -> response.setBody("first"));
+            server.registerServlet("/second", (request, response) -> response.setBody("second"));
+            Thread serverThread = new Thread(server::start);
+            serverThread.start();
+
+            try (Socket socket = connect(port)) {
+                socket.getOutputStream().write(("GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "GET /second HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+
+                String response = readUntilClosed(socket.getInputStream());
+                int first = response.indexOf("\r\n\r\nfirst");
+                int second = response.indexOf("\r\n\r\nsecond");
+                assertTrue(response.startsWith("HTTP/1.1 200"), connectorType + ": " + response);
+                assertTrue(first > 0 && second > first, connectorType + ": " + response);
+                assertTrue(response.substring(first).contains("HTTP/1.1 200"));
+            } finally {
+                server.stop(1000);
+                serverThread.join(5000);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("한 연결에서 maxKeepAliveRequests 번째 응답은 Connection: close 를 붙이고 연결을 닫는다")
+    void maxKeepAliveRequests() throws Exception {
+        for (ConnectorType connectorType : ConnectorType.values()) {
+            int port = freePort();
+            TomcatByServerSocket server = new TomcatByServerSocket(ServerConfig.builder()
+                    .port(port).connectorType(connectorType).minSpareThreads(1).maxKeepAliveRequests(2).build());
+            server.registerServlet("/hello", (request, response) -> response.setBody("hello"));
+            Thread serverThread = new Thread(server::start);
+            serverThread.start();
+
+            try (Socket socket = connect(port)) {
+                byte[] request = "GET /hello HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+                socket.getOutputStream().write(request);
+                String head = readHead(socket.getInputStream());
+                assertTrue(head.startsWith("HTTP/1.1 200"), connectorType + ": " + head);
+                assertFalse(head.contains("Connection: close"), connectorType + ": " + head);
+                assertEquals("hello", new String(socket.getInputStream().readNBytes(5), StandardCharsets.US_ASCII));
+
+                socket.getOutputStream().write(request);
+                String response = readUntilClosed(socket.getInputStream());
+                assertTrue(response.startsWith("HTTP/1.1 200"), connectorType + ": " + response);
+                assertTrue(response.contains("Connection: close"), connectorType + ": " + response);
+                assertTrue(response.endsWith("hello"));
+            } finally {
+                server.stop(1000);
+                serverThread.join(5000);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("NIO 커넥터는 여러 번에 나눠 도착한 헤더를 이어서 파싱해 응답하고, 헤더가 너무 크면 431 후 닫는다")
+    void nioRequestResponse() throws Exception {
+        int port = freePort();
+        TomcatByServerSocket server = new TomcatByServerSocket(ServerConfig.builder()
+                .port(port).connectorType(ConnectorType.NIO).minSpareThreads(1).maxHeaderSize(1024).build());
+        server.registerServlet("/hello", (request, response) -> response.setBody("hello"));
+        Thread serverThread = new Thread(server::start);
+        serverThread.start();
+
+        try {
+            try (Socket socket = connect(port)) {
+                OutputStream out = socket.getOutputStream();
+                out.write("GET /hello HTTP/1.1\r\nHo".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                Thread.sleep(50); // 나머지는 다음 읽기에서
+                out.write("st: localhost\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+
+                String response = readUntilClosed(socket.getInputStream());
+                assertTrue(response.startsWith("HTTP/1.1 200"), response);
+                assertTrue(response.endsWith("hello"));
+            }
+            try (Socket socket = connect(port)) {
+                socket.getOutputStream().write(("GET /hello HTTP/1.1\r\nHost: localhost\r\nX-Big: " + "a".repeat(1200)
+                        + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+
+                String response = readUntilClosed(socket.getInputStream());
+                assertTrue(response.startsWith("HTTP/1.1 431"), response);
+            }
+        } finally {
+            server.stop(1000);
+            serverThread.join(5000);
+        }
+    }
+
+    @Test
+    @DisplayName("NIO 커넥터는 TLS 로 요청/응답을 주고받고, ALPN 으로 http/1.1 을 고르고, 다시 붙으면 세션을 재개한다")
+    void https() throws Exception {
+        Path directory = Files.createTempDirectory("tls");
+        TlsConfig tls = SelfSignedKeyStore.create(directory.resolve("localhost.p12"), "changeit", "localhost");
+        int port = freePort();
+        TomcatByServerSocket server = new TomcatByServerSocket(ServerConfig.builder()
+                .port(port).connectorType(ConnectorType.NIO).minSpareThreads(1).tls(tls).build());
+        String big = "x".repeat(100_000); // TLS 레코드(16KB) 여러 개
+        server.registerServlet("/echo", (request, response) -> response.setBody(request.getContentLength() + big));
+        Thread serverThread = new Thread(server::start);
+        serverThread.start();
+
+        try {
+            SSLContext client = trusting(tls);
+            String body = "y".repeat(40_000);
+            for (int i = 0; i < 2; i++) {
+                try (SSLSocket socket = (SSLSocket) client.getSocketFactory().createSocket()) {
+                    socket.connect(new InetSocketAddress("localhost", port), 5000);
+                    socket.setSoTimeout(5000);
+                    SSLParameters parameters = socket.getSSLParameters();
+                    parameters.setApplicationProtocols(new String[]{"h2", "http/1.1"});
+                    socket.setSSLParameters(parameters);
+                    socket.getOutputStream().write(("POST /echo HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n"
+                            + "Content-Length: " + body.length() + "\r\n\r\n" + body).getBytes(StandardCharsets.US_ASCII));
+
+                    String response = readUntilClosed(socket.getInputStream());
+                    assertTrue(response.startsWith("HTTP/1.1 200"), response);
+                    assertTrue(response.endsWith(body.length() + big));
+                    assertEquals("http/1.1", socket.getApplicationProtocol());
+                }
+            }
+            assertEquals(2, (int) server.getMetrics().getTlsHandshakes());
+            assertEquals(1, (int) server.getMetrics().getTlsResumed());
+        } finally {
+            server.stop(1000);
+            serverThread.join(5000);
+        }
+    }
+
+    @Test
+    @DisplayName("WebSocket 업그레이드 후 메시지를 그룹에 브로드캐스트하고, ping 에는 pong, close 에는 close 로 답한 뒤 연결을 닫는다")
+    void webSocket() throws Exception {
+        int port = freePort();
+        TomcatByServerSocket server = new TomcatByServerSocket(ServerConfig.builder()
+                .port(port).connectorType(ConnectorType.NIO).minSpareThreads(1).build());
+        WebSocketBroadcaster room = new WebSocketBroadcaster();
+        CountDownLatch opened = new CountDownLatch(2);
+        CompletableFuture<Integer> closed = new CompletableFuture<>();
+        server.registerWebSocket("/rooms/{room}", new MyWebSocketHandler() {
+            @Override
+            public void onOpen(WebSocketSession session) {
+                room.add(session);
+                opened.countDown();
+            }
+
+            @Override
+            public void onText(WebSocketSession session, String message) {
+                room.broadcastText(session.getPathVariable("room") + ":" + message);
+            }
+
+            @Override
+            public void onClose(WebSocketSession session, int code, String reason) {
+                closed.complete(code);
+            }
+        });
+        Thread serverThread = new Thread(server::start);
+        serverThread.start();
+
+        try (Socket alice = connect(port); Socket bob = connect(port)) {
+            handshake(alice, "/rooms/lobby");
+            handshake(bob, "/rooms/lobby");
+            assertTrue(opened.await(5, TimeUnit.SECONDS));
+
+            alice.getOutputStream().write(maskedFrame(WebSocketFrame.OPCODE_TEXT, "hi".getBytes()));
+            assertEquals("1:lobby:hi", readFrame(alice.getInputStream()));
+            assertEquals("1:lobby:hi", readFrame(bob.getInputStream()));
+
+            alice.getOutputStream().write(maskedFrame(WebSocketFrame.OPCODE_PING, "p".getBytes()));
+            assertEquals("10:p", readFrame(alice.getInputStream()));
+
+            alice.getOutputStream().write(maskedFrame(WebSocketFrame.OPCODE_CLOSE, new byte[]{0x03, (byte) 0xE8}));
+            assertEquals("8:" + new String(new byte[]{0x03, (byte) 0xE8}, StandardCharsets.ISO_8859_1), readFrame(alice.getInputStream()));
+            assertEquals(-1, alice.getInputStream().read());
+            assertEquals(1000, (int) closed.get(5, TimeUnit.SECONDS));
+            assertEquals(1, room.broadcastText("bye"));
+        } finally {
+            server.stop(1000);
+            serverThread.join(5000);
+        }
+    }
+
+    private static void handshake(Socket socket, String path) throws IOException {
+        socket.getOutputStream().write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\n"
+                + "Connection: Upgrade\r\nSec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII));
+        String head = readHead(socket.getInputStream());
+        assertTrue(head.startsWith("HTTP/1.1 101"), head);
+        assertTrue(head.contains("Sec-WebSocket-Accept: s3pPLMBiTxaQ9kYGzzhZRbK+xOo=\r\n")); // RFC 6455 예시
+    }
+
+    /**
+     * @implSpec 클라이언트 프레임은 반드시 마스킹 (payload 125 바이트 이하)
+     */
+    private static byte[] maskedFrame(int opcode, byte[] payload) {
+        byte[] mask = {0x11, 0x22, 0x33, 0x44};
+        byte[] frame = new byte[6 + payload.length];
+        frame[0] = (byte) (0x80 | opcode);
+        frame[1] = (byte) (0x80 | payload.length);
+        System.arraycopy(mask, 0, frame, 2, 4);
+        for (int i = 0; i < payload.length; i++) {
+            frame[6 + i] = (byte) (payload[i] ^ mask[i & 3]);
+        }
+        return frame;
+    }
+
+    /**
+     * @return "opcode:payload" (서버 프레임은 마스킹되지 않고 payload 는 125 바이트 이하라고 가정)
+     */
+    private static String readFrame(InputStream in) throws IOException {
+        int opcode = in.read() & 0x0F;
+        byte[] payload = in.readNBytes(in.read());
+        return opcode + ":" + new String(payload, StandardCharsets.ISO_8859_1);
+    }
+
+    private static SSLContext trusting(TlsConfig tls) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream in = Files.newInputStream(tls.getKeyStore())) {
+            keyStore.load(in, tls.getKeyStorePassword().toCharArray());
+        }
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, trustManagers.getTrustManagers(), null);
+        return context;
+    }
+
+    private static Socket connect(int port) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress("127.0.0.1", port), 200);
+                socket.setSoTimeout(5000);
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException(head.toString());
+            }
+            head.append((char) b);
+        }
+        return head.toString();
+    }
+
+    private static String readUntilClosed(InputStream in) throws IOException {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
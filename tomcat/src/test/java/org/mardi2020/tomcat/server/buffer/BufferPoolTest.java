@@ -0,0 +1,51 @@
+package org.mardi2020.tomcat.server.buffer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+    @Test
+    @DisplayName("요청 크기 이상인 가장 작은 등급을 주고, 돌려준 버퍼는 같은 스레드가 다시 빌려 간다")
+    void reusesBySizeClass() {
+        BufferPool pool = new BufferPool(1024 * 1024, false);
+
+        PooledBuffer first = pool.acquire(3000);
+        assertEquals(4096, first.capacity());
+        assertTrue(first.buffer().isDirect());
+        first.buffer().put((byte) 1);
+        first.release();
+
+        PooledBuffer second = pool.acquire(4096);
+        assertSame(first, second);
+        assertEquals(0, second.buffer().position());
+        assertEquals(1, pool.getHits());
+        assertEquals(1, pool.getMisses());
+        assertEquals(1, pool.getOutstanding());
+
+        PooledBuffer huge = pool.acquire(100_000);
+        assertEquals(100_000, huge.capacity());
+        huge.release();
+        second.release();
+        assertEquals(1, pool.getUnpooled());
+        assertEquals(0, pool.getOutstanding());
+        assertThrows(IllegalStateException.class, second::release);
+    }
+
+    @Test
+    @DisplayName("누수 탐지를 켜면 돌려주지 않고 버려진 버퍼를 GC 뒤에 누수로 센다")
+    void detectsLeaks() throws InterruptedException {
+        BufferPool pool = new BufferPool(1024 * 1024, true);
+        pool.acquire(1024).release();
+        pool.acquire(1024); // 돌려주지 않음
+
+        for (int i = 0; i < 50 && pool.getLeaks() == 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, pool.getLeaks());
+        assertEquals(0, pool.getOutstanding());
+    }
+}
@@ -0,0 +1,59 @@
+package org.mardi2020.tomcat.server.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WTinyLfuCacheTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    @Test
+    @DisplayName("한 번씩만 쓰이는 키들이 쏟아져도 자주 쓰이는 항목은 밀려나지 않는다")
+    void frequentEntriesSurviveScan() {
+        WTinyLfuCache<String, String> cache = new WTinyLfuCache<>(100, value -> 1);
+        long now = 0;
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "v", now + MINUTE);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(cache.get("hot" + i, now));
+            }
+        }
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("scan" + i, now);
+            cache.put("scan" + i, "v", now + MINUTE);
+        }
+
+        int survived = 0;
+        for (int i = 0; i < 50; i++) {
+            survived += cache.get("hot" + i, now) != null ? 1 : 0;
+        }
+        assertTrue(survived >= 45, "survived " + survived);
+        assertTrue(cache.weightedSize() <= 100);
+        assertTrue(cache.getEvictions() > 0);
+    }
+
+    @Test
+    @DisplayName("만료 시각이 지난 항목은 조회되지 않고, 가중치 합은 상한을 넘지 않는다")
+    void expiryAndWeight() {
+        WTinyLfuCache<String, byte[]> cache = new WTinyLfuCache<>(1000, value -> value.length);
+        cache.put("a", new byte[400], MINUTE);
+        cache.put("b", new byte[400], 2 * MINUTE);
+        cache.put("huge", new byte[2000], 2 * MINUTE);
+
+        assertNull(cache.get("huge", 0));
+        assertNotNull(cache.get("a", MINUTE - 1));
+        assertNull(cache.get("a", MINUTE));
+        assertNotNull(cache.get("b", MINUTE));
+        assertEquals(400, cache.weightedSize());
+
+        cache.put("c", new byte[400], 2 * MINUTE);
+        cache.put("d", new byte[400], 2 * MINUTE);
+        assertTrue(cache.weightedSize() <= 1000);
+    }
+}
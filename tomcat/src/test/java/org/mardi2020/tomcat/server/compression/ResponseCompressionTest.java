@@ -0,0 +1,60 @@
+package org.mardi2020.tomcat.server.compression;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.tomcat.server.MyRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressionTest {
+
+    private final ResponseCompression compression = new ResponseCompression(100, Set.of("text/html", "application/json"));
+
+    @Test
+    @DisplayName("Accept-Encoding 의 q 값으로 gzip/deflate 를 고르고 q=0 은 거절로 본다")
+    void negotiate() throws IOException {
+        assertEquals(ContentEncoding.GZIP, compression.negotiate(request("gzip, deflate, br")));
+        assertEquals(ContentEncoding.DEFLATE, compression.negotiate(request("gzip;q=0.5, deflate")));
+        assertEquals(ContentEncoding.DEFLATE, compression.negotiate(request("gzip;q=0, *")));
+        assertNull(compression.negotiate(request("br, identity")));
+        assertNull(compression.negotiate(request(null)));
+    }
+
+    @Test
+    @DisplayName("압축할 타입이면서 최소 크기 이상일 때만 압축한다")
+    void shouldCompress() {
+        assertTrue(compression.shouldCompress("text/html; charset=UTF-8", 100));
+        assertFalse(compression.shouldCompress("text/html; charset=UTF-8", 99));
+        assertFalse(compression.shouldCompress("image/png", 10_000));
+    }
+
+    @Test
+    @DisplayName("같은 스레드의 압축기를 재사용해도 gzip/deflate 결과가 원본으로 풀린다")
+    void compressRoundTrip() throws IOException {
+        byte[] original = "<p>hello compression</p>".repeat(2_000).getBytes(StandardCharsets.UTF_8);
+        Compressor compressor = Compressor.current();
+
+        byte[] gzip = compressor.compressToArray(ContentEncoding.GZIP, original);
+        ByteBuffer deflate = compressor.compress(ContentEncoding.DEFLATE, ByteBuffer.wrap(original));
+        byte[] deflated = new byte[deflate.remaining()];
+        deflate.get(deflated);
+
+        assertTrue(gzip.length < original.length / 10);
+        assertArrayEquals(original, new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+        assertArrayEquals(original, new InflaterInputStream(new ByteArrayInputStream(deflated)).readAllBytes());
+        assertArrayEquals(gzip, compressor.compressToArray(ContentEncoding.GZIP, original));
+    }
+
+    private static MyRequest request(String acceptEncoding) throws IOException {
+        String raw = "GET / HTTP/1.1\r\n" + (acceptEncoding == null ? "" : "Accept-Encoding: " + acceptEncoding + "\r\n") + "\r\n";
+        return new MyRequest(new ByteArrayInputStream(raw.getBytes(StandardCharsets.US_ASCII)));
+    }
+}
@@ -0,0 +1,39 @@
+package org.mardi2020.tomcat.server.executor;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledConnectionExecutorTest {
+
+    @Test
+    @DisplayName("스레드와 대기 큐가 모두 가득 차면 작업을 거절한다")
+    void rejectWhenSaturated() throws InterruptedException {
+        PooledConnectionExecutor executor = new PooledConnectionExecutor(1, 2, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        Runnable blocking = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        try {
+            assertTrue(executor.execute(blocking));
+            assertTrue(executor.execute(blocking)); // maxThreads 까지는 큐 대신 스레드를 늘림
+            assertTrue(started.await(1, TimeUnit.SECONDS), "두 작업 모두 바로 실행되어야 함");
+            assertTrue(executor.execute(blocking)); // 대기 큐 1칸
+            assertFalse(executor.execute(blocking), "포화 상태에서는 거절되어야 함");
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
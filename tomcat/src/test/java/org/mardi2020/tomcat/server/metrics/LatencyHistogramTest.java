@@ -0,0 +1,58 @@
+package org.mardi2020.tomcat.server.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("버킷은 빈틈없이 이어지고, 어느 값이든 자기 버킷의 범위 안에 든다")
+    void bucketsAreContiguous() {
+        for (int index = 1; index < LatencyHistogram.BUCKET_COUNT; index++) {
+            long lowest = LatencyHistogram.lowestValue(index);
+            assertEquals(index, LatencyHistogram.index(lowest));
+            assertEquals(index - 1, LatencyHistogram.index(lowest - 1));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.index(LatencyHistogram.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("백분위는 상대 오차 약 3% 안에서 구해진다")
+    void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.count());
+        assertEquals(10_000_000, snapshot.max());
+        assertEquals(5_000_000, snapshot.valueAt(0.5), 5_000_000 * 0.035);
+        assertEquals(9_900_000, snapshot.valueAt(0.99), 9_900_000 * 0.035);
+        assertEquals(10_000_000, snapshot.valueAt(1.0));
+        assertEquals(0, new LatencyHistogram().snapshot().valueAt(0.99));
+    }
+
+    @Test
+    @DisplayName("라우트별로 상태 코드 계열과 처리 중인 요청 수를 센다")
+    void routeMetrics() {
+        ServerMetrics metrics = new ServerMetrics();
+        RouteMetrics users = metrics.route("/users/{id}");
+        assertSame(users, metrics.route("/users/{id}"));
+
+        long first = metrics.requestStarted(users);
+        long second = metrics.requestStarted(users);
+        assertEquals(2, users.getInFlight());
+        metrics.requestCompleted(users, 200, first);
+        metrics.requestCompleted(users, 503, second);
+
+        assertEquals(0, metrics.getInFlight());
+        assertEquals(1, users.getResponses(2));
+        assertEquals(1, users.getResponses(5));
+        assertEquals(2, metrics.getServiceTime().snapshot().count());
+        assertTrue(PrometheusMetricsServlet.format(metrics)
+                .contains("tomcat_route_requests_total{route=\"/users/{id}\",status=\"5xx\"} 1\n"));
+    }
+}
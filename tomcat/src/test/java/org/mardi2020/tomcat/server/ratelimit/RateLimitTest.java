@@ -0,0 +1,69 @@
+package org.mardi2020.tomcat.server.ratelimit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("토큰 버킷은 burst 만큼 몰아서 허용하고, 이후엔 채워지는 속도만큼만 허용한다")
+    void tokenBucket() {
+        TokenBucket bucket = new TokenBucket(new RateLimit(10, 5));
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(now));
+        }
+        assertFalse(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now + SECOND / 20));
+        assertTrue(bucket.tryAcquire(now + SECOND / 10));
+        assertFalse(bucket.tryAcquire(now + SECOND / 10));
+
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            allowed += bucket.tryAcquire(now + 10 * SECOND) ? 1 : 0;
+        }
+        assertEquals(5, allowed); // 오래 쉬어도 burst 이상 쌓이지 않음
+    }
+
+    @Test
+    @DisplayName("맵은 유휴 항목을 만료시키고, 가득 차면 오래 안 쓴 항목부터 지운다")
+    void boundedExpiringMap() {
+        AtomicInteger created = new AtomicInteger();
+        BoundedExpiringMap<String, Integer> map = new BoundedExpiringMap<>(key -> created.incrementAndGet(), 10, SECOND);
+        long now = 1_000 * SECOND;
+
+        assertEquals(1, (int) map.get("a", now));
+        assertEquals(1, (int) map.get("a", now + SECOND / 2));
+        assertEquals(2, (int) map.get("a", now + 2 * SECOND)); // 만료 후 새로 만듦
+
+        for (int i = 0; i < 10; i++) {
+            map.get("k" + i, now + 2 * SECOND + 1 + i);
+        }
+        assertEquals(10, map.size()); // "a" 가 가장 오래돼서 밀려남
+        int before = created.get();
+        map.get("a", now + 2 * SECOND + 20);
+        assertEquals(before + 1, created.get());
+        assertTrue(map.size() <= 10);
+    }
+
+    @Test
+    @DisplayName("연결 수가 상한에 닿으면 거절하고, 닫히면 다시 받는다")
+    void connectionCap() {
+        AdmissionControl admission = new AdmissionControl(2, null, 10, 1_000);
+
+        assertTrue(admission.tryOpenConnection());
+        assertTrue(admission.tryOpenConnection());
+        assertFalse(admission.tryOpenConnection());
+        admission.connectionClosed();
+        assertTrue(admission.tryOpenConnection());
+        assertTrue(admission.allowRequest(null));
+    }
+}
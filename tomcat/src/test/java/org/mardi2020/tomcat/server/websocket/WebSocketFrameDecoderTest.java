@@ -0,0 +1,71 @@
+package org.mardi2020.tomcat.server.websocket;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mardi2020.tomcat.server.websocket.WebSocketFrame.*;
+
+class WebSocketFrameDecoderTest {
+
+    @Test
+    @DisplayName("한 바이트씩 나뉘어 와도 조각난 메시지를 모으고, 사이에 낀 ping 은 먼저 넘긴다")
+    void fragmentedMessageWithInterleavedPing() throws Exception {
+        ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        wire.writeBytes(masked(OPCODE_TEXT, false, "안녕".getBytes(StandardCharsets.UTF_8)));
+        wire.writeBytes(masked(OPCODE_PING, true, "p".getBytes(StandardCharsets.UTF_8)));
+        wire.writeBytes(masked(OPCODE_CONTINUATION, true, "x".repeat(300).getBytes(StandardCharsets.UTF_8)));
+        byte[] bytes = wire.toByteArray();
+
+        WebSocketFrameDecoder decoder = new WebSocketFrameDecoder(1024);
+        StringBuilder events = new StringBuilder();
+        for (byte b : bytes) {
+            ByteBuffer buffer = ByteBuffer.wrap(new byte[]{b});
+            if (decoder.decode(buffer)) {
+                events.append(decoder.getOpcode() == OPCODE_PING ? "ping:" + new String(decoder.getPayload()) : decoder.getText()).append('|');
+            }
+            assertFalse(buffer.hasRemaining());
+        }
+        assertEquals("ping:p|안녕" + "x".repeat(300) + "|", events.toString());
+    }
+
+    @Test
+    @DisplayName("마스킹하지 않은 프레임은 1002, 최대 크기를 넘는 메시지는 1009, 깨진 UTF-8 텍스트는 1007")
+    void protocolErrors() throws Exception {
+        byte[] unmasked = WebSocketFrame.encode(OPCODE_TEXT, new byte[]{'a'}).array();
+        WebSocketProtocolException e = assertThrows(WebSocketProtocolException.class,
+                () -> new WebSocketFrameDecoder(1024).decode(ByteBuffer.wrap(unmasked)));
+        assertEquals(CLOSE_PROTOCOL_ERROR, e.getCloseCode());
+
+        e = assertThrows(WebSocketProtocolException.class,
+                () -> new WebSocketFrameDecoder(10).decode(ByteBuffer.wrap(masked(OPCODE_BINARY, true, new byte[11]))));
+        assertEquals(CLOSE_TOO_BIG, e.getCloseCode());
+
+        WebSocketFrameDecoder decoder = new WebSocketFrameDecoder(1024);
+        assertTrue(decoder.decode(ByteBuffer.wrap(masked(OPCODE_TEXT, true, new byte[]{(byte) 0xC3}))));
+        e = assertThrows(WebSocketProtocolException.class, decoder::getText);
+        assertEquals(CLOSE_INVALID_PAYLOAD, e.getCloseCode());
+    }
+
+    static byte[] masked(int opcode, boolean fin, byte[] payload) {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write((fin ? 0x80 : 0) | opcode);
+        if (payload.length < 126) {
+            frame.write(0x80 | payload.length);
+        } else {
+            frame.write(0x80 | 126);
+            frame.write(payload.length >> 8);
+            frame.write(payload.length);
+        }
+        byte[] mask = {0x11, 0x22, 0x33, 0x44};
+        frame.writeBytes(mask);
+        for (int i = 0; i < payload.length; i++) {
+            frame.write(payload[i] ^ mask[i & 3]);
+        }
+        return frame.toByteArray();
+    }
+}
@@ -0,0 +1,79 @@
+package org.mardi2020.tomcat.servlet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mardi2020.tomcat.server.MyRequest;
+import org.mardi2020.tomcat.server.MyResponse;
+import org.mardi2020.tomcat.server.MyResponseFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticResourceServletTest {
+
+    private Path root;
+
+    private StaticResourceServlet servlet;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        root = Files.createTempDirectory("static");
+        Files.writeString(root.resolve("app.js"), "console.log('hi');");
+        Files.write(root.resolve("large.bin"), new byte[1024]);
+        servlet = new StaticResourceServlet("/static", root, 512, 4096);
+    }
+
+    @Test
+    @DisplayName("작은 파일은 캐시된 바이트로, 큰 파일은 파일 구간으로 응답한다")
+    void serveSmallAndLargeFiles() throws IOException {
+        MyResponse small = service("GET /static/app.js HTTP/1.1\r\n\r\n");
+        assertEquals(HttpStatus.OK.value(), small.getStatusCode());
+        assertEquals("text/javascript; charset=UTF-8", small.getHeaders().get(HttpHeaders.CONTENT_TYPE));
+        assertEquals("console.log('hi');", new String(small.getBodyBytes(), StandardCharsets.UTF_8));
+        assertSame(small.getBodyBytes(), service("GET /static/app.js HTTP/1.1\r\n\r\n").getBodyBytes());
+
+        MyResponse large = service("GET /static/large.bin HTTP/1.1\r\n\r\n");
+        assertNull(large.getBodyBytes());
+        assertEquals(1024, large.getBodyFile().count());
+    }
+
+    @Test
+    @DisplayName("ETag 가 일치하면 304, Range 요청이면 206 과 Content-Range 를 응답한다")
+    void conditionalAndRangeRequests() throws IOException {
+        String etag = service("GET /static/app.js HTTP/1.1\r\n\r\n").getHeaders().get(HttpHeaders.ETAG);
+
+        MyResponse notModified = service("GET /static/app.js HTTP/1.1\r\nIf-None-Match: " + etag + "\r\n\r\n");
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), notModified.getStatusCode());
+
+        MyResponse partial = service("GET /static/large.bin HTTP/1.1\r\nRange: bytes=-100\r\n\r\n");
+        assertEquals(HttpStatus.PARTIAL_CONTENT.value(), partial.getStatusCode());
+        assertEquals("bytes 924-1023/1024", partial.getHeaders().get(HttpHeaders.CONTENT_RANGE));
+        assertEquals(924, partial.getBodyFile().position());
+        assertEquals(100, partial.getBodyFile().count());
+
+        MyResponse unsatisfiable = service("GET /static/app.js HTTP/1.1\r\nRange: bytes=100-\r\n\r\n");
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value(), unsatisfiable.getStatusCode());
+    }
+
+    @Test
+    @DisplayName("루트 밖을 가리키거나 없는 파일은 404")
+    void notFound() throws IOException {
+        assertEquals(HttpStatus.NOT_FOUND.value(), service("GET /static/../secret HTTP/1.1\r\n\r\n").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND.value(), service("GET /static/none.css HTTP/1.1\r\n\r\n").getStatusCode());
+    }
+
+    private MyResponse service(String raw) throws IOException {
+        MyRequest request = new MyRequest(new ByteArrayInputStream(raw.getBytes(StandardCharsets.UTF_8)));
+        MyResponse response = MyResponseFactory.create("", request.getPath(), true);
+        servlet.service(request, response);
+        return response;
+    }
+}